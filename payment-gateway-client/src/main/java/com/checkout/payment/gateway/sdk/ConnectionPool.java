@@ -0,0 +1,103 @@
+package com.checkout.payment.gateway.sdk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Up to {@code maxConnections} pipelined connections to one gateway, opened on demand. Requests
+ * go to the least loaded connection with room in its pipeline.
+ */
+final class ConnectionPool implements Closeable {
+
+  private final InetSocketAddress address;
+  private final int maxConnections;
+  private final int pipelineDepth;
+  private final int maxRequestsPerConnection;
+  private final Duration connectTimeout;
+  private final Runnable onCapacity;
+  private final List<PipelinedConnection> connections = new CopyOnWriteArrayList<>();
+  private final AtomicLong opened = new AtomicLong();
+  private volatile boolean closed;
+
+  /**
+   * @param onCapacity called whenever a connection may have room for another request
+   */
+  ConnectionPool(InetSocketAddress address, int maxConnections, int pipelineDepth,
+      int maxRequestsPerConnection, Duration connectTimeout, Runnable onCapacity) {
+    this.address = address;
+    this.maxConnections = maxConnections;
+    this.pipelineDepth = pipelineDepth;
+    this.maxRequestsPerConnection = maxRequestsPerConnection;
+    this.connectTimeout = connectTimeout;
+    this.onCapacity = onCapacity;
+  }
+
+  /**
+   * An idle connection if there is one, else a new connection while under the limit, else the
+   * least loaded connection with room in its pipeline.
+   *
+   * @return null if every connection's pipeline is full
+   */
+  PipelinedConnection acquire() throws IOException {
+    PipelinedConnection best = null;
+    int usable = 0;
+    for (PipelinedConnection connection : connections) {
+      if (!connection.isUsable()) {
+        continue;
+      }
+      usable++;
+      int inFlight = connection.getInFlight();
+      if (inFlight < pipelineDepth && (best == null || inFlight < best.getInFlight())) {
+        best = connection;
+      }
+    }
+    if (best != null && best.getInFlight() == 0 || usable >= maxConnections) {
+      return best;
+    }
+    synchronized (this) {
+      if (closed) {
+        throw new IOException("Client is closed");
+      }
+      // Connections that took all their requests are draining and do not count
+      if (connections.stream().filter(PipelinedConnection::isUsable).count() < maxConnections) {
+        PipelinedConnection connection = new PipelinedConnection(address, connectTimeout,
+            maxRequestsPerConnection, this::changed);
+        connections.add(connection);
+        opened.incrementAndGet();
+        if (connection.isClosed()) {
+          // Failed before it was listed, so its close callback found nothing to remove
+          connections.remove(connection);
+          return best;
+        }
+        return connection;
+      }
+    }
+    return best;
+  }
+
+  long getOpenedCount() {
+    return opened.get();
+  }
+
+  @Override
+  public void close() {
+    synchronized (this) {
+      closed = true;
+    }
+    for (PipelinedConnection connection : connections) {
+      connection.close();
+    }
+  }
+
+  private void changed(PipelinedConnection connection) {
+    if (connection.isClosed()) {
+      connections.remove(connection);
+    }
+    onCapacity.run();
+  }
+}
@@ -0,0 +1,80 @@
+package com.checkout.payment.gateway.sdk;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Call latencies in microsecond buckets that widen with the value: 16 buckets per power of two,
+ * so a percentile is reported within about 6% of the true value whatever its magnitude. Recording
+ * is a couple of atomic increments and never allocates.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    counts.incrementAndGet(index(value / 1_000));
+    count.incrementAndGet();
+    maxNanos.accumulateAndGet(value, Math::max);
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public Duration getMax() {
+    return Duration.ofNanos(maxNanos.get());
+  }
+
+  /**
+   * The latency that {@code quantile} of calls stayed within, rounded up to its bucket's upper
+   * edge, or zero before any call is recorded.
+   */
+  public Duration getPercentile(double quantile) {
+    long total = count.get();
+    if (total == 0) {
+      return Duration.ZERO;
+    }
+    long rank = Math.max(1, (long) Math.ceil(quantile * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        long upperMicros = lowerBoundMicros(i + 1) - 1;
+        return Duration.ofNanos(Math.min(maxNanos.get(), upperMicros * 1_000 + 999));
+      }
+    }
+    return getMax();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("count=%d p50=%dus p99=%dus p999=%dus max=%dus", getCount(),
+        getPercentile(0.5).toNanos() / 1_000, getPercentile(0.99).toNanos() / 1_000,
+        getPercentile(0.999).toNanos() / 1_000, getMax().toNanos() / 1_000);
+  }
+
+  static int index(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) ((micros >>> shift) - SUB_BUCKETS);
+  }
+
+  static long lowerBoundMicros(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    return (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+  }
+}
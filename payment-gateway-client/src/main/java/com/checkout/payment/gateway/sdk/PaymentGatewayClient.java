@@ -0,0 +1,447 @@
+package com.checkout.payment.gateway.sdk;
+
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.sdk.PipelinedConnection.Response;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Client for the gateway's payment API over a small pool of pipelined keep-alive connections.
+ *
+ * <p>Every payment is sent with an {@code Idempotency-Key}, kept across retries, so the gateway
+ * answers a retry with the first attempt's outcome instead of charging twice. Failed connections,
+ * timeouts and 503 or 429 answers are retried up to {@code maxAttempts} times, with exponential
+ * backoff and full jitter. Each call's latency, retries included, is recorded in a
+ * {@link LatencyHistogram} per operation.
+ *
+ * <p>Responses on a connection arrive in the order requests were written, so a request that times
+ * out closes its connection and the requests behind it are retried on another. Pipelining saves
+ * the wait between a response and the next request; the gateway still serves each connection's
+ * requests one at a time, so concurrency comes from {@code maxConnections}.
+ */
+public class PaymentGatewayClient implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentGatewayClient.class);
+
+  private final String host;
+  private final String basePath;
+  private final String merchantId;
+  private final ConnectionPool pool;
+  private final ObjectMapper objectMapper;
+  private final Duration requestTimeout;
+  private final int maxAttempts;
+  private final long retryBaseDelayNanos;
+  private final long retryMaxDelayNanos;
+  private final int maxQueuedRequests;
+  private final Queue<Exchange> queued = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queuedCount = new AtomicInteger();
+  private final ScheduledExecutorService retryScheduler;
+  private final ExecutorService callbackExecutor;
+  private final LatencyHistogram authorizeLatency = new LatencyHistogram();
+  private final LatencyHistogram lookupLatency = new LatencyHistogram();
+  private final AtomicLong retries = new AtomicLong();
+
+  private PaymentGatewayClient(Builder builder) {
+    URI baseUri = builder.baseUri;
+    int port = baseUri.getPort() > 0 ? baseUri.getPort() : 80;
+    this.host = baseUri.getHost() + ":" + port;
+    String path = baseUri.getRawPath() == null ? "" : baseUri.getRawPath();
+    this.basePath = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    this.merchantId = builder.merchantId;
+    this.objectMapper = builder.objectMapper;
+    this.requestTimeout = builder.requestTimeout;
+    this.maxAttempts = builder.maxAttempts;
+    this.retryBaseDelayNanos = builder.retryBaseDelay.toNanos();
+    this.retryMaxDelayNanos = builder.retryMaxDelay.toNanos();
+    this.maxQueuedRequests = builder.maxQueuedRequests;
+    this.pool = new ConnectionPool(new InetSocketAddress(baseUri.getHost(), port),
+        builder.maxConnections, builder.pipelineDepth, builder.maxRequestsPerConnection,
+        builder.connectTimeout, this::drainQueue);
+    this.retryScheduler = Executors.newSingleThreadScheduledExecutor(
+        daemon("payment-gateway-client-retry"));
+    // Keeps response decoding and the caller's callbacks off the connection reader threads
+    this.callbackExecutor = Executors.newFixedThreadPool(builder.callbackThreads,
+        daemon("payment-gateway-client-callback"));
+  }
+
+  /**
+   * @param baseUri the gateway, e.g. {@code http://payments.internal:8090}
+   */
+  public static Builder builder(URI baseUri) {
+    return new Builder(baseUri);
+  }
+
+  public PostPaymentResponse authorize(PostPaymentRequest request) {
+    return join(authorizeAsync(request));
+  }
+
+  /**
+   * Authorizes the payment under a new idempotency key. A rejected payment completes normally,
+   * with status {@code Rejected}.
+   */
+  public CompletableFuture<PostPaymentResponse> authorizeAsync(PostPaymentRequest request) {
+    return authorizeAsync(request, UUID.randomUUID().toString());
+  }
+
+  /**
+   * @param idempotencyKey the key to send, for callers that retry on their own across restarts
+   */
+  public CompletableFuture<PostPaymentResponse> authorizeAsync(PostPaymentRequest request,
+      String idempotencyKey) {
+    long start = System.nanoTime();
+    byte[] body;
+    try {
+      body = objectMapper.writeValueAsBytes(request);
+    } catch (JsonProcessingException e) {
+      return CompletableFuture.failedFuture(
+          new PaymentGatewayException("Payment could not be encoded", e));
+    }
+    byte[] httpRequest = PipelinedConnection.request("POST", host, basePath + "/payment",
+        merchantId, idempotencyKey, body);
+    return send(httpRequest, authorizeLatency, start)
+        .thenApply(response -> decode(response, response.status() == 400));
+  }
+
+  public PostPaymentResponse getPayment(UUID id) {
+    return join(getPaymentAsync(id));
+  }
+
+  public CompletableFuture<PostPaymentResponse> getPaymentAsync(UUID id) {
+    long start = System.nanoTime();
+    byte[] httpRequest = PipelinedConnection.request("GET", host, basePath + "/payment/" + id,
+        merchantId, null, new byte[0]);
+    return send(httpRequest, lookupLatency, start).thenApply(response -> decode(response, false));
+  }
+
+  public LatencyHistogram getAuthorizeLatency() {
+    return authorizeLatency;
+  }
+
+  public LatencyHistogram getLookupLatency() {
+    return lookupLatency;
+  }
+
+  public long getRetryCount() {
+    return retries.get();
+  }
+
+  /**
+   * Connections opened so far, including those since closed.
+   */
+  public long getConnectionsOpened() {
+    return pool.getOpenedCount();
+  }
+
+  @Override
+  public void close() {
+    pool.close();
+    retryScheduler.shutdownNow();
+    callbackExecutor.shutdown();
+  }
+
+  private CompletableFuture<Response> send(byte[] httpRequest, LatencyHistogram latency,
+      long start) {
+    CompletableFuture<Response> result = new CompletableFuture<>();
+    attempt(new Exchange(httpRequest, 1, result));
+    return result.whenCompleteAsync((response, failure) ->
+        latency.record(System.nanoTime() - start), callbackExecutor);
+  }
+
+  private void attempt(Exchange exchange) {
+    exchange.response.orTimeout(requestTimeout.toNanos(), TimeUnit.NANOSECONDS)
+        .whenComplete((response, failure) -> completed(exchange, response, failure));
+    dispatch(exchange);
+  }
+
+  private void completed(Exchange exchange, Response response, Throwable failure) {
+    if (failure instanceof TimeoutException && exchange.connection != null) {
+      // The responses behind this one cannot overtake it
+      exchange.connection.fail(new IOException("Request timed out after " + requestTimeout));
+    }
+    boolean retryable = failure != null
+        || response.status() == 503 || response.status() == 429;
+    if (!retryable) {
+      exchange.result.complete(response);
+      return;
+    }
+    if (exchange.attempt >= maxAttempts) {
+      if (failure == null) {
+        exchange.result.complete(response);
+      } else {
+        exchange.result.completeExceptionally(new PaymentGatewayException(
+            "Gateway not reached after " + exchange.attempt + " attempts", failure));
+      }
+      return;
+    }
+    retries.incrementAndGet();
+    long delay = backoffNanos(exchange.attempt, response);
+    LOG.debug("Retrying in {} us after attempt {}: {}", delay / 1_000, exchange.attempt,
+        failure != null ? failure.toString() : response.status());
+    Exchange next = new Exchange(exchange.request, exchange.attempt + 1, exchange.result);
+    try {
+      retryScheduler.schedule(() -> attempt(next), delay, TimeUnit.NANOSECONDS);
+    } catch (RuntimeException e) {
+      exchange.result.completeExceptionally(new PaymentGatewayException("Client is closed", e));
+    }
+  }
+
+  // Full jitter over an exponentially growing ceiling, but never sooner than Retry-After asks
+  private long backoffNanos(int attempt, Response response) {
+    long ceiling = Math.min(retryMaxDelayNanos, retryBaseDelayNanos << Math.min(attempt - 1, 20));
+    long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+    if (response != null && response.retryAfter() != null) {
+      try {
+        long retryAfter = TimeUnit.SECONDS.toNanos(Long.parseLong(response.retryAfter()));
+        delay = Math.max(delay, Math.min(retryAfter, retryMaxDelayNanos));
+      } catch (NumberFormatException e) {
+        // An HTTP date; the backoff alone will do
+      }
+    }
+    return delay;
+  }
+
+  private void dispatch(Exchange exchange) {
+    while (true) {
+      PipelinedConnection connection;
+      try {
+        connection = pool.acquire();
+      } catch (IOException e) {
+        exchange.response.completeExceptionally(e);
+        return;
+      }
+      if (connection == null) {
+        if (queuedCount.incrementAndGet() > maxQueuedRequests) {
+          queuedCount.decrementAndGet();
+          exchange.response.completeExceptionally(new PaymentGatewayException(-1,
+              "More than " + maxQueuedRequests + " requests waiting for a connection"));
+          return;
+        }
+        queued.add(exchange);
+        // A connection may have freed up before the request was queued
+        drainQueue();
+        return;
+      }
+      exchange.connection = connection;
+      if (connection.send(exchange.request, exchange.response)) {
+        return;
+      }
+      // Closed or retired since it was picked; try another
+    }
+  }
+
+  private void drainQueue() {
+    while (!queued.isEmpty()) {
+      PipelinedConnection connection;
+      try {
+        connection = pool.acquire();
+      } catch (IOException e) {
+        Exchange exchange = queued.poll();
+        if (exchange != null) {
+          queuedCount.decrementAndGet();
+          exchange.response.completeExceptionally(e);
+        }
+        continue;
+      }
+      if (connection == null) {
+        return;
+      }
+      Exchange exchange = queued.poll();
+      if (exchange == null) {
+        return;
+      }
+      queuedCount.decrementAndGet();
+      if (exchange.response.isDone()) {
+        // Timed out while waiting
+        continue;
+      }
+      exchange.connection = connection;
+      if (!connection.send(exchange.request, exchange.response)) {
+        queuedCount.incrementAndGet();
+        queued.add(exchange);
+      }
+    }
+  }
+
+  private PostPaymentResponse decode(Response response, boolean rejection) {
+    int status = response.status();
+    if (status >= 200 && status < 300 || rejection) {
+      try {
+        return objectMapper.readValue(response.body(), PostPaymentResponse.class);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Unreadable response with status " + status, e);
+      }
+    }
+    throw new PaymentGatewayException(status, "Gateway answered " + status + ": "
+        + new String(response.body(), StandardCharsets.UTF_8));
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new PaymentGatewayException("Payment call failed", e.getCause());
+    }
+  }
+
+  private static ThreadFactory daemon(String name) {
+    AtomicInteger threads = new AtomicInteger();
+    return task -> {
+      Thread thread = new Thread(task, name + "-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  // One attempt at a request; a retry is a new exchange completing the same result
+  private static final class Exchange {
+
+    final byte[] request;
+    final int attempt;
+    final CompletableFuture<Response> result;
+    final CompletableFuture<Response> response = new CompletableFuture<>();
+    volatile PipelinedConnection connection;
+
+    Exchange(byte[] request, int attempt, CompletableFuture<Response> result) {
+      this.request = request;
+      this.attempt = attempt;
+      this.result = result;
+    }
+  }
+
+  public static final class Builder {
+
+    private final URI baseUri;
+    private String merchantId;
+    private int maxConnections = 8;
+    private int pipelineDepth = 16;
+    // Tomcat closes a keep-alive connection after 100 requests by default
+    private int maxRequestsPerConnection = 100;
+    private int maxQueuedRequests = 10_000;
+    private int callbackThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private Duration connectTimeout = Duration.ofSeconds(1);
+    private Duration requestTimeout = Duration.ofSeconds(10);
+    private int maxAttempts = 3;
+    private Duration retryBaseDelay = Duration.ofMillis(50);
+    private Duration retryMaxDelay = Duration.ofSeconds(1);
+    private ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new ParameterNamesModule())
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private Builder(URI baseUri) {
+      if (!"http".equals(baseUri.getScheme())) {
+        throw new IllegalArgumentException("Only http gateways are supported: " + baseUri);
+      }
+      this.baseUri = baseUri;
+    }
+
+    /**
+     * Sent as {@code Merchant-Id} with every call: payments are stored in, and only looked up
+     * from, that merchant's partition, and idempotency keys are scoped to it.
+     */
+    public Builder merchantId(String merchantId) {
+      this.merchantId = merchantId;
+      return this;
+    }
+
+    public Builder maxConnections(int maxConnections) {
+      this.maxConnections = maxConnections;
+      return this;
+    }
+
+    /**
+     * Requests written to one connection before its first response arrives.
+     */
+    public Builder pipelineDepth(int pipelineDepth) {
+      this.pipelineDepth = pipelineDepth;
+      return this;
+    }
+
+    /**
+     * Requests after which a connection is closed and replaced; keep it at or below the server's
+     * keep-alive limit.
+     */
+    public Builder maxRequestsPerConnection(int maxRequestsPerConnection) {
+      this.maxRequestsPerConnection = maxRequestsPerConnection;
+      return this;
+    }
+
+    /**
+     * Requests allowed to wait for room in a pipeline before new ones fail.
+     */
+    public Builder maxQueuedRequests(int maxQueuedRequests) {
+      this.maxQueuedRequests = maxQueuedRequests;
+      return this;
+    }
+
+    public Builder callbackThreads(int callbackThreads) {
+      this.callbackThreads = callbackThreads;
+      return this;
+    }
+
+    public Builder connectTimeout(Duration connectTimeout) {
+      this.connectTimeout = connectTimeout;
+      return this;
+    }
+
+    /**
+     * Per attempt; a call with retries can take up to {@code maxAttempts} times this plus the
+     * backoff.
+     */
+    public Builder requestTimeout(Duration requestTimeout) {
+      this.requestTimeout = requestTimeout;
+      return this;
+    }
+
+    /**
+     * Attempts per call, the first included.
+     */
+    public Builder maxAttempts(int maxAttempts) {
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    public Builder retryBackoff(Duration baseDelay, Duration maxDelay) {
+      this.retryBaseDelay = baseDelay;
+      this.retryMaxDelay = maxDelay;
+      return this;
+    }
+
+    public Builder objectMapper(ObjectMapper objectMapper) {
+      this.objectMapper = objectMapper;
+      return this;
+    }
+
+    public PaymentGatewayClient build() {
+      return new PaymentGatewayClient(this);
+    }
+  }
+}
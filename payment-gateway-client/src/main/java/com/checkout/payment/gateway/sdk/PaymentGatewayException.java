@@ -0,0 +1,26 @@
+package com.checkout.payment.gateway.sdk;
+
+/**
+ * The gateway answered with an error, or could not be reached within the retries allowed.
+ */
+public class PaymentGatewayException extends RuntimeException {
+
+  private final int status;
+
+  public PaymentGatewayException(int status, String message) {
+    super(message);
+    this.status = status;
+  }
+
+  public PaymentGatewayException(String message, Throwable cause) {
+    super(message, cause);
+    this.status = -1;
+  }
+
+  /**
+   * The HTTP status the gateway answered with, or -1 if it never answered.
+   */
+  public int getStatus() {
+    return status;
+  }
+}
@@ -0,0 +1,289 @@
+package com.checkout.payment.gateway.sdk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * One keep-alive HTTP/1.1 connection with requests pipelined on it: a request is written as soon
+ * as it is sent, without waiting for the responses before it, and a reader thread matches
+ * responses to requests in the order they were written.
+ *
+ * <p>A connection takes at most {@code maxRequests} requests and closes once they are answered,
+ * before the server's own keep-alive limit would close it with requests still unanswered. If it
+ * breaks anyway, every request still waiting fails with {@link ConnectionClosedException}.
+ */
+final class PipelinedConnection implements Closeable {
+
+  private static final byte[] CRLF = {'\r', '\n'};
+
+  private final Socket socket;
+  private final OutputStream out;
+  private final InputStream in;
+  private final int maxRequests;
+  private final Consumer<PipelinedConnection> onResponse;
+  private final Queue<CompletableFuture<Response>> waiting = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final Object writeLock = new Object();
+  private int sent;
+  private volatile boolean closed;
+
+  /**
+   * @param onResponse called on the reader thread after each response, and once more when the
+   *     connection closes, so the caller can send queued requests
+   */
+  PipelinedConnection(InetSocketAddress address, Duration connectTimeout, int maxRequests,
+      Consumer<PipelinedConnection> onResponse) throws IOException {
+    this.socket = new Socket();
+    socket.setTcpNoDelay(true);
+    socket.setKeepAlive(true);
+    socket.connect(address, (int) connectTimeout.toMillis());
+    this.out = new BufferedOutputStream(socket.getOutputStream());
+    this.in = new BufferedInputStream(socket.getInputStream());
+    this.maxRequests = maxRequests;
+    this.onResponse = onResponse;
+    Thread reader = new Thread(this::readResponses,
+        "payment-gateway-client-" + socket.getLocalPort());
+    reader.setDaemon(true);
+    reader.start();
+  }
+
+  /**
+   * Writes the request and adds its response to the future, unless the connection is closed or
+   * has taken all its requests.
+   *
+   * @return false if the request was not written
+   */
+  boolean send(byte[] request, CompletableFuture<Response> response) {
+    IOException failure = null;
+    synchronized (writeLock) {
+      if (closed || sent >= maxRequests) {
+        return false;
+      }
+      sent++;
+      inFlight.incrementAndGet();
+      // Queued before it is written, so the reader always finds it
+      waiting.add(response);
+      try {
+        out.write(request);
+        out.flush();
+      } catch (IOException e) {
+        failure = e;
+      }
+    }
+    // Outside the lock: failing calls back into the pool, which locks other connections
+    if (failure != null) {
+      fail(failure);
+    }
+    return true;
+  }
+
+  boolean isUsable() {
+    if (closed) {
+      return false;
+    }
+    synchronized (writeLock) {
+      return sent < maxRequests;
+    }
+  }
+
+  boolean isClosed() {
+    return closed;
+  }
+
+  int getInFlight() {
+    return inFlight.get();
+  }
+
+  @Override
+  public void close() {
+    fail(new IOException("Connection closed"));
+  }
+
+  /**
+   * Closes the connection and fails every request it has not answered.
+   */
+  void fail(Throwable cause) {
+    synchronized (writeLock) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    try {
+      socket.close();
+    } catch (IOException e) {
+      // Closing anyway
+    }
+    CompletableFuture<Response> unanswered;
+    while ((unanswered = waiting.poll()) != null) {
+      inFlight.decrementAndGet();
+      unanswered.completeExceptionally(new ConnectionClosedException(cause));
+    }
+    onResponse.accept(this);
+  }
+
+  private void readResponses() {
+    try {
+      while (!closed) {
+        Response response = readResponse();
+        CompletableFuture<Response> request = waiting.poll();
+        if (request == null) {
+          throw new IOException("Response to a request that was never sent");
+        }
+        inFlight.decrementAndGet();
+        request.complete(response);
+        if (response.closesConnection() || retired()) {
+          fail(new IOException("Connection closed by the server"));
+          return;
+        }
+        onResponse.accept(this);
+      }
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  // No request can be added once all have been sent, so none is left waiting after the last reply
+  private boolean retired() {
+    synchronized (writeLock) {
+      return sent >= maxRequests && waiting.isEmpty();
+    }
+  }
+
+  private Response readResponse() throws IOException {
+    String statusLine = readLine();
+    String[] status = statusLine.split(" ", 3);
+    if (status.length < 2 || !status[0].startsWith("HTTP/1.")) {
+      throw new IOException("Malformed status line: " + statusLine);
+    }
+    int code = Integer.parseInt(status[1]);
+    long contentLength = -1;
+    boolean chunked = false;
+    boolean close = status[0].equals("HTTP/1.0");
+    String retryAfter = null;
+    for (String header = readLine(); !header.isEmpty(); header = readLine()) {
+      int colon = header.indexOf(':');
+      if (colon < 0) {
+        continue;
+      }
+      String name = header.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+      String value = header.substring(colon + 1).trim();
+      switch (name) {
+        case "content-length" -> contentLength = Long.parseLong(value);
+        case "transfer-encoding" -> chunked = value.toLowerCase(Locale.ROOT).contains("chunked");
+        case "connection" -> close = value.equalsIgnoreCase("close");
+        case "retry-after" -> retryAfter = value;
+        default -> {
+        }
+      }
+    }
+
+    byte[] body;
+    if (chunked) {
+      body = readChunked();
+    } else if (contentLength >= 0) {
+      body = readFully((int) contentLength);
+    } else if (code == 204 || code == 304) {
+      body = new byte[0];
+    } else {
+      // Delimited by the end of the connection
+      body = in.readAllBytes();
+      close = true;
+    }
+    return new Response(code, body, retryAfter, close);
+  }
+
+  private byte[] readChunked() throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    while (true) {
+      String sizeLine = readLine();
+      int extension = sizeLine.indexOf(';');
+      int size = Integer.parseInt(
+          (extension < 0 ? sizeLine : sizeLine.substring(0, extension)).trim(), 16);
+      if (size == 0) {
+        // Trailers, if any
+        while (!readLine().isEmpty()) {
+          // Ignored
+        }
+        return body.toByteArray();
+      }
+      body.write(readFully(size));
+      readLine();
+    }
+  }
+
+  private byte[] readFully(int length) throws IOException {
+    byte[] bytes = in.readNBytes(length);
+    if (bytes.length < length) {
+      throw new EOFException("Connection closed in the middle of a response");
+    }
+    return bytes;
+  }
+
+  private String readLine() throws IOException {
+    StringBuilder line = new StringBuilder();
+    int b;
+    while ((b = in.read()) != '\n') {
+      if (b < 0) {
+        throw new EOFException("Connection closed by the server");
+      }
+      if (b != '\r') {
+        line.append((char) b);
+      }
+    }
+    return line.toString();
+  }
+
+  static byte[] request(String method, String host, String path, String merchantId,
+      String idempotencyKey, byte[] body) {
+    ByteArrayOutputStream request = new ByteArrayOutputStream(256 + body.length);
+    StringBuilder head = new StringBuilder(256)
+        .append(method).append(' ').append(path).append(" HTTP/1.1\r\n")
+        .append("Host: ").append(host).append("\r\n")
+        .append("Accept: application/json\r\n");
+    if (merchantId != null) {
+      head.append("Merchant-Id: ").append(merchantId).append("\r\n");
+    }
+    if (idempotencyKey != null) {
+      head.append("Idempotency-Key: ").append(idempotencyKey).append("\r\n");
+    }
+    if (body.length > 0 || !method.equals("GET")) {
+      head.append("Content-Type: application/json\r\n")
+          .append("Content-Length: ").append(body.length).append("\r\n");
+    }
+    request.writeBytes(head.toString().getBytes(StandardCharsets.US_ASCII));
+    request.writeBytes(CRLF);
+    request.writeBytes(body);
+    return request.toByteArray();
+  }
+
+  record Response(int status, byte[] body, String retryAfter, boolean closesConnection) {
+  }
+
+  /**
+   * The request may or may not have reached the server; only idempotent requests can be sent
+   * again.
+   */
+  static final class ConnectionClosedException extends IOException {
+
+    ConnectionClosedException(Throwable cause) {
+      super(cause.getMessage(), cause);
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package com.checkout.payment.gateway.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("LatencyHistogram Tests")
+class LatencyHistogramTest {
+
+  @Test
+  @DisplayName("Should place every value in the bucket whose bounds contain it")
+  void testBucketBounds() {
+    for (long micros : new long[] {0, 1, 15, 16, 17, 31, 32, 33, 1_000, 65_535, 1L << 40}) {
+      int index = LatencyHistogram.index(micros);
+      assertTrue(LatencyHistogram.lowerBoundMicros(index) <= micros, "lower bound of " + micros);
+      assertTrue(LatencyHistogram.lowerBoundMicros(index + 1) > micros, "upper bound of " + micros);
+    }
+  }
+
+  @Test
+  @DisplayName("Should report percentiles within the bucket precision")
+  void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int millis = 1; millis <= 1000; millis++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    assertEquals(1000, histogram.getCount());
+    assertEquals(Duration.ofSeconds(1), histogram.getMax());
+    assertWithin(500, histogram.getPercentile(0.5));
+    assertWithin(990, histogram.getPercentile(0.99));
+    assertEquals(Duration.ofSeconds(1), histogram.getPercentile(1.0));
+    assertEquals(Duration.ZERO, new LatencyHistogram().getPercentile(0.99));
+  }
+
+  private static void assertWithin(long expectedMillis, Duration actual) {
+    double error = Math.abs(actual.toNanos() / 1e6 - expectedMillis) / expectedMillis;
+    assertTrue(error < 0.07, expectedMillis + " ms reported as " + actual);
+  }
+}
@@ -0,0 +1,207 @@
+package com.checkout.payment.gateway.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.PaymentGatewayApplication;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Runs the gateway in-process on a random port, with a stub acquirer behind it.
+ */
+@SpringBootTest(classes = PaymentGatewayApplication.class,
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {"payments.warmup.enabled=false", "payments.grpc.port=0"})
+@DisplayName("PaymentGatewayClient Tests")
+class PaymentGatewayClientTest {
+
+  private static final Pattern CARD_NUMBER = Pattern.compile("\"card_number\":\"(\\d+)\"");
+  private static final String SLOW_CARD = "4000000000000001";
+  private static final AtomicInteger CARDS = new AtomicInteger();
+  private static final Map<String, AtomicInteger> BANK_CALLS = new ConcurrentHashMap<>();
+  private static final HttpServer BANK = startBank();
+
+  @LocalServerPort
+  int port;
+
+  private PaymentGatewayClient client;
+
+  @DynamicPropertySource
+  static void gatewayProperties(DynamicPropertyRegistry registry) throws IOException {
+    Path data = Files.createTempDirectory("payment-gateway-client-test");
+    registry.add("bank.simulator.url",
+        () -> "http://localhost:" + BANK.getAddress().getPort());
+    registry.add("payments.async.directory", () -> data.resolve("async").toString());
+    registry.add("payments.cold.directory", () -> data.resolve("cold").toString());
+  }
+
+  @AfterAll
+  static void stopBank() {
+    BANK.stop(0);
+  }
+
+  @BeforeEach
+  void setUp() {
+    client = PaymentGatewayClient.builder(URI.create("http://localhost:" + port))
+        .maxConnections(2)
+        .pipelineDepth(8)
+        .build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    client.close();
+  }
+
+  @Test
+  @DisplayName("Should authorize a payment and read it back")
+  void testAuthorizeAndGet() {
+    PostPaymentResponse authorized = client.authorize(request(nextCard()));
+
+    assertEquals(PaymentStatus.AUTHORIZED, authorized.getStatus());
+    assertEquals(1050, authorized.getAmount());
+    PostPaymentResponse read = client.getPayment(authorized.getId());
+    assertEquals(authorized.getId(), read.getId());
+    assertEquals(authorized.getCardNumberLastFour(), read.getCardNumberLastFour());
+    assertEquals(1, client.getAuthorizeLatency().getCount());
+    assertEquals(1, client.getLookupLatency().getCount());
+  }
+
+  @Test
+  @DisplayName("Should return a rejected payment and fail a lookup of an unknown ID with its status")
+  void testRejectionAndError() {
+    PostPaymentRequest expired = request(nextCard());
+    expired.setExpiryYear(2001);
+
+    assertEquals(PaymentStatus.REJECTED, client.authorize(expired).getStatus());
+    PaymentGatewayException missing = assertThrows(PaymentGatewayException.class,
+        () -> client.getPayment(UUID.randomUUID()));
+    assertEquals(404, missing.getStatus());
+  }
+
+  @Test
+  @DisplayName("Should pipeline concurrent calls over a bounded set of rotating connections")
+  void testPipelinedConcurrentCalls() {
+    try (PaymentGatewayClient rotating = PaymentGatewayClient.builder(
+            URI.create("http://localhost:" + port))
+        .maxConnections(2)
+        .pipelineDepth(8)
+        .maxRequestsPerConnection(25)
+        .build()) {
+      List<CompletableFuture<PostPaymentResponse>> payments = new ArrayList<>();
+      for (int i = 0; i < 300; i++) {
+        payments.add(rotating.authorizeAsync(request(nextCard())));
+      }
+      for (CompletableFuture<PostPaymentResponse> payment : payments) {
+        assertEquals(PaymentStatus.AUTHORIZED, payment.join().getStatus());
+      }
+
+      assertEquals(300, rotating.getAuthorizeLatency().getCount());
+      // Each connection is replaced after its 25 requests; the last two may share the remainder
+      long opened = rotating.getConnectionsOpened();
+      assertTrue(opened == 300 / 25 || opened == 300 / 25 + 1, "Connections opened: " + opened);
+      System.out.println("Pipelined authorizations: " + rotating.getAuthorizeLatency());
+    }
+  }
+
+  @Test
+  @DisplayName("Should retry a timed-out payment under the same key without a second bank call")
+  void testRetryIsIdempotent() {
+    try (PaymentGatewayClient impatient = PaymentGatewayClient.builder(
+            URI.create("http://localhost:" + port))
+        .requestTimeout(Duration.ofMillis(400))
+        .maxAttempts(5)
+        .retryBackoff(Duration.ofMillis(10), Duration.ofMillis(50))
+        .build()) {
+      PostPaymentResponse payment = impatient.authorize(request(SLOW_CARD));
+
+      assertEquals(PaymentStatus.AUTHORIZED, payment.getStatus());
+      assertTrue(impatient.getRetryCount() >= 1);
+      assertEquals(1, BANK_CALLS.get(SLOW_CARD).get());
+      assertTrue(impatient.getAuthorizeLatency().getPercentile(0.5).toMillis() >= 1000);
+    }
+  }
+
+  private static String nextCard() {
+    return String.valueOf(4_532_015_112_000_000L + CARDS.incrementAndGet());
+  }
+
+  private static PostPaymentRequest request(String cardNumber) {
+    PostPaymentRequest request = new PostPaymentRequest();
+    request.setCardNumber(cardNumber);
+    request.setExpiryMonth(12);
+    request.setExpiryYear(2030);
+    request.setCurrency("USD");
+    request.setAmount(1050);
+    request.setCvv(123);
+    return request;
+  }
+
+  // Authorizes everything; takes a second over SLOW_CARD
+  private static HttpServer startBank() {
+    try {
+      // Otherwise Nagle holds back each response body for the gateway's delayed ACK
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+      HttpServer bank = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      bank.setExecutor(Executors.newCachedThreadPool());
+      bank.createContext("/payments", exchange -> {
+        String request = new String(exchange.getRequestBody().readAllBytes(),
+            StandardCharsets.UTF_8);
+        Matcher card = CARD_NUMBER.matcher(request);
+        if (card.find()) {
+          BANK_CALLS.computeIfAbsent(card.group(1), key -> new AtomicInteger()).incrementAndGet();
+          if (SLOW_CARD.equals(card.group(1))) {
+            try {
+              TimeUnit.SECONDS.sleep(1);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        }
+        byte[] body = "{\"authorized\":true,\"authorization_code\":\"sdk\"}"
+            .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(body);
+        }
+      });
+      bank.start();
+      return bank;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
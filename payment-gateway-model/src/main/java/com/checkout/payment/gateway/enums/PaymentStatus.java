@@ -0,0 +1,28 @@
+package com.checkout.payment.gateway.enums;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+public enum PaymentStatus {
+  AUTHORIZED("Authorized"),
+  DECLINED("Declined"),
+  REJECTED("Rejected"),
+  // Accepted in asynchronous mode and waiting for the bank. Declared last because the stores
+  // persist statuses by ordinal
+  PENDING("Pending"),
+  // Post-authorization lifecycle, see PaymentLifecycleService
+  CAPTURED("Captured"),
+  VOIDED("Voided"),
+  PARTIALLY_REFUNDED("Partially Refunded"),
+  REFUNDED("Refunded");
+
+  private final String name;
+
+  PaymentStatus(String name) {
+    this.name = name;
+  }
+
+  @JsonValue
+  public String getName() {
+    return this.name;
+  }
+}
@@ -6,7 +6,7 @@ import lombok.Data;
 import java.util.UUID;
 
 @Data
-@Builder(setterPrefix = "set")
+@Builder(setterPrefix = "set", toBuilder = true)
 public class PostPaymentResponse {
   private UUID id;
   private String authorizationCode;
@@ -16,6 +16,7 @@ public class PostPaymentResponse {
   private int expiryYear;
   private String currency;
   private int amount;
+  private int refundedAmount;
 
   @Override
   public String toString() {
@@ -27,6 +28,7 @@ public class PostPaymentResponse {
         ", expiryYear=" + expiryYear +
         ", currency='" + currency + '\'' +
         ", amount=" + amount +
+        ", refundedAmount=" + refundedAmount +
         '}';
   }
 }
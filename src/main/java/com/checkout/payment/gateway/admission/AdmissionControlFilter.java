@@ -0,0 +1,112 @@
+package com.checkout.payment.gateway.admission;
+
+import com.checkout.payment.gateway.admission.AdmissionController.Decision;
+import com.checkout.payment.gateway.admission.AdmissionController.RequestClass;
+import com.checkout.payment.gateway.model.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Runs payment API requests past the {@link AdmissionController} and answers rejected ones
+ * straight away with 429 or 503 and a {@code Retry-After} header.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AdmissionControlFilter.class);
+
+  private final AdmissionController admissionController;
+  private final ObjectMapper objectMapper;
+  private final String retryAfterSeconds;
+
+  public AdmissionControlFilter(AdmissionController admissionController,
+      ObjectMapper objectMapper, Duration retryAfter) {
+    this.admissionController = admissionController;
+    this.objectMapper = objectMapper;
+    this.retryAfterSeconds = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    // The event stream is long-lived and would pin a slot for its whole lifetime
+    String uri = request.getRequestURI();
+    return !uri.equals("/payment") && !uri.startsWith("/payment/");
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    RequestClass requestClass = "GET".equals(request.getMethod())
+        ? RequestClass.READ : RequestClass.WRITE;
+    Decision decision;
+    try {
+      decision = admissionController.admit(requestClass);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      decision = Decision.SHED;
+    }
+
+    if (decision != Decision.ADMITTED) {
+      reject(response, decision);
+      return;
+    }
+    boolean async = false;
+    try {
+      filterChain.doFilter(request, response);
+      if (request.isAsyncStarted()) {
+        // The slot stays taken until the asynchronous handler actually finishes
+        request.getAsyncContext().addListener(new ReleaseOnComplete());
+        async = true;
+      }
+    } finally {
+      if (!async) {
+        admissionController.release();
+      }
+    }
+  }
+
+  private void reject(HttpServletResponse response, Decision decision) throws IOException {
+    HttpStatus status = decision == Decision.QUEUE_FULL
+        ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE;
+    LOG.debug("Admission control rejected request with {}", status);
+    response.setStatus(status.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    objectMapper.writeValue(response.getOutputStream(),
+        new ErrorResponse("Gateway is overloaded, retry later"));
+  }
+
+  private class ReleaseOnComplete implements AsyncListener {
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      admissionController.release();
+    }
+
+    // Timeouts and errors still end in onComplete
+    @Override
+    public void onTimeout(AsyncEvent event) {
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      event.getAsyncContext().addListener(this);
+    }
+  }
+}
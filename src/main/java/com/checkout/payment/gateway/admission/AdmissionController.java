@@ -0,0 +1,143 @@
+package com.checkout.payment.gateway.admission;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decides whether a request may start, before it ties up a servlet thread on slow work.
+ *
+ * <p>Reads may use every in-flight slot; writes leave {@code reservedForReads} slots free so
+ * lookups keep flowing when the bank is slow. A write that finds no slot waits in a bounded
+ * queue. Queueing delay is watched CoDel-style: if even the shortest wait over an interval was
+ * above target, a standing queue has formed and waits are cut to the target until it drains.
+ */
+public class AdmissionController {
+
+  public enum RequestClass { READ, WRITE }
+
+  public enum Decision { ADMITTED, QUEUE_FULL, SHED }
+
+  private final int maxInFlight;
+  private final int reservedForReads;
+  private final int maxQueued;
+  private final long queueTimeoutNanos;
+  private final long targetNanos;
+  private final long intervalNanos;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition released = lock.newCondition();
+  private int inFlight;
+  private int queued;
+
+  // CoDel state, guarded by lock
+  private long intervalStart = System.nanoTime();
+  private long minDelayInInterval = Long.MAX_VALUE;
+  private volatile boolean overloaded;
+
+  private final AtomicLong admitted = new AtomicLong();
+  private final AtomicLong rejectedQueueFull = new AtomicLong();
+  private final AtomicLong shed = new AtomicLong();
+
+  public AdmissionController(int maxInFlight, int reservedForReads, int maxQueued,
+      Duration queueTimeout, Duration target, Duration interval) {
+    this.maxInFlight = maxInFlight;
+    this.reservedForReads = reservedForReads;
+    this.maxQueued = maxQueued;
+    this.queueTimeoutNanos = queueTimeout.toNanos();
+    this.targetNanos = target.toNanos();
+    this.intervalNanos = interval.toNanos();
+  }
+
+  /**
+   * A caller that gets {@link Decision#ADMITTED} must call {@link #release()} when done.
+   */
+  public Decision admit(RequestClass requestClass) throws InterruptedException {
+    int limit = requestClass == RequestClass.READ ? maxInFlight : maxInFlight - reservedForReads;
+    long arrival = System.nanoTime();
+    lock.lock();
+    try {
+      if (inFlight < limit) {
+        inFlight++;
+        recordDelay(0, arrival);
+        admitted.incrementAndGet();
+        return Decision.ADMITTED;
+      }
+      if (requestClass == RequestClass.READ) {
+        shed.incrementAndGet();
+        return Decision.SHED;
+      }
+      if (queued >= maxQueued) {
+        rejectedQueueFull.incrementAndGet();
+        return Decision.QUEUE_FULL;
+      }
+
+      queued++;
+      try {
+        long deadline = arrival + (overloaded ? targetNanos : queueTimeoutNanos);
+        while (inFlight >= limit) {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            recordDelay(System.nanoTime() - arrival, System.nanoTime());
+            shed.incrementAndGet();
+            return Decision.SHED;
+          }
+          released.awaitNanos(remaining);
+        }
+        inFlight++;
+        long now = System.nanoTime();
+        recordDelay(now - arrival, now);
+        admitted.incrementAndGet();
+        return Decision.ADMITTED;
+      } finally {
+        queued--;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void release() {
+    lock.lock();
+    try {
+      inFlight--;
+      released.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getInFlight() {
+    return inFlight;
+  }
+
+  public int getQueued() {
+    return queued;
+  }
+
+  public boolean isOverloaded() {
+    return overloaded;
+  }
+
+  public long getAdmittedCount() {
+    return admitted.get();
+  }
+
+  public long getQueueFullCount() {
+    return rejectedQueueFull.get();
+  }
+
+  public long getShedCount() {
+    return shed.get();
+  }
+
+  private void recordDelay(long delay, long now) {
+    minDelayInInterval = Math.min(minDelayInInterval, delay);
+    if (now - intervalStart >= intervalNanos) {
+      overloaded = minDelayInInterval > targetNanos;
+      minDelayInInterval = Long.MAX_VALUE;
+      intervalStart = now;
+    }
+  }
+}
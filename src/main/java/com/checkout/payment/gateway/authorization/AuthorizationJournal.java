@@ -0,0 +1,314 @@
+package com.checkout.payment.gateway.authorization;
+
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only file of accepted asynchronous payments. Entry {@code n} sits at offset
+ * {@code n * ENTRY_SIZE} and is laid out as {@code [state:1][nonce:12][sealed:99]}, where
+ * {@code sealed} is the AES-GCM encryption of
+ * {@code [cardLength:1][card:19][currency:3][month:1][year:2][amount:4][cvv:4][id:16]
+ * [merchantLength:1][merchant:32]} under the journal key. The state byte flips from PENDING to
+ * DONE once the bank has answered, and the rest of the entry is zeroed with it.
+ * Appends are group-committed: concurrent callers share one fsync. The file is truncated
+ * whenever nothing is pending, so it only ever holds the current backlog.
+ *
+ * <p>The card number and CVV only reach the disk encrypted, and are erased once the bank has
+ * answered. Entries the key cannot open, from another key or a torn write, are left out of
+ * recovery.
+ */
+public class AuthorizationJournal implements AutoCloseable {
+
+  static final int ENTRY_SIZE = 128;
+  static final String FILE_NAME = "authorizations.journal";
+  static final int KEY_SIZE = 32;
+
+  private static final Logger LOG = LoggerFactory.getLogger(AuthorizationJournal.class);
+
+  private static final byte PENDING = 1;
+  private static final byte DONE = 2;
+  private static final int MAX_CARD_LENGTH = 19;
+  private static final int MAX_MERCHANT_LENGTH = 32;
+  private static final int NONCE_SIZE = 12;
+  private static final int TAG_BITS = 128;
+  private static final int PLAIN_SIZE = 83;
+  private static final int SEALED_OFFSET = 1 + NONCE_SIZE;
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  private final FileChannel channel;
+  private final SecretKeySpec key;
+  private final Cipher cipher;
+  private final ByteBuffer plain = ByteBuffer.allocate(PLAIN_SIZE);
+  private final ByteBuffer appendBuffer = ByteBuffer.allocate(ENTRY_SIZE);
+  private final ByteBuffer doneBuffer = ByteBuffer.allocate(ENTRY_SIZE);
+  private final ReentrantLock appendLock = new ReentrantLock();
+  private final ReentrantLock syncLock = new ReentrantLock();
+  private final List<PendingAuthorization> recovered;
+  private long head;
+  private int pending;
+  // Writes made under the append lock so far, and how many of them are known to be on disk
+  private volatile long written;
+  private volatile long synced;
+
+  /**
+   * @param key the {@value #KEY_SIZE}-byte AES key entries are sealed with; a journal can only be
+   *     recovered with the key it was written with
+   */
+  public AuthorizationJournal(Path directory, byte[] key) {
+    if (key.length != KEY_SIZE) {
+      throw new EventProcessingException("The authorization journal key must be " + KEY_SIZE
+          + " bytes");
+    }
+    try {
+      this.key = new SecretKeySpec(key, "AES");
+      this.cipher = Cipher.getInstance("AES/GCM/NoPadding");
+      Files.createDirectories(directory);
+      this.channel = FileChannel.open(directory.resolve(FILE_NAME),
+          StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      // Drop a partially written entry left behind by a crash
+      long entries = channel.size() / ENTRY_SIZE;
+      channel.truncate(entries * ENTRY_SIZE);
+      this.recovered = scan(entries);
+      this.head = entries - 1;
+      this.pending = recovered.size();
+    } catch (IOException | GeneralSecurityException e) {
+      throw new EventProcessingException("Cannot open authorization journal: " + e.getMessage());
+    }
+    doneBuffer.put(0, DONE);
+  }
+
+  /**
+   * A random key, for journals that need not survive the process.
+   */
+  public static byte[] generateKey() {
+    byte[] key = new byte[KEY_SIZE];
+    RANDOM.nextBytes(key);
+    return key;
+  }
+
+  /**
+   * Durably records a validated payment and returns its entry. The request must have passed
+   * {@code PaymentValidator}, which bounds every field to the entry layout.
+   */
+  public PendingAuthorization append(UUID id, PostPaymentRequest request) {
+    return append(id, request, null);
+  }
+
+  /**
+   * @param merchantId the merchant the payment is stored for, or null for the default partition
+   */
+  public PendingAuthorization append(UUID id, PostPaymentRequest request, String merchantId) {
+    long seq;
+    long ticket;
+    appendLock.lock();
+    try {
+      seq = head + 1;
+      seal(id, request, merchantId);
+      write(appendBuffer, seq * ENTRY_SIZE);
+      head = seq;
+      pending++;
+      ticket = ++written;
+    } finally {
+      appendLock.unlock();
+    }
+    sync(ticket);
+    return new PendingAuthorization(seq, id, request, merchantId);
+  }
+
+  /**
+   * Marks an entry as done and erases the payment from it. Once the backlog drains the file is
+   * emptied.
+   */
+  public void complete(PendingAuthorization authorization) {
+    long ticket;
+    appendLock.lock();
+    try {
+      doneBuffer.clear();
+      write(doneBuffer, authorization.seq() * ENTRY_SIZE);
+      if (--pending == 0) {
+        channel.truncate(0);
+        head = -1;
+      }
+      ticket = ++written;
+    } catch (IOException e) {
+      throw new EventProcessingException("Failed to complete authorization "
+          + authorization.id() + ": " + e.getMessage());
+    } finally {
+      appendLock.unlock();
+    }
+    sync(ticket);
+  }
+
+  /**
+   * Entries that were still pending when the journal was opened.
+   */
+  public List<PendingAuthorization> getRecovered() {
+    return recovered;
+  }
+
+  public int getPendingCount() {
+    appendLock.lock();
+    try {
+      return pending;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new EventProcessingException("Failed to close authorization journal: "
+          + e.getMessage());
+    }
+  }
+
+  // Whoever holds the sync lock forces every write made so far, so callers queued behind it
+  // usually find theirs already on disk. No force runs under the append lock, so appends keep
+  // landing while one is in progress.
+  private void sync(long ticket) {
+    if (synced >= ticket) {
+      return;
+    }
+    syncLock.lock();
+    try {
+      if (synced >= ticket) {
+        return;
+      }
+      long target = written;
+      channel.force(false);
+      synced = target;
+    } catch (IOException e) {
+      throw new EventProcessingException("Failed to sync authorization journal: "
+          + e.getMessage());
+    } finally {
+      syncLock.unlock();
+    }
+  }
+
+  private void write(ByteBuffer buffer, long position) {
+    try {
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+    } catch (IOException e) {
+      throw new EventProcessingException("Failed to write authorization journal: "
+          + e.getMessage());
+    }
+  }
+
+  private void seal(UUID id, PostPaymentRequest request, String merchantId) {
+    byte[] card = request.getCardNumber().getBytes(StandardCharsets.US_ASCII);
+    if (card.length > MAX_CARD_LENGTH) {
+      throw new EventProcessingException("Card number does not fit in a journal entry");
+    }
+    byte[] merchant = merchantId == null ? new byte[0]
+        : merchantId.getBytes(StandardCharsets.US_ASCII);
+    if (merchant.length > MAX_MERCHANT_LENGTH) {
+      throw new EventProcessingException("Merchant ID does not fit in a journal entry");
+    }
+    plain.clear();
+    Arrays.fill(plain.array(), (byte) 0);
+    plain.put(0, (byte) card.length);
+    plain.put(1, card);
+    plain.put(20, request.getCurrency().getBytes(StandardCharsets.US_ASCII), 0, 3);
+    plain.put(23, (byte) request.getExpiryMonth());
+    plain.putShort(24, (short) request.getExpiryYear());
+    plain.putInt(26, request.getAmount());
+    plain.putInt(30, request.getCvv());
+    plain.putLong(34, id.getMostSignificantBits());
+    plain.putLong(42, id.getLeastSignificantBits());
+    plain.put(50, (byte) merchant.length);
+    plain.put(51, merchant);
+
+    byte[] nonce = new byte[NONCE_SIZE];
+    RANDOM.nextBytes(nonce);
+    appendBuffer.clear();
+    Arrays.fill(appendBuffer.array(), (byte) 0);
+    appendBuffer.put(0, PENDING);
+    appendBuffer.put(1, nonce);
+    appendBuffer.position(SEALED_OFFSET);
+    try {
+      cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, nonce));
+      cipher.doFinal(plain, appendBuffer);
+    } catch (GeneralSecurityException e) {
+      throw new EventProcessingException("Failed to seal journal entry: " + e.getMessage());
+    }
+    Arrays.fill(plain.array(), (byte) 0);
+    appendBuffer.clear();
+  }
+
+  private List<PendingAuthorization> scan(long entries) throws IOException {
+    List<PendingAuthorization> found = new ArrayList<>();
+    ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+    for (long seq = 0; seq < entries; seq++) {
+      entry.clear();
+      while (entry.hasRemaining()) {
+        channel.read(entry, seq * ENTRY_SIZE + entry.position());
+      }
+      if (entry.get(0) != PENDING) {
+        continue;
+      }
+      try {
+        found.add(open(seq, entry));
+      } catch (GeneralSecurityException e) {
+        LOG.error("Skipping journal entry {}: it does not open with the journal key", seq);
+      }
+    }
+    return found;
+  }
+
+  private PendingAuthorization open(long seq, ByteBuffer entry)
+      throws GeneralSecurityException {
+    byte[] nonce = new byte[NONCE_SIZE];
+    entry.get(1, nonce);
+    cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, nonce));
+    plain.clear();
+    cipher.doFinal(entry.slice(SEALED_OFFSET, PLAIN_SIZE + TAG_BITS / 8), plain);
+    try {
+      byte[] card = new byte[plain.get(0)];
+      plain.get(1, card);
+      byte[] currency = new byte[3];
+      plain.get(20, currency);
+      PostPaymentRequest request = new PostPaymentRequest();
+      request.setCardNumber(new String(card, StandardCharsets.US_ASCII));
+      request.setCurrency(new String(currency, StandardCharsets.US_ASCII));
+      request.setExpiryMonth(plain.get(23));
+      request.setExpiryYear(plain.getShort(24));
+      request.setAmount(plain.getInt(26));
+      request.setCvv(plain.getInt(30));
+      UUID id = new UUID(plain.getLong(34), plain.getLong(42));
+      int merchantLength = plain.get(50);
+      String merchantId = null;
+      if (merchantLength > 0) {
+        byte[] merchant = new byte[merchantLength];
+        plain.get(51, merchant);
+        merchantId = new String(merchant, StandardCharsets.US_ASCII);
+      }
+      return new PendingAuthorization(seq, id, request, merchantId);
+    } finally {
+      Arrays.fill(plain.array(), (byte) 0);
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package com.checkout.payment.gateway.authorization;
+
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import java.util.UUID;
+
+/**
+ * A validated payment waiting for the bank, and the journal entry that keeps it across restarts.
+ *
+ * @param merchantId the merchant the payment is stored for, or null for the default partition
+ */
+public record PendingAuthorization(long seq, UUID id, PostPaymentRequest request,
+    String merchantId) {
+}
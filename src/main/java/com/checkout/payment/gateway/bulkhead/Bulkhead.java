@@ -0,0 +1,76 @@
+package com.checkout.payment.gateway.bulkhead;
+
+import com.checkout.payment.gateway.exception.BulkheadFullException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed pool of threads with its own bounded queue, so one kind of work can only ever tie up
+ * its own threads. Work that finds the queue full fails fast with {@link BulkheadFullException}.
+ */
+public class Bulkhead implements Executor, AutoCloseable {
+
+  private final String name;
+  private final ThreadPoolExecutor executor;
+  private final int threads;
+  private final int queueCapacity;
+  private final AtomicLong rejected = new AtomicLong();
+
+  public Bulkhead(String name, int threads, int queueCapacity) {
+    this.name = name;
+    this.threads = threads;
+    this.queueCapacity = queueCapacity;
+    AtomicInteger counter = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        queueCapacity == 0 ? new SynchronousQueue<>()
+            : new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+          Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    try {
+      executor.execute(command);
+    } catch (RejectedExecutionException e) {
+      rejected.incrementAndGet();
+      throw new BulkheadFullException(name);
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getActiveCount() {
+    return executor.getActiveCount();
+  }
+
+  public int getQueueSize() {
+    return executor.getQueue().size();
+  }
+
+  public long getRejectedCount() {
+    return rejected.get();
+  }
+
+  /**
+   * Busy threads plus queued tasks, as a fraction of everything the bulkhead can hold.
+   */
+  public double getSaturation() {
+    return (double) (getActiveCount() + getQueueSize()) / (threads + queueCapacity);
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,24 @@
+package com.checkout.payment.gateway.bulkhead;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * The three isolated pools a payment request can run on: lookups, POST validation and
+ * persistence, and bank calls.
+ */
+public record Bulkheads(Executor reads, Executor writes, Executor bank) {
+
+  /**
+   * Runs everything on the calling thread, for tests and when bulkheads are switched off.
+   */
+  public static Bulkheads inline() {
+    Executor direct = Runnable::run;
+    return new Bulkheads(direct, direct, direct);
+  }
+
+  public static <T> CompletableFuture<T> supply(Executor executor, Supplier<T> task) {
+    return CompletableFuture.supplyAsync(task, executor);
+  }
+}
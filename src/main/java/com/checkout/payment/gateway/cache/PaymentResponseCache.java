@@ -0,0 +1,224 @@
+package com.checkout.payment.gateway.cache;
+
+import static com.checkout.payment.gateway.hash.SplitMix.mix;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.UncheckedIOException;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JSON bodies of recently read payments, so merchants polling {@code GET /payment/{id}} do not
+ * have the same payment serialized again on every poll, plus the version that their ETags are
+ * made from.
+ *
+ * <p>A payment's version is a fingerprint of every field the body shows, so any write that
+ * changes the body changes the version, whichever path made it. Being a 64-bit hash rather than a
+ * counter, two bodies can still share a version, at odds of about 2^-64 per change, and a stale
+ * body or 304 would then be served for that change. Bodies are kept per payment
+ * under the version they were serialized at; reading a payment at another version replaces its
+ * body. Readers that miss on the same payment and version at once share one serialization. At
+ * most {@code maxEntries} bodies are kept, evicted by a CLOCK sweep that spares those read since
+ * it last passed.
+ */
+public class PaymentResponseCache {
+
+  private final ObjectMapper objectMapper;
+  private final boolean enabled;
+  private final int maxEntries;
+  private final ConcurrentHashMap<UUID, Entry> entries = new ConcurrentHashMap<>();
+  // Sweep order; may hold entries already replaced or removed from the map
+  private final Queue<Entry> clock = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger clockSize = new AtomicInteger();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder collapsed = new LongAdder();
+  private final LongAdder notModified = new LongAdder();
+
+  public PaymentResponseCache(ObjectMapper objectMapper, int maxEntries) {
+    this(objectMapper, true, maxEntries);
+  }
+
+  private PaymentResponseCache(ObjectMapper objectMapper, boolean enabled, int maxEntries) {
+    this.objectMapper = objectMapper;
+    this.enabled = enabled;
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * Computes ETags and serializes every read afresh.
+   */
+  public static PaymentResponseCache disabled(ObjectMapper objectMapper) {
+    return new PaymentResponseCache(objectMapper, false, 0);
+  }
+
+  public static long version(PostPaymentResponse payment) {
+    UUID id = payment.getId();
+    long h = id == null ? 0 : id.getMostSignificantBits() ^ Long.rotateLeft(
+        id.getLeastSignificantBits(), 32);
+    h = mix(h, payment.getAuthorizationCode());
+    h = mix(h, payment.getStatus() == null ? -1 : payment.getStatus().ordinal());
+    h = mix(h, payment.getCardNumberLastFour());
+    h = mix(h, payment.getExpiryMonth());
+    h = mix(h, payment.getExpiryYear());
+    h = mix(h, payment.getCurrency());
+    h = mix(h, payment.getAmount());
+    h = mix(h, payment.getRefundedAmount());
+    return h;
+  }
+
+  /**
+   * The strong entity tag of a version, quotes included.
+   */
+  public static String etag(long version) {
+    return "\"" + String.format("%016x", version) + "\"";
+  }
+
+  /**
+   * Whether an {@code If-None-Match} header names the tag, comparing weakly as RFC 9110 asks.
+   */
+  public boolean isNotModified(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if (candidate.equals("*") || candidate.equals(etag)) {
+        notModified.increment();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The payment's JSON body.
+   *
+   * @param version the payment's {@link #version}
+   */
+  public byte[] serialize(PostPaymentResponse payment, long version) {
+    if (!enabled || payment.getId() == null) {
+      return write(payment);
+    }
+    UUID id = payment.getId();
+    Entry fresh = null;
+    while (true) {
+      Entry existing = entries.get(id);
+      if (existing != null && existing.version == version) {
+        existing.referenced = true;
+        if (existing.body.isDone()) {
+          hits.increment();
+        } else {
+          collapsed.increment();
+        }
+        return join(existing);
+      }
+      if (fresh == null) {
+        fresh = new Entry(id, version);
+      }
+      if (existing == null ? entries.putIfAbsent(id, fresh) == null
+          : entries.replace(id, existing, fresh)) {
+        break;
+      }
+    }
+    misses.increment();
+    clock.add(fresh);
+    clockSize.incrementAndGet();
+    byte[] body;
+    try {
+      body = write(payment);
+    } catch (RuntimeException e) {
+      entries.remove(id, fresh);
+      fresh.body.completeExceptionally(e);
+      throw e;
+    }
+    fresh.body.complete(body);
+    evict();
+    return body;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /**
+   * Misses that waited for another reader's serialization of the same version instead of
+   * serializing it again.
+   */
+  public long getCollapsedCount() {
+    return collapsed.sum();
+  }
+
+  public long getNotModifiedCount() {
+    return notModified.sum();
+  }
+
+  // Also sweeps while the clock is mostly replaced entries, so replacing versions of the same
+  // payments cannot grow it without bound
+  private void evict() {
+    Entry entry;
+    while ((entries.size() > maxEntries || clockSize.get() > 2 * maxEntries)
+        && (entry = clock.poll()) != null) {
+      clockSize.decrementAndGet();
+      if (entries.get(entry.id) != entry) {
+        continue;
+      }
+      if (entries.size() > maxEntries && !entry.referenced) {
+        entries.remove(entry.id, entry);
+      } else {
+        // Spends its reference only when the sweep is for room
+        entry.referenced &= entries.size() <= maxEntries;
+        clock.add(entry);
+        clockSize.incrementAndGet();
+      }
+    }
+  }
+
+  private byte[] write(PostPaymentResponse payment) {
+    try {
+      return objectMapper.writeValueAsBytes(payment);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static byte[] join(Entry entry) {
+    try {
+      return entry.body.join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException cause ? cause : e;
+    }
+  }
+
+  private static final class Entry {
+
+    private final UUID id;
+    private final long version;
+    private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+    private volatile boolean referenced;
+
+    Entry(UUID id, long version) {
+      this.id = id;
+      this.version = version;
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.checkout.payment.gateway.capture;
+
+import com.checkout.payment.gateway.hash.SipHash;
+import com.checkout.payment.gateway.hash.SplitMix;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+
+/**
+ * Strips card data from captured requests while keeping what decides how the gateway and the
+ * bank treat them. A card number keeps its length, any non-digits, its last four digits (the
+ * simulator's outcome depends on the last) and, when long enough to have one, its six-digit BIN;
+ * the digits in between are replaced with ones derived from a keyed hash of the whole number, so
+ * the same card always gets the same token within a capture but the token cannot be traced back
+ * without the key, which never leaves memory. The CVV keeps only its length and idempotency keys
+ * are replaced by tokens the same way, so repeats still repeat.
+ */
+public class CaptureSanitizer {
+
+  private static final int BIN_LENGTH = 6;
+  private static final int LAST_DIGITS = 4;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final long k0;
+  private final long k1;
+
+  public CaptureSanitizer() {
+    SecureRandom random = new SecureRandom();
+    this.k0 = random.nextLong();
+    this.k1 = random.nextLong();
+  }
+
+  CaptureSanitizer(long k0, long k1) {
+    this.k0 = k0;
+    this.k1 = k1;
+  }
+
+  public PostPaymentRequest sanitize(PostPaymentRequest request) {
+    PostPaymentRequest sanitized = new PostPaymentRequest();
+    sanitized.setCardNumber(tokenizeCardNumber(request.getCardNumber()));
+    sanitized.setExpiryMonth(request.getExpiryMonth());
+    sanitized.setExpiryYear(request.getExpiryYear());
+    sanitized.setCurrency(request.getCurrency());
+    sanitized.setAmount(request.getAmount());
+    sanitized.setCvv(maskCvv(request.getCvv()));
+    return sanitized;
+  }
+
+  public String tokenizeCardNumber(String cardNumber) {
+    if (cardNumber == null) {
+      return null;
+    }
+    int digits = 0;
+    for (int i = 0; i < cardNumber.length(); i++) {
+      if (Character.isDigit(cardNumber.charAt(i))) {
+        digits++;
+      }
+    }
+    int keepFirst = digits >= BIN_LENGTH + LAST_DIGITS + 3 ? BIN_LENGTH : 0;
+    int keepLast = Math.min(LAST_DIGITS, digits);
+    long state = hash(cardNumber);
+    char[] tokenized = cardNumber.toCharArray();
+    int digit = 0;
+    for (int i = 0; i < tokenized.length; i++) {
+      if (!Character.isDigit(tokenized[i])) {
+        continue;
+      }
+      if (digit >= keepFirst && digit < digits - keepLast) {
+        state += 0x9E3779B97F4A7C15L;
+        tokenized[i] = (char) ('0' + Long.remainderUnsigned(SplitMix.mix(state), 10));
+      }
+      digit++;
+    }
+    return new String(tokenized);
+  }
+
+  public String tokenizeIdempotencyKey(String idempotencyKey) {
+    if (idempotencyKey == null) {
+      return null;
+    }
+    long h = hash(idempotencyKey);
+    char[] token = new char[16];
+    for (int i = 15; i >= 0; i--) {
+      token[i] = HEX[(int) h & 0xF];
+      h >>>= 4;
+    }
+    return new String(token);
+  }
+
+  // Becomes the smallest number with as many digits and the same sign, which the validator
+  // treats exactly as it would the original
+  static int maskCvv(int cvv) {
+    if (cvv == 0) {
+      return 0;
+    }
+    int masked = 1;
+    for (long rest = Math.abs((long) cvv) / 10; rest > 0; rest /= 10) {
+      masked *= 10;
+    }
+    return cvv < 0 ? -masked : masked;
+  }
+
+  private long hash(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    return SipHash.hash(k0, k1, bytes, bytes.length);
+  }
+}
@@ -0,0 +1,15 @@
+package com.checkout.payment.gateway.capture;
+
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+
+/**
+ * One {@code POST /payment} as captured, already sanitized.
+ *
+ * @param arrivalNanos when it arrived, in nanoseconds since the capture started
+ * @param merchantId {@code Merchant-Id} header, or null
+ * @param idempotencyKey token standing in for the {@code Idempotency-Key} header, or null
+ * @param timeoutMillis {@code Request-Timeout} header, or null
+ */
+public record CapturedRequest(long arrivalNanos, boolean async, String merchantId,
+    String idempotencyKey, Long timeoutMillis, PostPaymentRequest request) {
+}
@@ -0,0 +1,164 @@
+package com.checkout.payment.gateway.capture;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Outcome of one replay: throughput, latency percentiles and how many responses came back with
+ * each status. Saved as a properties file so a later replay against another build can be
+ * compared with it.
+ */
+public class ReplayReport {
+
+  private static final String[] PERCENTILES = {"p50", "p90", "p99", "p999", "max"};
+  private static final double[] QUANTILES = {0.50, 0.90, 0.99, 0.999, 1.0};
+
+  private final long requests;
+  private final long errors;
+  private final long durationNanos;
+  // Microseconds, in the order of PERCENTILES
+  private final long[] latencies;
+  private final Map<Integer, Long> statuses;
+
+  private ReplayReport(long requests, long errors, long durationNanos, long[] latencies,
+      Map<Integer, Long> statuses) {
+    this.requests = requests;
+    this.errors = errors;
+    this.durationNanos = durationNanos;
+    this.latencies = latencies;
+    this.statuses = statuses;
+  }
+
+  /**
+   * @param latencyNanos latency of each request answered, in any order; sorted in place
+   * @param errors requests that got no response at all
+   */
+  static ReplayReport of(long[] latencyNanos, int answered, long errors, long durationNanos,
+      Map<Integer, Long> statuses) {
+    Arrays.sort(latencyNanos, 0, answered);
+    long[] latencies = new long[QUANTILES.length];
+    for (int i = 0; i < QUANTILES.length && answered > 0; i++) {
+      int rank = (int) Math.ceil(QUANTILES[i] * answered) - 1;
+      latencies[i] = latencyNanos[Math.max(rank, 0)] / 1_000;
+    }
+    return new ReplayReport(answered + errors, errors, durationNanos, latencies,
+        new TreeMap<>(statuses));
+  }
+
+  public static ReplayReport load(Path file) throws IOException {
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(file)) {
+      properties.load(reader);
+    }
+    long[] latencies = new long[PERCENTILES.length];
+    for (int i = 0; i < PERCENTILES.length; i++) {
+      latencies[i] = Long.parseLong(properties.getProperty("latency." + PERCENTILES[i] + ".us",
+          "0"));
+    }
+    Map<Integer, Long> statuses = new TreeMap<>();
+    for (String name : properties.stringPropertyNames()) {
+      if (name.startsWith("status.")) {
+        statuses.put(Integer.parseInt(name.substring(7)),
+            Long.parseLong(properties.getProperty(name)));
+      }
+    }
+    return new ReplayReport(Long.parseLong(properties.getProperty("requests", "0")),
+        Long.parseLong(properties.getProperty("errors", "0")),
+        Long.parseLong(properties.getProperty("duration.ns", "0")), latencies, statuses);
+  }
+
+  public void save(Path file) throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty("requests", Long.toString(requests));
+    properties.setProperty("errors", Long.toString(errors));
+    properties.setProperty("duration.ns", Long.toString(durationNanos));
+    properties.setProperty("throughput", String.format("%.1f", getThroughput()));
+    for (int i = 0; i < PERCENTILES.length; i++) {
+      properties.setProperty("latency." + PERCENTILES[i] + ".us", Long.toString(latencies[i]));
+    }
+    statuses.forEach((status, count) -> properties.setProperty("status." + status,
+        Long.toString(count)));
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    try (Writer writer = Files.newBufferedWriter(file)) {
+      properties.store(writer, "Traffic replay report");
+    }
+  }
+
+  public long getRequests() {
+    return requests;
+  }
+
+  public long getErrors() {
+    return errors;
+  }
+
+  /**
+   * Requests per second, from the first request sent to the last response.
+   */
+  public double getThroughput() {
+    return durationNanos == 0 ? 0 : requests * 1e9 / durationNanos;
+  }
+
+  public long getLatencyMicros(String percentile) {
+    int index = Arrays.asList(PERCENTILES).indexOf(percentile);
+    if (index < 0) {
+      throw new IllegalArgumentException("Unknown percentile " + percentile);
+    }
+    return latencies[index];
+  }
+
+  public Map<Integer, Long> getStatuses() {
+    return statuses;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder report = new StringBuilder(String.format(
+        "%,d requests (%,d errors) in %.2f s, %,.1f requests/s%n", requests, errors,
+        durationNanos / 1e9, getThroughput()));
+    for (int i = 0; i < PERCENTILES.length; i++) {
+      report.append(String.format("  %-5s %,10.2f ms%n", PERCENTILES[i], latencies[i] / 1e3));
+    }
+    statuses.forEach((status, count) -> report.append(String.format("  HTTP %d: %,d%n", status,
+        count)));
+    return report.toString();
+  }
+
+  /**
+   * Side-by-side comparison with a baseline, each row with its relative change.
+   */
+  public String diff(ReplayReport baseline) {
+    StringBuilder diff = new StringBuilder(String.format("%-12s %14s %14s %9s%n", "",
+        "baseline", "this run", "change"));
+    row(diff, "requests/s", baseline.getThroughput(), getThroughput(), "%,14.1f");
+    for (int i = 0; i < PERCENTILES.length; i++) {
+      row(diff, PERCENTILES[i] + " ms", baseline.latencies[i] / 1e3, latencies[i] / 1e3,
+          "%,14.2f");
+    }
+    row(diff, "errors", baseline.errors, errors, "%,14.0f");
+    Map<Integer, Long> allStatuses = new TreeMap<>(baseline.statuses);
+    statuses.keySet().forEach(status -> allStatuses.putIfAbsent(status, 0L));
+    for (Integer status : allStatuses.keySet()) {
+      row(diff, "HTTP " + status, baseline.statuses.getOrDefault(status, 0L),
+          statuses.getOrDefault(status, 0L), "%,14.0f");
+    }
+    return diff.toString();
+  }
+
+  private static void row(StringBuilder diff, String name, double baseline, double current,
+      String format) {
+    String change = baseline == 0 ? (current == 0 ? "" : "new")
+        : String.format("%+.1f%%", (current - baseline) * 100 / baseline);
+    diff.append(String.format("%-12s " + format + " " + format + " %9s%n", name, baseline,
+        current, change));
+  }
+}
@@ -0,0 +1,115 @@
+package com.checkout.payment.gateway.capture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process stand-in for the Mountebank bank simulator in {@code imposters/}, following the same
+ * rules: a request missing a field is answered 400, a card number ending in an odd digit is
+ * authorized, one ending in 2, 4, 6 or 8 declined and one ending in 0 answered 503. Each answer
+ * can be delayed by a fixed latency, so a replay runs without anything outside the JVM.
+ */
+class SimulatedBank implements AutoCloseable {
+
+  static {
+    // Headers and body go out as separate writes; without this they meet the client's delayed ACK
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+  }
+
+  private static final List<String> REQUIRED = List.of("card_number", "expiry_date", "currency",
+      "amount", "cvv");
+  private static final byte[] DECLINED = "{\"authorized\":false,\"authorization_code\":\"\"}"
+      .getBytes(StandardCharsets.UTF_8);
+  private static final byte[] MISSING_FIELDS =
+      "{\"error_message\":\"Not all required properties were sent in the request\"}"
+          .getBytes(StandardCharsets.UTF_8);
+  private static final byte[] UNSUPPORTED =
+      "{\"errorMessage\":\"The request supplied is not supported by the simulator\"}"
+          .getBytes(StandardCharsets.UTF_8);
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final long latencyNanos;
+  private final AtomicLong requests = new AtomicLong();
+
+  SimulatedBank(long latencyNanos) throws IOException {
+    this.latencyNanos = latencyNanos;
+    this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    this.server.setExecutor(executor);
+    this.server.createContext("/", this::handle);
+    this.server.start();
+  }
+
+  String url() {
+    return "http://localhost:" + server.getAddress().getPort();
+  }
+
+  long getRequestCount() {
+    return requests.get();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    requests.incrementAndGet();
+    byte[] request = exchange.getRequestBody().readAllBytes();
+    if (latencyNanos > 0) {
+      LockSupport.parkNanos(latencyNanos);
+    }
+    if (!"POST".equals(exchange.getRequestMethod())
+        || !"/payments".equals(exchange.getRequestURI().getPath())) {
+      respond(exchange, 400, UNSUPPORTED);
+      return;
+    }
+    JsonNode body = parse(request);
+    if (body == null || REQUIRED.stream().anyMatch(field -> !body.hasNonNull(field))) {
+      respond(exchange, 400, MISSING_FIELDS);
+      return;
+    }
+    String cardNumber = body.get("card_number").asText();
+    char last = cardNumber.isEmpty() ? ' ' : cardNumber.charAt(cardNumber.length() - 1);
+    if (last == '0') {
+      respond(exchange, 503, "{}".getBytes(StandardCharsets.UTF_8));
+    } else if (last == '1' || last == '3' || last == '5' || last == '7' || last == '9') {
+      respond(exchange, 200, ("{\"authorized\":true,\"authorization_code\":\"" + UUID.randomUUID()
+          + "\"}").getBytes(StandardCharsets.UTF_8));
+    } else if (last == '2' || last == '4' || last == '6' || last == '8') {
+      respond(exchange, 200, DECLINED);
+    } else {
+      respond(exchange, 400, UNSUPPORTED);
+    }
+  }
+
+  private JsonNode parse(byte[] request) {
+    try {
+      return objectMapper.readTree(request);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+}
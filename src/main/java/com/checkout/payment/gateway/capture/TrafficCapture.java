@@ -0,0 +1,148 @@
+package com.checkout.payment.gateway.capture;
+
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records incoming payment requests, sanitized, with their arrival times to a capture file that
+ * {@link TrafficReplay} can drive against another build. Requests are handed to a bounded queue
+ * and written by a thread of their own, so capturing never blocks a request: when the queue is
+ * full the request is dropped from the capture and counted. Capturing stops once the file
+ * reaches its size limit.
+ */
+public class TrafficCapture implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TrafficCapture.class);
+  private static final TrafficCapture DISABLED = new TrafficCapture();
+  private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final Path file;
+  private final long maxBytes;
+  private final CaptureSanitizer sanitizer;
+  private final BlockingQueue<CapturedRequest> queue;
+  private final AtomicLong captured = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final long startNanos;
+  private final Thread writer;
+  private volatile boolean running;
+
+  private TrafficCapture() {
+    this.file = null;
+    this.maxBytes = 0;
+    this.sanitizer = null;
+    this.queue = null;
+    this.startNanos = 0;
+    this.writer = null;
+  }
+
+  public TrafficCapture(Path file, int queueCapacity, long maxBytes) throws IOException {
+    this.file = file;
+    this.maxBytes = maxBytes;
+    this.sanitizer = new CaptureSanitizer();
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    // Not a channel stream: close() interrupts the writer, which must not abort a write
+    TrafficCaptureWriter out = new TrafficCaptureWriter(new FileOutputStream(file.toFile()),
+        System.currentTimeMillis());
+    this.startNanos = System.nanoTime();
+    this.running = true;
+    this.writer = new Thread(() -> drain(out), "traffic-capture");
+    this.writer.setDaemon(true);
+    this.writer.start();
+    LOG.info("Capturing payment traffic to {}", file);
+  }
+
+  public static TrafficCapture disabled() {
+    return DISABLED;
+  }
+
+  public boolean isEnabled() {
+    return running;
+  }
+
+  /**
+   * Queues the request to be captured. Never blocks; a request that finds the queue full is not
+   * captured.
+   */
+  public void record(PostPaymentRequest request, String mode, String merchantId,
+      String idempotencyKey, Long timeoutMillis) {
+    if (!running || request == null) {
+      return;
+    }
+    if (!queue.offer(new CapturedRequest(System.nanoTime() - startNanos, "async".equals(mode),
+        merchantId, idempotencyKey, timeoutMillis, request))) {
+      dropped.incrementAndGet();
+    }
+  }
+
+  public long getCapturedCount() {
+    return captured.get();
+  }
+
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * Writes out everything queued so far and closes the file.
+   */
+  @Override
+  public void close() {
+    if (writer == null || !running) {
+      return;
+    }
+    running = false;
+    writer.interrupt();
+    try {
+      writer.join(TimeUnit.SECONDS.toMillis(10));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void drain(TrafficCaptureWriter out) {
+    try (out) {
+      while (running || !queue.isEmpty()) {
+        CapturedRequest next;
+        try {
+          next = queue.poll(FLUSH_INTERVAL_NANOS, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+          // Woken up by close(); keep writing whatever is already queued
+          next = queue.poll();
+        }
+        if (next == null) {
+          out.flush();
+          continue;
+        }
+        out.write(new CapturedRequest(next.arrivalNanos(), next.async(), next.merchantId(),
+            sanitizer.tokenizeIdempotencyKey(next.idempotencyKey()), next.timeoutMillis(),
+            sanitizer.sanitize(next.request())));
+        captured.incrementAndGet();
+        if (out.getBytesWritten() >= maxBytes) {
+          LOG.warn("Traffic capture {} reached {} bytes, capture stopped", file, maxBytes);
+          running = false;
+          queue.clear();
+        }
+      }
+    } catch (IOException e) {
+      running = false;
+      queue.clear();
+      LOG.error("Traffic capture to {} failed, capture stopped", file, e);
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package com.checkout.payment.gateway.capture;
+
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a file written by {@link TrafficCaptureWriter}. A record cut short, as the last one is
+ * if the gateway stopped mid-write, ends the capture.
+ */
+public class TrafficCaptureReader implements Closeable {
+
+  private final DataInputStream in;
+  private final long startEpochMillis;
+  private long arrivalNanos;
+
+  public TrafficCaptureReader(InputStream in) throws IOException {
+    this.in = new DataInputStream(new BufferedInputStream(in, 65_536));
+    if (this.in.readInt() != TrafficCaptureWriter.MAGIC) {
+      throw new IOException("Not a traffic capture file");
+    }
+    int version = this.in.readUnsignedByte();
+    if (version != TrafficCaptureWriter.VERSION) {
+      throw new IOException("Unsupported traffic capture version " + version);
+    }
+    this.startEpochMillis = this.in.readLong();
+  }
+
+  public long getStartEpochMillis() {
+    return startEpochMillis;
+  }
+
+  /**
+   * Returns the next request, or null at the end of the capture.
+   */
+  public CapturedRequest read() throws IOException {
+    int first = in.read();
+    if (first < 0) {
+      return null;
+    }
+    try {
+      arrivalNanos += readVarLong(first);
+      int flags = in.readUnsignedByte();
+      String merchantId = readString();
+      String idempotencyKey = readString();
+      Long timeoutMillis = (flags & TrafficCaptureWriter.HAS_TIMEOUT) != 0
+          ? unZigZag(readVarLong(in.readUnsignedByte())) : null;
+      PostPaymentRequest request = new PostPaymentRequest();
+      request.setCardNumber(readString());
+      request.setExpiryMonth(readInt());
+      request.setExpiryYear(readInt());
+      request.setCurrency(readString());
+      request.setAmount(readInt());
+      request.setCvv(readInt());
+      return new CapturedRequest(arrivalNanos, (flags & TrafficCaptureWriter.ASYNC) != 0,
+          merchantId, idempotencyKey, timeoutMillis, request);
+    } catch (EOFException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private String readString() throws IOException {
+    int length = (int) readVarLong(in.readUnsignedByte());
+    if (length == 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length - 1];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private int readInt() throws IOException {
+    return (int) unZigZag(readVarLong(in.readUnsignedByte()));
+  }
+
+  private long readVarLong(int first) throws IOException {
+    long value = first & 0x7F;
+    int b = first;
+    for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+      b = in.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+    }
+    return value;
+  }
+
+  private static long unZigZag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
@@ -0,0 +1,102 @@
+package com.checkout.payment.gateway.capture;
+
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes captured requests in the capture file format: the magic {@code PGTC}, a version byte
+ * and the capture's start as epoch milliseconds, then one record per request. A record holds the
+ * arrival as a delta from the previous one, a flags byte, and the headers and body fields as
+ * varints and length-prefixed UTF-8 strings, about 50 bytes for a typical payment.
+ */
+public class TrafficCaptureWriter implements Closeable {
+
+  static final int MAGIC = 0x50475443;
+  static final int VERSION = 1;
+  static final int ASYNC = 1;
+  static final int HAS_TIMEOUT = 2;
+
+  private final OutputStream out;
+  private final ByteArrayOutputStream record = new ByteArrayOutputStream(128);
+  private long previousArrivalNanos;
+  private long bytesWritten;
+
+  public TrafficCaptureWriter(OutputStream out, long startEpochMillis) throws IOException {
+    this.out = new BufferedOutputStream(out, 65_536);
+    for (int shift = 24; shift >= 0; shift -= 8) {
+      this.out.write(MAGIC >>> shift);
+    }
+    this.out.write(VERSION);
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      this.out.write((int) (startEpochMillis >>> shift));
+    }
+    bytesWritten = 13;
+  }
+
+  /**
+   * Arrivals must not go backwards; one that does is written as arriving with the one before.
+   */
+  public void write(CapturedRequest captured) throws IOException {
+    record.reset();
+    long arrival = Math.max(captured.arrivalNanos(), previousArrivalNanos);
+    writeVarLong(arrival - previousArrivalNanos);
+    previousArrivalNanos = arrival;
+    record.write((captured.async() ? ASYNC : 0)
+        | (captured.timeoutMillis() != null ? HAS_TIMEOUT : 0));
+    writeString(captured.merchantId());
+    writeString(captured.idempotencyKey());
+    if (captured.timeoutMillis() != null) {
+      writeVarLong(zigZag(captured.timeoutMillis()));
+    }
+    PostPaymentRequest request = captured.request();
+    writeString(request.getCardNumber());
+    writeVarLong(zigZag(request.getExpiryMonth()));
+    writeVarLong(zigZag(request.getExpiryYear()));
+    writeString(request.getCurrency());
+    writeVarLong(zigZag(request.getAmount()));
+    writeVarLong(zigZag(request.getCvv()));
+    record.writeTo(out);
+    bytesWritten += record.size();
+  }
+
+  public long getBytesWritten() {
+    return bytesWritten;
+  }
+
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+  // Null is written as length 0, so an empty string is length 1
+  private void writeString(String value) {
+    if (value == null) {
+      writeVarLong(0);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarLong(bytes.length + 1L);
+    record.write(bytes, 0, bytes.length);
+  }
+
+  private void writeVarLong(long value) {
+    while ((value & ~0x7FL) != 0) {
+      record.write((int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    record.write((int) value);
+  }
+
+  private static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+}
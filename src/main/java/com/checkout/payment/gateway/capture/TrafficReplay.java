@@ -0,0 +1,280 @@
+package com.checkout.payment.gateway.capture;
+
+import com.checkout.payment.gateway.PaymentGatewayApplication;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Drives the payments of a {@link TrafficCapture} file at a gateway again, on the schedule they
+ * originally arrived on or N times faster, and reports throughput and latency, compared with an
+ * earlier report when given one.
+ *
+ * <pre>
+ * TrafficReplay &lt;capture file&gt; [--speed=N] [--target=URL] [--report=file] [--baseline=file]
+ *     [--bank-latency=duration] [--any.gateway.property=value ...]
+ * </pre>
+ *
+ * <p>Without {@code --target} the replay runs offline: the gateway is started in this JVM,
+ * configured by the remaining {@code --name=value} arguments, against an in-process bank that
+ * answers like the simulator after {@code --bank-latency} (default PT0.05S). Requests are sent
+ * open-loop, each on its schedule whether or not earlier ones have been answered, and latency is
+ * measured from when a request was due rather than when it went out, so a gateway that falls
+ * behind shows it. Expiry dates are moved on by the months since the capture, so cards valid
+ * then are valid now and expired ones stay expired. Idempotency keys repeat as they did when
+ * captured, so the same target should not be replayed against twice.
+ */
+public final class TrafficReplay {
+
+  private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(30);
+  private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(5);
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final HttpClient client = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_1_1)
+      .connectTimeout(Duration.ofSeconds(5))
+      .build();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicLong errors = new AtomicLong();
+  private final AtomicLong lastResponseNanos = new AtomicLong();
+  private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+  private long[] latencies = new long[1024];
+  private int answered;
+
+  private TrafficReplay() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    replay(args);
+  }
+
+  /**
+   * Runs a replay as {@link #main} would and returns its report.
+   */
+  public static ReplayReport replay(String... args) throws Exception {
+    Options options = Options.parse(args);
+    ReplayReport report;
+    if (options.target != null) {
+      report = new TrafficReplay().drive(options, options.target);
+    } else {
+      Path workDirectory = Files.createTempDirectory("traffic-replay");
+      try (SimulatedBank bank = new SimulatedBank(options.bankLatency.toNanos());
+          ConfigurableApplicationContext gateway = startGateway(options, bank, workDirectory)) {
+        String target = "http://localhost:"
+            + ((WebServerApplicationContext) gateway).getWebServer().getPort();
+        awaitReady(target);
+        report = new TrafficReplay().drive(options, target);
+      } finally {
+        FileSystemUtils.deleteRecursively(workDirectory);
+      }
+    }
+    System.out.print(report);
+    if (options.report != null) {
+      report.save(options.report);
+    }
+    if (options.baseline != null) {
+      System.out.print(report.diff(ReplayReport.load(options.baseline)));
+    }
+    return report;
+  }
+
+  private ReplayReport drive(Options options, String target) throws IOException {
+    URI uri = URI.create(target + "/payment");
+    try (InputStream in = Files.newInputStream(options.capture);
+        TrafficCaptureReader reader = new TrafficCaptureReader(in)) {
+      long monthsSinceCapture = ChronoUnit.MONTHS.between(
+          YearMonth.from(Instant.ofEpochMilli(reader.getStartEpochMillis()).atOffset(
+              ZoneOffset.UTC)), YearMonth.now(ZoneOffset.UTC));
+      long start = System.nanoTime();
+      CapturedRequest captured;
+      while ((captured = reader.read()) != null) {
+        long due = start + (long) (captured.arrivalNanos() / options.speed);
+        for (long wait; (wait = due - System.nanoTime()) > 0; ) {
+          LockSupport.parkNanos(wait);
+        }
+        send(request(uri, captured, monthsSinceCapture), due);
+      }
+      long deadline = System.nanoTime() + RESPONSE_TIMEOUT.toNanos();
+      while (inFlight.get() > 0 && System.nanoTime() - deadline < 0) {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+      }
+      errors.addAndGet(inFlight.get());
+      Map<Integer, Long> counts = new LinkedHashMap<>();
+      statuses.forEach((status, count) -> counts.put(status, count.sum()));
+      synchronized (this) {
+        return ReplayReport.of(latencies, answered, errors.get(),
+            Math.max(lastResponseNanos.get() - start, 0), counts);
+      }
+    }
+  }
+
+  private HttpRequest request(URI uri, CapturedRequest captured, long monthsSinceCapture)
+      throws JsonProcessingException {
+    HttpRequest.Builder request = HttpRequest.newBuilder(captured.async()
+            ? URI.create(uri + "?mode=async") : uri)
+        .timeout(RESPONSE_TIMEOUT)
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(
+            shiftExpiry(captured.request(), monthsSinceCapture))));
+    if (captured.merchantId() != null) {
+      request.header("Merchant-Id", captured.merchantId());
+    }
+    if (captured.idempotencyKey() != null) {
+      request.header("Idempotency-Key", captured.idempotencyKey());
+    }
+    if (captured.timeoutMillis() != null) {
+      request.header("Request-Timeout", captured.timeoutMillis().toString());
+    }
+    return request.build();
+  }
+
+  private void send(HttpRequest request, long due) {
+    inFlight.incrementAndGet();
+    client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+        .whenComplete((response, failure) -> {
+          long now = System.nanoTime();
+          lastResponseNanos.accumulateAndGet(now, Math::max);
+          if (failure != null) {
+            errors.incrementAndGet();
+          } else {
+            statuses.computeIfAbsent(response.statusCode(), status -> new LongAdder())
+                .increment();
+            record(now - due);
+          }
+          inFlight.decrementAndGet();
+        });
+  }
+
+  private synchronized void record(long latencyNanos) {
+    if (answered == latencies.length) {
+      latencies = Arrays.copyOf(latencies, answered * 2);
+    }
+    latencies[answered++] = latencyNanos;
+  }
+
+  static PostPaymentRequest shiftExpiry(PostPaymentRequest request, long months) {
+    if (months == 0 || request.getExpiryMonth() < 1 || request.getExpiryMonth() > 12) {
+      return request;
+    }
+    YearMonth expiry = YearMonth.of(request.getExpiryYear(), request.getExpiryMonth())
+        .plusMonths(months);
+    PostPaymentRequest shifted = new PostPaymentRequest();
+    shifted.setCardNumber(request.getCardNumber());
+    shifted.setExpiryMonth(expiry.getMonthValue());
+    shifted.setExpiryYear(expiry.getYear());
+    shifted.setCurrency(request.getCurrency());
+    shifted.setAmount(request.getAmount());
+    shifted.setCvv(request.getCvv());
+    return shifted;
+  }
+
+  private static ConfigurableApplicationContext startGateway(Options options, SimulatedBank bank,
+      Path workDirectory) {
+    // Passed as arguments, as default properties would lose to application.properties
+    Map<String, String> properties = new LinkedHashMap<>();
+    properties.put("server.port", "0");
+    properties.put("bank.simulator.url", bank.url());
+    properties.put("payments.routing.acquirers", "");
+    properties.put("payments.grpc.enabled", "false");
+    properties.put("payments.capture.enabled", "false");
+    properties.put("payments.cold.directory", workDirectory.resolve("cold").toString());
+    properties.put("payments.async.directory", workDirectory.resolve("async").toString());
+    properties.put("payments.jdbc.url", "jdbc:h2:file:" + workDirectory.resolve("payments"));
+    properties.put("payments.replication.log-directory",
+        workDirectory.resolve("replication").toString());
+    properties.putAll(options.gatewayProperties);
+    List<String> args = new ArrayList<>();
+    properties.forEach((name, value) -> args.add("--" + name + "=" + value));
+    return new SpringApplicationBuilder(PaymentGatewayApplication.class)
+        .run(args.toArray(String[]::new));
+  }
+
+  // The gateway reports ready once its JIT warm-up is over
+  private static void awaitReady(String target) throws IOException, InterruptedException {
+    HttpClient client = HttpClient.newHttpClient();
+    HttpRequest readiness = HttpRequest.newBuilder(URI.create(target
+        + "/actuator/health/readiness")).build();
+    long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+    while (client.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+      if (System.nanoTime() - deadline > 0) {
+        throw new IllegalStateException("Gateway not ready after " + STARTUP_TIMEOUT);
+      }
+      Thread.sleep(100);
+    }
+  }
+
+  private static final class Options {
+
+    private Path capture;
+    private double speed = 1;
+    private String target;
+    private Path report;
+    private Path baseline;
+    private Duration bankLatency = Duration.ofMillis(50);
+    private final Map<String, String> gatewayProperties = new LinkedHashMap<>();
+
+    static Options parse(String[] args) {
+      Options options = new Options();
+      for (String arg : args) {
+        if (!arg.startsWith("--")) {
+          if (options.capture != null) {
+            throw new IllegalArgumentException("Only one capture file can be replayed, got "
+                + options.capture + " and " + arg);
+          }
+          options.capture = Path.of(arg);
+          continue;
+        }
+        int equals = arg.indexOf('=');
+        String name = equals < 0 ? arg.substring(2) : arg.substring(2, equals);
+        String value = equals < 0 ? "" : arg.substring(equals + 1);
+        switch (name) {
+          case "speed" -> options.speed = Double.parseDouble(value.endsWith("x")
+              ? value.substring(0, value.length() - 1) : value);
+          case "target" -> options.target = value.endsWith("/")
+              ? value.substring(0, value.length() - 1) : value;
+          case "report" -> options.report = Path.of(value);
+          case "baseline" -> options.baseline = Path.of(value);
+          case "bank-latency" -> options.bankLatency = Duration.parse(value);
+          default -> options.gatewayProperties.put(name, value);
+        }
+      }
+      if (options.capture == null) {
+        throw new IllegalArgumentException("Usage: TrafficReplay <capture file> [--speed=N] "
+            + "[--target=URL] [--report=file] [--baseline=file] [--bank-latency=duration] "
+            + "[--gateway.property=value ...]");
+      }
+      if (!(options.speed > 0)) {
+        throw new IllegalArgumentException("Speed must be positive, got " + options.speed);
+      }
+      return options;
+    }
+  }
+}
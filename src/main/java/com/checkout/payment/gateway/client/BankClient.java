@@ -1,31 +1,109 @@
 package com.checkout.payment.gateway.client;
 
+import com.checkout.payment.gateway.deadline.Deadline;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import com.checkout.payment.gateway.exception.BulkheadFullException;
+import com.checkout.payment.gateway.exception.DeadlineExceededException;
 import com.checkout.payment.gateway.exception.EventProcessingException;
 import com.checkout.payment.gateway.model.BankRequest;
 import com.checkout.payment.gateway.model.BankResponse;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.routing.Acquirer;
+import com.checkout.payment.gateway.routing.AcquirerHealth;
+import com.checkout.payment.gateway.routing.AcquirerRouter;
+import java.net.ConnectException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.slf4j.helpers.NOPLogger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 @Component
 public class BankClient {
 
-  private static final Logger logger = LoggerFactory.getLogger(BankClient.class);
+  private static final Logger LOG = LoggerFactory.getLogger(BankClient.class);
 
+  static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+  private final Logger logger;
   private final RestTemplate restTemplate;
-  private final String bankSimulatorUrl;
+  private final AcquirerRouter router;
+  private final RetryBudget retryBudget;
+  private final Hedging hedging;
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong hedges = new AtomicLong();
+  private final AtomicLong hedgeWins = new AtomicLong();
+
+  public BankClient(RestTemplate restTemplate, String bankSimulatorUrl) {
+    this(restTemplate, AcquirerRouter.single(bankSimulatorUrl));
+  }
+
+  public BankClient(RestTemplate restTemplate, AcquirerRouter router) {
+    this(restTemplate, router, new RetryBudget(1, 100), Hedging.disabled());
+  }
+
+  @Autowired
+  public BankClient(RestTemplate restTemplate, AcquirerRouter router, RetryBudget retryBudget,
+      Hedging hedging) {
+    this(LOG, restTemplate, router, retryBudget, hedging);
+  }
 
-  public BankClient(RestTemplate restTemplate, @Value("${bank.simulator.url}") String bankSimulatorUrl) {
+  private BankClient(Logger logger, RestTemplate restTemplate, AcquirerRouter router,
+      RetryBudget retryBudget, Hedging hedging) {
+    this.logger = logger;
     this.restTemplate = restTemplate;
-    this.bankSimulatorUrl = bankSimulatorUrl;
+    this.router = router;
+    this.retryBudget = retryBudget;
+    this.hedging = hedging;
+  }
+
+  /**
+   * A client that logs nothing, for synthetic traffic such as warm-up that would otherwise log
+   * every call.
+   */
+  public static BankClient silent(RestTemplate restTemplate, String bankSimulatorUrl) {
+    return new BankClient(NOPLogger.NOP_LOGGER, restTemplate,
+        AcquirerRouter.single(bankSimulatorUrl), new RetryBudget(1, 100), Hedging.disabled());
   }
 
   public BankResponse authorize(PostPaymentRequest paymentRequest) {
+    return authorize(paymentRequest, Deadline.none());
+  }
+
+  /**
+   * Each bank call waits no longer than the deadline leaves. Fails with
+   * {@link DeadlineExceededException} if the deadline passes before any acquirer was reached.
+   */
+  public BankResponse authorize(PostPaymentRequest paymentRequest, Deadline deadline) {
+    return authorize(paymentRequest, deadline, null);
+  }
+
+  /**
+   * Fails with {@link BankUnavailableException} if no acquirer saw the payment, and with
+   * {@link EventProcessingException} if one may have authorized it without answering.
+   *
+   * @param idempotencyKey sent with every call for this payment, so an acquirer answers a repeat
+   *     with its first outcome; null to send none, or with hedging on a fresh one per call
+   */
+  public BankResponse authorize(PostPaymentRequest paymentRequest, Deadline deadline,
+      String idempotencyKey) {
     // Bank expects the date in format MM/YY
     String expiryDate = String.format("%02d/%02d",
         paymentRequest.getExpiryMonth(),
@@ -39,21 +117,171 @@ public class BankClient {
         paymentRequest.getCvv()
     );
 
+    List<Integer> candidates = router.route(paymentRequest.getCardNumber(),
+        paymentRequest.getCurrency());
+    if (candidates.isEmpty()) {
+      throw new BankUnavailableException("No acquirer accepts this card and currency");
+    }
+    requests.incrementAndGet();
+    retryBudget.deposit();
+    // A hedge must carry the same key as the request it races so the acquirer can deduplicate
+    if (idempotencyKey == null && hedging.isEnabled()) {
+      idempotencyKey = UUID.randomUUID().toString();
+    }
+    Object body = idempotencyKey == null ? bankRequest
+        : withIdempotencyKey(bankRequest, idempotencyKey);
+    RestClientException lastFailure = null;
+    for (int candidate : candidates) {
+      if (deadline.isExpired()) {
+        throw new DeadlineExceededException("authorize");
+      }
+      if (lastFailure != null && !retryBudget.tryWithdraw()) {
+        logger.warn("Retry budget exhausted, not failing over");
+        break;
+      }
+      Acquirer acquirer = router.getAcquirer(candidate);
+      AcquirerHealth health = router.getHealth(candidate);
+      try {
+        BankResponse response = hedging.isEnabled()
+            ? callHedged(acquirer, health, body, deadline)
+            : call(acquirer, acquirer.url(), health, body, deadline);
+        logger.info("Bank simulator response: authorized={}", response.isAuthorized());
+        return response;
+      } catch (HttpClientErrorException.BadRequest e) {
+        logger.warn("Bank returned 400 Bad Request - treating as validation failure");
+        return new BankResponse(false, null);
+      } catch (RestClientException e) {
+        logger.error("Acquirer {} error: {}", acquirer.name(), e.getMessage());
+        if (!neverReachedAcquirer(e)) {
+          throw new EventProcessingException("Bank service unavailable: " + e.getMessage());
+        }
+        lastFailure = e;
+      }
+    }
+    throw new BankUnavailableException("Bank service unavailable: " + lastFailure.getMessage());
+  }
+
+  public long getRequestCount() {
+    return requests.get();
+  }
+
+  public long getHedgeCount() {
+    return hedges.get();
+  }
+
+  public long getHedgeWinCount() {
+    return hedgeWins.get();
+  }
+
+  private BankResponse call(Acquirer acquirer, String url, AcquirerHealth health, Object body,
+      Deadline deadline) {
+    long start = System.nanoTime();
+    health.start();
+    Deadline previous = DeadlineRequestFactory.bind(deadline);
     try {
-      logger.info("Calling bank simulator at {}", bankSimulatorUrl);
-      BankResponse response = restTemplate.postForObject(
-          bankSimulatorUrl + "/payments",
-          bankRequest,
-          BankResponse.class
-      );
-      logger.info("Bank simulator response: authorized={}", response.isAuthorized());
+      logger.info("Calling acquirer {} at {}", acquirer.name(), url);
+      BankResponse response = restTemplate.postForObject(url + "/payments", body,
+          BankResponse.class);
+      health.succeeded(System.nanoTime() - start);
       return response;
     } catch (HttpClientErrorException.BadRequest e) {
-      logger.warn("Bank returned 400 Bad Request - treating as validation failure");
-      return new BankResponse(false, null);
-    } catch (RestClientException e) {
-      logger.error("Bank simulator error: {}", e.getMessage());
-      throw new EventProcessingException("Bank service unavailable: " + e.getMessage());
+      health.succeeded(System.nanoTime() - start);
+      throw e;
+    } catch (RuntimeException e) {
+      health.failed(System.nanoTime() - start);
+      throw e;
+    } finally {
+      DeadlineRequestFactory.bind(previous);
     }
   }
+
+  /**
+   * Sends the request and, if it is still outstanding at the acquirer's p95, a hedge to one of
+   * its replicas; the first success wins. The blocking HTTP client cannot abort a request in
+   * flight, so the losing call is abandoned and its answer dropped.
+   */
+  private BankResponse callHedged(Acquirer acquirer, AcquirerHealth health, Object body,
+      Deadline deadline) {
+    CompletableFuture<BankResponse> primary;
+    try {
+      primary = CompletableFuture.supplyAsync(
+          () -> call(acquirer, acquirer.url(), health, body, deadline), hedging.executor());
+    } catch (BulkheadFullException e) {
+      return call(acquirer, acquirer.url(), health, body, deadline);
+    }
+    long p95 = health.getLatencyP95Nanos();
+    if (p95 < 0) {
+      return join(primary);
+    }
+    try {
+      return primary.get(Math.max(p95, hedging.minDelay().toNanos()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      // Still waiting: hedge below
+    } catch (ExecutionException e) {
+      throw unwrap(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new EventProcessingException("Interrupted while waiting for the bank");
+    }
+
+    if (!retryBudget.tryWithdraw()) {
+      return join(primary);
+    }
+    CompletableFuture<BankResponse> hedge;
+    try {
+      hedge = CompletableFuture.supplyAsync(
+          () -> call(acquirer, acquirer.hedgeUrl(), health, body, deadline), hedging.executor());
+    } catch (BulkheadFullException e) {
+      return join(primary);
+    }
+    hedges.incrementAndGet();
+
+    CompletableFuture<BankResponse> first = new CompletableFuture<>();
+    AtomicInteger failures = new AtomicInteger();
+    BiConsumer<BankResponse, Throwable> race = (response, failure) -> {
+      if (failure == null) {
+        first.complete(response);
+      } else if (failures.incrementAndGet() == 2) {
+        first.completeExceptionally(failure);
+      }
+    };
+    primary.whenComplete(race);
+    hedge.whenComplete(race);
+    try {
+      BankResponse response = join(first);
+      if (hedge.getNow(null) == response) {
+        hedgeWins.incrementAndGet();
+      }
+      return response;
+    } finally {
+      primary.cancel(false);
+      hedge.cancel(false);
+    }
+  }
+
+  private static Object withIdempotencyKey(BankRequest bankRequest, String idempotencyKey) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(IDEMPOTENCY_KEY, idempotencyKey);
+    return new HttpEntity<>(bankRequest, headers);
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      throw unwrap(e.getCause());
+    }
+  }
+
+  private static RuntimeException unwrap(Throwable cause) {
+    return cause instanceof RuntimeException runtime ? runtime
+        : new EventProcessingException("Bank call failed: " + cause.getMessage());
+  }
+
+  // Only these are safe to retry elsewhere; after a timeout the first acquirer may have
+  // authorized the payment already
+  private static boolean neverReachedAcquirer(RestClientException e) {
+    return e instanceof HttpServerErrorException.ServiceUnavailable
+        || (e instanceof ResourceAccessException && e.getCause() instanceof ConnectException);
+  }
 }
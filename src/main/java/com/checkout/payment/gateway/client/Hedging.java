@@ -0,0 +1,19 @@
+package com.checkout.payment.gateway.client;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Where hedged bank calls run and the shortest delay before a hedge is sent. Only enable it for
+ * acquirers that deduplicate requests carrying the same {@code Idempotency-Key}.
+ */
+public record Hedging(Executor executor, Duration minDelay) {
+
+  public static Hedging disabled() {
+    return new Hedging(null, Duration.ZERO);
+  }
+
+  public boolean isEnabled() {
+    return executor != null;
+  }
+}
@@ -0,0 +1,54 @@
+package com.checkout.payment.gateway.client;
+
+import com.checkout.payment.gateway.exception.EventProcessingException;
+
+/**
+ * Token bucket that pays for every request beyond the first one per payment, hedges and 503
+ * failovers alike. Each payment deposits {@code ratio} tokens and each extra request takes one,
+ * so with a ratio of at most 1 extra requests can never outnumber payments by more than the
+ * bucket's capacity. The bucket starts full so failover works straight after startup.
+ */
+public class RetryBudget {
+
+  private final double ratio;
+  private final double maxTokens;
+  private double tokens;
+  private long withdrawn;
+  private long exhausted;
+
+  public RetryBudget(double ratio, double maxTokens) {
+    if (ratio < 0 || ratio > 1) {
+      throw new EventProcessingException(
+          String.format("Retry budget ratio must be between 0 and 1, but got %s", ratio));
+    }
+    this.ratio = ratio;
+    this.maxTokens = maxTokens;
+    this.tokens = maxTokens;
+  }
+
+  public synchronized void deposit() {
+    tokens = Math.min(maxTokens, tokens + ratio);
+  }
+
+  public synchronized boolean tryWithdraw() {
+    if (tokens < 1) {
+      exhausted++;
+      return false;
+    }
+    tokens--;
+    withdrawn++;
+    return true;
+  }
+
+  public synchronized double getTokens() {
+    return tokens;
+  }
+
+  public synchronized long getWithdrawnCount() {
+    return withdrawn;
+  }
+
+  public synchronized long getExhaustedCount() {
+    return exhausted;
+  }
+}
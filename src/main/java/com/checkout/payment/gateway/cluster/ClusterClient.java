@@ -0,0 +1,166 @@
+package com.checkout.payment.gateway.cluster;
+
+import static com.checkout.payment.gateway.cluster.ClusterProtocol.FOUND;
+import static com.checkout.payment.gateway.cluster.ClusterProtocol.OK;
+import static com.checkout.payment.gateway.cluster.ClusterProtocol.OP_GET;
+import static com.checkout.payment.gateway.cluster.ClusterProtocol.OP_PUT;
+import static com.checkout.payment.gateway.cluster.ClusterProtocol.RECORD_SIZE;
+
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.StorageUnavailableException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentRecordCodec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Talks to one peer over a pool of at most {@code maxConnections} persistent connections; a call
+ * finding them all busy waits up to the timeout for one. A connection that fails is dropped
+ * rather than returned to the pool.
+ */
+public class ClusterClient implements AutoCloseable {
+
+  private final ClusterNode peer;
+  private final int timeoutMillis;
+  private final int maxConnections;
+  private final Semaphore permits;
+  private final BlockingQueue<Connection> idle = new LinkedBlockingQueue<>();
+
+  public ClusterClient(ClusterNode peer, Duration timeout, int maxConnections) {
+    this.peer = peer;
+    this.timeoutMillis = (int) timeout.toMillis();
+    this.maxConnections = maxConnections;
+    this.permits = new Semaphore(maxConnections);
+  }
+
+  public Optional<PostPaymentResponse> get(UUID id) {
+    Connection connection = borrow();
+    try {
+      connection.out.writeByte(OP_GET);
+      connection.out.writeLong(id.getMostSignificantBits());
+      connection.out.writeLong(id.getLeastSignificantBits());
+      connection.out.flush();
+      Optional<PostPaymentResponse> payment = Optional.empty();
+      if (connection.in.readByte() == FOUND) {
+        connection.in.readFully(connection.record.array());
+        payment = Optional.of(PaymentRecordCodec.decode(connection.record, 0));
+      }
+      giveBack(connection);
+      return payment;
+    } catch (IOException e) {
+      discard(connection);
+      throw new StorageUnavailableException("Cluster peer " + peer + " failed: "
+          + e.getMessage());
+    }
+  }
+
+  public void put(PostPaymentResponse payment) {
+    if (!PaymentRecordCodec.fits(payment)) {
+      throw new EventProcessingException("Payment " + payment.getId()
+          + " does not fit in a cluster record");
+    }
+    Connection connection = borrow();
+    try {
+      PaymentRecordCodec.encode(connection.record, 0, payment);
+      connection.out.writeByte(OP_PUT);
+      connection.out.write(connection.record.array());
+      connection.out.flush();
+      byte status = connection.in.readByte();
+      giveBack(connection);
+      if (status != OK) {
+        throw new StorageUnavailableException("Cluster peer " + peer + " refused payment "
+            + payment.getId());
+      }
+    } catch (IOException e) {
+      discard(connection);
+      throw new StorageUnavailableException("Cluster peer " + peer + " failed: "
+          + e.getMessage());
+    }
+  }
+
+  @Override
+  public void close() {
+    Connection connection;
+    while ((connection = idle.poll()) != null) {
+      connection.close();
+    }
+  }
+
+  // Holds a permit until the connection is given back or discarded
+  private Connection borrow() {
+    try {
+      if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+        throw new StorageUnavailableException("All " + maxConnections
+            + " connections to cluster peer " + peer + " are busy");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StorageUnavailableException("Interrupted waiting for cluster peer " + peer);
+    }
+    Connection connection = idle.poll();
+    if (connection != null) {
+      return connection;
+    }
+    Socket socket = new Socket();
+    try {
+      socket.connect(new InetSocketAddress(peer.host(), peer.port()), timeoutMillis);
+      socket.setSoTimeout(timeoutMillis);
+      socket.setTcpNoDelay(true);
+      return new Connection(socket);
+    } catch (IOException e) {
+      permits.release();
+      try {
+        socket.close();
+      } catch (IOException ignored) {
+        // Never connected
+      }
+      throw new StorageUnavailableException("Cannot connect to cluster peer " + peer + ": "
+          + e.getMessage());
+    }
+  }
+
+  private void giveBack(Connection connection) {
+    idle.offer(connection);
+    permits.release();
+  }
+
+  private void discard(Connection connection) {
+    connection.close();
+    permits.release();
+  }
+
+  private static final class Connection {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+    private Connection(Socket socket) throws IOException {
+      this.socket = socket;
+      this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    private void close() {
+      try {
+        socket.close();
+      } catch (IOException ignored) {
+        // Nothing left to release
+      }
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package com.checkout.payment.gateway.cluster;
+
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import java.util.ArrayList;
+import java.util.List;
+
+public record ClusterNode(String id, String host, int port) {
+
+  /**
+   * Parses a comma-separated list of {@code id@host:port} entries.
+   */
+  public static List<ClusterNode> parseAll(String spec) {
+    List<ClusterNode> nodes = new ArrayList<>();
+    for (String entry : spec.split(",")) {
+      String trimmed = entry.trim();
+      if (!trimmed.isEmpty()) {
+        nodes.add(parse(trimmed));
+      }
+    }
+    return nodes;
+  }
+
+  public static ClusterNode parse(String entry) {
+    int at = entry.indexOf('@');
+    int colon = entry.lastIndexOf(':');
+    if (at <= 0 || colon < at) {
+      throw new EventProcessingException(
+          String.format("Cluster node must be given as id@host:port, but got '%s'", entry));
+    }
+    return new ClusterNode(entry.substring(0, at), entry.substring(at + 1, colon),
+        Integer.parseInt(entry.substring(colon + 1)));
+  }
+
+  @Override
+  public String toString() {
+    return id + "@" + host + ":" + port;
+  }
+}
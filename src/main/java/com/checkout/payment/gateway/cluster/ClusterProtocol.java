@@ -0,0 +1,27 @@
+package com.checkout.payment.gateway.cluster;
+
+import com.checkout.payment.gateway.repository.PaymentRecordCodec;
+
+/**
+ * Internal node-to-node protocol. Every frame is fixed-size, so no length prefix is needed:
+ * <pre>
+ *   GET  request:  [OP_GET][msb:8][lsb:8]      response: [FOUND][record] or [NOT_FOUND]
+ *   PUT  request:  [OP_PUT][record]            response: [OK]
+ * </pre>
+ * Records use the {@link PaymentRecordCodec} layout.
+ */
+final class ClusterProtocol {
+
+  static final byte OP_GET = 1;
+  static final byte OP_PUT = 2;
+
+  static final byte NOT_FOUND = 0;
+  static final byte FOUND = 1;
+  static final byte OK = 2;
+  static final byte ERROR = 3;
+
+  static final int RECORD_SIZE = PaymentRecordCodec.RECORD_SIZE;
+
+  private ClusterProtocol() {
+  }
+}
@@ -0,0 +1,159 @@
+package com.checkout.payment.gateway.cluster;
+
+import static com.checkout.payment.gateway.cluster.ClusterProtocol.ERROR;
+import static com.checkout.payment.gateway.cluster.ClusterProtocol.FOUND;
+import static com.checkout.payment.gateway.cluster.ClusterProtocol.NOT_FOUND;
+import static com.checkout.payment.gateway.cluster.ClusterProtocol.OK;
+import static com.checkout.payment.gateway.cluster.ClusterProtocol.OP_GET;
+import static com.checkout.payment.gateway.cluster.ClusterProtocol.OP_PUT;
+import static com.checkout.payment.gateway.cluster.ClusterProtocol.RECORD_SIZE;
+
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.StorageUnavailableException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentRecordCodec;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves the node's local payments to its peers. One thread per peer connection, since peers
+ * keep a small pool of long-lived connections; past {@code maxConnections} at once, new
+ * connections are closed as soon as they are accepted.
+ */
+public class ClusterServer implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClusterServer.class);
+
+  private final PaymentsRepository localRepository;
+  private final ServerSocket serverSocket;
+  private final ThreadPoolExecutor connections;
+  private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+
+  public ClusterServer(PaymentsRepository localRepository, String host, int port,
+      int maxConnections) {
+    this.localRepository = localRepository;
+    this.connections = new ThreadPoolExecutor(0, maxConnections, 60, TimeUnit.SECONDS,
+        new SynchronousQueue<>(), runnable -> {
+          Thread thread = new Thread(runnable, "cluster-connection");
+          thread.setDaemon(true);
+          return thread;
+        });
+    try {
+      this.serverSocket = new ServerSocket();
+      serverSocket.setReuseAddress(true);
+      serverSocket.bind(new InetSocketAddress(host, port));
+    } catch (IOException e) {
+      throw new EventProcessingException("Cannot listen for cluster peers on port " + port + ": "
+          + e.getMessage());
+    }
+    Thread acceptor = new Thread(this::accept, "cluster-acceptor");
+    acceptor.setDaemon(true);
+    acceptor.start();
+    LOG.info("Cluster server listening on {}", serverSocket.getLocalSocketAddress());
+  }
+
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  @Override
+  public void close() {
+    try {
+      serverSocket.close();
+    } catch (IOException e) {
+      LOG.warn("Failed to close cluster server: {}", e.getMessage());
+    }
+    for (Socket socket : openSockets) {
+      try {
+        socket.close();
+      } catch (IOException ignored) {
+        // Already closing down
+      }
+    }
+    connections.shutdownNow();
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        socket.setTcpNoDelay(true);
+        openSockets.add(socket);
+        try {
+          connections.execute(() -> serve(socket));
+        } catch (RejectedExecutionException e) {
+          if (!serverSocket.isClosed()) {
+            LOG.warn("Refusing cluster connection from {}: {} connections already open",
+                socket.getRemoteSocketAddress(), connections.getMaximumPoolSize());
+          }
+          openSockets.remove(socket);
+          socket.close();
+        }
+      } catch (IOException e) {
+        if (!serverSocket.isClosed()) {
+          LOG.warn("Failed to accept cluster connection: {}", e.getMessage());
+        }
+      }
+    }
+  }
+
+  private void serve(Socket socket) {
+    ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    try (socket;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(socket.getOutputStream()))) {
+      while (true) {
+        byte op = in.readByte();
+        if (op == OP_GET) {
+          Optional<PostPaymentResponse> payment = localRepository.get(
+              new UUID(in.readLong(), in.readLong()));
+          if (payment.isPresent() && PaymentRecordCodec.fits(payment.get())) {
+            PaymentRecordCodec.encode(record, 0, payment.get());
+            out.writeByte(FOUND);
+            out.write(record.array());
+          } else {
+            out.writeByte(NOT_FOUND);
+          }
+        } else if (op == OP_PUT) {
+          in.readFully(record.array());
+          try {
+            localRepository.add(PaymentRecordCodec.decode(record, 0));
+            out.writeByte(OK);
+          } catch (EventProcessingException | StorageUnavailableException e) {
+            out.writeByte(ERROR);
+          }
+        } else {
+          LOG.warn("Closing cluster connection after unknown op {}", op);
+          return;
+        }
+        out.flush();
+      }
+    } catch (EOFException e) {
+      // Peer closed the connection
+    } catch (IOException e) {
+      LOG.debug("Cluster connection closed: {}", e.getMessage());
+    } finally {
+      openSockets.remove(socket);
+    }
+  }
+}
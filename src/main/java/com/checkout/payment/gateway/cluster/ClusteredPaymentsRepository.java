@@ -0,0 +1,138 @@
+package com.checkout.payment.gateway.cluster;
+
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.StorageUnavailableException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Spreads payments across gateway nodes. Each ID is stored on the {@code replication} nodes that
+ * own it on the consistent-hash ring, and lookups on any other node are forwarded to an owner. A
+ * write succeeds once {@code writeQuorum} owners have stored it; one that missed an owner is
+ * counted and logged, as nothing copies it there later.
+ */
+public class ClusteredPaymentsRepository implements PaymentsRepository, AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClusteredPaymentsRepository.class);
+
+  private final ClusterNode self;
+  private final PaymentsRepository localRepository;
+  private final ConsistentHashRing ring;
+  private final int replication;
+  private final int writeQuorum;
+  private final Map<ClusterNode, ClusterClient> peers = new HashMap<>();
+  private final ClusterServer server;
+  private final LongAdder underReplicated = new LongAdder();
+
+  /**
+   * @param writeQuorum owners that must store a payment for its write to succeed
+   * @param maxConnections connections to and from each peer
+   */
+  public ClusteredPaymentsRepository(ClusterNode self, List<ClusterNode> nodes, int replication,
+      int writeQuorum, int virtualNodes, Duration peerTimeout, int maxConnections,
+      PaymentsRepository localRepository) {
+    if (!nodes.contains(self)) {
+      throw new EventProcessingException("Cluster node " + self + " is not in the node list");
+    }
+    if (writeQuorum < 1 || writeQuorum > replication) {
+      throw new EventProcessingException("Cluster write quorum must be between 1 and the "
+          + "replication of " + replication + ", but got " + writeQuorum);
+    }
+    this.self = self;
+    this.localRepository = localRepository;
+    this.ring = new ConsistentHashRing(nodes, virtualNodes);
+    this.replication = replication;
+    this.writeQuorum = writeQuorum;
+    for (ClusterNode node : nodes) {
+      if (!node.equals(self)) {
+        peers.put(node, new ClusterClient(node, peerTimeout, maxConnections));
+      }
+    }
+    this.server = new ClusterServer(localRepository, self.host(), self.port(),
+        Math.max(1, maxConnections * peers.size()));
+  }
+
+  /**
+   * Fails with {@link StorageUnavailableException} when fewer than the write quorum of owners
+   * stored the payment; those that did keep it.
+   */
+  @Override
+  public void add(PostPaymentResponse payment) {
+    List<ClusterNode> owners = ring.ownersOf(payment.getId(), replication);
+    int stored = 0;
+    for (ClusterNode owner : owners) {
+      try {
+        if (owner.equals(self)) {
+          localRepository.add(payment);
+        } else {
+          peers.get(owner).put(payment);
+        }
+        stored++;
+      } catch (EventProcessingException | StorageUnavailableException e) {
+        LOG.warn("Failed to store payment {} on {}: {}", payment.getId(), owner, e.getMessage());
+      }
+    }
+    if (stored == owners.size()) {
+      return;
+    }
+    underReplicated.increment();
+    if (stored < Math.min(writeQuorum, owners.size())) {
+      throw new StorageUnavailableException("Only " + stored + " of " + owners.size()
+          + " owners of payment " + payment.getId() + " accepted it, below the write quorum of "
+          + writeQuorum);
+    }
+    LOG.warn("Payment {} stored on only {} of its {} owners", payment.getId(), stored,
+        owners.size());
+  }
+
+  @Override
+  public Optional<PostPaymentResponse> get(UUID id) {
+    List<ClusterNode> owners = ring.ownersOf(id, replication);
+    if (owners.contains(self)) {
+      Optional<PostPaymentResponse> payment = localRepository.get(id);
+      if (payment.isPresent()) {
+        return payment;
+      }
+    }
+    for (ClusterNode owner : owners) {
+      if (owner.equals(self)) {
+        continue;
+      }
+      try {
+        Optional<PostPaymentResponse> payment = peers.get(owner).get(id);
+        if (payment.isPresent()) {
+          return payment;
+        }
+      } catch (StorageUnavailableException e) {
+        LOG.warn("Failed to look up payment {} on {}: {}", id, owner, e.getMessage());
+      }
+    }
+    return Optional.empty();
+  }
+
+  public List<ClusterNode> ownersOf(UUID id) {
+    return ring.ownersOf(id, replication);
+  }
+
+  /**
+   * Writes that missed at least one owner, whether or not they met the write quorum.
+   */
+  public long getUnderReplicatedCount() {
+    return underReplicated.sum();
+  }
+
+  @Override
+  public void close() {
+    server.close();
+    peers.values().forEach(ClusterClient::close);
+  }
+}
@@ -0,0 +1,76 @@
+package com.checkout.payment.gateway.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Places payment IDs on a ring of nodes, each node owning several virtual points so load stays
+ * even and only about 1/n of the IDs move when a node joins or leaves.
+ */
+public class ConsistentHashRing {
+
+  private final long[] points;
+  private final ClusterNode[] owners;
+  private final int nodeCount;
+
+  public ConsistentHashRing(List<ClusterNode> nodes, int virtualNodes) {
+    List<Point> ring = new ArrayList<>(nodes.size() * virtualNodes);
+    for (ClusterNode node : nodes) {
+      for (int i = 0; i < virtualNodes; i++) {
+        ring.add(new Point(hash(node.id() + "#" + i), node));
+      }
+    }
+    ring.sort(Comparator.comparingLong(Point::position));
+    this.points = new long[ring.size()];
+    this.owners = new ClusterNode[ring.size()];
+    for (int i = 0; i < ring.size(); i++) {
+      points[i] = ring.get(i).position();
+      owners[i] = ring.get(i).node();
+    }
+    this.nodeCount = nodes.size();
+  }
+
+  /**
+   * Returns the first {@code replicas} distinct nodes found walking clockwise from the ID.
+   */
+  public List<ClusterNode> ownersOf(UUID id, int replicas) {
+    int wanted = Math.min(replicas, nodeCount);
+    List<ClusterNode> result = new ArrayList<>(wanted);
+    int start = Arrays.binarySearch(points, mix(id.getMostSignificantBits()
+        ^ mix(id.getLeastSignificantBits())));
+    if (start < 0) {
+      start = -start - 1;
+    }
+    for (int i = 0; i < owners.length && result.size() < wanted; i++) {
+      ClusterNode candidate = owners[(start + i) % owners.length];
+      if (!result.contains(candidate)) {
+        result.add(candidate);
+      }
+    }
+    return result;
+  }
+
+  private static long hash(String value) {
+    long h = 0x9E3779B97F4A7C15L;
+    for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      h = mix(h ^ b);
+    }
+    return h;
+  }
+
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private record Point(long position, ClusterNode node) {
+  }
+}
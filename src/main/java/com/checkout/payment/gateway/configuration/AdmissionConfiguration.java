@@ -0,0 +1,57 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.admission.AdmissionControlFilter;
+import com.checkout.payment.gateway.admission.AdmissionController;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+@ConditionalOnProperty(name = "payments.admission.enabled", havingValue = "true",
+    matchIfMissing = true)
+public class AdmissionConfiguration {
+
+  @Bean
+  public AdmissionController admissionController(
+      @Value("${payments.admission.max-in-flight:180}") int maxInFlight,
+      @Value("${payments.admission.reserved-for-reads:40}") int reservedForReads,
+      @Value("${payments.admission.max-queued:40}") int maxQueued,
+      @Value("${payments.admission.queue-timeout:PT0.1S}") Duration queueTimeout,
+      @Value("${payments.admission.codel-target:PT0.005S}") Duration target,
+      @Value("${payments.admission.codel-interval:PT0.1S}") Duration interval,
+      MeterRegistry meterRegistry) {
+    AdmissionController controller = new AdmissionController(maxInFlight, reservedForReads,
+        maxQueued, queueTimeout, target, interval);
+    Gauge.builder("payments.admission.in-flight", controller, AdmissionController::getInFlight)
+        .register(meterRegistry);
+    Gauge.builder("payments.admission.queued", controller, AdmissionController::getQueued)
+        .register(meterRegistry);
+    FunctionCounter.builder("payments.admission.rejected", controller,
+            AdmissionController::getQueueFullCount)
+        .tag("reason", "queue-full")
+        .register(meterRegistry);
+    FunctionCounter.builder("payments.admission.rejected", controller,
+            AdmissionController::getShedCount)
+        .tag("reason", "shed")
+        .register(meterRegistry);
+    return controller;
+  }
+
+  @Bean
+  public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(
+      AdmissionController admissionController, ObjectMapper objectMapper,
+      @Value("${payments.admission.retry-after:PT1S}") Duration retryAfter) {
+    FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(
+        new AdmissionControlFilter(admissionController, objectMapper, retryAfter));
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+    return registration;
+  }
+}
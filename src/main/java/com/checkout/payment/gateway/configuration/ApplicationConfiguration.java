@@ -1,6 +1,13 @@
 package com.checkout.payment.gateway.configuration;
 
+import com.checkout.payment.gateway.client.DeadlineRequestFactory;
+import com.checkout.payment.gateway.repository.ColdPaymentStore;
+import com.checkout.payment.gateway.repository.PaymentRetention;
+import java.nio.file.Path;
+import java.time.Clock;
 import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -9,11 +16,32 @@ import org.springframework.web.client.RestTemplate;
 @Configuration
 public class ApplicationConfiguration {
 
+  // Ceilings: a payment's bank call gets at most what is left of its deadline
   @Bean
   public RestTemplate restTemplate(RestTemplateBuilder builder) {
     return builder
+        .requestFactory(DeadlineRequestFactory::new)
         .setConnectTimeout(Duration.ofMillis(10000))
         .setReadTimeout(Duration.ofMillis(10000))
         .build();
   }
+
+  @Bean
+  @ConditionalOnProperty(name = "payments.store", havingValue = "memory", matchIfMissing = true)
+  public ColdPaymentStore coldPaymentStore(
+      @Value("${payments.cold.directory:${java.io.tmpdir}/payment-gateway}") Path directory,
+      @Value("${payments.cold.records-per-segment:524288}") int recordsPerSegment) {
+    return new ColdPaymentStore(directory, recordsPerSegment);
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "payments.store", havingValue = "memory", matchIfMissing = true)
+  public PaymentRetention paymentRetention(
+      @Value("${payments.retention.period:P7D}") Duration period,
+      @Value("${payments.retention.mode:summarize}") String mode,
+      @Value("${payments.retention.summary-period:P90D}") Duration summaryPeriod,
+      @Value("${payments.retention.bucket-width:PT1H}") Duration bucketWidth) {
+    return new PaymentRetention(period, PaymentRetention.Mode.valueOf(mode.toUpperCase()),
+        summaryPeriod, bucketWidth, Clock.systemUTC());
+  }
 }
@@ -0,0 +1,39 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.authorization.AuthorizationJournal;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.file.Path;
+import java.util.Base64;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class AsyncAuthorizationConfiguration {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(AsyncAuthorizationConfiguration.class);
+
+  @Bean
+  public AuthorizationJournal authorizationJournal(
+      @Value("${payments.async.directory:./data/async}") Path directory,
+      @Value("${payments.async.journal-key:}") String journalKey,
+      MeterRegistry meterRegistry) {
+    byte[] key;
+    if (journalKey.isBlank()) {
+      LOG.warn("payments.async.journal-key is not set, so pending asynchronous payments will not "
+          + "survive a restart");
+      key = AuthorizationJournal.generateKey();
+    } else {
+      key = Base64.getDecoder().decode(journalKey.trim());
+    }
+    AuthorizationJournal journal = new AuthorizationJournal(directory, key);
+    Gauge.builder("payments.async.pending", journal, AuthorizationJournal::getPendingCount)
+        .description("Accepted asynchronous payments still waiting for the bank")
+        .register(meterRegistry);
+    return journal;
+  }
+}
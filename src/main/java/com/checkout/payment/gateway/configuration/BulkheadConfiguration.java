@@ -0,0 +1,62 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.bulkhead.Bulkhead;
+import com.checkout.payment.gateway.bulkhead.Bulkheads;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class BulkheadConfiguration {
+
+  private final List<Bulkhead> created = new ArrayList<>();
+
+  @Bean
+  public Bulkheads bulkheads(
+      @Value("${payments.bulkheads.enabled:true}") boolean enabled,
+      @Value("${payments.bulkheads.reads.threads:16}") int readThreads,
+      @Value("${payments.bulkheads.reads.queue:1000}") int readQueue,
+      @Value("${payments.bulkheads.writes.threads:16}") int writeThreads,
+      @Value("${payments.bulkheads.writes.queue:1000}") int writeQueue,
+      @Value("${payments.bulkheads.bank.threads:100}") int bankThreads,
+      @Value("${payments.bulkheads.bank.queue:200}") int bankQueue,
+      MeterRegistry meterRegistry) {
+    if (!enabled) {
+      return Bulkheads.inline();
+    }
+    return new Bulkheads(
+        register(new Bulkhead("reads", readThreads, readQueue), meterRegistry),
+        register(new Bulkhead("writes", writeThreads, writeQueue), meterRegistry),
+        register(new Bulkhead("bank", bankThreads, bankQueue), meterRegistry));
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    created.forEach(Bulkhead::close);
+  }
+
+  private Bulkhead register(Bulkhead bulkhead, MeterRegistry meterRegistry) {
+    created.add(bulkhead);
+    String name = bulkhead.getName();
+    Gauge.builder("payments.bulkhead.saturation", bulkhead, Bulkhead::getSaturation)
+        .description("Busy threads plus queued tasks over total capacity")
+        .tag("bulkhead", name)
+        .register(meterRegistry);
+    Gauge.builder("payments.bulkhead.active", bulkhead, Bulkhead::getActiveCount)
+        .tag("bulkhead", name)
+        .register(meterRegistry);
+    Gauge.builder("payments.bulkhead.queued", bulkhead, Bulkhead::getQueueSize)
+        .tag("bulkhead", name)
+        .register(meterRegistry);
+    FunctionCounter.builder("payments.bulkhead.rejected", bulkhead, Bulkhead::getRejectedCount)
+        .tag("bulkhead", name)
+        .register(meterRegistry);
+    return bulkhead;
+  }
+}
@@ -0,0 +1,37 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.capture.TrafficCapture;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+@Configuration
+public class CaptureConfiguration {
+
+  @Bean
+  public TrafficCapture trafficCapture(
+      @Value("${payments.capture.enabled:false}") boolean enabled,
+      @Value("${payments.capture.file:${java.io.tmpdir}/payment-gateway/traffic.capture}")
+      Path file,
+      @Value("${payments.capture.queue:10000}") int queue,
+      @Value("${payments.capture.max-size:1GB}") DataSize maxSize,
+      MeterRegistry meterRegistry) throws IOException {
+    if (!enabled) {
+      return TrafficCapture.disabled();
+    }
+    TrafficCapture capture = new TrafficCapture(file, queue, maxSize.toBytes());
+    FunctionCounter.builder("payments.capture.captured", capture,
+            TrafficCapture::getCapturedCount)
+        .description("Payment requests written to the traffic capture")
+        .register(meterRegistry);
+    FunctionCounter.builder("payments.capture.dropped", capture, TrafficCapture::getDroppedCount)
+        .description("Payment requests left out of the capture because its queue was full")
+        .register(meterRegistry);
+    return capture;
+  }
+}
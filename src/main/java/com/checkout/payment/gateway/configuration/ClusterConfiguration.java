@@ -0,0 +1,41 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.cluster.ClusterNode;
+import com.checkout.payment.gateway.cluster.ClusteredPaymentsRepository;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Configuration
+@ConditionalOnProperty(name = "payments.cluster.enabled", havingValue = "true")
+public class ClusterConfiguration {
+
+  @Bean
+  @Primary
+  public ClusteredPaymentsRepository clusteredPaymentsRepository(
+      @Qualifier("local") PaymentsRepository localRepository,
+      @Value("${payments.cluster.node}") String node,
+      @Value("${payments.cluster.nodes}") String nodes,
+      @Value("${payments.cluster.replication:2}") int replication,
+      @Value("${payments.cluster.write-quorum:1}") int writeQuorum,
+      @Value("${payments.cluster.virtual-nodes:128}") int virtualNodes,
+      @Value("${payments.cluster.peer-timeout:PT1S}") Duration peerTimeout,
+      @Value("${payments.cluster.max-connections:32}") int maxConnections,
+      MeterRegistry meterRegistry) {
+    ClusteredPaymentsRepository repository = new ClusteredPaymentsRepository(
+        ClusterNode.parse(node), ClusterNode.parseAll(nodes), replication, writeQuorum,
+        virtualNodes, peerTimeout, maxConnections, localRepository);
+    FunctionCounter.builder("payments.cluster.under-replicated", repository,
+            ClusteredPaymentsRepository::getUnderReplicatedCount)
+        .description("Payment writes that missed at least one owner")
+        .register(meterRegistry);
+    return repository;
+  }
+}
@@ -0,0 +1,23 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.deadline.HierarchicalTimingWheel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class DeadlineConfiguration {
+
+  @Bean
+  public HierarchicalTimingWheel paymentDeadlines(
+      @Value("${payments.deadline.tick:PT0.01S}") Duration tick, MeterRegistry meterRegistry) {
+    HierarchicalTimingWheel wheel = new HierarchicalTimingWheel("payment-deadlines", tick);
+    Gauge.builder("payments.deadline.pending", wheel, HierarchicalTimingWheel::getPendingCount)
+        .description("Payment deadlines being tracked")
+        .register(meterRegistry);
+    return wheel;
+  }
+}
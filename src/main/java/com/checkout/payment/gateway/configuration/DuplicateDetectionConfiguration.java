@@ -0,0 +1,36 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.duplicate.DuplicateDetector;
+import com.checkout.payment.gateway.duplicate.DuplicateDetector.Mode;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class DuplicateDetectionConfiguration {
+
+  @Bean
+  public DuplicateDetector duplicateDetector(
+      @Value("${payments.duplicates.mode:flag}") String mode,
+      @Value("${payments.duplicates.window:PT10S}") Duration window,
+      @Value("${payments.duplicates.expected-per-window:100000}") int expectedPerWindow,
+      MeterRegistry meterRegistry) {
+    DuplicateDetector detector = new DuplicateDetector(Mode.valueOf(mode.toUpperCase()),
+        window, expectedPerWindow);
+    FunctionCounter.builder("payments.duplicates.checked", detector,
+            DuplicateDetector::getCheckCount)
+        .register(meterRegistry);
+    FunctionCounter.builder("payments.duplicates.detected", detector,
+            DuplicateDetector::getDuplicateCount)
+        .tag("mode", detector.getMode().name().toLowerCase())
+        .register(meterRegistry);
+    FunctionCounter.builder("payments.duplicates.untracked", detector,
+            DuplicateDetector::getUntrackedCount)
+        .description("Payments not tracked because the window held its expected count already")
+        .register(meterRegistry);
+    return detector;
+  }
+}
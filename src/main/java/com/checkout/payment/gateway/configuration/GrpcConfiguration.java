@@ -0,0 +1,45 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.grpc.PaymentGatewayGrpcServer;
+import com.checkout.payment.gateway.grpc.PaymentGatewayGrpcService;
+import com.checkout.payment.gateway.idempotency.IdempotencyKeys;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.service.PaymentGatewayService;
+import java.time.Duration;
+import java.util.regex.Pattern;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.autoconfigure.web.ServerProperties.ForwardHeadersStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.ResponseEntity;
+
+@Configuration
+@ConditionalOnProperty(name = "payments.grpc.enabled", havingValue = "true")
+public class GrpcConfiguration {
+
+  @Bean
+  public PaymentGatewayGrpcService paymentGatewayGrpcService(
+      PaymentGatewayService paymentGatewayService,
+      IdempotencyKeys<ResponseEntity<PostPaymentResponse>> paymentIdempotencyKeys,
+      @Value("${payments.grpc.stream-window:128}") int streamWindow,
+      @Value("${payments.deadline.default:PT10S}") Duration defaultTimeout) {
+    return new PaymentGatewayGrpcService(paymentGatewayService, paymentIdempotencyKeys,
+        streamWindow, defaultTimeout);
+  }
+
+  // Trusts the same proxies' x-forwarded-for as Tomcat does for REST, so both APIs see one source
+  @Bean
+  public PaymentGatewayGrpcServer paymentGatewayGrpcServer(
+      PaymentGatewayGrpcService paymentGatewayGrpcService, ServerProperties serverProperties,
+      @Value("${payments.grpc.port:9090}") int port,
+      @Value("${payments.grpc.shutdown-grace-period:PT5S}") Duration shutdownGracePeriod) {
+    Pattern trustedProxies = serverProperties.getForwardHeadersStrategy()
+        == ForwardHeadersStrategy.NATIVE
+        ? Pattern.compile(serverProperties.getTomcat().getRemoteip().getInternalProxies())
+        : null;
+    return new PaymentGatewayGrpcServer(paymentGatewayGrpcService, port, shutdownGracePeriod,
+        trustedProxies);
+  }
+}
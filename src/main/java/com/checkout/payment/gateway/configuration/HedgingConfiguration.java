@@ -0,0 +1,76 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.bulkhead.Bulkhead;
+import com.checkout.payment.gateway.client.BankClient;
+import com.checkout.payment.gateway.client.Hedging;
+import com.checkout.payment.gateway.client.RetryBudget;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HedgingConfiguration {
+
+  private Bulkhead hedgingPool;
+
+  @Bean
+  public RetryBudget retryBudget(
+      @Value("${payments.retry-budget.ratio:0.2}") double ratio,
+      @Value("${payments.retry-budget.max-tokens:100}") double maxTokens) {
+    return new RetryBudget(ratio, maxTokens);
+  }
+
+  @Bean
+  public Hedging hedging(
+      @Value("${payments.hedging.enabled:false}") boolean enabled,
+      @Value("${payments.hedging.threads:200}") int threads,
+      @Value("${payments.hedging.min-delay:PT0.02S}") Duration minDelay) {
+    if (!enabled) {
+      return Hedging.disabled();
+    }
+    hedgingPool = new Bulkhead("bank-hedging", threads, 0);
+    return new Hedging(hedgingPool, minDelay);
+  }
+
+  @Bean
+  public MeterBinder bankClientMetrics(BankClient bankClient, RetryBudget retryBudget) {
+    return registry -> {
+      FunctionCounter.builder("payments.bank.requests", bankClient, BankClient::getRequestCount)
+          .register(registry);
+      FunctionCounter.builder("payments.bank.hedges", bankClient, BankClient::getHedgeCount)
+          .register(registry);
+      FunctionCounter.builder("payments.bank.hedge-wins", bankClient,
+              BankClient::getHedgeWinCount)
+          .description("Hedges that answered before the request they raced")
+          .register(registry);
+      Gauge.builder("payments.bank.hedge-rate", bankClient,
+              client -> ratio(client.getHedgeCount(), client.getRequestCount()))
+          .register(registry);
+      Gauge.builder("payments.bank.hedge-win-rate", bankClient,
+              client -> ratio(client.getHedgeWinCount(), client.getHedgeCount()))
+          .register(registry);
+      Gauge.builder("payments.retry-budget.tokens", retryBudget, RetryBudget::getTokens)
+          .register(registry);
+      FunctionCounter.builder("payments.retry-budget.exhausted", retryBudget,
+              RetryBudget::getExhaustedCount)
+          .description("Hedges and failovers refused because the budget was empty")
+          .register(registry);
+    };
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (hedgingPool != null) {
+      hedgingPool.close();
+    }
+  }
+
+  private static double ratio(long part, long total) {
+    return total == 0 ? 0 : (double) part / total;
+  }
+}
@@ -0,0 +1,36 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.idempotency.IdempotencyKeys;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.ResponseEntity;
+
+@Configuration
+public class IdempotencyConfiguration {
+
+  @Bean
+  public IdempotencyKeys<ResponseEntity<PostPaymentResponse>> paymentIdempotencyKeys(
+      @Value("${payments.idempotency.enabled:true}") boolean enabled,
+      @Value("${payments.idempotency.max-keys:100000}") int maxKeys,
+      @Value("${payments.idempotency.ttl:PT24H}") Duration ttl,
+      MeterRegistry meterRegistry) {
+    if (!enabled) {
+      return IdempotencyKeys.disabled();
+    }
+    IdempotencyKeys<ResponseEntity<PostPaymentResponse>> keys = new IdempotencyKeys<>(maxKeys,
+        ttl);
+    Gauge.builder("payments.idempotency.keys", keys, IdempotencyKeys::size)
+        .register(meterRegistry);
+    FunctionCounter.builder("payments.idempotency.replays", keys,
+            IdempotencyKeys::getReplayCount)
+        .description("Payments answered with the outcome of an earlier request under the same key")
+        .register(meterRegistry);
+    return keys;
+  }
+}
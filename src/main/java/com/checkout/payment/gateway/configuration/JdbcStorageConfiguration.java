@@ -0,0 +1,44 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.repository.JdbcPaymentsRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "payments.store", havingValue = "jdbc")
+public class JdbcStorageConfiguration {
+
+  @Bean(destroyMethod = "dispose")
+  public JdbcConnectionPool paymentsDataSource(
+      @Value("${payments.jdbc.url:jdbc:h2:file:./data/payments}") String url,
+      @Value("${payments.jdbc.username:sa}") String username,
+      @Value("${payments.jdbc.password:}") String password) {
+    return JdbcConnectionPool.create(url, username, password);
+  }
+
+  @Bean
+  @Qualifier("local")
+  public JdbcPaymentsRepository jdbcPaymentsRepository(JdbcConnectionPool paymentsDataSource,
+      @Value("${payments.jdbc.batch-size:500}") int batchSize,
+      @Value("${payments.jdbc.queue-capacity:50000}") int queueCapacity,
+      @Value("${payments.jdbc.enqueue-timeout:PT0.1S}") Duration enqueueTimeout,
+      @Value("${payments.jdbc.flush-interval:PT0.01S}") Duration flushInterval,
+      @Value("${payments.jdbc.max-write-attempts:5}") int maxWriteAttempts,
+      @Value("${payments.jdbc.max-dead-letters:10000}") int maxDeadLetters,
+      MeterRegistry meterRegistry) {
+    JdbcPaymentsRepository repository = new JdbcPaymentsRepository(paymentsDataSource, batchSize,
+        queueCapacity, enqueueTimeout, flushInterval, maxWriteAttempts, maxDeadLetters);
+    FunctionCounter.builder("payments.jdbc.dead-letters.dropped", repository,
+            JdbcPaymentsRepository::getDroppedDeadLetterCount)
+        .description("Payments the writer gave up on once the dead letters were full")
+        .register(meterRegistry);
+    return repository;
+  }
+}
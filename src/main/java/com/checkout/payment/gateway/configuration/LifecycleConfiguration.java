@@ -0,0 +1,28 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.service.PaymentLifecycleService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class LifecycleConfiguration {
+
+  @Bean
+  public MeterBinder paymentLifecycleMetrics(PaymentLifecycleService lifecycle) {
+    return registry -> {
+      FunctionCounter.builder("payments.lifecycle.transitions", lifecycle,
+              PaymentLifecycleService::getTransitionCount)
+          .register(registry);
+      FunctionCounter.builder("payments.lifecycle.rejected", lifecycle,
+              PaymentLifecycleService::getRejectedCount)
+          .description("Captures, voids and refunds not allowed in the payment's current state")
+          .register(registry);
+      FunctionCounter.builder("payments.lifecycle.cas-retries", lifecycle,
+              PaymentLifecycleService::getCasRetryCount)
+          .description("Transitions retried after losing a race on the same payment")
+          .register(registry);
+    };
+  }
+}
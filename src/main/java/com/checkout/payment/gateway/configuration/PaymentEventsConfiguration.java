@@ -0,0 +1,35 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.events.PaymentEventBroadcaster;
+import com.checkout.payment.gateway.events.PaymentEventRing;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class PaymentEventsConfiguration {
+
+  @Bean
+  public PaymentEventRing paymentEventRing(
+      @Value("${payments.events.buffer-size:65536}") int bufferSize) {
+    return new PaymentEventRing(bufferSize);
+  }
+
+  @Bean
+  public PaymentEventBroadcaster paymentEventBroadcaster(PaymentEventRing paymentEventRing,
+      @Value("${payments.events.sender-threads:4}") int senderThreads,
+      @Value("${payments.events.max-subscribers:10000}") int maxSubscribers,
+      @Value("${payments.events.timeout:PT30M}") Duration timeout,
+      @Value("${payments.events.heartbeat:PT15S}") Duration heartbeat,
+      MeterRegistry meterRegistry) {
+    PaymentEventBroadcaster broadcaster = new PaymentEventBroadcaster(paymentEventRing,
+        senderThreads, maxSubscribers, timeout, heartbeat);
+    Gauge.builder("payments.events.subscribers", broadcaster,
+            PaymentEventBroadcaster::getSubscriberCount)
+        .register(meterRegistry);
+    return broadcaster;
+  }
+}
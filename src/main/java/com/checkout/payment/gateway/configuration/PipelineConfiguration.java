@@ -0,0 +1,179 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.bulkhead.Bulkhead;
+import com.checkout.payment.gateway.bulkhead.Bulkheads;
+import com.checkout.payment.gateway.client.BankClient;
+import com.checkout.payment.gateway.deadline.HierarchicalTimingWheel;
+import com.checkout.payment.gateway.duplicate.DuplicateDetector;
+import com.checkout.payment.gateway.events.PaymentEventRing;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.pipeline.AuthorizeStage;
+import com.checkout.payment.gateway.pipeline.EnrichStage;
+import com.checkout.payment.gateway.pipeline.PaymentPipeline;
+import com.checkout.payment.gateway.pipeline.PaymentPipeline.Stage;
+import com.checkout.payment.gateway.pipeline.PaymentStage;
+import com.checkout.payment.gateway.pipeline.PersistStage;
+import com.checkout.payment.gateway.pipeline.PublishStage;
+import com.checkout.payment.gateway.pipeline.RiskStage;
+import com.checkout.payment.gateway.pipeline.ValidateStage;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.stats.PaymentStatistics;
+import com.checkout.payment.gateway.velocity.VelocityChecker;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Builds the payment pipeline from {@code payments.pipeline.stages}, picking stages by name from
+ * every {@link PaymentStage} bean, and gives each stage the executor named by
+ * {@code payments.pipeline.stage.<name>.executor}.
+ */
+@Configuration
+public class PipelineConfiguration {
+
+  private static final Map<String, String> DEFAULT_EXECUTORS = Map.of(
+      ValidateStage.NAME, "writes",
+      AuthorizeStage.NAME, "bank",
+      PersistStage.NAME, "writes");
+
+  private final List<Bulkhead> created = new ArrayList<>();
+
+  @Bean
+  public ValidateStage validateStage() {
+    return new ValidateStage();
+  }
+
+  @Bean
+  public EnrichStage enrichStage() {
+    return new EnrichStage();
+  }
+
+  @Bean
+  public RiskStage riskStage(DuplicateDetector duplicateDetector,
+      VelocityChecker velocityChecker) {
+    return new RiskStage(duplicateDetector, velocityChecker);
+  }
+
+  @Bean
+  public AuthorizeStage authorizeStage(BankClient bankClient, VelocityChecker velocityChecker) {
+    return new AuthorizeStage(bankClient, velocityChecker);
+  }
+
+  @Bean
+  public PersistStage persistStage(PaymentsRepository paymentsRepository,
+      PaymentStatistics paymentStatistics) {
+    return new PersistStage(paymentsRepository, paymentStatistics);
+  }
+
+  @Bean
+  public PublishStage publishStage(PaymentEventRing paymentEventRing) {
+    return new PublishStage(paymentEventRing);
+  }
+
+  @Bean
+  public PaymentPipeline paymentPipeline(List<PaymentStage> available, Bulkheads bulkheads,
+      @Value("${payments.pipeline.stages:validate,enrich,risk,authorize,persist,publish}")
+      String[] names,
+      HierarchicalTimingWheel paymentDeadlines, Environment environment,
+      MeterRegistry meterRegistry) {
+    Map<String, PaymentStage> byName = new HashMap<>();
+    for (PaymentStage stage : available) {
+      if (byName.put(stage.name(), stage) != null) {
+        throw new EventProcessingException("Two pipeline stages are named " + stage.name());
+      }
+    }
+
+    List<PaymentStage> stages = new ArrayList<>();
+    Map<String, Executor> executors = new HashMap<>();
+    for (String name : names) {
+      PaymentStage stage = byName.get(name.trim());
+      if (stage == null) {
+        throw new EventProcessingException(String.format(
+            "Unknown pipeline stage %s, expected one of %s", name.trim(), byName.keySet()));
+      }
+      stages.add(stage);
+      Executor executor = executor(stage.name(), bulkheads, environment, meterRegistry);
+      if (executor != null) {
+        executors.put(stage.name(), executor);
+      }
+    }
+    if (stages.stream().noneMatch(stage -> stage.name().equals(PersistStage.NAME))) {
+      throw new EventProcessingException("The payment pipeline needs a persist stage");
+    }
+
+    PaymentPipeline pipeline = new PaymentPipeline(stages, executors, paymentDeadlines);
+    FunctionCounter.builder("payments.pipeline.expired", pipeline,
+            PaymentPipeline::getExpiredCount)
+        .description("Payments dropped because their deadline passed before the bank call")
+        .register(meterRegistry);
+    for (Stage stage : pipeline.getStages()) {
+      FunctionCounter.builder("payments.pipeline.stage.processed", stage,
+              Stage::getProcessedCount)
+          .tag("stage", stage.getName())
+          .register(meterRegistry);
+      FunctionCounter.builder("payments.pipeline.stage.failed", stage, Stage::getFailedCount)
+          .tag("stage", stage.getName())
+          .register(meterRegistry);
+      FunctionTimer.builder("payments.pipeline.stage.busy", stage,
+              s -> s.getProcessedCount() + s.getFailedCount(), Stage::getBusyNanos,
+              TimeUnit.NANOSECONDS)
+          .description("Time spent running the stage")
+          .tag("stage", stage.getName())
+          .register(meterRegistry);
+      FunctionTimer.builder("payments.pipeline.stage.wait", stage,
+              s -> s.getProcessedCount() + s.getFailedCount(), Stage::getWaitNanos,
+              TimeUnit.NANOSECONDS)
+          .description("Time queued for the stage's executor")
+          .tag("stage", stage.getName())
+          .register(meterRegistry);
+    }
+    return pipeline;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    created.forEach(Bulkhead::close);
+  }
+
+  private Executor executor(String stage, Bulkheads bulkheads, Environment environment,
+      MeterRegistry meterRegistry) {
+    String prefix = "payments.pipeline.stage." + stage + ".";
+    String executor = environment.getProperty(prefix + "executor",
+        DEFAULT_EXECUTORS.getOrDefault(stage, "inline"));
+    switch (executor) {
+      case "inline":
+        return null;
+      case "reads":
+        return bulkheads.reads();
+      case "writes":
+        return bulkheads.writes();
+      case "bank":
+        return bulkheads.bank();
+      case "dedicated":
+        Bulkhead bulkhead = new Bulkhead("pipeline-" + stage,
+            environment.getProperty(prefix + "threads", Integer.class, 4),
+            environment.getProperty(prefix + "queue", Integer.class, 100));
+        created.add(bulkhead);
+        Gauge.builder("payments.pipeline.stage.queued", bulkhead, Bulkhead::getQueueSize)
+            .tag("stage", stage)
+            .register(meterRegistry);
+        return bulkhead;
+      default:
+        throw new EventProcessingException(String.format(
+            "Unknown executor %s for pipeline stage %s, expected inline, reads, writes, bank "
+                + "or dedicated", executor, stage));
+    }
+  }
+}
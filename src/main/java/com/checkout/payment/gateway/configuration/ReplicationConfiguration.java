@@ -0,0 +1,90 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.replication.ReplicatingPaymentsRepository;
+import com.checkout.payment.gateway.replication.ReplicationLog;
+import com.checkout.payment.gateway.replication.ReplicationServer;
+import com.checkout.payment.gateway.replication.StandbyPaymentsRepository;
+import com.checkout.payment.gateway.replication.StandbyReplicator;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Configuration
+public class ReplicationConfiguration {
+
+  @Configuration
+  @ConditionalOnProperty(name = "payments.replication.role", havingValue = "primary")
+  public static class PrimaryRole {
+
+    @Bean
+    public ReplicationLog replicationLog(
+        @Value("${payments.replication.log-directory:./data/replication}") Path directory) {
+      return new ReplicationLog(directory);
+    }
+
+    @Bean
+    public ReplicationServer replicationServer(ReplicationLog replicationLog,
+        @Value("${payments.replication.port:7100}") int port, MeterRegistry meterRegistry) {
+      ReplicationServer server = new ReplicationServer(replicationLog, port);
+      Gauge.builder("payments.replication.lag.entries", server, ReplicationServer::getLagEntries)
+          .description("Log entries the slowest standby has not acknowledged")
+          .register(meterRegistry);
+      Gauge.builder("payments.replication.standbys", server,
+              ReplicationServer::getStandbyCount)
+          .register(meterRegistry);
+      return server;
+    }
+
+    @Bean
+    @Primary
+    public ReplicatingPaymentsRepository replicatingPaymentsRepository(
+        @Qualifier("local") PaymentsRepository localRepository, ReplicationLog replicationLog,
+        ReplicationServer replicationServer,
+        @Value("${payments.replication.semi-sync:false}") boolean semiSync,
+        @Value("${payments.replication.semi-sync-timeout:PT1S}") Duration semiSyncTimeout) {
+      return new ReplicatingPaymentsRepository(localRepository, replicationLog,
+          replicationServer, semiSync, semiSyncTimeout);
+    }
+  }
+
+  @Configuration
+  @ConditionalOnProperty(name = "payments.replication.role", havingValue = "standby")
+  public static class StandbyRole {
+
+    @Bean
+    public StandbyReplicator standbyReplicator(
+        @Qualifier("local") PaymentsRepository localRepository,
+        @Value("${payments.replication.primary:localhost:7100}") String primary,
+        @Value("${payments.replication.reconnect-delay:PT1S}") Duration reconnectDelay,
+        MeterRegistry meterRegistry) {
+      int colon = primary.lastIndexOf(':');
+      StandbyReplicator replicator = new StandbyReplicator(localRepository,
+          primary.substring(0, colon), Integer.parseInt(primary.substring(colon + 1)),
+          reconnectDelay);
+      Gauge.builder("payments.replication.lag.entries", replicator,
+              StandbyReplicator::getLagEntries)
+          .description("Primary log entries not yet applied on this standby")
+          .register(meterRegistry);
+      Gauge.builder("payments.replication.lag", replicator, StandbyReplicator::getLagMillis)
+          .description("Age of the newest applied entry while behind the primary")
+          .baseUnit("milliseconds")
+          .register(meterRegistry);
+      return replicator;
+    }
+
+    @Bean
+    @Primary
+    public StandbyPaymentsRepository standbyPaymentsRepository(
+        @Qualifier("local") PaymentsRepository localRepository) {
+      return new StandbyPaymentsRepository(localRepository);
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.cache.PaymentResponseCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ResponseCacheConfiguration {
+
+  @Bean
+  public PaymentResponseCache paymentResponseCache(ObjectMapper objectMapper,
+      @Value("${payments.response-cache.enabled:true}") boolean enabled,
+      @Value("${payments.response-cache.max-entries:10000}") int maxEntries,
+      MeterRegistry meterRegistry) {
+    PaymentResponseCache cache = enabled ? new PaymentResponseCache(objectMapper, maxEntries)
+        : PaymentResponseCache.disabled(objectMapper);
+    Gauge.builder("payments.response-cache.size", cache, PaymentResponseCache::size)
+        .register(meterRegistry);
+    FunctionCounter.builder("payments.response-cache.hits", cache,
+            PaymentResponseCache::getHitCount)
+        .register(meterRegistry);
+    FunctionCounter.builder("payments.response-cache.misses", cache,
+            PaymentResponseCache::getMissCount)
+        .register(meterRegistry);
+    FunctionCounter.builder("payments.response-cache.collapsed", cache,
+            PaymentResponseCache::getCollapsedCount)
+        .description("Payment reads that waited on another read's serialization of the same "
+            + "payment")
+        .register(meterRegistry);
+    FunctionCounter.builder("payments.response-cache.not-modified", cache,
+            PaymentResponseCache::getNotModifiedCount)
+        .description("Payment reads answered 304 Not Modified")
+        .register(meterRegistry);
+    return cache;
+  }
+}
@@ -0,0 +1,45 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.routing.Acquirer;
+import com.checkout.payment.gateway.routing.AcquirerHealth;
+import com.checkout.payment.gateway.routing.AcquirerRouter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RoutingConfiguration {
+
+  @Bean
+  public AcquirerRouter acquirerRouter(
+      @Value("${bank.simulator.url}") String bankSimulatorUrl,
+      @Value("${payments.routing.acquirers:}") String acquirers,
+      @Value("${payments.routing.ewma-decay:0.2}") double decay,
+      @Value("${payments.routing.failures-before-cool-down:5}") int failuresBeforeCoolDown,
+      @Value("${payments.routing.cool-down:PT5S}") Duration coolDown,
+      MeterRegistry meterRegistry) {
+    List<Acquirer> parsed = acquirers.isBlank()
+        ? List.of(Acquirer.any("default", bankSimulatorUrl))
+        : Acquirer.parseAll(acquirers);
+    AcquirerRouter router = new AcquirerRouter(parsed, decay, failuresBeforeCoolDown, coolDown);
+    for (int i = 0; i < router.size(); i++) {
+      String name = router.getAcquirer(i).name();
+      AcquirerHealth health = router.getHealth(i);
+      Gauge.builder("payments.acquirer.latency", health, AcquirerHealth::getLatencyMillis)
+          .description("Exponentially weighted authorization latency in milliseconds")
+          .tag("acquirer", name)
+          .register(meterRegistry);
+      Gauge.builder("payments.acquirer.error-rate", health, AcquirerHealth::getErrorRate)
+          .tag("acquirer", name)
+          .register(meterRegistry);
+      Gauge.builder("payments.acquirer.in-flight", health, AcquirerHealth::getInFlight)
+          .tag("acquirer", name)
+          .register(meterRegistry);
+    }
+    return router;
+  }
+}
@@ -0,0 +1,18 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.stats.PaymentStatistics;
+import java.time.Clock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StatisticsConfiguration {
+
+  @Bean
+  public PaymentStatistics paymentStatistics(
+      @Value("${payments.stats.window-minutes:60}") int windowMinutes,
+      @Value("${payments.stats.max-currencies:16}") int maxCurrencies) {
+    return new PaymentStatistics(windowMinutes, maxCurrencies, Clock.systemUTC());
+  }
+}
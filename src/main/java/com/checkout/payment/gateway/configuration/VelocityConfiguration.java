@@ -0,0 +1,40 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.velocity.VelocityChecker;
+import com.checkout.payment.gateway.velocity.VelocityChecker.Limit;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class VelocityConfiguration {
+
+  @Bean
+  public VelocityChecker velocityChecker(
+      @Value("${payments.velocity.enabled:true}") boolean enabled,
+      @Value("${payments.velocity.window:PT1M}") Duration window,
+      @Value("${payments.velocity.buckets:6}") int buckets,
+      @Value("${payments.velocity.sketch-depth:2}") int depth,
+      @Value("${payments.velocity.card-sketch-width:262144}") int cardWidth,
+      @Value("${payments.velocity.source-sketch-width:4096}") int sourceWidth,
+      @Value("${payments.velocity.max-card-attempts:20}") int maxCardAttempts,
+      @Value("${payments.velocity.max-card-declines:5}") int maxCardDeclines,
+      @Value("${payments.velocity.max-source-attempts:30000}") int maxSourceAttempts,
+      MeterRegistry meterRegistry) {
+    if (!enabled) {
+      return VelocityChecker.disabled();
+    }
+    VelocityChecker checker = new VelocityChecker(window, buckets, depth, cardWidth, sourceWidth,
+        maxCardAttempts, maxCardDeclines, maxSourceAttempts);
+    for (Limit limit : Limit.values()) {
+      FunctionCounter.builder("payments.velocity.blocked", checker,
+              c -> c.getBlockedCount(limit))
+          .tag("limit", limit.name().toLowerCase().replace('_', '-'))
+          .register(meterRegistry);
+    }
+    return checker;
+  }
+}
@@ -0,0 +1,70 @@
+package com.checkout.payment.gateway.configuration;
+
+import com.checkout.payment.gateway.bulkhead.Bulkheads;
+import com.checkout.payment.gateway.pipeline.PaymentPipeline;
+import com.checkout.payment.gateway.warmup.PaymentWarmup;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestTemplate;
+
+@Configuration
+public class WarmupConfiguration {
+
+  @Bean
+  public PaymentWarmup paymentWarmup(ObjectMapper objectMapper, RestTemplate restTemplate,
+      PaymentPipeline paymentPipeline, Bulkheads bulkheads,
+      @Value("${payments.warmup.batch-size:500}") int batchSize,
+      @Value("${payments.warmup.max-duration:PT60S}") Duration maxDuration,
+      @Value("${payments.warmup.settled-compile-time:PT0.01S}") Duration settledCompileTime) {
+    return new PaymentWarmup(objectMapper, restTemplate.getMessageConverters(), paymentPipeline,
+        bulkheads, batchSize, maxDuration, settledCompileTime);
+  }
+
+  /**
+   * With {@code payments.startup.training-run}, the application exits once warm-up has loaded
+   * the payment path, which is how the fast-startup build records its AppCDS archive.
+   */
+  @Bean
+  public ApplicationListener<ApplicationReadyEvent> paymentWarmupStarter(
+      PaymentWarmup paymentWarmup,
+      @Value("${payments.warmup.enabled:true}") boolean enabled,
+      @Value("${payments.startup.training-run:false}") boolean trainingRun) {
+    return event -> {
+      if (!enabled && !trainingRun) {
+        return;
+      }
+      Thread thread = new Thread(() -> {
+        if (enabled) {
+          paymentWarmup.run();
+        }
+        if (trainingRun) {
+          System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+      }, "payments-warmup");
+      thread.setDaemon(true);
+      thread.start();
+    };
+  }
+
+  // Member of the readiness health group, so /actuator/health/readiness stays OUT_OF_SERVICE
+  // until warm-up has finished
+  @Bean
+  public HealthIndicator warmupHealthIndicator(PaymentWarmup paymentWarmup,
+      @Value("${payments.warmup.enabled:true}") boolean enabled) {
+    return () -> {
+      if (!enabled) {
+        return Health.up().withDetail("warmup", "disabled").build();
+      }
+      Health.Builder health = paymentWarmup.isComplete() ? Health.up() : Health.outOfService();
+      return health.withDetail("payments", paymentWarmup.getPaymentCount()).build();
+    };
+  }
+}
@@ -1,37 +1,186 @@
 package com.checkout.payment.gateway.controller;
 
+import static com.checkout.payment.gateway.validator.MerchantIdValidator.validateMerchantId;
+
+import com.checkout.payment.gateway.cache.PaymentResponseCache;
+import com.checkout.payment.gateway.capture.TrafficCapture;
+import com.checkout.payment.gateway.deadline.Deadline;
 import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.events.PaymentEventBroadcaster;
+import com.checkout.payment.gateway.idempotency.IdempotencyKeys;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.model.PostRefundRequest;
+import com.checkout.payment.gateway.service.AsyncAuthorizationService;
 import com.checkout.payment.gateway.service.PaymentGatewayService;
+import com.checkout.payment.gateway.service.PaymentLifecycleService;
+import jakarta.servlet.http.HttpServletRequest;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController("/api")
 public class PaymentGatewayController {
 
+  // Selects the merchant's payment partition; requests without it share the default one
+  static final String MERCHANT_ID = "Merchant-Id";
+  // Milliseconds the caller will wait for a payment, counted from when it reaches the controller
+  static final String REQUEST_TIMEOUT = "Request-Timeout";
+
   private final PaymentGatewayService paymentGatewayService;
+  private final AsyncAuthorizationService asyncAuthorizationService;
+  private final PaymentEventBroadcaster paymentEventBroadcaster;
+  private final PaymentLifecycleService paymentLifecycleService;
+  private final IdempotencyKeys<ResponseEntity<PostPaymentResponse>> idempotencyKeys;
+  private final Duration defaultTimeout;
+  private final TrafficCapture trafficCapture;
+  private final PaymentResponseCache paymentResponseCache;
 
-  public PaymentGatewayController(PaymentGatewayService paymentGatewayService) {
+  /**
+   * @param defaultTimeout deadline for payments sent without a {@code Request-Timeout} header;
+   *     zero for none
+   */
+  @Autowired
+  public PaymentGatewayController(PaymentGatewayService paymentGatewayService,
+      AsyncAuthorizationService asyncAuthorizationService,
+      PaymentEventBroadcaster paymentEventBroadcaster,
+      PaymentLifecycleService paymentLifecycleService,
+      IdempotencyKeys<ResponseEntity<PostPaymentResponse>> idempotencyKeys,
+      @Value("${payments.deadline.default:PT10S}") Duration defaultTimeout,
+      TrafficCapture trafficCapture, PaymentResponseCache paymentResponseCache) {
     this.paymentGatewayService = paymentGatewayService;
+    this.asyncAuthorizationService = asyncAuthorizationService;
+    this.paymentEventBroadcaster = paymentEventBroadcaster;
+    this.paymentLifecycleService = paymentLifecycleService;
+    this.idempotencyKeys = idempotencyKeys;
+    this.defaultTimeout = defaultTimeout;
+    this.trafficCapture = trafficCapture;
+    this.paymentResponseCache = paymentResponseCache;
   }
 
+  /**
+   * Only finds payments made under the same {@code Merchant-Id} header, or under none when the
+   * header is absent. The ETag changes whenever the payment does, so a poller sending it back in
+   * {@code If-None-Match} gets 304 and no body until then.
+   */
   @GetMapping("/payment/{id}")
-  public ResponseEntity<PostPaymentResponse> getPostPaymentEventById(@PathVariable UUID id) {
-    return new ResponseEntity<>(paymentGatewayService.getPaymentById(id), HttpStatus.OK);
+  public CompletableFuture<ResponseEntity<byte[]>> getPostPaymentEventById(
+      @PathVariable UUID id,
+      @RequestHeader(name = MERCHANT_ID, required = false) String merchantId,
+      @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    return paymentGatewayService.getPaymentByIdAsync(merchantId, id).thenApply(payment -> {
+      long version = PaymentResponseCache.version(payment);
+      String etag = PaymentResponseCache.etag(version);
+      if (paymentResponseCache.isNotModified(ifNoneMatch, etag)) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+            .eTag(etag)
+            .cacheControl(CacheControl.noCache())
+            .build();
+      }
+      return ResponseEntity.ok()
+          .eTag(etag)
+          .cacheControl(CacheControl.noCache())
+          .contentType(MediaType.APPLICATION_JSON)
+          .body(paymentResponseCache.serialize(payment, version));
+    });
   }
+
+  /**
+   * A request repeated with the same {@code Idempotency-Key} gets the first request's response
+   * rather than being processed again. Keys are scoped to the {@code Merchant-Id}.
+   *
+   * <p>A synchronous payment still short of the bank when its {@code Request-Timeout} (or the
+   * default) runs out is dropped and answered 504; it is never sent to the bank afterwards.
+   */
   @PostMapping("/payment")
-  public ResponseEntity<PostPaymentResponse> processPayment(@RequestBody PostPaymentRequest paymentRequest) {
-    PostPaymentResponse response = paymentGatewayService.processPayment(paymentRequest);
-    if (response.getStatus() == PaymentStatus.REJECTED) {
-      return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+  public CompletableFuture<ResponseEntity<PostPaymentResponse>> processPayment(
+      @RequestBody PostPaymentRequest paymentRequest,
+      @RequestParam(name = "mode", defaultValue = "sync") String mode,
+      @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+      @RequestHeader(name = MERCHANT_ID, required = false) String merchantId,
+      @RequestHeader(name = REQUEST_TIMEOUT, required = false) Long timeoutMillis,
+      HttpServletRequest request) {
+    // Before validation, so a replay sends the invalid requests too
+    trafficCapture.record(paymentRequest, mode, merchantId, idempotencyKey, timeoutMillis);
+    validateMerchantId(merchantId);
+    Deadline deadline = timeoutMillis != null ? Deadline.after(Duration.ofMillis(timeoutMillis))
+        : defaultTimeout.isZero() ? Deadline.none() : Deadline.after(defaultTimeout);
+    return idempotencyKeys.execute(IdempotencyKeys.scoped(merchantId, idempotencyKey),
+        List.of(mode, paymentRequest),
+        () -> process(paymentRequest, mode, request.getRemoteAddr(), merchantId, deadline));
+  }
+
+  private CompletableFuture<ResponseEntity<PostPaymentResponse>> process(
+      PostPaymentRequest paymentRequest, String mode, String sourceAddress, String merchantId,
+      Deadline deadline) {
+    if ("async".equals(mode)) {
+      return asyncAuthorizationService.accept(paymentRequest, sourceAddress, merchantId)
+          .thenApply(response -> {
+            if (response.getStatus() == PaymentStatus.REJECTED) {
+              return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+            }
+            return ResponseEntity.accepted()
+                .location(URI.create("/payment/" + response.getId()))
+                .body(response);
+          });
     }
-    return new ResponseEntity<>(response, HttpStatus.OK);
+    return paymentGatewayService.processPaymentAsync(paymentRequest, sourceAddress, merchantId,
+            deadline)
+        .thenApply(response -> {
+          if (response.getStatus() == PaymentStatus.REJECTED) {
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+          }
+          return new ResponseEntity<>(response, HttpStatus.OK);
+        });
+  }
+
+  @PostMapping("/payment/{id}/capture")
+  public CompletableFuture<ResponseEntity<PostPaymentResponse>> capturePayment(
+      @PathVariable UUID id,
+      @RequestHeader(name = MERCHANT_ID, required = false) String merchantId) {
+    return paymentLifecycleService.captureAsync(merchantId, id).thenApply(ResponseEntity::ok);
+  }
+
+  @PostMapping("/payment/{id}/void")
+  public CompletableFuture<ResponseEntity<PostPaymentResponse>> voidPayment(
+      @PathVariable UUID id,
+      @RequestHeader(name = MERCHANT_ID, required = false) String merchantId) {
+    return paymentLifecycleService.voidAsync(merchantId, id).thenApply(ResponseEntity::ok);
+  }
+
+  @PostMapping("/payment/{id}/refund")
+  public CompletableFuture<ResponseEntity<PostPaymentResponse>> refundPayment(
+      @PathVariable UUID id,
+      @RequestBody(required = false) PostRefundRequest refundRequest,
+      @RequestHeader(name = MERCHANT_ID, required = false) String merchantId) {
+    return paymentLifecycleService.refundAsync(merchantId, id,
+            refundRequest == null ? null : refundRequest.getAmount())
+        .thenApply(ResponseEntity::ok);
+  }
+
+  @GetMapping(path = "/payments/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamPaymentEvents(
+      @RequestParam(name = "paymentId", required = false) UUID paymentId,
+      @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId,
+      @RequestHeader(name = MERCHANT_ID, required = false) String merchantId) {
+    return paymentEventBroadcaster.subscribe(validateMerchantId(merchantId), paymentId,
+        lastEventId);
   }
 }
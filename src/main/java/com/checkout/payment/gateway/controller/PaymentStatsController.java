@@ -0,0 +1,23 @@
+package com.checkout.payment.gateway.controller;
+
+import com.checkout.payment.gateway.model.PaymentStatsResponse;
+import com.checkout.payment.gateway.stats.PaymentStatistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class PaymentStatsController {
+
+  private final PaymentStatistics paymentStatistics;
+
+  public PaymentStatsController(PaymentStatistics paymentStatistics) {
+    this.paymentStatistics = paymentStatistics;
+  }
+
+  @GetMapping("/stats")
+  public PaymentStatsResponse getStats(
+      @RequestParam(name = "minutes", defaultValue = "60") int minutes) {
+    return paymentStatistics.snapshot(minutes);
+  }
+}
@@ -0,0 +1,66 @@
+package com.checkout.payment.gateway.deadline;
+
+import java.time.Duration;
+
+/**
+ * The {@link System#nanoTime()} by which a caller wants its answer. It travels with the work
+ * rather than being turned into a fresh timeout at each hop, so time spent queueing counts
+ * against it too.
+ */
+public final class Deadline {
+
+  // Anything further out is treated as no deadline, which keeps nanoTime arithmetic from
+  // overflowing
+  private static final long MAX_NANOS = Long.MAX_VALUE >> 2;
+  private static final Deadline NONE = new Deadline(0, false);
+
+  private final long nanoTime;
+  private final boolean bounded;
+
+  private Deadline(long nanoTime, boolean bounded) {
+    this.nanoTime = nanoTime;
+    this.bounded = bounded;
+  }
+
+  public static Deadline none() {
+    return NONE;
+  }
+
+  public static Deadline after(Duration timeout) {
+    return timeout.compareTo(Duration.ofNanos(MAX_NANOS)) >= 0 ? NONE
+        : afterNanos(timeout.toNanos());
+  }
+
+  public static Deadline afterNanos(long timeoutNanos) {
+    return timeoutNanos >= MAX_NANOS ? NONE
+        : new Deadline(System.nanoTime() + timeoutNanos, true);
+  }
+
+  static Deadline atNanoTime(long nanoTime) {
+    return new Deadline(nanoTime, true);
+  }
+
+  public boolean isBounded() {
+    return bounded;
+  }
+
+  /**
+   * Nanoseconds left, negative once passed, or {@link Long#MAX_VALUE} without a deadline.
+   */
+  public long remainingNanos() {
+    return bounded ? nanoTime - System.nanoTime() : Long.MAX_VALUE;
+  }
+
+  public boolean isExpired() {
+    return bounded && nanoTime - System.nanoTime() <= 0;
+  }
+
+  long nanoTime() {
+    return nanoTime;
+  }
+
+  @Override
+  public String toString() {
+    return bounded ? "Deadline[" + Duration.ofNanos(remainingNanos()) + " left]" : "Deadline[none]";
+  }
+}
@@ -0,0 +1,284 @@
+package com.checkout.payment.gateway.deadline;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed hierarchical timing wheel: four levels of 64 slots, a slot of the first level one tick
+ * wide and of each level above 64 times wider than the one below. A timeout is hashed into the
+ * lowest level whose span reaches its deadline and moves down a level each time its slot comes
+ * round, so scheduling and cancelling cost the same however many timeouts are pending, and a
+ * single thread serves all of them without one scheduled task each. Deadlines beyond the top
+ * level wait in its farthest slot and are placed again from there.
+ *
+ * <p>A timeout fires on its tick or, if the thread falls behind, after it; never before its
+ * deadline. Tasks run on the wheel's thread and must be short.
+ */
+public class HierarchicalTimingWheel implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HierarchicalTimingWheel.class);
+
+  private static final int SLOT_BITS = 6;
+  private static final int SLOTS = 1 << SLOT_BITS;
+  private static final int LEVELS = 4;
+  private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+  private final long tickNanos;
+  private final long startNanos;
+  // Each slot is a doubly-linked list of timeouts; only the ticking thread touches them
+  private final Timeout[][] slots = new Timeout[LEVELS][SLOTS];
+  private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+  private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pending = new AtomicInteger();
+  private final AtomicLong expired = new AtomicLong();
+  private final Thread ticker;
+  private volatile boolean running = true;
+  // The next tick to process
+  private long tick;
+
+  public HierarchicalTimingWheel(String name, Duration tick) {
+    this(tick.toNanos(), System.nanoTime(), name);
+  }
+
+  /**
+   * Without a thread: ticks are processed only by {@link #advance}.
+   */
+  HierarchicalTimingWheel(long tickNanos, long startNanos) {
+    this(tickNanos, startNanos, null);
+  }
+
+  private HierarchicalTimingWheel(long tickNanos, long startNanos, String name) {
+    if (tickNanos <= 0) {
+      throw new IllegalArgumentException("Tick must be positive");
+    }
+    this.tickNanos = tickNanos;
+    this.startNanos = startNanos;
+    if (name == null) {
+      this.ticker = null;
+    } else {
+      this.ticker = new Thread(this::run, name);
+      this.ticker.setDaemon(true);
+      this.ticker.start();
+    }
+  }
+
+  /**
+   * Runs {@code task} once the deadline has passed, unless the returned timeout is cancelled
+   * first.
+   */
+  public Timeout schedule(Deadline deadline, Runnable task) {
+    if (!deadline.isBounded()) {
+      throw new IllegalArgumentException("Cannot schedule a timeout without a deadline");
+    }
+    long elapsed = deadline.nanoTime() - startNanos;
+    // Rounded up, so the tick it fires on is never before the deadline
+    Timeout timeout = new Timeout(this, task,
+        elapsed <= 0 ? 0 : (elapsed - 1) / tickNanos + 1);
+    pending.incrementAndGet();
+    added.add(timeout);
+    return timeout;
+  }
+
+  /**
+   * Scheduled timeouts that have neither fired nor been cancelled.
+   */
+  public int getPendingCount() {
+    return pending.get();
+  }
+
+  public long getExpiredCount() {
+    return expired.get();
+  }
+
+  /**
+   * Processes every tick up to {@code nowNanos}, firing the timeouts due by then.
+   */
+  void advance(long nowNanos) {
+    placeAdded();
+    while (tick <= Math.floorDiv(nowNanos - startNanos, tickNanos)) {
+      cascade();
+      fire();
+      tick++;
+      // Timeouts scheduled by the tasks just run may be due on a tick still to come
+      placeAdded();
+    }
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    if (ticker != null) {
+      LockSupport.unpark(ticker);
+    }
+  }
+
+  private void run() {
+    while (running) {
+      advance(System.nanoTime());
+      long wait = startNanos + tick * tickNanos - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(this, wait);
+      }
+    }
+  }
+
+  private void placeAdded() {
+    Timeout timeout;
+    while ((timeout = added.poll()) != null) {
+      if (timeout.state == Timeout.PENDING) {
+        place(timeout);
+      }
+    }
+    // Only unlinked here: a timeout cancelled before it was placed was skipped above
+    while ((timeout = cancelled.poll()) != null) {
+      unlink(timeout);
+    }
+  }
+
+  private void place(Timeout timeout) {
+    long expiry = Math.max(timeout.expiryTick, tick);
+    long delta = expiry - tick;
+    if (delta >= SPAN) {
+      expiry = tick + SPAN - 1;
+      delta = SPAN - 1;
+    }
+    int level = 0;
+    while (delta >= 1L << (SLOT_BITS * (level + 1))) {
+      level++;
+    }
+    link(timeout, level, (int) (expiry >>> (SLOT_BITS * level)) & (SLOTS - 1));
+  }
+
+  // From the top down, so a timeout can drop several levels on the tick its slots turn over
+  private void cascade() {
+    for (int level = LEVELS - 1; level > 0; level--) {
+      int shift = SLOT_BITS * level;
+      if ((tick & ((1L << shift) - 1)) == 0) {
+        Timeout timeout = detach(level, (int) (tick >>> shift) & (SLOTS - 1));
+        while (timeout != null) {
+          Timeout next = timeout.next;
+          timeout.next = null;
+          if (timeout.state == Timeout.PENDING) {
+            place(timeout);
+          }
+          timeout = next;
+        }
+      }
+    }
+  }
+
+  private void fire() {
+    Timeout timeout = detach(0, (int) tick & (SLOTS - 1));
+    while (timeout != null) {
+      Timeout next = timeout.next;
+      timeout.next = null;
+      if (timeout.expiryTick > tick) {
+        // Parked in the top level's farthest slot and not due yet
+        if (timeout.state == Timeout.PENDING) {
+          place(timeout);
+        }
+      } else if (Timeout.STATE.compareAndSet(timeout, Timeout.PENDING, Timeout.EXPIRED)) {
+        pending.decrementAndGet();
+        expired.incrementAndGet();
+        try {
+          timeout.task.run();
+        } catch (RuntimeException e) {
+          LOG.error("Timeout task failed", e);
+        }
+      }
+      timeout = next;
+    }
+  }
+
+  private void link(Timeout timeout, int level, int slot) {
+    Timeout head = slots[level][slot];
+    timeout.level = level;
+    timeout.slot = slot;
+    timeout.previous = null;
+    timeout.next = head;
+    if (head != null) {
+      head.previous = timeout;
+    }
+    slots[level][slot] = timeout;
+  }
+
+  private void unlink(Timeout timeout) {
+    if (timeout.level < 0) {
+      return;
+    }
+    if (timeout.previous != null) {
+      timeout.previous.next = timeout.next;
+    } else {
+      slots[timeout.level][timeout.slot] = timeout.next;
+    }
+    if (timeout.next != null) {
+      timeout.next.previous = timeout.previous;
+    }
+    timeout.previous = null;
+    timeout.next = null;
+    timeout.level = -1;
+  }
+
+  // Hands back the slot's list, still chained through next, and leaves the slot empty
+  private Timeout detach(int level, int slot) {
+    Timeout head = slots[level][slot];
+    slots[level][slot] = null;
+    for (Timeout timeout = head; timeout != null; timeout = timeout.next) {
+      timeout.previous = null;
+      timeout.level = -1;
+    }
+    return head;
+  }
+
+  public static final class Timeout {
+
+    private static final int PENDING = 0;
+    private static final int EXPIRED = 1;
+    private static final int CANCELLED = 2;
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+        AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    private final HierarchicalTimingWheel wheel;
+    private final Runnable task;
+    private final long expiryTick;
+    private volatile int state = PENDING;
+    // Owned by the ticking thread
+    private Timeout previous;
+    private Timeout next;
+    private int level = -1;
+    private int slot;
+
+    private Timeout(HierarchicalTimingWheel wheel, Runnable task, long expiryTick) {
+      this.wheel = wheel;
+      this.task = task;
+      this.expiryTick = expiryTick;
+    }
+
+    /**
+     * Returns false if the timeout had already fired or been cancelled.
+     */
+    public boolean cancel() {
+      if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+        return false;
+      }
+      wheel.pending.decrementAndGet();
+      wheel.cancelled.add(this);
+      return true;
+    }
+
+    public boolean isExpired() {
+      return state == EXPIRED;
+    }
+
+    public boolean isCancelled() {
+      return state == CANCELLED;
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package com.checkout.payment.gateway.duplicate;
+
+import com.checkout.payment.gateway.duplicate.FingerprintWindow.Added;
+import com.checkout.payment.gateway.hash.SipHash;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Spots a payment repeating the card number, amount and currency of one seen within the
+ * window. Fingerprints are a keyed hash of those fields, so no card number is kept. Checks read
+ * the previous and the current {@link FingerprintWindow}: a repeat is caught if it arrives within
+ * one window of the original, and may be caught up to two windows later. A third window, unused
+ * by checks, is emptied in the background for the next period, so rotating never stalls a
+ * payment. Memory is fixed by the expected number of payments per window, at 11 to 21 bytes each
+ * for each of the three; past that, repeats stop being confirmed rather than memory growing.
+ */
+public class DuplicateDetector {
+
+  public enum Mode {
+    OFF, FLAG, REJECT
+  }
+
+  private final Mode mode;
+  private final long windowNanos;
+  private final long k0;
+  private final long k1;
+  private final FingerprintWindow[] windows;
+  private final LongAdder checks = new LongAdder();
+  private final LongAdder duplicates = new LongAdder();
+  private final LongAdder untracked = new LongAdder();
+  private final ScheduledExecutorService sweeper;
+
+  public DuplicateDetector(Mode mode, Duration window, int expectedPerWindow) {
+    this.mode = mode;
+    this.windowNanos = window.toNanos();
+    SecureRandom random = new SecureRandom();
+    this.k0 = random.nextLong();
+    this.k1 = random.nextLong();
+    this.windows = new FingerprintWindow[3];
+    for (int i = 0; i < windows.length; i++) {
+      windows[i] = new FingerprintWindow(expectedPerWindow);
+    }
+    if (mode != Mode.OFF) {
+      sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "duplicate-sweeper");
+        thread.setDaemon(true);
+        return thread;
+      });
+      // Several times a window, so the next one is empty well before its period starts
+      long interval = Math.max(1, windowNanos / 4);
+      sweeper.scheduleWithFixedDelay(() -> {
+        long next = Math.floorDiv(System.nanoTime(), windowNanos) + 1;
+        window(next).reset(next);
+      }, 0, interval, TimeUnit.NANOSECONDS);
+    } else {
+      sweeper = null;
+    }
+  }
+
+  public static DuplicateDetector disabled() {
+    return new DuplicateDetector(Mode.OFF, Duration.ofSeconds(1), 1);
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  /**
+   * Records the payment and returns true if an identical one was seen within the window.
+   */
+  public boolean check(PostPaymentRequest request) {
+    if (mode == Mode.OFF) {
+      return false;
+    }
+    checks.increment();
+    long fingerprint = fingerprint(request);
+    long epoch = Math.floorDiv(System.nanoTime(), windowNanos);
+
+    FingerprintWindow previous = window(epoch - 1);
+    boolean duplicate = previous.getEpoch() == epoch - 1 && previous.contains(fingerprint);
+
+    // The add probes the table for the fingerprint on its way to a free slot, so racing repeats
+    // see each other
+    Added added = current(epoch).add(fingerprint);
+    if (added == Added.FULL) {
+      untracked.increment();
+    }
+    duplicate |= added == Added.PRESENT;
+
+    if (duplicate) {
+      duplicates.increment();
+    }
+    return duplicate;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (sweeper != null) {
+      sweeper.shutdownNow();
+    }
+  }
+
+  public long getCheckCount() {
+    return checks.sum();
+  }
+
+  public long getDuplicateCount() {
+    return duplicates.sum();
+  }
+
+  /**
+   * Payments that arrived after the window's table was full; repeats of them go unseen.
+   */
+  public long getUntrackedCount() {
+    return untracked.sum();
+  }
+
+  private FingerprintWindow window(long epoch) {
+    return windows[(int) Math.floorMod(epoch, (long) windows.length)];
+  }
+
+  // The sweeper has usually emptied it already; after an idle spell the first check does
+  private FingerprintWindow current(long epoch) {
+    FingerprintWindow current = window(epoch);
+    if (current.getEpoch() < epoch) {
+      current.reset(epoch);
+      while (current.getEpoch() < epoch) {
+        // Another thread is part way through emptying it
+        Thread.onSpinWait();
+      }
+    }
+    return current;
+  }
+
+  private long fingerprint(PostPaymentRequest request) {
+    byte[] card = request.getCardNumber() == null ? new byte[0]
+        : request.getCardNumber().getBytes(StandardCharsets.US_ASCII);
+    byte[] currency = request.getCurrency() == null ? new byte[0]
+        : request.getCurrency().getBytes(StandardCharsets.US_ASCII);
+    byte[] data = new byte[card.length + currency.length + 6];
+    System.arraycopy(card, 0, data, 0, card.length);
+    // Separators keep "1234" + "5USD" apart from "12345" + "USD"
+    data[card.length] = '|';
+    System.arraycopy(currency, 0, data, card.length + 1, currency.length);
+    int offset = card.length + currency.length + 1;
+    data[offset] = '|';
+    int amount = request.getAmount();
+    for (int i = 1; i <= 4; i++) {
+      data[offset + i] = (byte) (amount >>> (8 * (i - 1)));
+    }
+    long fingerprint = SipHash.hash(k0, k1, data, data.length);
+    // Zero marks an empty slot in the table
+    return fingerprint == 0 ? 1 : fingerprint;
+  }
+}
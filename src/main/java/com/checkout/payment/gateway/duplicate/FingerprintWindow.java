@@ -0,0 +1,102 @@
+package com.checkout.payment.gateway.duplicate;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The fingerprints seen during one time window, in a fixed-size open-addressing table of the full
+ * 64-bit fingerprints, 8 bytes a slot at most three quarters full. Slots are claimed with atomic
+ * operations, so concurrent checks never block one another, and two racing adds of one
+ * fingerprint see each other. {@link #reset} must only run while no check uses the window.
+ */
+class FingerprintWindow {
+
+  enum Added {
+    ADDED, PRESENT, FULL
+  }
+
+  private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+  private static final double MAX_LOAD = 0.75;
+
+  private final long[] table;
+  private final int tableMask;
+  private final int maxSize;
+  private final AtomicInteger size = new AtomicInteger();
+  // The last window a thread set out to clear this one for, and the one it holds now
+  private final AtomicLong claimedEpoch = new AtomicLong(Long.MIN_VALUE);
+  private volatile long epoch = Long.MIN_VALUE;
+
+  FingerprintWindow(int expectedEntries) {
+    int slots = Integer.highestOneBit(Math.max(16, (int) (expectedEntries / MAX_LOAD) - 1) << 1);
+    this.table = new long[slots];
+    this.tableMask = slots - 1;
+    this.maxSize = (int) (slots * MAX_LOAD);
+  }
+
+  long getEpoch() {
+    return epoch;
+  }
+
+  /**
+   * Empties the window for the given epoch unless it already holds, or is being emptied for, that
+   * epoch or a later one. Whoever loses the race should wait for {@link #getEpoch} to catch up.
+   */
+  void reset(long epoch) {
+    long claimed = claimedEpoch.get();
+    while (claimed < epoch) {
+      if (claimedEpoch.compareAndSet(claimed, epoch)) {
+        Arrays.fill(table, 0);
+        size.set(0);
+        // The volatile write publishes the cleared arrays to every thread that reads the epoch
+        this.epoch = epoch;
+        return;
+      }
+      claimed = claimedEpoch.get();
+    }
+  }
+
+  boolean contains(long fingerprint) {
+    for (int slot = slot(fingerprint); ; slot = (slot + 1) & tableMask) {
+      long seen = (long) LONGS.getAcquire(table, slot);
+      if (seen == 0) {
+        return false;
+      }
+      if (seen == fingerprint) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Adds the fingerprint unless it is already there or the table is full.
+   */
+  Added add(long fingerprint) {
+    int slot = slot(fingerprint);
+    while (true) {
+      long seen = (long) LONGS.getAcquire(table, slot);
+      if (seen == fingerprint) {
+        return Added.PRESENT;
+      }
+      if (seen != 0) {
+        slot = (slot + 1) & tableMask;
+        continue;
+      }
+      // Reserve room first, so racing adds can never fill every slot and leave probes spinning
+      if (size.getAndUpdate(n -> n < maxSize ? n + 1 : n) >= maxSize) {
+        return Added.FULL;
+      }
+      if (LONGS.compareAndSet(table, slot, 0L, fingerprint)) {
+        return Added.ADDED;
+      }
+      // Another add took the slot; give the room back and look at what it wrote
+      size.decrementAndGet();
+    }
+  }
+
+  private int slot(long fingerprint) {
+    return (int) (Long.rotateRight(fingerprint, 17) * 0x9E3779B97F4A7C15L >>> 40) & tableMask;
+  }
+}
@@ -0,0 +1,10 @@
+package com.checkout.payment.gateway.events;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+
+/**
+ * A payment as it was stored, tagged with its position in the {@link PaymentEventRing} and the
+ * merchant it belongs to, null for payments made without a merchant.
+ */
+public record PaymentEvent(long seq, String merchantId, PostPaymentResponse payment) {
+}
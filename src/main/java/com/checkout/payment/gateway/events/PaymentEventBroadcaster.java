@@ -0,0 +1,171 @@
+package com.checkout.payment.gateway.events;
+
+import com.checkout.payment.gateway.exception.BulkheadFullException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Streams the {@link PaymentEventRing} to SSE subscribers. One dispatcher thread wakes on publish
+ * and hands each subscriber that is behind to a small pool, one drain at a time per subscriber,
+ * so a subscriber stuck on a slow socket only holds up itself. A subscriber that falls a whole
+ * ring behind gets a {@code resync} event with the cursor it resumes from and should re-fetch the
+ * payments it is tracking.
+ */
+public class PaymentEventBroadcaster implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentEventBroadcaster.class);
+
+  private static final int MAX_EVENTS_PER_DRAIN = 256;
+
+  private final PaymentEventRing ring;
+  private final long emitterTimeoutMillis;
+  private final long heartbeatNanos;
+  private final int maxSubscribers;
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+  private final ExecutorService senders;
+  private final Thread dispatcher;
+  private volatile boolean running = true;
+
+  public PaymentEventBroadcaster(PaymentEventRing ring, int senderThreads, int maxSubscribers,
+      Duration emitterTimeout, Duration heartbeat) {
+    this.ring = ring;
+    this.maxSubscribers = maxSubscribers;
+    this.emitterTimeoutMillis = emitterTimeout.toMillis();
+    this.heartbeatNanos = heartbeat.toNanos();
+    AtomicInteger counter = new AtomicInteger();
+    this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+      Thread thread = new Thread(runnable, "payment-events-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.dispatcher = new Thread(this::dispatch, "payment-events-dispatcher");
+    this.dispatcher.setDaemon(true);
+    this.dispatcher.start();
+  }
+
+  /**
+   * Opens a stream of the events of {@code merchantId}, or of payments made without a merchant
+   * when it is null, for {@code paymentId} or for every payment when that is null, starting
+   * after {@code lastEventId} when the client is reconnecting.
+   */
+  public SseEmitter subscribe(String merchantId, UUID paymentId, Long lastEventId) {
+    if (subscribers.size() >= maxSubscribers) {
+      throw new BulkheadFullException("payment-events");
+    }
+    long next = ring.getNextSequence();
+    long cursor = lastEventId == null ? next : Math.min(lastEventId + 1, next);
+    SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+    Subscriber subscriber = new Subscriber(emitter, merchantId, paymentId,
+        Math.max(0, cursor));
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    emitter.onError(e -> subscribers.remove(subscriber));
+    subscribers.add(subscriber);
+    return emitter;
+  }
+
+  public int getSubscriberCount() {
+    return subscribers.size();
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    dispatcher.interrupt();
+    senders.shutdownNow();
+    subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    subscribers.clear();
+  }
+
+  private void dispatch() {
+    long knownNext = ring.getNextSequence();
+    while (running) {
+      ring.awaitPublish(knownNext, TimeUnit.SECONDS.toNanos(1));
+      knownNext = ring.getNextSequence();
+      long now = System.nanoTime();
+      for (Subscriber subscriber : subscribers) {
+        boolean behind = subscriber.cursor < knownNext;
+        boolean idle = now - subscriber.lastSentNanos > heartbeatNanos;
+        if ((behind || idle) && subscriber.draining.compareAndSet(false, true)) {
+          senders.execute(() -> drain(subscriber));
+        }
+      }
+    }
+  }
+
+  private void drain(Subscriber subscriber) {
+    try {
+      long next = ring.getNextSequence();
+      int sent = 0;
+      while (subscriber.cursor < next && sent < MAX_EVENTS_PER_DRAIN) {
+        PaymentEvent event = ring.read(subscriber.cursor);
+        if (event == null || event.seq() < subscriber.cursor) {
+          // Claimed but not written yet; picked up on the next wake-up
+          break;
+        }
+        if (event.seq() > subscriber.cursor) {
+          long oldest = ring.getOldestSequence();
+          subscriber.emitter.send(SseEmitter.event().name("resync")
+              .data(Map.of("cursor", oldest)));
+          subscriber.cursor = oldest;
+          sent++;
+          continue;
+        }
+        if (subscriber.matches(event)) {
+          subscriber.emitter.send(SseEmitter.event().id(Long.toString(event.seq()))
+              .name("payment").data(event.payment()));
+          sent++;
+        }
+        subscriber.cursor++;
+      }
+      if (sent > 0) {
+        subscriber.lastSentNanos = System.nanoTime();
+      } else if (System.nanoTime() - subscriber.lastSentNanos > heartbeatNanos) {
+        subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+        subscriber.lastSentNanos = System.nanoTime();
+      }
+    } catch (IOException | IllegalStateException e) {
+      LOG.debug("Dropping payment event subscriber: {}", e.getMessage());
+      subscribers.remove(subscriber);
+      subscriber.emitter.completeWithError(e);
+    } finally {
+      subscriber.draining.set(false);
+    }
+  }
+
+  private static class Subscriber {
+
+    private final SseEmitter emitter;
+    private final String merchantId;
+    private final UUID paymentId;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    // Written only by the drain holding the draining flag
+    private volatile long cursor;
+    private volatile long lastSentNanos = System.nanoTime();
+
+    Subscriber(SseEmitter emitter, String merchantId, UUID paymentId, long cursor) {
+      this.emitter = emitter;
+      this.merchantId = merchantId;
+      this.paymentId = paymentId;
+      this.cursor = cursor;
+    }
+
+    boolean matches(PaymentEvent event) {
+      return Objects.equals(merchantId, event.merchantId())
+          && (paymentId == null || paymentId.equals(event.payment().getId()));
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package com.checkout.payment.gateway.events;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-size broadcast ring of payment events. Publishers claim a sequence with one atomic
+ * increment and write their slot; readers keep their own cursor and never touch shared state, so
+ * the number of readers does not affect publishing. A reader that falls a full ring behind finds
+ * its slot overwritten by a later sequence and has to resync.
+ */
+public class PaymentEventRing {
+
+  private final AtomicReferenceArray<PaymentEvent> slots;
+  private final int mask;
+  private final AtomicLong next = new AtomicLong();
+  private volatile Thread waiter;
+
+  public PaymentEventRing(int capacity) {
+    int size = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+    this.slots = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+  }
+
+  public long publish(String merchantId, PostPaymentResponse payment) {
+    long seq = next.getAndIncrement();
+    slots.set((int) (seq & mask), new PaymentEvent(seq, merchantId, payment));
+    Thread current = waiter;
+    if (current != null) {
+      LockSupport.unpark(current);
+    }
+    return seq;
+  }
+
+  /**
+   * Returns whatever occupies the slot for {@code seq}: the event itself, an older event or null
+   * while {@code seq} is still being published, or a newer event once it has been overwritten.
+   */
+  public PaymentEvent read(long seq) {
+    return slots.get((int) (seq & mask));
+  }
+
+  /**
+   * The sequence the next published event will get.
+   */
+  public long getNextSequence() {
+    return next.get();
+  }
+
+  /**
+   * The oldest sequence that has not been overwritten yet.
+   */
+  public long getOldestSequence() {
+    return Math.max(0, next.get() - capacity());
+  }
+
+  public int capacity() {
+    return mask + 1;
+  }
+
+  /**
+   * Parks the single dispatching thread until the next sequence moves past {@code knownNext} or
+   * the timeout passes.
+   */
+  public void awaitPublish(long knownNext, long timeoutNanos) {
+    waiter = Thread.currentThread();
+    if (next.get() == knownNext) {
+      LockSupport.parkNanos(this, timeoutNanos);
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package com.checkout.payment.gateway.exception;
+
+/**
+ * No acquirer saw the payment: each one tried refused the connection, answered 503 or was not
+ * tried at all. Unlike other bank failures, the payment is known not to be authorized, so it is
+ * safe to send again.
+ */
+public class BankUnavailableException extends EventProcessingException {
+
+  public BankUnavailableException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,7 @@
+package com.checkout.payment.gateway.exception;
+
+public class BulkheadFullException extends RuntimeException {
+  public BulkheadFullException(String bulkhead) {
+    super("Bulkhead " + bulkhead + " is full");
+  }
+}
@@ -3,6 +3,7 @@ package com.checkout.payment.gateway.exception;
 import com.checkout.payment.gateway.model.ErrorResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -19,4 +20,68 @@ public class CommonExceptionHandler {
     return new ResponseEntity<>(new ErrorResponse("Page not found"),
         HttpStatus.NOT_FOUND);
   }
+
+  @ExceptionHandler(ReadOnlyReplicaException.class)
+  public ResponseEntity<ErrorResponse> handleException(ReadOnlyReplicaException ex) {
+    LOG.warn("Rejected write on read-only replica");
+    return new ResponseEntity<>(new ErrorResponse(ex.getMessage()),
+        HttpStatus.SERVICE_UNAVAILABLE);
+  }
+
+  @ExceptionHandler(InvalidTransitionException.class)
+  public ResponseEntity<ErrorResponse> handleException(InvalidTransitionException ex) {
+    LOG.info(ex.getMessage());
+    return new ResponseEntity<>(new ErrorResponse(ex.getMessage()), HttpStatus.CONFLICT);
+  }
+
+  @ExceptionHandler(IdempotencyKeyReusedException.class)
+  public ResponseEntity<ErrorResponse> handleException(IdempotencyKeyReusedException ex) {
+    LOG.warn(ex.getMessage());
+    return new ResponseEntity<>(new ErrorResponse(ex.getMessage()),
+        HttpStatus.UNPROCESSABLE_ENTITY);
+  }
+
+  @ExceptionHandler(InvalidMerchantException.class)
+  public ResponseEntity<ErrorResponse> handleException(InvalidMerchantException ex) {
+    LOG.info(ex.getMessage());
+    return new ResponseEntity<>(new ErrorResponse(ex.getMessage()), HttpStatus.BAD_REQUEST);
+  }
+
+  @ExceptionHandler(BulkheadFullException.class)
+  public ResponseEntity<ErrorResponse> handleException(BulkheadFullException ex) {
+    LOG.warn(ex.getMessage());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .body(new ErrorResponse("Gateway is overloaded, retry later"));
+  }
+
+  // Not retryable like a full bulkhead, so no Retry-After: the limit stays until restart
+  @ExceptionHandler(MerchantLimitException.class)
+  public ResponseEntity<ErrorResponse> handleException(MerchantLimitException ex) {
+    LOG.warn(ex.getMessage());
+    return new ResponseEntity<>(new ErrorResponse("Merchant limit reached, payment not sent to "
+        + "bank"), HttpStatus.SERVICE_UNAVAILABLE);
+  }
+
+  // A payment the bank has answered must not be retried, so it gets no Retry-After
+  @ExceptionHandler(StorageUnavailableException.class)
+  public ResponseEntity<ErrorResponse> handleException(StorageUnavailableException ex) {
+    LOG.error(ex.getMessage());
+    if (ex.getUnstored() != null) {
+      return new ResponseEntity<>(new ErrorResponse("Payment " + ex.getUnstored().getId()
+          + " was " + ex.getUnstored().getStatus().getName()
+          + " by the bank but could not be stored, do not retry it"),
+          HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .body(new ErrorResponse("Payment store unavailable, retry later"));
+  }
+
+  @ExceptionHandler(DeadlineExceededException.class)
+  public ResponseEntity<ErrorResponse> handleException(DeadlineExceededException ex) {
+    LOG.info(ex.getMessage());
+    return new ResponseEntity<>(new ErrorResponse("Deadline exceeded, payment not sent to bank"),
+        HttpStatus.GATEWAY_TIMEOUT);
+  }
 }
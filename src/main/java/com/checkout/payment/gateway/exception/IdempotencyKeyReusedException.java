@@ -0,0 +1,7 @@
+package com.checkout.payment.gateway.exception;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+  public IdempotencyKeyReusedException(String key) {
+    super("Idempotency key " + key + " was already used for a different request");
+  }
+}
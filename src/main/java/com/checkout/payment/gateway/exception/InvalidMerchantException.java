@@ -0,0 +1,11 @@
+package com.checkout.payment.gateway.exception;
+
+public class InvalidMerchantException extends RuntimeException {
+  public InvalidMerchantException(String merchantId) {
+    super("Invalid merchant ID " + merchantId);
+  }
+
+  public InvalidMerchantException(String merchantId, String reason) {
+    super("Invalid merchant ID " + merchantId + ": " + reason);
+  }
+}
@@ -0,0 +1,7 @@
+package com.checkout.payment.gateway.exception;
+
+public class InvalidTransitionException extends RuntimeException {
+  public InvalidTransitionException(String message) {
+    super(message);
+  }
+}
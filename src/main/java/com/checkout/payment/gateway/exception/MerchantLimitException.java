@@ -0,0 +1,7 @@
+package com.checkout.payment.gateway.exception;
+
+public class MerchantLimitException extends RuntimeException {
+  public MerchantLimitException(String merchantId) {
+    super("No partition left for merchant " + merchantId);
+  }
+}
@@ -0,0 +1,7 @@
+package com.checkout.payment.gateway.exception;
+
+public class ReadOnlyReplicaException extends RuntimeException {
+  public ReadOnlyReplicaException() {
+    super("This node is a read-only replica");
+  }
+}
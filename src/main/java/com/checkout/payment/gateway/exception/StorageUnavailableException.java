@@ -0,0 +1,31 @@
+package com.checkout.payment.gateway.exception;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+
+/**
+ * The payment store could not serve a read or take a write.
+ */
+public class StorageUnavailableException extends RuntimeException {
+
+  private final transient PostPaymentResponse unstored;
+
+  public StorageUnavailableException(String message) {
+    this(message, null);
+  }
+
+  /**
+   * @param unstored the bank's outcome for a payment that could not be stored afterwards
+   */
+  public StorageUnavailableException(String message, PostPaymentResponse unstored) {
+    super(message);
+    this.unstored = unstored;
+  }
+
+  /**
+   * The payment the bank has already answered for, or null if the failure came before the bank
+   * call and the request can be retried.
+   */
+  public PostPaymentResponse getUnstored() {
+    return unstored;
+  }
+}
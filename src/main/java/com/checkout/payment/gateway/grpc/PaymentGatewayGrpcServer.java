@@ -0,0 +1,120 @@
+package com.checkout.payment.gateway.grpc;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Grpc;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves {@link PaymentGatewayGrpcService} over HTTP/2 on its own port, next to Tomcat.
+ */
+public class PaymentGatewayGrpcServer implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentGatewayGrpcServer.class);
+  private static final Metadata.Key<String> FORWARDED_FOR = Metadata.Key.of("x-forwarded-for",
+      Metadata.ASCII_STRING_MARSHALLER);
+
+  private final Server server;
+  private final Duration shutdownGracePeriod;
+
+  /**
+   * @param port the port to listen on, or 0 for any free port
+   * @param shutdownGracePeriod how long {@link #close()} lets calls in flight finish
+   * @param trustedProxies addresses whose {@code x-forwarded-for} metadata is believed, or null
+   *     to take every call's source from its connection
+   */
+  public PaymentGatewayGrpcServer(PaymentGatewayGrpcService service, int port,
+      Duration shutdownGracePeriod, Pattern trustedProxies) {
+    this.shutdownGracePeriod = shutdownGracePeriod;
+    try {
+      this.server = NettyServerBuilder.forPort(port)
+          .addService(ServerInterceptors.intercept(service,
+              new SourceAddressInterceptor(trustedProxies)))
+          .build()
+          .start();
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot serve gRPC on port " + port + ": "
+          + e.getMessage(), e);
+    }
+    LOG.info("gRPC payment API listening on port {}", server.getPort());
+  }
+
+  public int getPort() {
+    return server.getPort();
+  }
+
+  @Override
+  public void close() {
+    server.shutdown();
+    try {
+      if (!server.awaitTermination(shutdownGracePeriod.toMillis(), TimeUnit.MILLISECONDS)) {
+        server.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      server.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * The address a call came from: its peer's, unless the peer is a trusted proxy that says whom
+   * it forwarded for. As Tomcat's {@code RemoteIpValve} does, that is the rightmost address of
+   * {@code x-forwarded-for} that is not itself a trusted proxy, since only the entries our own
+   * proxies appended can be believed.
+   */
+  static String sourceAddress(String peer, String forwardedFor, Pattern trustedProxies) {
+    if (trustedProxies == null || forwardedFor == null
+        || !trustedProxies.matcher(peer).matches()) {
+      return peer;
+    }
+    String source = peer;
+    String[] hops = forwardedFor.split(",");
+    for (int i = hops.length - 1; i >= 0; i--) {
+      String hop = hops[i].trim();
+      if (hop.isEmpty()) {
+        continue;
+      }
+      source = hop;
+      if (!trustedProxies.matcher(hop).matches()) {
+        break;
+      }
+    }
+    return source;
+  }
+
+  private static final class SourceAddressInterceptor implements ServerInterceptor {
+
+    private final Pattern trustedProxies;
+
+    SourceAddressInterceptor(Pattern trustedProxies) {
+      this.trustedProxies = trustedProxies;
+    }
+
+    @Override
+    public <Q, R> ServerCall.Listener<Q> interceptCall(ServerCall<Q, R> call, Metadata headers,
+        ServerCallHandler<Q, R> next) {
+      SocketAddress remote = call.getAttributes().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR);
+      if (!(remote instanceof InetSocketAddress address) || address.getAddress() == null) {
+        return next.startCall(call, headers);
+      }
+      Context context = Context.current().withValue(PaymentGatewayGrpcService.SOURCE_ADDRESS,
+          sourceAddress(address.getAddress().getHostAddress(), headers.get(FORWARDED_FOR),
+              trustedProxies));
+      return Contexts.interceptCall(context, call, headers, next);
+    }
+  }
+}
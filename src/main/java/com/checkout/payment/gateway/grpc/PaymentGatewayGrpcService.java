@@ -0,0 +1,279 @@
+package com.checkout.payment.gateway.grpc;
+
+import static com.checkout.payment.gateway.validator.MerchantIdValidator.validateMerchantId;
+
+import com.checkout.payment.gateway.deadline.Deadline;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.BulkheadFullException;
+import com.checkout.payment.gateway.exception.DeadlineExceededException;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.IdempotencyKeyReusedException;
+import com.checkout.payment.gateway.exception.InvalidMerchantException;
+import com.checkout.payment.gateway.exception.MerchantLimitException;
+import com.checkout.payment.gateway.exception.ReadOnlyReplicaException;
+import com.checkout.payment.gateway.exception.StorageUnavailableException;
+import com.checkout.payment.gateway.grpc.proto.AuthorizeRequest;
+import com.checkout.payment.gateway.grpc.proto.AuthorizeResponse;
+import com.checkout.payment.gateway.grpc.proto.Error;
+import com.checkout.payment.gateway.grpc.proto.GetPaymentRequest;
+import com.checkout.payment.gateway.grpc.proto.Payment;
+import com.checkout.payment.gateway.grpc.proto.PaymentGatewayGrpc;
+import com.checkout.payment.gateway.idempotency.IdempotencyKeys;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.service.PaymentGatewayService;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * The gRPC payment API. Payments go through the same {@link PaymentGatewayService} and
+ * idempotency keys as {@code POST /payment}, so a key first used over REST replays over gRPC and
+ * the other way round.
+ */
+public class PaymentGatewayGrpcService extends PaymentGatewayGrpc.PaymentGatewayImplBase {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentGatewayGrpcService.class);
+
+  // Set per call by PaymentGatewayGrpcServer, for per-source velocity limits
+  static final Context.Key<String> SOURCE_ADDRESS = Context.key("source-address");
+
+  private final PaymentGatewayService paymentGatewayService;
+  private final IdempotencyKeys<ResponseEntity<PostPaymentResponse>> idempotencyKeys;
+  private final int streamWindow;
+  private final Duration defaultTimeout;
+
+  public PaymentGatewayGrpcService(PaymentGatewayService paymentGatewayService,
+      IdempotencyKeys<ResponseEntity<PostPaymentResponse>> idempotencyKeys, int streamWindow) {
+    this(paymentGatewayService, idempotencyKeys, streamWindow, Duration.ZERO);
+  }
+
+  /**
+   * @param streamWindow authorizations in flight per {@code AuthorizeStream} call; the stream
+   *     reads no further requests until one of them has been answered
+   * @param defaultTimeout deadline for each authorization on a call without a gRPC deadline;
+   *     zero for none
+   */
+  public PaymentGatewayGrpcService(PaymentGatewayService paymentGatewayService,
+      IdempotencyKeys<ResponseEntity<PostPaymentResponse>> idempotencyKeys, int streamWindow,
+      Duration defaultTimeout) {
+    this.paymentGatewayService = paymentGatewayService;
+    this.idempotencyKeys = idempotencyKeys;
+    this.streamWindow = streamWindow;
+    this.defaultTimeout = defaultTimeout;
+  }
+
+  @Override
+  public void authorize(AuthorizeRequest request, StreamObserver<Payment> responseObserver) {
+    authorize(request, SOURCE_ADDRESS.get()).whenComplete((payment, failure) -> {
+      if (failure != null) {
+        responseObserver.onError(toStatus(failure).asRuntimeException());
+      } else {
+        responseObserver.onNext(payment);
+        responseObserver.onCompleted();
+      }
+    });
+  }
+
+  @Override
+  public void getPayment(GetPaymentRequest request, StreamObserver<Payment> responseObserver) {
+    CompletableFuture<PostPaymentResponse> payment;
+    try {
+      payment = paymentGatewayService.getPaymentByIdAsync(
+          PaymentMessages.merchantId(request.getMerchantId()), UUID.fromString(request.getId()));
+    } catch (RuntimeException e) {
+      payment = CompletableFuture.failedFuture(e);
+    }
+    payment.whenComplete((response, failure) -> {
+      if (failure != null) {
+        responseObserver.onError(toStatus(failure).asRuntimeException());
+      } else {
+        responseObserver.onNext(PaymentMessages.toMessage(response));
+        responseObserver.onCompleted();
+      }
+    });
+  }
+
+  @Override
+  public StreamObserver<AuthorizeRequest> authorizeStream(
+      StreamObserver<AuthorizeResponse> responseObserver) {
+    return new AuthorizeStream((ServerCallStreamObserver<AuthorizeResponse>) responseObserver,
+        SOURCE_ADDRESS.get());
+  }
+
+  private CompletableFuture<Payment> authorize(AuthorizeRequest request, String sourceAddress) {
+    PostPaymentRequest paymentRequest = PaymentMessages.toModel(request);
+    String key = request.getIdempotencyKey().isEmpty() ? null : request.getIdempotencyKey();
+    String merchantId = PaymentMessages.merchantId(request.getMerchantId());
+    Deadline deadline = deadline();
+    try {
+      validateMerchantId(merchantId);
+      // Stored as the REST response, so either API can replay it
+      return idempotencyKeys.execute(IdempotencyKeys.scoped(merchantId, key),
+              List.of("sync", paymentRequest),
+              () -> paymentGatewayService.processPaymentAsync(paymentRequest, sourceAddress,
+                      merchantId, deadline)
+                  .thenApply(response -> new ResponseEntity<>(response,
+                      response.getStatus() == PaymentStatus.REJECTED ? HttpStatus.BAD_REQUEST
+                          : HttpStatus.OK)))
+          .thenApply(response -> PaymentMessages.toMessage(response.getBody()));
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  // The caller's gRPC deadline when it set one, so a payment stops where the caller gave up
+  private Deadline deadline() {
+    io.grpc.Deadline callDeadline = Context.current().getDeadline();
+    if (callDeadline != null) {
+      return Deadline.afterNanos(callDeadline.timeRemaining(TimeUnit.NANOSECONDS));
+    }
+    return defaultTimeout.isZero() ? Deadline.none() : Deadline.after(defaultTimeout);
+  }
+
+  // The gRPC counterparts of the statuses CommonExceptionHandler answers REST calls with
+  private static Status toStatus(Throwable failure) {
+    Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+        ? failure.getCause() : failure;
+    if (cause instanceof EventProcessingException) {
+      return Status.NOT_FOUND.withDescription("Payment not found");
+    }
+    if (cause instanceof ReadOnlyReplicaException) {
+      LOG.warn("Rejected write on read-only replica");
+      return Status.UNAVAILABLE.withDescription(cause.getMessage());
+    }
+    if (cause instanceof DeadlineExceededException) {
+      LOG.info(cause.getMessage());
+      return Status.DEADLINE_EXCEEDED.withDescription(
+          "Deadline exceeded, payment not sent to bank");
+    }
+    if (cause instanceof BulkheadFullException) {
+      LOG.warn(cause.getMessage());
+      return Status.UNAVAILABLE.withDescription("Gateway is overloaded, retry later");
+    }
+    if (cause instanceof StorageUnavailableException storageUnavailable) {
+      LOG.error(cause.getMessage());
+      PostPaymentResponse unstored = storageUnavailable.getUnstored();
+      return unstored == null
+          ? Status.UNAVAILABLE.withDescription("Payment store unavailable, retry later")
+          : Status.DATA_LOSS.withDescription("Payment " + unstored.getId() + " was "
+              + unstored.getStatus().getName() + " by the bank but could not be stored, "
+              + "do not retry it");
+    }
+    if (cause instanceof MerchantLimitException) {
+      LOG.warn(cause.getMessage());
+      return Status.RESOURCE_EXHAUSTED.withDescription(
+          "Merchant limit reached, payment not sent to bank");
+    }
+    if (cause instanceof IdempotencyKeyReusedException) {
+      LOG.warn(cause.getMessage());
+      return Status.FAILED_PRECONDITION.withDescription(cause.getMessage());
+    }
+    if (cause instanceof IllegalArgumentException || cause instanceof InvalidMerchantException) {
+      return Status.INVALID_ARGUMENT.withDescription(cause.getMessage());
+    }
+    LOG.error("Exception happened", cause);
+    return Status.INTERNAL.withDescription("Internal error");
+  }
+
+  /**
+   * One {@code AuthorizeStream} call. At most {@code streamWindow} requests are read ahead of
+   * their responses, and another is read only once a response could be written without queueing,
+   * so a caller that stops reading responses also stops its authorizations and HTTP/2 flow
+   * control pushes back on its sends.
+   */
+  private final class AuthorizeStream implements StreamObserver<AuthorizeRequest> {
+
+    private final ServerCallStreamObserver<AuthorizeResponse> responses;
+    private final String sourceAddress;
+    private int inFlight;
+    // Requests owed to the caller, made once the transport is ready for more responses
+    private int deferred;
+    private boolean halfClosed;
+    private boolean finished;
+
+    AuthorizeStream(ServerCallStreamObserver<AuthorizeResponse> responses, String sourceAddress) {
+      this.responses = responses;
+      this.sourceAddress = sourceAddress;
+      responses.disableAutoRequest();
+      responses.setOnReadyHandler(this::onReady);
+      responses.setOnCancelHandler(this::onCancel);
+      responses.request(streamWindow);
+    }
+
+    @Override
+    public void onNext(AuthorizeRequest request) {
+      synchronized (this) {
+        inFlight++;
+      }
+      long correlationId = request.getCorrelationId();
+      authorize(request, sourceAddress).whenComplete((payment, failure) -> {
+        AuthorizeResponse.Builder response = AuthorizeResponse.newBuilder()
+            .setCorrelationId(correlationId);
+        if (failure != null) {
+          Status status = toStatus(failure);
+          response.setError(Error.newBuilder()
+              .setCode(status.getCode().value())
+              .setMessage(status.getDescription()));
+        } else {
+          response.setPayment(payment);
+        }
+        respond(response.build());
+      });
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      onCancel();
+    }
+
+    @Override
+    public synchronized void onCompleted() {
+      halfClosed = true;
+      completeIfDone();
+    }
+
+    private synchronized void respond(AuthorizeResponse response) {
+      inFlight--;
+      if (finished) {
+        return;
+      }
+      responses.onNext(response);
+      if (responses.isReady()) {
+        responses.request(1);
+      } else {
+        deferred++;
+      }
+      completeIfDone();
+    }
+
+    private synchronized void onReady() {
+      if (deferred > 0 && !finished) {
+        responses.request(deferred);
+        deferred = 0;
+      }
+    }
+
+    private synchronized void onCancel() {
+      finished = true;
+    }
+
+    private void completeIfDone() {
+      if (halfClosed && inFlight == 0 && !finished) {
+        finished = true;
+        responses.onCompleted();
+      }
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package com.checkout.payment.gateway.grpc;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.grpc.proto.AuthorizeRequest;
+import com.checkout.payment.gateway.grpc.proto.Payment;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Conversions between the protobuf messages and the models the REST API uses.
+ */
+final class PaymentMessages {
+
+  private static final Map<PaymentStatus, com.checkout.payment.gateway.grpc.proto.PaymentStatus>
+      STATUSES = new EnumMap<>(PaymentStatus.class);
+
+  static {
+    for (PaymentStatus status : PaymentStatus.values()) {
+      STATUSES.put(status,
+          com.checkout.payment.gateway.grpc.proto.PaymentStatus.valueOf(
+              "PAYMENT_STATUS_" + status.name()));
+    }
+  }
+
+  private PaymentMessages() {
+  }
+
+  static PostPaymentRequest toModel(AuthorizeRequest request) {
+    PostPaymentRequest paymentRequest = new PostPaymentRequest();
+    paymentRequest.setCardNumber(request.getCardNumber());
+    paymentRequest.setExpiryMonth(request.getExpiryMonth());
+    paymentRequest.setExpiryYear(request.getExpiryYear());
+    paymentRequest.setCurrency(request.getCurrency());
+    paymentRequest.setAmount(request.getAmount());
+    paymentRequest.setCvv(request.getCvv());
+    return paymentRequest;
+  }
+
+  // Protobuf strings default to empty, which stands for no merchant
+  static String merchantId(String merchantId) {
+    return merchantId.isEmpty() ? null : merchantId;
+  }
+
+  static Payment toMessage(PostPaymentResponse response) {
+    Payment.Builder payment = Payment.newBuilder()
+        .setId(response.getId().toString())
+        .setCardNumberLastFour(response.getCardNumberLastFour())
+        .setExpiryMonth(response.getExpiryMonth())
+        .setExpiryYear(response.getExpiryYear())
+        .setAmount(response.getAmount())
+        .setRefundedAmount(response.getRefundedAmount());
+    // Unset strings stay at the protobuf default rather than failing on null
+    if (response.getAuthorizationCode() != null) {
+      payment.setAuthorizationCode(response.getAuthorizationCode());
+    }
+    if (response.getStatus() != null) {
+      payment.setStatus(STATUSES.get(response.getStatus()));
+    }
+    if (response.getCurrency() != null) {
+      payment.setCurrency(response.getCurrency());
+    }
+    return payment.build();
+  }
+}
@@ -0,0 +1,47 @@
+package com.checkout.payment.gateway.hash;
+
+/**
+ * SplitMix64's finalizer, and a running hash built on it. Unkeyed and cheap: for spreading and
+ * fingerprinting values nobody gains from forcing to collide; use {@link SipHash} where they do.
+ */
+public final class SplitMix {
+
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+  private SplitMix() {
+  }
+
+  public static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Folds the next value into a running hash.
+   */
+  public static long mix(long h, long value) {
+    return mix((h ^ value) * GOLDEN_GAMMA);
+  }
+
+  /**
+   * Folds every character of a string into a running hash, four to a step, after its length, so
+   * strings differ in the hash whenever they differ at all, null and empty included.
+   */
+  public static long mix(long h, String value) {
+    if (value == null) {
+      return mix(h, -1L);
+    }
+    int length = value.length();
+    h = mix(h, length);
+    long word = 0;
+    for (int i = 0; i < length; i++) {
+      word = word << 16 | value.charAt(i);
+      if ((i & 3) == 3) {
+        h = mix(h, word);
+        word = 0;
+      }
+    }
+    return (length & 3) == 0 ? h : mix(h, word);
+  }
+}
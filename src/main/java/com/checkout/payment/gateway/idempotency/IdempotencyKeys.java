@@ -0,0 +1,136 @@
+package com.checkout.payment.gateway.idempotency;
+
+import com.checkout.payment.gateway.exception.IdempotencyKeyReusedException;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Results of recent requests by their client-chosen {@code Idempotency-Key}, so a client that
+ * retries after a timeout or a dropped connection gets the first outcome back instead of a second
+ * payment. A retry that arrives while the first attempt is still running waits for it.
+ *
+ * <p>Keys are kept for a fixed time and at most {@code maxKeys} of them; the oldest go first.
+ * Attempts that fail with an exception rather than an outcome are forgotten, so they can be
+ * retried under the same key.
+ */
+public class IdempotencyKeys<T> {
+
+  private final boolean enabled;
+  private final int maxKeys;
+  private final long ttlNanos;
+  private final ConcurrentHashMap<String, Entry<T>> entries = new ConcurrentHashMap<>();
+  // Insertion order, for expiry; may hold entries already replaced or removed from the map
+  private final Queue<Entry<T>> order = new ConcurrentLinkedQueue<>();
+  private final AtomicLong replays = new AtomicLong();
+
+  public IdempotencyKeys(int maxKeys, Duration ttl) {
+    this(true, maxKeys, ttl);
+  }
+
+  private IdempotencyKeys(boolean enabled, int maxKeys, Duration ttl) {
+    this.enabled = enabled;
+    this.maxKeys = maxKeys;
+    this.ttlNanos = ttl.toNanos();
+  }
+
+  public static <T> IdempotencyKeys<T> disabled() {
+    return new IdempotencyKeys<>(false, 0, Duration.ZERO);
+  }
+
+  /**
+   * The key a merchant's request is stored under, so that merchants who happen to pick the same
+   * key never get each other's results. Merchant IDs cannot contain '/', so no two merchants, nor
+   * a merchant and requests naming none, share a scoped key.
+   *
+   * @param merchantId the merchant the request was made for, or null if it named none
+   * @param key the client's key, or null
+   */
+  public static String scoped(String merchantId, String key) {
+    if (key == null) {
+      return null;
+    }
+    return merchantId == null ? "/" + key : merchantId + "/" + key;
+  }
+
+  /**
+   * Runs the call, or returns the result of the earlier call made with the same key.
+   *
+   * @param key the client's key, or null to always run the call
+   * @param request what the key was sent with; reusing a key for a different request fails
+   * @throws IdempotencyKeyReusedException if the key was used for a different request
+   */
+  public CompletableFuture<T> execute(String key, Object request,
+      Supplier<CompletableFuture<T>> call) {
+    if (!enabled || key == null) {
+      return call.get();
+    }
+    long now = System.nanoTime();
+    Entry<T> fresh = new Entry<>(key, request, new CompletableFuture<>(), now);
+    while (true) {
+      Entry<T> existing = entries.putIfAbsent(key, fresh);
+      if (existing == null) {
+        break;
+      }
+      if (now - existing.createdNanos() < ttlNanos) {
+        if (!existing.request().equals(request)) {
+          throw new IdempotencyKeyReusedException(key);
+        }
+        replays.incrementAndGet();
+        return existing.result();
+      }
+      if (entries.replace(key, existing, fresh)) {
+        break;
+      }
+    }
+    order.add(fresh);
+    evict(now);
+
+    CompletableFuture<T> result;
+    try {
+      result = call.get();
+    } catch (RuntimeException e) {
+      entries.remove(key, fresh);
+      fresh.result().completeExceptionally(e);
+      throw e;
+    }
+    result.whenComplete((value, failure) -> {
+      if (failure != null) {
+        entries.remove(key, fresh);
+        fresh.result().completeExceptionally(failure);
+      } else {
+        fresh.result().complete(value);
+      }
+    });
+    return fresh.result();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Requests answered with the result of an earlier request under the same key.
+   */
+  public long getReplayCount() {
+    return replays.get();
+  }
+
+  private void evict(long now) {
+    Entry<T> oldest;
+    while ((oldest = order.peek()) != null
+        && (now - oldest.createdNanos() >= ttlNanos || entries.size() > maxKeys)) {
+      if (order.remove(oldest)) {
+        entries.remove(oldest.key(), oldest);
+      }
+    }
+  }
+
+  private record Entry<T>(String key, Object request, CompletableFuture<T> result,
+                          long createdNanos) {
+  }
+}
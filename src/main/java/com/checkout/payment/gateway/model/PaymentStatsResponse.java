@@ -0,0 +1,36 @@
+package com.checkout.payment.gateway.model;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder(setterPrefix = "set")
+public class PaymentStatsResponse {
+  private Instant from;
+  private Instant to;
+  private long authorizedCount;
+  private long declinedCount;
+  private long rejectedCount;
+  // Declined over authorized plus declined
+  private double declineRate;
+  // Rejected over every recorded payment
+  private double rejectRate;
+  private Map<String, CurrencyStats> currencies;
+  private List<MinuteStats> minutes;
+
+  public record CurrencyStats(long authorizedCount, long authorizedVolume, long declinedCount,
+                              long rejectedCount) {
+
+    public CurrencyStats plus(CurrencyStats other) {
+      return new CurrencyStats(authorizedCount + other.authorizedCount,
+          authorizedVolume + other.authorizedVolume, declinedCount + other.declinedCount,
+          rejectedCount + other.rejectedCount);
+    }
+  }
+
+  public record MinuteStats(Instant minute, Map<String, CurrencyStats> currencies) {
+  }
+}
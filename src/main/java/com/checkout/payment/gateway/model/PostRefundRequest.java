@@ -0,0 +1,12 @@
+package com.checkout.payment.gateway.model;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import lombok.Data;
+
+@Data
+public class PostRefundRequest {
+
+  @JsonPropertyDescription("Amount to refund in minor currency units. Refunds the whole "
+      + "remaining balance when omitted")
+  private Integer amount;
+}
@@ -0,0 +1,39 @@
+package com.checkout.payment.gateway.pipeline;
+
+import com.checkout.payment.gateway.client.BankClient;
+import com.checkout.payment.gateway.model.BankResponse;
+import com.checkout.payment.gateway.velocity.VelocityChecker;
+import java.util.Set;
+
+public class AuthorizeStage implements PaymentStage {
+
+  public static final String NAME = "authorize";
+
+  private final BankClient bankClient;
+  private final VelocityChecker velocityChecker;
+
+  public AuthorizeStage(BankClient bankClient, VelocityChecker velocityChecker) {
+    this.bankClient = bankClient;
+    this.velocityChecker = velocityChecker;
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  // Never sends the bank a payment that has not been validated
+  @Override
+  public Set<String> requires() {
+    return Set.of(ValidateStage.NAME);
+  }
+
+  @Override
+  public void process(PaymentContext context) {
+    BankResponse bankResponse = bankClient.authorize(context.getRequest(), context.getDeadline());
+    if (!bankResponse.isAuthorized()) {
+      velocityChecker.recordDecline(context.getRequest());
+    }
+    context.setBankResponse(bankResponse);
+  }
+}
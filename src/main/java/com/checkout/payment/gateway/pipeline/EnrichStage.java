@@ -0,0 +1,21 @@
+package com.checkout.payment.gateway.pipeline;
+
+import java.util.UUID;
+
+/**
+ * Assigns the payment its ID, so every later stage and log line can refer to it.
+ */
+public class EnrichStage implements PaymentStage {
+
+  public static final String NAME = "enrich";
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public void process(PaymentContext context) {
+    context.setPaymentId(UUID.randomUUID());
+  }
+}
@@ -0,0 +1,87 @@
+package com.checkout.payment.gateway.pipeline;
+
+import com.checkout.payment.gateway.deadline.Deadline;
+import com.checkout.payment.gateway.model.BankResponse;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.UUID;
+
+/**
+ * What the stages of one payment hand to each other. Only one stage touches it at a time, and
+ * hand-offs between executors go through a CompletableFuture, so no field needs to be volatile.
+ */
+public class PaymentContext {
+
+  private final PostPaymentRequest request;
+  private final String sourceAddress;
+  private final String merchantId;
+  private final Deadline deadline;
+  private UUID paymentId;
+  private BankResponse bankResponse;
+  private PostPaymentResponse response;
+
+  public PaymentContext(PostPaymentRequest request, String sourceAddress) {
+    this(request, sourceAddress, null);
+  }
+
+  public PaymentContext(PostPaymentRequest request, String sourceAddress, String merchantId) {
+    this(request, sourceAddress, merchantId, Deadline.none());
+  }
+
+  public PaymentContext(PostPaymentRequest request, String sourceAddress, String merchantId,
+      Deadline deadline) {
+    this.request = request;
+    this.sourceAddress = sourceAddress;
+    this.merchantId = merchantId;
+    this.deadline = deadline;
+  }
+
+  public PostPaymentRequest getRequest() {
+    return request;
+  }
+
+  /**
+   * Client address, or null if unknown.
+   */
+  public String getSourceAddress() {
+    return sourceAddress;
+  }
+
+  /**
+   * Merchant the payment is stored for, or null for the default partition.
+   */
+  public String getMerchantId() {
+    return merchantId;
+  }
+
+  /**
+   * When the caller stops waiting for the payment.
+   */
+  public Deadline getDeadline() {
+    return deadline;
+  }
+
+  public UUID getPaymentId() {
+    return paymentId;
+  }
+
+  public void setPaymentId(UUID paymentId) {
+    this.paymentId = paymentId;
+  }
+
+  public BankResponse getBankResponse() {
+    return bankResponse;
+  }
+
+  public void setBankResponse(BankResponse bankResponse) {
+    this.bankResponse = bankResponse;
+  }
+
+  public PostPaymentResponse getResponse() {
+    return response;
+  }
+
+  public void setResponse(PostPaymentResponse response) {
+    this.response = response;
+  }
+}
@@ -0,0 +1,285 @@
+package com.checkout.payment.gateway.pipeline;
+
+import com.checkout.payment.gateway.bulkhead.Bulkheads;
+import com.checkout.payment.gateway.client.BankClient;
+import com.checkout.payment.gateway.deadline.HierarchicalTimingWheel;
+import com.checkout.payment.gateway.deadline.HierarchicalTimingWheel.Timeout;
+import com.checkout.payment.gateway.duplicate.DuplicateDetector;
+import com.checkout.payment.gateway.events.PaymentEventRing;
+import com.checkout.payment.gateway.exception.DeadlineExceededException;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.velocity.VelocityChecker;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs a payment through an ordered list of {@link PaymentStage}s. A stage with an executor is
+ * handed to it, queueing there if the executor is busy; a stage without one runs inline on
+ * whichever thread finished the stage before it.
+ *
+ * <p>A payment whose deadline has passed is dropped before its next stage, up to and including
+ * the bank call. From the bank call on, the bank may have authorized it, so the remaining stages
+ * always run and it is stored.
+ */
+public class PaymentPipeline {
+
+  private final List<Stage> stages;
+  private final int bankStage;
+  private final HierarchicalTimingWheel deadlines;
+  private final LongAdder expired = new LongAdder();
+
+  /**
+   * @param executors executor per stage name; stages missing from the map run inline
+   */
+  public PaymentPipeline(List<PaymentStage> stages, Map<String, Executor> executors) {
+    this(stages, executors, null);
+  }
+
+  /**
+   * @param deadlines wheel that fails an executing payment as soon as its deadline passes, or
+   *     null to notice only when the payment reaches its next stage
+   */
+  public PaymentPipeline(List<PaymentStage> stages, Map<String, Executor> executors,
+      HierarchicalTimingWheel deadlines) {
+    Set<String> earlier = new HashSet<>();
+    List<Stage> ordered = new ArrayList<>(stages.size());
+    for (PaymentStage stage : stages) {
+      for (String required : stage.requires()) {
+        if (!earlier.contains(required)) {
+          throw new EventProcessingException(String.format(
+              "Pipeline stage %s needs stage %s before it", stage.name(), required));
+        }
+      }
+      if (!earlier.add(stage.name())) {
+        throw new EventProcessingException("Pipeline stage listed twice: " + stage.name());
+      }
+      ordered.add(new Stage(stage, executors.get(stage.name())));
+    }
+    this.stages = List.copyOf(ordered);
+    int authorize = 0;
+    while (authorize < stages.size()
+        && !stages.get(authorize).name().equals(AuthorizeStage.NAME)) {
+      authorize++;
+    }
+    this.bankStage = authorize;
+    this.deadlines = deadlines;
+  }
+
+  /**
+   * validate, enrich, risk, authorize, persist, publish: validation and persistence on the
+   * writes bulkhead, the bank call on the bank bulkhead, the rest inline.
+   */
+  public static PaymentPipeline standard(PaymentsRepository paymentsRepository,
+      BankClient bankClient, Bulkheads bulkheads, PaymentEventRing events,
+      DuplicateDetector duplicateDetector, VelocityChecker velocityChecker) {
+    return new PaymentPipeline(
+        List.of(new ValidateStage(), new EnrichStage(),
+            new RiskStage(duplicateDetector, velocityChecker),
+            new AuthorizeStage(bankClient, velocityChecker),
+            new PersistStage(paymentsRepository), new PublishStage(events)),
+        Map.of(ValidateStage.NAME, bulkheads.writes(), AuthorizeStage.NAME, bulkheads.bank(),
+            PersistStage.NAME, bulkheads.writes()));
+  }
+
+  /**
+   * A pipeline with the same stages on the same executors and deadline wheel, except that each
+   * given stage stands in for the stage of the same name. Given stages this pipeline does not
+   * have are ignored.
+   */
+  public PaymentPipeline replacing(List<PaymentStage> replacements) {
+    Map<String, PaymentStage> byName = new HashMap<>();
+    for (PaymentStage replacement : replacements) {
+      byName.put(replacement.name(), replacement);
+    }
+    List<PaymentStage> replaced = new ArrayList<>(stages.size());
+    Map<String, Executor> executors = new HashMap<>();
+    for (Stage stage : stages) {
+      replaced.add(byName.getOrDefault(stage.getName(), stage.stage));
+      if (stage.executor != null) {
+        executors.put(stage.getName(), stage.executor);
+      }
+    }
+    return new PaymentPipeline(replaced, executors, deadlines);
+  }
+
+  /**
+   * Runs every stage on the calling thread, ignoring their executors.
+   */
+  public PaymentContext run(PaymentContext context) {
+    for (int i = 0; i < stages.size(); i++) {
+      apply(i, context, null, System.nanoTime());
+    }
+    return context;
+  }
+
+  /**
+   * Fails with {@link DeadlineExceededException} once the context's deadline passes before the
+   * bank call has started, without waiting for a queued stage to notice.
+   */
+  public CompletableFuture<PaymentContext> execute(PaymentContext context) {
+    if (deadlines == null || !context.getDeadline().isBounded()) {
+      return executeFrom(0, context, null);
+    }
+    Execution execution = new Execution();
+    Timeout timeout = deadlines.schedule(context.getDeadline(), execution);
+    executeFrom(0, context, execution).whenComplete((result, failure) -> {
+      timeout.cancel();
+      if (failure == null) {
+        execution.complete(result);
+      } else {
+        execution.completeExceptionally(failure);
+      }
+    });
+    return execution;
+  }
+
+  /**
+   * Payments dropped because their deadline passed before they reached the bank.
+   */
+  public long getExpiredCount() {
+    return expired.sum();
+  }
+
+  // Inline stages run on the thread that finished the stage before them. The rest of the
+  // pipeline is continued from inside each executor task rather than chained onto its future,
+  // which would run it on the caller whenever the task has already finished.
+  private CompletableFuture<PaymentContext> executeFrom(int first, PaymentContext context,
+      Execution execution) {
+    for (int i = first; i < stages.size(); i++) {
+      Executor executor = stages.get(i).executor;
+      int current = i;
+      try {
+        if (executor != null) {
+          long submitted = System.nanoTime();
+          return CompletableFuture.supplyAsync(() -> executeFrom(current + 1,
+                  apply(current, context, execution, submitted), execution), executor)
+              .thenCompose(rest -> rest);
+        }
+        apply(i, context, execution, System.nanoTime());
+      } catch (RuntimeException e) {
+        // Includes a full bulkhead refusing the task
+        return CompletableFuture.failedFuture(e);
+      }
+    }
+    return CompletableFuture.completedFuture(context);
+  }
+
+  public List<Stage> getStages() {
+    return stages;
+  }
+
+  // The deadline is checked as the stage starts, so time queued for its executor counts
+  private PaymentContext apply(int index, PaymentContext context, Execution execution,
+      long submitted) {
+    if (index <= bankStage) {
+      if (context.getDeadline().isExpired()) {
+        if (execution == null) {
+          expired.increment();
+        } else {
+          execution.run();
+        }
+        throw new DeadlineExceededException(stages.get(index).getName());
+      }
+      if (execution != null && !execution.start(index == bankStage)) {
+        throw new DeadlineExceededException(stages.get(index).getName());
+      }
+    }
+    return stages.get(index).apply(context, submitted);
+  }
+
+  /**
+   * The future handed to the caller, failed by the timing wheel if the deadline passes while the
+   * payment has yet to reach the bank.
+   */
+  private final class Execution extends CompletableFuture<PaymentContext> implements Runnable {
+
+    private static final int WAITING = 0;
+    private static final int AT_BANK = 1;
+    private static final int EXPIRED = 2;
+
+    private final AtomicInteger state = new AtomicInteger();
+
+    // Returns false if the deadline has already failed the payment
+    boolean start(boolean bank) {
+      return bank ? state.compareAndSet(WAITING, AT_BANK) : state.get() != EXPIRED;
+    }
+
+    @Override
+    public void run() {
+      if (state.compareAndSet(WAITING, EXPIRED)) {
+        expired.increment();
+        completeExceptionally(new DeadlineExceededException(
+            stages.get(Math.min(bankStage, stages.size() - 1)).getName()));
+      }
+    }
+  }
+
+  public static final class Stage {
+
+    private final PaymentStage stage;
+    private final Executor executor;
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    private Stage(PaymentStage stage, Executor executor) {
+      this.stage = stage;
+      this.executor = executor;
+    }
+
+    public String getName() {
+      return stage.name();
+    }
+
+    public boolean isInline() {
+      return executor == null;
+    }
+
+    public long getProcessedCount() {
+      return processed.sum();
+    }
+
+    public long getFailedCount() {
+      return failed.sum();
+    }
+
+    /**
+     * Time spent in the stage itself, failures included.
+     */
+    public double getBusyNanos() {
+      return busyNanos.sum();
+    }
+
+    /**
+     * Time between the previous stage finishing and this one starting.
+     */
+    public double getWaitNanos() {
+      return waitNanos.sum();
+    }
+
+    private PaymentContext apply(PaymentContext context, long submitted) {
+      long start = System.nanoTime();
+      waitNanos.add(start - submitted);
+      try {
+        stage.process(context);
+        processed.increment();
+        return context;
+      } catch (RuntimeException e) {
+        failed.increment();
+        throw e;
+      } finally {
+        busyNanos.add(System.nanoTime() - start);
+      }
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package com.checkout.payment.gateway.pipeline;
+
+import java.util.Set;
+
+/**
+ * One step of payment processing. Any Spring bean implementing this can be listed in
+ * {@code payments.pipeline.stages}; a stage rejects the payment by throwing
+ * {@link com.checkout.payment.gateway.exception.EventProcessingException}.
+ */
+public interface PaymentStage {
+
+  String name();
+
+  void process(PaymentContext context);
+
+  /**
+   * Stages that must run earlier in the pipeline, because this one reads what they produce.
+   */
+  default Set<String> requires() {
+    return Set.of();
+  }
+}
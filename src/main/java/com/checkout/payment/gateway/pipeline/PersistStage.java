@@ -0,0 +1,43 @@
+package com.checkout.payment.gateway.pipeline;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.service.PaymentResponses;
+import com.checkout.payment.gateway.stats.PaymentStatistics;
+import java.util.Set;
+
+public class PersistStage implements PaymentStage {
+
+  public static final String NAME = "persist";
+
+  private final PaymentsRepository paymentsRepository;
+  private final PaymentStatistics statistics;
+
+  public PersistStage(PaymentsRepository paymentsRepository) {
+    this(paymentsRepository, PaymentStatistics.disabled());
+  }
+
+  public PersistStage(PaymentsRepository paymentsRepository, PaymentStatistics statistics) {
+    this.paymentsRepository = paymentsRepository;
+    this.statistics = statistics;
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public Set<String> requires() {
+    return Set.of(EnrichStage.NAME, AuthorizeStage.NAME);
+  }
+
+  @Override
+  public void process(PaymentContext context) {
+    PostPaymentResponse paymentResponse = PaymentResponses.completed(context.getPaymentId(),
+        context.getRequest(), context.getBankResponse());
+    paymentsRepository.forMerchant(context.getMerchantId()).add(paymentResponse);
+    statistics.record(paymentResponse);
+    context.setResponse(paymentResponse);
+  }
+}
@@ -0,0 +1,30 @@
+package com.checkout.payment.gateway.pipeline;
+
+import com.checkout.payment.gateway.events.PaymentEventRing;
+import java.util.Set;
+
+public class PublishStage implements PaymentStage {
+
+  public static final String NAME = "publish";
+
+  private final PaymentEventRing events;
+
+  public PublishStage(PaymentEventRing events) {
+    this.events = events;
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public Set<String> requires() {
+    return Set.of(PersistStage.NAME);
+  }
+
+  @Override
+  public void process(PaymentContext context) {
+    events.publish(context.getMerchantId(), context.getResponse());
+  }
+}
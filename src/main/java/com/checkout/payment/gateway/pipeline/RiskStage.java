@@ -0,0 +1,63 @@
+package com.checkout.payment.gateway.pipeline;
+
+import com.checkout.payment.gateway.duplicate.DuplicateDetector;
+import com.checkout.payment.gateway.duplicate.DuplicateDetector.Mode;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.velocity.VelocityChecker;
+import com.checkout.payment.gateway.velocity.VelocityChecker.Limit;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Duplicate and velocity checks, both before the bank is called.
+ */
+public class RiskStage implements PaymentStage {
+
+  public static final String NAME = "risk";
+
+  private static final Logger LOG = LoggerFactory.getLogger(RiskStage.class);
+
+  private final DuplicateDetector duplicateDetector;
+  private final VelocityChecker velocityChecker;
+
+  public RiskStage(DuplicateDetector duplicateDetector, VelocityChecker velocityChecker) {
+    this.duplicateDetector = duplicateDetector;
+    this.velocityChecker = velocityChecker;
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  // Counts only payments that could go on to the bank, so malformed ones never use up a limit
+  @Override
+  public Set<String> requires() {
+    return Set.of(ValidateStage.NAME);
+  }
+
+  @Override
+  public void process(PaymentContext context) {
+    PostPaymentRequest paymentRequest = context.getRequest();
+    // Logged by payment ID and last four digits only: the request carries the card and CVV
+    if (duplicateDetector.check(paymentRequest)) {
+      if (duplicateDetector.getMode() == Mode.REJECT) {
+        LOG.warn("Rejecting probable duplicate payment {} on card ending {}",
+            context.getPaymentId(), paymentRequest.getCardNumberLastFour());
+        throw new EventProcessingException("Duplicate payment");
+      }
+      LOG.warn("Probable duplicate payment {} on card ending {}", context.getPaymentId(),
+          paymentRequest.getCardNumberLastFour());
+    }
+
+    Limit breached = velocityChecker.check(paymentRequest, context.getSourceAddress());
+    if (breached != null) {
+      LOG.warn("Payment {} on card ending {} from {} over velocity limit {}",
+          context.getPaymentId(), paymentRequest.getCardNumberLastFour(),
+          context.getSourceAddress(), breached);
+      throw new EventProcessingException("Velocity limit exceeded");
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package com.checkout.payment.gateway.pipeline;
+
+import static com.checkout.payment.gateway.validator.PaymentValidator.validatePayment;
+
+public class ValidateStage implements PaymentStage {
+
+  public static final String NAME = "validate";
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public void process(PaymentContext context) {
+    validatePayment(context.getRequest());
+  }
+}
@@ -0,0 +1,77 @@
+package com.checkout.payment.gateway.replication;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Primary side: every write goes to the local repository and the replication log. In semi-sync
+ * mode {@link #add} also waits for a standby to acknowledge the entry, falling back to async
+ * when none answers within the timeout so the primary keeps serving.
+ */
+public class ReplicatingPaymentsRepository implements PaymentsRepository {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReplicatingPaymentsRepository.class);
+
+  private final PaymentsRepository localRepository;
+  private final ReplicationLog log;
+  private final ReplicationServer server;
+  private final boolean semiSync;
+  private final long semiSyncTimeoutNanos;
+
+  public ReplicatingPaymentsRepository(PaymentsRepository localRepository, ReplicationLog log,
+      ReplicationServer server, boolean semiSync, Duration semiSyncTimeout) {
+    this.localRepository = localRepository;
+    this.log = log;
+    this.server = server;
+    this.semiSync = semiSync;
+    this.semiSyncTimeoutNanos = semiSyncTimeout.toNanos();
+    recover();
+  }
+
+  @Override
+  public void add(PostPaymentResponse payment) {
+    long seq = log.append(payment);
+    localRepository.add(payment);
+    if (semiSync) {
+      try {
+        if (!server.awaitAcknowledged(seq, semiSyncTimeoutNanos, TimeUnit.NANOSECONDS)) {
+          LOG.warn("No standby acknowledged entry {} in time, continuing asynchronously", seq);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public Optional<PostPaymentResponse> get(UUID id) {
+    return localRepository.get(id);
+  }
+
+  // The log outlives the process, so a restarted primary rebuilds its repository from it
+  private void recover() {
+    long head = log.getHead();
+    if (head < 0) {
+      return;
+    }
+    ByteBuffer entry = ByteBuffer.allocate(ReplicationLog.ENTRY_SIZE);
+    try {
+      for (long seq = 0; seq <= head; seq++) {
+        entry.clear();
+        log.read(seq, entry);
+        localRepository.add(ReplicationLog.paymentOf(entry, 0));
+      }
+      LOG.info("Recovered {} payments from the replication log", head + 1);
+    } catch (IOException e) {
+      LOG.error("Failed to recover payments from the replication log: {}", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package com.checkout.payment.gateway.replication;
+
+import static com.checkout.payment.gateway.repository.PaymentRecordCodec.RECORD_SIZE;
+
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.StorageUnavailableException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentRecordCodec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only file of payment writes on the primary. Entry {@code n} sits at offset
+ * {@code n * ENTRY_SIZE} and is laid out as {@code [seq:8][appendedAtMillis:8][record]}.
+ */
+public class ReplicationLog implements AutoCloseable {
+
+  public static final int ENTRY_SIZE = 16 + RECORD_SIZE;
+
+  private final FileChannel channel;
+  private final ByteBuffer appendBuffer = ByteBuffer.allocate(ENTRY_SIZE);
+  private final ReentrantLock appendLock = new ReentrantLock();
+  private final Condition appended = appendLock.newCondition();
+  private volatile long head;
+
+  public ReplicationLog(Path directory) {
+    try {
+      Files.createDirectories(directory);
+      this.channel = FileChannel.open(directory.resolve("replication.log"),
+          StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      // Drop a partially written entry left behind by a crash
+      long entries = channel.size() / ENTRY_SIZE;
+      channel.truncate(entries * ENTRY_SIZE);
+      this.head = entries - 1;
+    } catch (IOException e) {
+      throw new EventProcessingException("Cannot open replication log: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the sequence number of the new entry. Payments that do not fit in a record cannot be
+   * replicated and are refused.
+   */
+  public long append(PostPaymentResponse payment) {
+    if (!PaymentRecordCodec.fits(payment)) {
+      throw new EventProcessingException("Payment " + payment.getId()
+          + " does not fit in a replication record");
+    }
+    appendLock.lock();
+    try {
+      long seq = head + 1;
+      appendBuffer.clear();
+      appendBuffer.putLong(0, seq);
+      appendBuffer.putLong(8, System.currentTimeMillis());
+      PaymentRecordCodec.encode(appendBuffer, 16, payment);
+      long position = seq * ENTRY_SIZE;
+      while (appendBuffer.hasRemaining()) {
+        position += channel.write(appendBuffer, position);
+      }
+      head = seq;
+      appended.signalAll();
+      return seq;
+    } catch (IOException e) {
+      throw new StorageUnavailableException("Failed to append to replication log: "
+          + e.getMessage());
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  /**
+   * Reads entry {@code seq} into {@code entry}, which must have {@link #ENTRY_SIZE} remaining.
+   */
+  public void read(long seq, ByteBuffer entry) throws IOException {
+    long position = seq * ENTRY_SIZE;
+    int start = entry.position();
+    while (entry.position() - start < ENTRY_SIZE) {
+      if (channel.read(entry, position + entry.position() - start) < 0) {
+        throw new IOException("Replication log ends before entry " + seq);
+      }
+    }
+  }
+
+  /**
+   * Waits until an entry after {@code seq} exists or the timeout passes, and returns the head.
+   */
+  public long awaitAfter(long seq, long timeout, TimeUnit unit) throws InterruptedException {
+    if (head > seq) {
+      return head;
+    }
+    long remaining = unit.toNanos(timeout);
+    appendLock.lock();
+    try {
+      while (head <= seq && remaining > 0) {
+        remaining = appended.awaitNanos(remaining);
+      }
+      return head;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  /**
+   * Sequence number of the latest entry, or -1 when the log is empty.
+   */
+  public long getHead() {
+    return head;
+  }
+
+  public static long sequenceOf(ByteBuffer entry, int offset) {
+    return entry.getLong(offset);
+  }
+
+  public static long appendedAtOf(ByteBuffer entry, int offset) {
+    return entry.getLong(offset + 8);
+  }
+
+  public static PostPaymentResponse paymentOf(ByteBuffer entry, int offset) {
+    return PaymentRecordCodec.decode(entry, offset + 16);
+  }
+
+  @Override
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new EventProcessingException("Failed to close replication log: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package com.checkout.payment.gateway.replication;
+
+/**
+ * Primary to standby stream. A standby opens the connection by sending the next sequence number
+ * it needs, then the primary sends:
+ * <pre>
+ *   DATA:      [DATA][head:8][log entry]
+ *   HEARTBEAT: [HEARTBEAT][head:8]          when no new entries arrived for a while
+ * </pre>
+ * and the standby replies with {@code [appliedSeq:8]} acknowledgements.
+ */
+final class ReplicationProtocol {
+
+  static final byte DATA = 1;
+  static final byte HEARTBEAT = 2;
+
+  private ReplicationProtocol() {
+  }
+}
@@ -0,0 +1,184 @@
+package com.checkout.payment.gateway.replication;
+
+import static com.checkout.payment.gateway.replication.ReplicationProtocol.DATA;
+import static com.checkout.payment.gateway.replication.ReplicationProtocol.HEARTBEAT;
+
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Ships the replication log to connected standbys and collects their acknowledgements.
+ */
+public class ReplicationServer implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReplicationServer.class);
+
+  private static final long HEARTBEAT_MILLIS = 200;
+  private static final int MAX_ENTRIES_PER_FLUSH = 256;
+
+  private final ReplicationLog log;
+  private final ServerSocket serverSocket;
+  private final ExecutorService threads = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "replication-stream");
+    thread.setDaemon(true);
+    return thread;
+  });
+  // Highest sequence acknowledged by each connected standby
+  private final Map<Socket, Long> acknowledged = new ConcurrentHashMap<>();
+  private final ReentrantLock ackLock = new ReentrantLock();
+  private final Condition ackReceived = ackLock.newCondition();
+  private volatile long highestAcknowledged = -1;
+
+  public ReplicationServer(ReplicationLog log, int port) {
+    this.log = log;
+    try {
+      this.serverSocket = new ServerSocket();
+      serverSocket.setReuseAddress(true);
+      serverSocket.bind(new InetSocketAddress(port));
+    } catch (IOException e) {
+      throw new EventProcessingException("Cannot listen for standbys on port " + port + ": "
+          + e.getMessage());
+    }
+    threads.execute(this::accept);
+    LOG.info("Replication server listening on {}", serverSocket.getLocalSocketAddress());
+  }
+
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  public int getStandbyCount() {
+    return acknowledged.size();
+  }
+
+  /**
+   * Entries the slowest connected standby has yet to acknowledge.
+   */
+  public long getLagEntries() {
+    long head = log.getHead();
+    long lag = 0;
+    for (long acked : acknowledged.values()) {
+      lag = Math.max(lag, head - acked);
+    }
+    return lag;
+  }
+
+  /**
+   * Waits until at least one standby has acknowledged {@code seq}.
+   */
+  public boolean awaitAcknowledged(long seq, long timeout, TimeUnit unit)
+      throws InterruptedException {
+    if (highestAcknowledged >= seq) {
+      return true;
+    }
+    long remaining = unit.toNanos(timeout);
+    ackLock.lock();
+    try {
+      while (highestAcknowledged < seq && remaining > 0) {
+        remaining = ackReceived.awaitNanos(remaining);
+      }
+      return highestAcknowledged >= seq;
+    } finally {
+      ackLock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      serverSocket.close();
+      for (Socket socket : acknowledged.keySet()) {
+        socket.close();
+      }
+    } catch (IOException e) {
+      LOG.warn("Failed to close replication server: {}", e.getMessage());
+    }
+    threads.shutdownNow();
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        socket.setTcpNoDelay(true);
+        threads.execute(() -> stream(socket));
+      } catch (IOException e) {
+        if (!serverSocket.isClosed()) {
+          LOG.warn("Failed to accept standby connection: {}", e.getMessage());
+        }
+      }
+    }
+  }
+
+  private void stream(Socket socket) {
+    ByteBuffer entry = ByteBuffer.allocate(ReplicationLog.ENTRY_SIZE);
+    try (socket;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(socket.getOutputStream(), 64 * 1024))) {
+      long next = in.readLong();
+      acknowledged.put(socket, next - 1);
+      threads.execute(() -> readAcknowledgements(socket, in));
+      LOG.info("Standby {} connected, streaming from entry {}", socket.getRemoteSocketAddress(),
+          next);
+      while (!socket.isClosed()) {
+        long head = log.awaitAfter(next - 1, HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+        if (head < next) {
+          out.writeByte(HEARTBEAT);
+          out.writeLong(head);
+        }
+        for (long last = Math.min(head, next + MAX_ENTRIES_PER_FLUSH - 1); next <= last; next++) {
+          entry.clear();
+          log.read(next, entry);
+          out.writeByte(DATA);
+          out.writeLong(head);
+          out.write(entry.array());
+        }
+        out.flush();
+      }
+    } catch (IOException e) {
+      LOG.info("Standby {} disconnected: {}", socket.getRemoteSocketAddress(), e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      acknowledged.remove(socket);
+    }
+  }
+
+  private void readAcknowledgements(Socket socket, DataInputStream in) {
+    try {
+      while (true) {
+        long seq = in.readLong();
+        acknowledged.put(socket, seq);
+        if (seq > highestAcknowledged) {
+          ackLock.lock();
+          try {
+            highestAcknowledged = Math.max(highestAcknowledged, seq);
+            ackReceived.signalAll();
+          } finally {
+            ackLock.unlock();
+          }
+        }
+      }
+    } catch (IOException e) {
+      // The streaming side notices the broken connection and cleans up
+    }
+  }
+}
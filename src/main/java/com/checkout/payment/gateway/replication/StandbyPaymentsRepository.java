@@ -0,0 +1,35 @@
+package com.checkout.payment.gateway.replication;
+
+import com.checkout.payment.gateway.exception.ReadOnlyReplicaException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Standby side: serves lookups from the replicated local repository and refuses writes, which
+ * only the {@link StandbyReplicator} may apply.
+ */
+public class StandbyPaymentsRepository implements PaymentsRepository {
+
+  private final PaymentsRepository localRepository;
+
+  public StandbyPaymentsRepository(PaymentsRepository localRepository) {
+    this.localRepository = localRepository;
+  }
+
+  @Override
+  public void add(PostPaymentResponse payment) {
+    throw new ReadOnlyReplicaException();
+  }
+
+  @Override
+  public Optional<PostPaymentResponse> get(UUID id) {
+    return localRepository.get(id);
+  }
+
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
+}
@@ -0,0 +1,143 @@
+package com.checkout.payment.gateway.replication;
+
+import static com.checkout.payment.gateway.replication.ReplicationProtocol.DATA;
+
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Follows a primary's replication log and applies every entry to the standby's own repository,
+ * reconnecting from the next unapplied entry whenever the stream breaks.
+ */
+public class StandbyReplicator implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StandbyReplicator.class);
+
+  private final PaymentsRepository localRepository;
+  private final String primaryHost;
+  private final int primaryPort;
+  private final Duration reconnectDelay;
+  private final Thread follower;
+  private volatile boolean running = true;
+  private volatile Socket socket;
+  private volatile long applied = -1;
+  private volatile long primaryHead = -1;
+  private volatile long lastAppliedAppendedAt;
+
+  public StandbyReplicator(PaymentsRepository localRepository, String primaryHost,
+      int primaryPort, Duration reconnectDelay) {
+    this.localRepository = localRepository;
+    this.primaryHost = primaryHost;
+    this.primaryPort = primaryPort;
+    this.reconnectDelay = reconnectDelay;
+    this.follower = new Thread(this::follow, "replication-standby");
+    this.follower.setDaemon(true);
+    this.follower.start();
+  }
+
+  public long getAppliedSequence() {
+    return applied;
+  }
+
+  public long getLagEntries() {
+    return Math.max(0, primaryHead - applied);
+  }
+
+  /**
+   * Age of the newest applied entry while entries are still outstanding, zero once caught up.
+   */
+  public long getLagMillis() {
+    if (getLagEntries() == 0 || applied < 0) {
+      return 0;
+    }
+    return Math.max(0, System.currentTimeMillis() - lastAppliedAppendedAt);
+  }
+
+  public boolean isConnected() {
+    Socket current = socket;
+    return current != null && current.isConnected() && !current.isClosed();
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    closeSocket();
+    follower.interrupt();
+  }
+
+  private void follow() {
+    while (running) {
+      try {
+        stream();
+      } catch (IOException e) {
+        if (running) {
+          LOG.warn("Replication stream from {}:{} broke: {}", primaryHost, primaryPort,
+              e.getMessage());
+        }
+      } finally {
+        closeSocket();
+      }
+      try {
+        Thread.sleep(reconnectDelay.toMillis());
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  private void stream() throws IOException {
+    Socket connection = new Socket();
+    socket = connection;
+    connection.connect(new InetSocketAddress(primaryHost, primaryPort),
+        (int) reconnectDelay.toMillis() * 10);
+    connection.setTcpNoDelay(true);
+    DataInputStream in = new DataInputStream(
+        new BufferedInputStream(connection.getInputStream(), 64 * 1024));
+    DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(connection.getOutputStream()));
+    out.writeLong(applied + 1);
+    out.flush();
+    LOG.info("Following primary {}:{} from entry {}", primaryHost, primaryPort, applied + 1);
+
+    ByteBuffer entry = ByteBuffer.allocate(ReplicationLog.ENTRY_SIZE);
+    while (running) {
+      byte frame = in.readByte();
+      primaryHead = Math.max(primaryHead, in.readLong());
+      if (frame == DATA) {
+        in.readFully(entry.array());
+        long seq = ReplicationLog.sequenceOf(entry, 0);
+        if (seq > applied) {
+          localRepository.add(ReplicationLog.paymentOf(entry, 0));
+          lastAppliedAppendedAt = ReplicationLog.appendedAtOf(entry, 0);
+          applied = seq;
+        }
+      }
+      // Acknowledge once the bytes already received have been applied
+      if (in.available() == 0) {
+        out.writeLong(applied);
+        out.flush();
+      }
+    }
+  }
+
+  private void closeSocket() {
+    Socket current = socket;
+    if (current != null) {
+      try {
+        current.close();
+      } catch (IOException ignored) {
+        // Reconnecting anyway
+      }
+    }
+  }
+}
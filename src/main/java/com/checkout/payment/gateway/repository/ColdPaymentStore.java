@@ -0,0 +1,238 @@
+package com.checkout.payment.gateway.repository;
+
+import static com.checkout.payment.gateway.repository.PaymentRecordCodec.RECORD_SIZE;
+
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cold payment tier: fixed-size packed records in memory-mapped segment files, located through
+ * an {@link OffHeapPaymentIndex}. Records are rebuilt into {@link PostPaymentResponse} on read.
+ *
+ * <p>Removed records leave a hole in their segment; once every record of a full segment has been
+ * removed, the segment is released. Payments are demoted and expire roughly in the order they
+ * were stored, so segments are released front to back, about as fast as new ones are needed.
+ */
+public class ColdPaymentStore implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ColdPaymentStore.class);
+  private static final int MAX_FREE_SEGMENTS = 4;
+
+  private final Path directory;
+  private final int recordsPerSegment;
+  // Null once released; firstSegment is the number of released segments dropped from the front
+  private final List<Segment> segments = new ArrayList<>();
+  // Released segments kept mapped for reuse: a mapping is only undone when its buffer is collected
+  private final Deque<Segment> freeSegments = new ArrayDeque<>();
+  private final OffHeapPaymentIndex index;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private long nextRecord;
+  private long firstSegment;
+  private long createdSegments;
+
+  public ColdPaymentStore(Path baseDirectory, int recordsPerSegment) {
+    this(baseDirectory, recordsPerSegment, new OffHeapPaymentIndex(recordsPerSegment));
+  }
+
+  ColdPaymentStore(Path baseDirectory, int recordsPerSegment, OffHeapPaymentIndex index) {
+    try {
+      Files.createDirectories(baseDirectory);
+      this.directory = Files.createTempDirectory(baseDirectory, "cold-");
+    } catch (IOException e) {
+      throw new EventProcessingException("Cannot create cold payment store: " + e.getMessage());
+    }
+    this.recordsPerSegment = recordsPerSegment;
+    this.index = index;
+    LOG.info("Cold payment store created in {}", directory);
+  }
+
+  /**
+   * Returns false when the payment cannot be packed into a record and must stay in the hot tier.
+   */
+  public boolean put(PostPaymentResponse payment) {
+    if (!PaymentRecordCodec.fits(payment)) {
+      return false;
+    }
+
+    lock.writeLock().lock();
+    try {
+      long record = index.find(payment.getId());
+      boolean added = record < 0;
+      if (added) {
+        record = nextRecord;
+      }
+      Segment segment = segmentFor(record);
+      PaymentRecordCodec.encode(segment.buffer, offsetOf(record), payment);
+      index.put(payment.getId(), record);
+      // Only once the record is indexed, so a failed put leaves the next record free and its
+      // segment's count unchanged
+      if (added) {
+        nextRecord++;
+        segment.live++;
+      }
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public Optional<PostPaymentResponse> get(UUID id) {
+    lock.readLock().lock();
+    try {
+      long record = index.find(id);
+      if (record < 0) {
+        return Optional.empty();
+      }
+      return Optional.of(PaymentRecordCodec.decode(segmentFor(record).buffer, offsetOf(record)));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public boolean remove(UUID id) {
+    lock.writeLock().lock();
+    try {
+      long record = index.remove(id);
+      if (record < 0) {
+        return false;
+      }
+      long segment = record / recordsPerSegment;
+      // The segment being written to is kept even when empty, it still takes new records
+      if (--segmentFor(record).live == 0 && segment < nextRecord / recordsPerSegment) {
+        release(segment);
+      }
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return index.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  Path getDirectory() {
+    return directory;
+  }
+
+  public int getSegmentCount() {
+    lock.readLock().lock();
+    try {
+      return (int) segments.stream().filter(Objects::nonNull).count();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    lock.writeLock().lock();
+    try {
+      for (Segment segment : segments) {
+        if (segment != null) {
+          segment.channel.close();
+        }
+      }
+      for (Segment segment : freeSegments) {
+        segment.channel.close();
+      }
+      try (var files = Files.list(directory)) {
+        for (Path file : files.toList()) {
+          Files.deleteIfExists(file);
+        }
+      }
+      Files.deleteIfExists(directory);
+    } catch (IOException e) {
+      LOG.warn("Failed to clean up cold payment store {}: {}", directory, e.getMessage());
+    } finally {
+      segments.clear();
+      freeSegments.clear();
+      lock.writeLock().unlock();
+    }
+  }
+
+  private Segment segmentFor(long record) {
+    int segment = (int) (record / recordsPerSegment - firstSegment);
+    while (segments.size() <= segment) {
+      Segment free = freeSegments.poll();
+      segments.add(free != null ? free : createSegment());
+    }
+    return segments.get(segment);
+  }
+
+  private Segment createSegment() {
+    Path file = directory.resolve("segment-" + createdSegments++ + ".dat");
+    try {
+      FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+          StandardOpenOption.READ, StandardOpenOption.WRITE);
+      return new Segment(file, channel,
+          channel.map(MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE));
+    } catch (IOException e) {
+      throw new EventProcessingException("Cannot map cold segment " + file + ": "
+          + e.getMessage());
+    }
+  }
+
+  private void release(long segment) {
+    int position = (int) (segment - firstSegment);
+    Segment released = segments.set(position, null);
+    if (freeSegments.size() < MAX_FREE_SEGMENTS) {
+      freeSegments.add(released);
+    } else {
+      try {
+        released.channel.close();
+        Files.deleteIfExists(released.file);
+      } catch (IOException e) {
+        LOG.warn("Failed to release cold segment {}: {}", released.file, e.getMessage());
+      }
+    }
+    int leading = 0;
+    while (leading < segments.size() && segments.get(leading) == null) {
+      leading++;
+    }
+    segments.subList(0, leading).clear();
+    firstSegment += leading;
+  }
+
+  private int offsetOf(long record) {
+    return (int) (record % recordsPerSegment) * RECORD_SIZE;
+  }
+
+  private static final class Segment {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int live;
+
+    Segment(Path file, FileChannel channel, MappedByteBuffer buffer) {
+      this.file = file;
+      this.channel = channel;
+      this.buffer = buffer;
+    }
+  }
+}
@@ -0,0 +1,245 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import jakarta.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Recent payments on-heap, older ones demoted to a cold tier, and with a {@link PaymentRetention}
+ * forgotten or summarized once they expire. The memory store keeps one of these per merchant, see
+ * {@link MerchantPartitionedPaymentsRepository}.
+ */
+public class InMemoryPaymentsRepository implements PaymentsRepository {
+
+  private static final Logger LOG = LoggerFactory.getLogger(InMemoryPaymentsRepository.class);
+
+  // Hot tier: recent payments kept on-heap, demoted to the cold tier by age or memory pressure
+  @Getter
+  private final ConcurrentHashMap<UUID, PostPaymentResponse> payments = new ConcurrentHashMap<>();
+  private final Queue<HotEntry> hotOrder = new ConcurrentLinkedQueue<>();
+
+  private final ColdPaymentStore coldStore;
+  private final int maxHotPayments;
+  private final long maxHotAgeNanos;
+  private final double heapPressureThreshold;
+  private final PaymentRetention retention;
+  // Null without retention; summarized only tracks summaries that expire in turn
+  private final RetentionBuckets stored;
+  private final RetentionBuckets summarized;
+  private final ScheduledExecutorService demoter;
+
+  public InMemoryPaymentsRepository() {
+    this(null, Integer.MAX_VALUE, Duration.ofDays(36500), 1.0, Duration.ZERO);
+  }
+
+  public InMemoryPaymentsRepository(ColdPaymentStore coldStore, int maxHotPayments,
+      Duration maxHotAge, double heapPressureThreshold, Duration demotionInterval) {
+    this(coldStore, maxHotPayments, maxHotAge, heapPressureThreshold, demotionInterval,
+        PaymentRetention.disabled());
+  }
+
+  /**
+   * @param coldStore where demoted payments go, or null to keep every payment hot
+   * @param demotionInterval how often to demote and expire on a thread of its own, or zero to
+   *     leave {@link #demote()} and {@link #expire()} to the caller
+   */
+  public InMemoryPaymentsRepository(ColdPaymentStore coldStore, int maxHotPayments,
+      Duration maxHotAge, double heapPressureThreshold, Duration demotionInterval,
+      PaymentRetention retention) {
+    this.coldStore = coldStore;
+    this.maxHotPayments = maxHotPayments;
+    this.maxHotAgeNanos = maxHotAge.toNanos();
+    this.heapPressureThreshold = heapPressureThreshold;
+    this.retention = retention;
+    long bucketMillis = retention.bucketWidth().toMillis();
+    // Next to the cold segments when there are some, so the ID lists stay off the heap with them
+    Path bucketDirectory = coldStore == null ? null : coldStore.getDirectory();
+    this.stored = retention.isEnabled()
+        ? new RetentionBuckets(bucketDirectory, "stored", bucketMillis) : null;
+    this.summarized = retention.isEnabled() && retention.mode() == PaymentRetention.Mode.SUMMARIZE
+        && !retention.summaryPeriod().isZero()
+        ? new RetentionBuckets(bucketDirectory, "summarized", bucketMillis) : null;
+    if ((coldStore != null || stored != null) && !demotionInterval.isZero()) {
+      demoter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "payments-demoter");
+        thread.setDaemon(true);
+        return thread;
+      });
+      // One thread for both, so a payment is never demoted and expired at the same time
+      demoter.scheduleWithFixedDelay(this::maintain, demotionInterval.toMillis(),
+          demotionInterval.toMillis(), TimeUnit.MILLISECONDS);
+    } else {
+      demoter = null;
+    }
+  }
+
+  @Override
+  public void add(PostPaymentResponse payment) {
+    // Retention counts from the first store. A payment updated after its demotion is bucketed
+    // again; the earliest bucket expires it and the later one finds it gone or summarized
+    if (payments.put(payment.getId(), payment) == null && stored != null) {
+      stored.add(payment.getId(), retention.clock().millis());
+    }
+    if (coldStore != null) {
+      hotOrder.add(new HotEntry(payment.getId(), System.nanoTime()));
+    }
+  }
+
+  @Override
+  public Optional<PostPaymentResponse> get(UUID id) {
+    PostPaymentResponse payment = payments.get(id);
+    if (payment != null || coldStore == null) {
+      return Optional.ofNullable(payment);
+    }
+    return coldStore.get(id);
+  }
+
+  /**
+   * Moves the oldest hot payments to the cold tier until the hot tier is within its age and size
+   * limits. Under heap pressure the hot tier is halved.
+   */
+  public int demote() {
+    return coldStore == null ? 0 : demote(underHeapPressure());
+  }
+
+  // Lets MerchantPartitionedPaymentsRepository read the heap once for all its partitions
+  int demote(boolean underHeapPressure) {
+    if (coldStore == null) {
+      return 0;
+    }
+    int targetSize = underHeapPressure ? payments.size() / 2 : maxHotPayments;
+    long now = System.nanoTime();
+    int demoted = 0;
+    HotEntry entry;
+    while ((entry = hotOrder.peek()) != null
+        && (payments.size() > targetSize || now - entry.storedAt() > maxHotAgeNanos)) {
+      PostPaymentResponse payment = payments.get(entry.id());
+      // Written to the cold tier before leaving the hot one so a concurrent get never misses it.
+      // Dequeued only afterwards, so a failed write is tried again on the next pass
+      if (payment != null && coldStore.put(payment)) {
+        payments.remove(entry.id(), payment);
+        demoted++;
+      }
+      hotOrder.poll();
+    }
+    if (demoted > 0) {
+      LOG.debug("Demoted {} payments to the cold tier", demoted);
+    }
+    return demoted;
+  }
+
+  /**
+   * Drops or summarizes the payments first stored longer ago than the retention period, and
+   * drops summaries past theirs. Only the expired payments are visited, and each is removed on
+   * its own, so concurrent adds and gets never wait on a whole pass.
+   */
+  public int expire() {
+    if (stored == null) {
+      return 0;
+    }
+    long now = retention.clock().millis();
+    int expired = stored.expire(now - retention.period().toMillis(),
+        retention.mode() == PaymentRetention.Mode.SUMMARIZE ? id -> summarize(id, now)
+            : this::drop);
+    if (summarized != null) {
+      expired += summarized.expire(now - retention.summaryPeriod().toMillis(), this::drop);
+    }
+    if (expired > 0) {
+      LOG.debug("Expired {} payments", expired);
+    }
+    return expired;
+  }
+
+  public int getColdPaymentCount() {
+    return coldStore == null ? 0 : coldStore.size();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (demoter != null) {
+      demoter.shutdownNow();
+    }
+    if (stored != null) {
+      stored.close();
+    }
+    if (summarized != null) {
+      summarized.close();
+    }
+  }
+
+  // Logged and left to the next pass: an exception escaping a scheduled task would cancel it,
+  // and with it every later demotion and expiry
+  private void maintain() {
+    try {
+      demote();
+    } catch (RuntimeException e) {
+      LOG.error("Demotion pass failed", e);
+    }
+    try {
+      expire();
+    } catch (RuntimeException e) {
+      LOG.error("Expiry pass failed", e);
+    }
+  }
+
+  boolean underHeapPressure() {
+    MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+    return heap.getMax() > 0 && (double) heap.getUsed() / heap.getMax() > heapPressureThreshold;
+  }
+
+  private void drop(UUID id) {
+    payments.remove(id);
+    if (coldStore != null) {
+      coldStore.remove(id);
+    }
+  }
+
+  private void summarize(UUID id, long now) {
+    PostPaymentResponse payment = payments.get(id);
+    if (payment != null) {
+      PostPaymentResponse summary = summaryOf(payment);
+      // Lost to a concurrent update, which expires through its own bucket
+      if (summary.equals(payment) || !payments.replace(id, payment, summary)) {
+        return;
+      }
+    } else if (coldStore != null) {
+      payment = coldStore.get(id).orElse(null);
+      if (payment == null || summaryOf(payment).equals(payment)) {
+        return;
+      }
+      coldStore.put(summaryOf(payment));
+    } else {
+      return;
+    }
+    if (summarized != null) {
+      summarized.add(id, now);
+    }
+  }
+
+  private static PostPaymentResponse summaryOf(PostPaymentResponse payment) {
+    return PostPaymentResponse.builder()
+        .setId(payment.getId())
+        .setStatus(payment.getStatus())
+        .setCurrency(payment.getCurrency())
+        .setAmount(payment.getAmount())
+        .setRefundedAmount(payment.getRefundedAmount())
+        .build();
+  }
+
+  private record HotEntry(UUID id, long storedAt) {
+  }
+}
@@ -0,0 +1,344 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.StorageUnavailableException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLNonTransientException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores payments in a relational database without a synchronous round trip on {@link #add}.
+ * Writes go to an in-memory overlay that serves reads, and to a bounded queue that a single
+ * writer thread flushes as multi-row MERGE statements. A full queue blocks the caller for up to
+ * the enqueue timeout before the write is refused.
+ *
+ * <p>A batch the database keeps refusing is retried up to the write attempt limit, or not at all
+ * once the error says retrying cannot help, and its payments are then dead-lettered: logged,
+ * kept in memory and still served by {@link #get}, until a later write of the same payment
+ * replaces them. At most {@code maxDeadLetters} are kept; past that a failed payment is only
+ * logged and counted, so a database that stays down cannot exhaust the heap.
+ */
+public class JdbcPaymentsRepository implements PaymentsRepository, AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JdbcPaymentsRepository.class);
+
+  private static final String COLUMNS = "id, authorization_code, status, card_number_last_four, "
+      + "expiry_month, expiry_year, currency, amount, refunded_amount";
+  private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?, ?)";
+  private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+  private static final long RETRY_BACKOFF_MILLIS = 100;
+
+  private final DataSource dataSource;
+  private final int batchSize;
+  private final long enqueueTimeoutNanos;
+  private final long flushIntervalNanos;
+  private final int maxWriteAttempts;
+  private final int maxDeadLetters;
+  private final BlockingQueue<PostPaymentResponse> queue;
+  private final Map<UUID, PostPaymentResponse> overlay = new ConcurrentHashMap<>();
+  private final Map<UUID, PostPaymentResponse> deadLetters = new ConcurrentHashMap<>();
+  private final LongAdder droppedDeadLetters = new LongAdder();
+  private final Thread writer;
+  private volatile boolean running = true;
+
+  public JdbcPaymentsRepository(DataSource dataSource, int batchSize, int queueCapacity,
+      Duration enqueueTimeout, Duration flushInterval, int maxWriteAttempts, int maxDeadLetters) {
+    this.dataSource = dataSource;
+    this.batchSize = batchSize;
+    this.enqueueTimeoutNanos = enqueueTimeout.toNanos();
+    this.flushIntervalNanos = flushInterval.toNanos();
+    this.maxWriteAttempts = Math.max(1, maxWriteAttempts);
+    this.maxDeadLetters = maxDeadLetters;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    createSchema();
+    this.writer = new Thread(this::drain, "payments-write-behind");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  @Override
+  public void add(PostPaymentResponse payment) {
+    overlay.put(payment.getId(), payment);
+    boolean enqueued;
+    try {
+      enqueued = queue.offer(payment, enqueueTimeoutNanos, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      enqueued = false;
+    }
+    if (!enqueued) {
+      overlay.remove(payment.getId(), payment);
+      throw new StorageUnavailableException("Payment store write queue is full");
+    }
+  }
+
+  @Override
+  public Optional<PostPaymentResponse> get(UUID id) {
+    PostPaymentResponse pending = overlay.get(id);
+    if (pending == null) {
+      pending = deadLetters.get(id);
+    }
+    if (pending != null) {
+      return Optional.of(pending);
+    }
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement select = connection.prepareStatement(
+            "SELECT " + COLUMNS + " FROM payments WHERE id = ?")) {
+      select.setObject(1, id);
+      try (ResultSet row = select.executeQuery()) {
+        return row.next() ? Optional.of(map(row)) : Optional.empty();
+      }
+    } catch (SQLException e) {
+      throw new StorageUnavailableException("Failed to read payment: " + e.getMessage());
+    }
+  }
+
+  public int getPendingWriteCount() {
+    return queue.size();
+  }
+
+  /**
+   * Payments the writer gave up on, which the database does not hold.
+   */
+  public List<PostPaymentResponse> getDeadLetters() {
+    return List.copyOf(deadLetters.values());
+  }
+
+  /**
+   * Payments the writer gave up on that were not kept, because the dead letters were full.
+   */
+  public long getDroppedDeadLetterCount() {
+    return droppedDeadLetters.sum();
+  }
+
+  /**
+   * Writes each payment with its own statement and commit. Kept as the baseline the batched
+   * write-behind path is measured against.
+   */
+  public void insertPerRow(Collection<PostPaymentResponse> payments) {
+    try (Connection connection = dataSource.getConnection()) {
+      for (PostPaymentResponse payment : payments) {
+        write(connection, List.of(payment));
+      }
+    } catch (SQLException e) {
+      throw new StorageUnavailableException("Failed to write payment: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Blocks until every payment queued so far has been written to the database.
+   */
+  public void flush() {
+    while (!queue.isEmpty() || !overlay.isEmpty()) {
+      if (!writer.isAlive()) {
+        throw new StorageUnavailableException("Payment store writer has stopped");
+      }
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    writer.interrupt();
+    try {
+      writer.join(TimeUnit.SECONDS.toMillis(10));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void drain() {
+    List<PostPaymentResponse> batch = new ArrayList<>(batchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        PostPaymentResponse first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+      } catch (InterruptedException e) {
+        // Woken up by close(); keep draining whatever is already queued
+        queue.drainTo(batch, batchSize);
+        if (batch.isEmpty()) {
+          continue;
+        }
+      }
+      flushBatch(batch);
+      batch.clear();
+    }
+  }
+
+  private void flushBatch(List<PostPaymentResponse> batch) {
+    // A payment written twice within one batch only needs its latest state
+    Map<UUID, PostPaymentResponse> latest = new LinkedHashMap<>();
+    for (PostPaymentResponse payment : batch) {
+      latest.put(payment.getId(), payment);
+    }
+    SQLException failure = write(latest.values());
+    for (PostPaymentResponse payment : latest.values()) {
+      if (failure != null && !isTransient(failure) && latest.size() > 1) {
+        // One bad row fails the whole statement; write the rows alone so only it is dead-lettered
+        settle(payment, write(List.of(payment)));
+      } else {
+        settle(payment, failure);
+      }
+    }
+    for (PostPaymentResponse payment : batch) {
+      overlay.remove(payment.getId(), payment);
+    }
+  }
+
+  // Returns the last failure once the attempts run out, the error is one that retrying cannot
+  // fix, or the repository is closing, and null once the payments are written
+  private SQLException write(Collection<PostPaymentResponse> payments) {
+    for (int attempt = 1; ; attempt++) {
+      try (Connection connection = dataSource.getConnection()) {
+        write(connection, payments);
+        return null;
+      } catch (SQLException e) {
+        if (attempt >= maxWriteAttempts || !running || !isTransient(e)) {
+          return e;
+        }
+        LOG.warn("Failed to flush {} payments (attempt {} of {}), retrying: {}",
+            payments.size(), attempt, maxWriteAttempts, e.getMessage());
+        try {
+          Thread.sleep(RETRY_BACKOFF_MILLIS);
+        } catch (InterruptedException interrupted) {
+          // Interrupted by close(); give up on this batch rather than spin on the interrupt
+          return e;
+        }
+      }
+    }
+  }
+
+  // A stored payment replaces any earlier state of it that was dead-lettered
+  private void settle(PostPaymentResponse payment, SQLException failure) {
+    if (failure == null) {
+      deadLetters.remove(payment.getId());
+      return;
+    }
+    // Only the writer thread changes the dead letters, so the size cannot move under the check
+    if (deadLetters.size() >= maxDeadLetters && !deadLetters.containsKey(payment.getId())) {
+      droppedDeadLetters.increment();
+      LOG.error("Dropped payment {} ({}), {} dead letters already held: {}", payment.getId(),
+          payment.getStatus(), deadLetters.size(), failure.getMessage());
+      return;
+    }
+    deadLetters.put(payment.getId(), payment);
+    LOG.error("Dead-lettered payment {} ({}): {}", payment.getId(), payment.getStatus(),
+        failure.getMessage());
+  }
+
+  // A lost connection may come back, while bad data or a missing table will not
+  private static boolean isTransient(SQLException e) {
+    return !(e instanceof SQLNonTransientException)
+        || e instanceof SQLNonTransientConnectionException;
+  }
+
+  private static void write(Connection connection, Collection<PostPaymentResponse> payments)
+      throws SQLException {
+    StringBuilder sql = new StringBuilder("MERGE INTO payments (").append(COLUMNS)
+        .append(") KEY (id) VALUES ").append(ROW_PLACEHOLDERS);
+    for (int i = 1; i < payments.size(); i++) {
+      sql.append(", ").append(ROW_PLACEHOLDERS);
+    }
+    try (PreparedStatement merge = connection.prepareStatement(sql.toString())) {
+      int parameter = 1;
+      for (PostPaymentResponse payment : payments) {
+        merge.setObject(parameter++, payment.getId());
+        merge.setString(parameter++, payment.getAuthorizationCode());
+        merge.setString(parameter++,
+            payment.getStatus() == null ? null : payment.getStatus().name());
+        merge.setInt(parameter++, payment.getCardNumberLastFour());
+        merge.setInt(parameter++, payment.getExpiryMonth());
+        merge.setInt(parameter++, payment.getExpiryYear());
+        merge.setString(parameter++, payment.getCurrency());
+        merge.setInt(parameter++, payment.getAmount());
+        merge.setInt(parameter++, payment.getRefundedAmount());
+      }
+      merge.executeUpdate();
+    }
+  }
+
+  private static PostPaymentResponse map(ResultSet row) throws SQLException {
+    String status = row.getString("status");
+    return PostPaymentResponse.builder()
+        .setId(row.getObject("id", UUID.class))
+        .setAuthorizationCode(row.getString("authorization_code"))
+        .setStatus(status == null ? null : PaymentStatus.valueOf(status))
+        .setCardNumberLastFour(row.getInt("card_number_last_four"))
+        .setExpiryMonth(row.getInt("expiry_month"))
+        .setExpiryYear(row.getInt("expiry_year"))
+        .setCurrency(row.getString("currency"))
+        .setAmount(row.getInt("amount"))
+        .setRefundedAmount(row.getInt("refunded_amount"))
+        .build();
+  }
+
+  private void createSchema() {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE IF NOT EXISTS payments ("
+          + "id UUID PRIMARY KEY, "
+          + "authorization_code VARCHAR(64), "
+          + "status VARCHAR(32), "
+          + "card_number_last_four INT NOT NULL, "
+          + "expiry_month INT NOT NULL, "
+          + "expiry_year INT NOT NULL, "
+          + "currency VARCHAR(3), "
+          + "amount INT NOT NULL, "
+          + "refunded_amount INT NOT NULL DEFAULT 0)");
+      // Tables created before refunds existed
+      statement.execute("ALTER TABLE payments ADD COLUMN IF NOT EXISTS "
+          + "refunded_amount INT NOT NULL DEFAULT 0");
+      migrateStatusOrdinals(connection, statement);
+    } catch (SQLException e) {
+      throw new EventProcessingException("Failed to create payments table: " + e.getMessage());
+    }
+  }
+
+  // Tables created before statuses were stored by name hold their ordinals, which reordering
+  // the enum would silently remap
+  private static void migrateStatusOrdinals(Connection connection, Statement statement)
+      throws SQLException {
+    try (ResultSet column = connection.getMetaData()
+        .getColumns(null, null, "PAYMENTS", "STATUS")) {
+      if (!column.next() || column.getInt("DATA_TYPE") != Types.TINYINT) {
+        return;
+      }
+    }
+    statement.execute("ALTER TABLE payments ALTER COLUMN status SET DATA TYPE VARCHAR(32)");
+    StringBuilder names = new StringBuilder("UPDATE payments SET status = CASE status");
+    for (PaymentStatus status : STATUSES) {
+      names.append(" WHEN '").append(status.ordinal()).append("' THEN '").append(status.name())
+          .append('\'');
+    }
+    statement.executeUpdate(names.append(" END").toString());
+  }
+}
@@ -0,0 +1,270 @@
+package com.checkout.payment.gateway.repository;
+
+import static com.checkout.payment.gateway.validator.MerchantIdValidator.validateMerchantId;
+
+import com.checkout.payment.gateway.exception.MerchantLimitException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import jakarta.annotation.PreDestroy;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The memory store, split into one {@link InMemoryPaymentsRepository} per merchant. Each
+ * partition has its own hot index, hot-tier quota and cold store, so one merchant's traffic
+ * neither contends with nor demotes another's payments. Requests that name no merchant use the
+ * default partition, which is sized by {@code payments.hot.*}.
+ *
+ * <p>A merchant's partition is created by {@link #openForMerchant}, before its first payment
+ * reaches the bank, or else on its first write; reads for a merchant that has never written find
+ * nothing and create nothing. {@code max-merchants} caps the partitions opened for merchants
+ * without a quota; merchants named in the quotas always get theirs, so headers naming made-up
+ * merchants cannot lock them out. Every partition follows the same {@link PaymentRetention}.
+ */
+@Repository
+@Qualifier("local")
+@ConditionalOnProperty(name = "payments.store", havingValue = "memory", matchIfMissing = true)
+public class MerchantPartitionedPaymentsRepository implements PaymentsRepository {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(MerchantPartitionedPaymentsRepository.class);
+
+  private final InMemoryPaymentsRepository defaultPartition;
+  private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+  // Partitions of merchants without a quota, the ones max-merchants caps
+  private final AtomicInteger unlisted = new AtomicInteger();
+  private final Path coldDirectory;
+  private final int recordsPerSegment;
+  private final double heapPressureThreshold;
+  private final int maxMerchants;
+  private final Quota defaultQuota;
+  private final Map<String, Quota> quotas;
+  private final PaymentRetention retention;
+  private final ScheduledExecutorService demoter;
+
+  /**
+   * Partitions that keep every payment hot, for tests and tools.
+   */
+  public MerchantPartitionedPaymentsRepository(int maxMerchants) {
+    this(null, Integer.MAX_VALUE, Duration.ofDays(36500), 1.0, Duration.ZERO, null, 0,
+        maxMerchants, Integer.MAX_VALUE, Duration.ofDays(36500), "");
+  }
+
+  public MerchantPartitionedPaymentsRepository(ColdPaymentStore coldStore, int maxHotPayments,
+      Duration maxHotAge, double heapPressureThreshold, Duration demotionInterval,
+      Path coldDirectory, int recordsPerSegment, int maxMerchants, int maxSize, Duration maxAge,
+      String quotas) {
+    this(coldStore, maxHotPayments, maxHotAge, heapPressureThreshold, demotionInterval,
+        coldDirectory, recordsPerSegment, maxMerchants, maxSize, maxAge, quotas,
+        PaymentRetention.disabled());
+  }
+
+  /**
+   * @param coldStore the default partition's cold store, or null to keep every payment hot
+   * @param coldDirectory where merchant partitions create their cold stores, or null to keep
+   *     every payment hot
+   * @param demotionInterval how often one shared thread demotes and expires every partition, or
+   *     zero to leave {@link #demote()} and {@link #expire()} to the caller
+   * @param quotas per-merchant hot-tier limits as {@code merchant:maxSize[:maxAge];...}, for
+   *     merchants that need other limits than {@code maxSize} and {@code maxAge}
+   */
+  @Autowired
+  public MerchantPartitionedPaymentsRepository(ColdPaymentStore coldStore,
+      @Value("${payments.hot.max-size:100000}") int maxHotPayments,
+      @Value("${payments.hot.max-age:PT5M}") Duration maxHotAge,
+      @Value("${payments.hot.heap-pressure-threshold:0.75}") double heapPressureThreshold,
+      @Value("${payments.hot.demotion-interval:PT1S}") Duration demotionInterval,
+      @Value("${payments.cold.directory:${java.io.tmpdir}/payment-gateway}") Path coldDirectory,
+      @Value("${payments.partitions.cold-records-per-segment:1024}") int recordsPerSegment,
+      @Value("${payments.partitions.max-merchants:1024}") int maxMerchants,
+      @Value("${payments.partitions.max-size:10000}") int maxSize,
+      @Value("${payments.partitions.max-age:PT5M}") Duration maxAge,
+      @Value("${payments.partitions.quotas:}") String quotas,
+      PaymentRetention retention) {
+    this.defaultPartition = new InMemoryPaymentsRepository(coldStore, maxHotPayments, maxHotAge,
+        heapPressureThreshold, Duration.ZERO, retention);
+    this.coldDirectory = coldStore == null ? null : coldDirectory;
+    this.recordsPerSegment = recordsPerSegment;
+    this.heapPressureThreshold = heapPressureThreshold;
+    this.maxMerchants = maxMerchants;
+    this.defaultQuota = new Quota(maxSize, maxAge);
+    this.quotas = parseQuotas(quotas, defaultQuota);
+    this.retention = retention;
+    if ((coldStore != null || retention.isEnabled()) && !demotionInterval.isZero()) {
+      demoter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "payments-demoter");
+        thread.setDaemon(true);
+        return thread;
+      });
+      demoter.scheduleWithFixedDelay(this::maintain, demotionInterval.toMillis(),
+          demotionInterval.toMillis(), TimeUnit.MILLISECONDS);
+    } else {
+      demoter = null;
+    }
+  }
+
+  @Override
+  public void add(PostPaymentResponse payment) {
+    defaultPartition.add(payment);
+  }
+
+  @Override
+  public Optional<PostPaymentResponse> get(UUID id) {
+    return defaultPartition.get(id);
+  }
+
+  @Override
+  public PaymentsRepository forMerchant(String merchantId) {
+    if (merchantId == null) {
+      return defaultPartition;
+    }
+    Partition partition = partitions.get(merchantId);
+    if (partition != null) {
+      return partition.payments();
+    }
+    return new UnopenedPartition(validateMerchantId(merchantId));
+  }
+
+  @Override
+  public PaymentsRepository openForMerchant(String merchantId) {
+    return merchantId == null ? defaultPartition : open(validateMerchantId(merchantId));
+  }
+
+  public InMemoryPaymentsRepository getDefaultPartition() {
+    return defaultPartition;
+  }
+
+  public int getPartitionCount() {
+    return partitions.size();
+  }
+
+  /**
+   * Demotes every partition to within its own quota, see
+   * {@link InMemoryPaymentsRepository#demote()}.
+   */
+  public int demote() {
+    boolean underHeapPressure = defaultPartition.underHeapPressure();
+    int demoted = defaultPartition.demote(underHeapPressure);
+    for (Partition partition : partitions.values()) {
+      demoted += partition.payments().demote(underHeapPressure);
+    }
+    return demoted;
+  }
+
+  /**
+   * Expires every partition, see {@link InMemoryPaymentsRepository#expire()}.
+   */
+  public int expire() {
+    int expired = defaultPartition.expire();
+    for (Partition partition : partitions.values()) {
+      expired += partition.payments().expire();
+    }
+    return expired;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (demoter != null) {
+      demoter.shutdownNow();
+    }
+    defaultPartition.shutdown();
+    for (Partition partition : partitions.values()) {
+      partition.payments().shutdown();
+      if (partition.coldStore() != null) {
+        partition.coldStore().close();
+      }
+    }
+  }
+
+  // Logged and left to the next pass: an exception escaping a scheduled task would cancel it,
+  // and with it every later demotion and expiry
+  private void maintain() {
+    try {
+      demote();
+    } catch (RuntimeException e) {
+      LOG.error("Demotion pass failed", e);
+    }
+    try {
+      expire();
+    } catch (RuntimeException e) {
+      LOG.error("Expiry pass failed", e);
+    }
+  }
+
+  private InMemoryPaymentsRepository open(String merchantId) {
+    return partitions.computeIfAbsent(merchantId, id -> {
+      Quota quota = quotas.get(id);
+      if (quota == null) {
+        if (unlisted.get() >= maxMerchants) {
+          throw new MerchantLimitException(id);
+        }
+        unlisted.incrementAndGet();
+        quota = defaultQuota;
+      }
+      ColdPaymentStore coldStore = coldDirectory == null ? null
+          : new ColdPaymentStore(coldDirectory, recordsPerSegment);
+      LOG.info("Opened payment partition for merchant {}", id);
+      return new Partition(new InMemoryPaymentsRepository(coldStore, quota.maxSize(),
+          quota.maxAge(), heapPressureThreshold, Duration.ZERO, retention), coldStore);
+    }).payments();
+  }
+
+  static Map<String, Quota> parseQuotas(String quotas, Quota defaultQuota) {
+    Map<String, Quota> parsed = new HashMap<>();
+    for (String quota : quotas.split(";")) {
+      if (quota.isBlank()) {
+        continue;
+      }
+      String[] parts = quota.trim().split(":");
+      if (parts.length < 2 || parts.length > 3) {
+        throw new IllegalArgumentException("Expected merchant:maxSize[:maxAge] but got "
+            + quota);
+      }
+      parsed.put(validateMerchantId(parts[0]), new Quota(Integer.parseInt(parts[1]),
+          parts.length == 3 ? Duration.parse(parts[2]) : defaultQuota.maxAge()));
+    }
+    return parsed;
+  }
+
+  record Quota(int maxSize, Duration maxAge) {
+  }
+
+  private record Partition(InMemoryPaymentsRepository payments, ColdPaymentStore coldStore) {
+  }
+
+  // Stands in for a merchant with no partition yet, so that reads do not create one
+  private final class UnopenedPartition implements PaymentsRepository {
+
+    private final String merchantId;
+
+    UnopenedPartition(String merchantId) {
+      this.merchantId = merchantId;
+    }
+
+    @Override
+    public void add(PostPaymentResponse payment) {
+      open(merchantId).add(payment);
+    }
+
+    @Override
+    public Optional<PostPaymentResponse> get(UUID id) {
+      Partition partition = partitions.get(merchantId);
+      return partition == null ? Optional.empty() : partition.payments().get(id);
+    }
+  }
+}
@@ -0,0 +1,194 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Open-addressing hash index from payment ID to cold record number, held in direct buffers so
+ * it costs no heap per entry. The slots are spread over buffers of at most {@code chunkSlots}
+ * each, since one buffer cannot address more than 2 GB. Not thread-safe;
+ * {@link ColdPaymentStore} guards it.
+ */
+class OffHeapPaymentIndex {
+
+  // Keeps the entry count, at most half the slots, within an int: about a billion payments
+  static final long MAX_CAPACITY = 1L << 31;
+
+  private static final int SLOT_SIZE = 24;
+  private static final double MAX_LOAD = 0.5;
+  // 24 MB per buffer
+  private static final int CHUNK_SLOTS = 1 << 20;
+
+  private final int chunkSlots;
+  private final int chunkShift;
+  private final long maxCapacity;
+  private ByteBuffer[] chunks;
+  private long capacity;
+  private int size;
+
+  OffHeapPaymentIndex(int initialCapacity) {
+    this(initialCapacity, CHUNK_SLOTS, MAX_CAPACITY);
+  }
+
+  /**
+   * @param chunkSlots slots per buffer, a power of two
+   * @param maxCapacity slots the index may grow to, a power of two
+   */
+  OffHeapPaymentIndex(int initialCapacity, int chunkSlots, long maxCapacity) {
+    this.chunkSlots = chunkSlots;
+    this.chunkShift = Integer.numberOfTrailingZeros(chunkSlots);
+    this.maxCapacity = maxCapacity;
+    this.capacity = Math.min(maxCapacity,
+        Long.highestOneBit(Math.max(16, initialCapacity - 1L) << 1));
+    this.chunks = allocate(capacity);
+  }
+
+  long find(UUID id) {
+    long msb = id.getMostSignificantBits();
+    long lsb = id.getLeastSignificantBits();
+    long mask = capacity - 1;
+    for (long slot = hash(msb, lsb) & mask; ; slot = (slot + 1) & mask) {
+      ByteBuffer chunk = chunk(chunks, slot);
+      int offset = offset(slot);
+      // Values are stored as record + 1 so that zero marks an empty slot
+      long value = chunk.getLong(offset + 16);
+      if (value == 0) {
+        return -1;
+      }
+      if (chunk.getLong(offset) == msb && chunk.getLong(offset + 8) == lsb) {
+        return value - 1;
+      }
+    }
+  }
+
+  /**
+   * Fails with {@link EventProcessingException}, leaving the index as it was, when a new payment
+   * would take the index past its maximum capacity.
+   */
+  void put(UUID id, long record) {
+    if (size + 1 > capacity * MAX_LOAD) {
+      if (capacity < maxCapacity) {
+        resize(capacity << 1);
+      } else if (find(id) < 0) {
+        throw new EventProcessingException("Cold payment index is full at " + size
+            + " payments");
+      }
+    }
+    if (insert(chunks, capacity, id.getMostSignificantBits(), id.getLeastSignificantBits(),
+        record + 1)) {
+      size++;
+    }
+  }
+
+  /**
+   * Returns the record the payment was stored at, or -1 if it was not in the index.
+   */
+  long remove(UUID id) {
+    long msb = id.getMostSignificantBits();
+    long lsb = id.getLeastSignificantBits();
+    long mask = capacity - 1;
+    long gap = hash(msb, lsb) & mask;
+    long value;
+    while (true) {
+      ByteBuffer chunk = chunk(chunks, gap);
+      int offset = offset(gap);
+      value = chunk.getLong(offset + 16);
+      if (value == 0) {
+        return -1;
+      }
+      if (chunk.getLong(offset) == msb && chunk.getLong(offset + 8) == lsb) {
+        break;
+      }
+      gap = (gap + 1) & mask;
+    }
+    // Backward-shift deletion: later entries of the probe run move into the gap when their home
+    // slot allows it, so lookups never need tombstones
+    for (long slot = (gap + 1) & mask; ; slot = (slot + 1) & mask) {
+      ByteBuffer chunk = chunk(chunks, slot);
+      int offset = offset(slot);
+      long moved = chunk.getLong(offset + 16);
+      if (moved == 0) {
+        break;
+      }
+      long home = hash(chunk.getLong(offset), chunk.getLong(offset + 8)) & mask;
+      if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+        ByteBuffer gapChunk = chunk(chunks, gap);
+        int gapOffset = offset(gap);
+        gapChunk.putLong(gapOffset, chunk.getLong(offset));
+        gapChunk.putLong(gapOffset + 8, chunk.getLong(offset + 8));
+        gapChunk.putLong(gapOffset + 16, moved);
+        gap = slot;
+      }
+    }
+    chunk(chunks, gap).putLong(offset(gap) + 16, 0);
+    size--;
+    return value - 1;
+  }
+
+  int size() {
+    return size;
+  }
+
+  long capacity() {
+    return capacity;
+  }
+
+  private void resize(long newCapacity) {
+    ByteBuffer[] newChunks = allocate(newCapacity);
+    for (long slot = 0; slot < capacity; slot++) {
+      ByteBuffer chunk = chunk(chunks, slot);
+      int offset = offset(slot);
+      long value = chunk.getLong(offset + 16);
+      if (value != 0) {
+        insert(newChunks, newCapacity, chunk.getLong(offset), chunk.getLong(offset + 8), value);
+      }
+    }
+    chunks = newChunks;
+    capacity = newCapacity;
+  }
+
+  private ByteBuffer[] allocate(long slots) {
+    int perChunk = (int) Math.min(slots, chunkSlots);
+    ByteBuffer[] allocated = new ByteBuffer[(int) (slots / perChunk)];
+    for (int i = 0; i < allocated.length; i++) {
+      allocated[i] = ByteBuffer.allocateDirect(perChunk * SLOT_SIZE);
+    }
+    return allocated;
+  }
+
+  private boolean insert(ByteBuffer[] target, long capacity, long msb, long lsb, long value) {
+    long mask = capacity - 1;
+    for (long slot = hash(msb, lsb) & mask; ; slot = (slot + 1) & mask) {
+      ByteBuffer chunk = chunk(target, slot);
+      int offset = offset(slot);
+      long existing = chunk.getLong(offset + 16);
+      if (existing == 0) {
+        chunk.putLong(offset, msb);
+        chunk.putLong(offset + 8, lsb);
+        chunk.putLong(offset + 16, value);
+        return true;
+      }
+      if (chunk.getLong(offset) == msb && chunk.getLong(offset + 8) == lsb) {
+        chunk.putLong(offset + 16, value);
+        return false;
+      }
+    }
+  }
+
+  private ByteBuffer chunk(ByteBuffer[] target, long slot) {
+    return target[(int) (slot >>> chunkShift)];
+  }
+
+  private int offset(long slot) {
+    return (int) (slot & (chunkSlots - 1)) * SLOT_SIZE;
+  }
+
+  private static long hash(long msb, long lsb) {
+    long h = msb ^ (lsb * 0x9E3779B97F4A7C15L);
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    return h;
+  }
+}
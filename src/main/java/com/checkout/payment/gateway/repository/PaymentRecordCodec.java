@@ -0,0 +1,84 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Packs a payment into a fixed-size binary record. Shared by the cold tier and the cluster wire
+ * protocol so both agree on one layout.
+ */
+public final class PaymentRecordCodec {
+
+  public static final int RECORD_SIZE = 128;
+  public static final int MAX_AUTHORIZATION_CODE_BYTES = RECORD_SIZE - 38;
+
+  private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+
+  private PaymentRecordCodec() {
+  }
+
+  public static boolean fits(PostPaymentResponse payment) {
+    return length(payment.getAuthorizationCode()) <= MAX_AUTHORIZATION_CODE_BYTES
+        && length(payment.getCurrency()) <= 3;
+  }
+
+  /**
+   * Callers must check {@link #fits} first.
+   */
+  public static void encode(ByteBuffer buffer, int offset, PostPaymentResponse payment) {
+    buffer.put(offset, (byte) (payment.getStatus() == null ? 0
+        : payment.getStatus().ordinal() + 1));
+    buffer.put(offset + 1, (byte) payment.getExpiryMonth());
+    buffer.putShort(offset + 2, (short) payment.getExpiryYear());
+    buffer.putInt(offset + 4, payment.getCardNumberLastFour());
+    buffer.putInt(offset + 8, payment.getAmount());
+    putString(buffer, offset + 12, payment.getCurrency());
+    buffer.putLong(offset + 16, payment.getId().getMostSignificantBits());
+    buffer.putLong(offset + 24, payment.getId().getLeastSignificantBits());
+    putString(buffer, offset + 32, payment.getAuthorizationCode());
+    buffer.putInt(offset + RECORD_SIZE - 4, payment.getRefundedAmount());
+  }
+
+  public static PostPaymentResponse decode(ByteBuffer buffer, int offset) {
+    int status = buffer.get(offset);
+    return PostPaymentResponse.builder()
+        .setId(new UUID(buffer.getLong(offset + 16), buffer.getLong(offset + 24)))
+        .setStatus(status == 0 ? null : STATUSES[status - 1])
+        .setExpiryMonth(buffer.get(offset + 1))
+        .setExpiryYear(buffer.getShort(offset + 2))
+        .setCardNumberLastFour(buffer.getInt(offset + 4))
+        .setAmount(buffer.getInt(offset + 8))
+        .setCurrency(getString(buffer, offset + 12))
+        .setAuthorizationCode(getString(buffer, offset + 32))
+        .setRefundedAmount(buffer.getInt(offset + RECORD_SIZE - 4))
+        .build();
+  }
+
+  private static int length(String value) {
+    return value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  // Length-prefixed UTF-8, with a length of -1 for null
+  private static void putString(ByteBuffer buffer, int offset, String value) {
+    if (value == null) {
+      buffer.put(offset, (byte) -1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    buffer.put(offset, (byte) bytes.length);
+    buffer.put(offset + 1, bytes);
+  }
+
+  private static String getString(ByteBuffer buffer, int offset) {
+    int length = buffer.get(offset);
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(offset + 1, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,29 @@
+package com.checkout.payment.gateway.repository;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * How long the memory store keeps payments. A payment expires {@code period} after it was first
+ * stored and is then dropped, or in {@link Mode#SUMMARIZE} cut down to its ID, status and
+ * amounts and dropped {@code summaryPeriod} later; a zero summary period keeps summaries. Expiry
+ * runs per time bucket {@code bucketWidth} wide, so payments can outlive their period by up to
+ * one bucket.
+ */
+public record PaymentRetention(Duration period, Mode mode, Duration summaryPeriod,
+    Duration bucketWidth, Clock clock) {
+
+  public enum Mode {
+    DROP,
+    SUMMARIZE
+  }
+
+  public static PaymentRetention disabled() {
+    return new PaymentRetention(Duration.ZERO, Mode.DROP, Duration.ZERO, Duration.ofHours(1),
+        Clock.systemUTC());
+  }
+
+  public boolean isEnabled() {
+    return !period.isZero();
+  }
+}
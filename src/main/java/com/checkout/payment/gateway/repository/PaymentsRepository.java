@@ -1,24 +1,45 @@
 package com.checkout.payment.gateway.repository;
 
+import com.checkout.payment.gateway.exception.InvalidMerchantException;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
-import java.util.HashMap;
 import java.util.Optional;
 import java.util.UUID;
-import lombok.Getter;
-import org.springframework.stereotype.Repository;
 
-@Getter
-@Repository
-public class PaymentsRepository {
+public interface PaymentsRepository {
 
-  private final HashMap<UUID, PostPaymentResponse> payments = new HashMap<>();
+  void add(PostPaymentResponse payment);
 
-  public void add(PostPaymentResponse payment) {
-    payments.put(payment.getId(), payment);
+  Optional<PostPaymentResponse> get(UUID id);
+
+  /**
+   * The payments of one merchant. Stores that do not partition by merchant return themselves
+   * for requests that named none and refuse the rest, as they could not keep one merchant from
+   * reading another's payments.
+   *
+   * @param merchantId the merchant the request was made for, or null if it named none
+   * @throws InvalidMerchantException if a merchant is named and the store does not partition
+   */
+  default PaymentsRepository forMerchant(String merchantId) {
+    if (merchantId != null) {
+      throw new InvalidMerchantException(merchantId, "this payment store has no merchant "
+          + "partitions");
+    }
+    return this;
   }
 
-  public Optional<PostPaymentResponse> get(UUID id) {
-    return Optional.ofNullable(payments.get(id));
+  /**
+   * {@link #forMerchant}, but ready to take the merchant's writes: stores that partition by
+   * merchant create the partition now. Called before the bank, so a payment that could not be
+   * stored is refused before it is charged.
+   *
+   * @throws com.checkout.payment.gateway.exception.MerchantLimitException if the store has no
+   *     room for another merchant
+   */
+  default PaymentsRepository openForMerchant(String merchantId) {
+    return forMerchant(merchantId);
   }
 
+  default boolean isReadOnly() {
+    return false;
+  }
 }
@@ -0,0 +1,215 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Deque;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Payment IDs grouped by the time bucket they were stored in, oldest bucket first, so expiring
+ * everything before a cutoff visits only the expired IDs. Each bucket appends its IDs, 16 bytes
+ * apiece, to a file of its own and reads them back when it expires, so the heap holds a few
+ * fields per bucket however many payments it covers; only the newest bucket keeps a write
+ * buffer. Any number of threads may add; one at a time expires.
+ */
+class RetentionBuckets implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RetentionBuckets.class);
+  private static final int ID_SIZE = 16;
+  private static final int BUFFERED_IDS = 4096;
+
+  private final Path directory;
+  private final boolean ownsDirectory;
+  private final String name;
+  private final long bucketMillis;
+  private final Deque<Bucket> buckets = new ConcurrentLinkedDeque<>();
+
+  /**
+   * @param directory where the bucket files go, or null for a temporary directory of their own
+   * @param name prefix of the bucket files, unique within the directory
+   */
+  RetentionBuckets(Path directory, String name, long bucketMillis) {
+    try {
+      this.directory = directory != null ? directory
+          : Files.createTempDirectory("payment-retention-");
+    } catch (IOException e) {
+      throw new EventProcessingException("Cannot create retention directory: " + e.getMessage());
+    }
+    this.ownsDirectory = directory == null;
+    this.name = name;
+    this.bucketMillis = bucketMillis;
+  }
+
+  void add(UUID id, long nowMillis) {
+    long start = nowMillis - Math.floorMod(nowMillis, bucketMillis);
+    while (true) {
+      Bucket bucket = buckets.peekLast();
+      if (bucket == null || bucket.start < start) {
+        synchronized (this) {
+          bucket = buckets.peekLast();
+          if (bucket == null || bucket.start < start) {
+            Bucket previous = bucket;
+            bucket = new Bucket(start);
+            buckets.addLast(bucket);
+            if (previous != null) {
+              previous.seal();
+            }
+          }
+        }
+      }
+      // A writer whose clock reads slightly behind lands in the newest bucket, expiring a little
+      // late. Refused only if that bucket expired meanwhile, which leaves a newer one to try
+      if (bucket.add(id.getMostSignificantBits(), id.getLeastSignificantBits())) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Removes every bucket that ended at or before the cutoff and passes each of its IDs to
+   * {@code expired}, returning how many there were. A bucket whose file cannot be read is kept
+   * for the next call.
+   */
+  int expire(long cutoffMillis, Consumer<UUID> expired) {
+    int count = 0;
+    Bucket bucket;
+    while ((bucket = buckets.peekFirst()) != null && bucket.start + bucketMillis <= cutoffMillis) {
+      count += bucket.drain(expired);
+      buckets.pollFirst();
+    }
+    return count;
+  }
+
+  int getBucketCount() {
+    return buckets.size();
+  }
+
+  @Override
+  public void close() {
+    Bucket bucket;
+    while ((bucket = buckets.pollFirst()) != null) {
+      bucket.close();
+    }
+    if (ownsDirectory) {
+      try {
+        Files.deleteIfExists(directory);
+      } catch (IOException e) {
+        LOG.warn("Failed to delete retention directory {}: {}", directory, e.getMessage());
+      }
+    }
+  }
+
+  private final class Bucket {
+
+    private final long start;
+    private final Path file;
+    private final FileChannel channel;
+    // Null once a newer bucket exists; late writers then write straight to the file
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFERED_IDS * ID_SIZE);
+    private long written;
+    private boolean closed;
+
+    Bucket(long start) {
+      this.start = start;
+      this.file = directory.resolve(name + "-" + start + ".ids");
+      try {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+      } catch (IOException e) {
+        throw new EventProcessingException("Cannot create retention bucket " + file + ": "
+            + e.getMessage());
+      }
+    }
+
+    synchronized boolean add(long msb, long lsb) {
+      if (closed) {
+        return false;
+      }
+      if (buffer == null) {
+        write(ByteBuffer.allocate(ID_SIZE).putLong(msb).putLong(lsb).flip());
+        return true;
+      }
+      if (!buffer.hasRemaining()) {
+        flush();
+      }
+      buffer.putLong(msb).putLong(lsb);
+      return true;
+    }
+
+    synchronized void seal() {
+      if (buffer != null && !closed) {
+        flush();
+        buffer = null;
+      }
+    }
+
+    synchronized int drain(Consumer<UUID> consumer) {
+      if (buffer != null) {
+        flush();
+      }
+      ByteBuffer read = ByteBuffer.allocate(BUFFERED_IDS * ID_SIZE);
+      int count = 0;
+      try {
+        for (long position = 0; position < written; ) {
+          read.clear().limit((int) Math.min(read.capacity(), written - position));
+          while (read.hasRemaining()) {
+            position += channel.read(read, position);
+          }
+          read.flip();
+          while (read.hasRemaining()) {
+            consumer.accept(new UUID(read.getLong(), read.getLong()));
+            count++;
+          }
+        }
+      } catch (IOException e) {
+        throw new EventProcessingException("Failed to read retention bucket " + file + ": "
+            + e.getMessage());
+      }
+      close();
+      return count;
+    }
+
+    synchronized void close() {
+      closed = true;
+      buffer = null;
+      try {
+        channel.close();
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        LOG.warn("Failed to delete retention bucket {}: {}", file, e.getMessage());
+      }
+    }
+
+    private void flush() {
+      buffer.flip();
+      try {
+        write(buffer);
+      } finally {
+        // Keeps whatever a failed write left behind for the next flush
+        buffer.compact();
+      }
+    }
+
+    private void write(ByteBuffer ids) {
+      try {
+        while (ids.hasRemaining()) {
+          written += channel.write(ids, written);
+        }
+      } catch (IOException e) {
+        throw new EventProcessingException("Failed to write retention bucket " + file + ": "
+            + e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package com.checkout.payment.gateway.routing;
+
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A bank endpoint payments can be authorized through, with optional replica URLs serving the
+ * same acquirer. Empty BIN prefixes or currencies mean the acquirer takes any.
+ */
+public record Acquirer(String name, String url, List<String> replicas, List<String> binPrefixes,
+    Set<String> currencies) {
+
+  public static Acquirer any(String name, String url) {
+    return new Acquirer(name, url, List.of(), List.of(), Set.of());
+  }
+
+  /**
+   * Parses a semicolon-separated list of {@code name@urls|binPrefixes|currencies} entries. The
+   * URLs, prefixes and currencies are comma-separated, the first URL is the primary and
+   * {@code *} or an omitted part means any.
+   */
+  public static List<Acquirer> parseAll(String spec) {
+    List<Acquirer> acquirers = new ArrayList<>();
+    for (String entry : spec.split(";")) {
+      String trimmed = entry.trim();
+      if (!trimmed.isEmpty()) {
+        acquirers.add(parse(trimmed));
+      }
+    }
+    return acquirers;
+  }
+
+  public static Acquirer parse(String entry) {
+    String[] parts = entry.split("\\|", -1);
+    int at = parts[0].indexOf('@');
+    if (at <= 0 || parts.length > 3) {
+      throw new EventProcessingException(String.format(
+          "Acquirer must be given as name@url|binPrefixes|currencies, but got '%s'", entry));
+    }
+    List<String> binPrefixes = parts.length > 1 ? list(parts[1]) : List.of();
+    for (String prefix : binPrefixes) {
+      if (!prefix.matches("\\d+")) {
+        throw new EventProcessingException(
+            String.format("BIN prefix must be numeric, but got '%s'", prefix));
+      }
+    }
+    List<String> urls = list(parts[0].substring(at + 1));
+    if (urls.isEmpty()) {
+      throw new EventProcessingException(
+          String.format("Acquirer needs at least one URL, but got '%s'", entry));
+    }
+    return new Acquirer(parts[0].substring(0, at), urls.get(0), urls.subList(1, urls.size()),
+        binPrefixes, parts.length > 2 ? Set.copyOf(list(parts[2])) : Set.of());
+  }
+
+  /**
+   * Where a hedged request goes: another replica when there is one, else the primary URL again.
+   */
+  public String hedgeUrl() {
+    return replicas.isEmpty() ? url
+        : replicas.get(ThreadLocalRandom.current().nextInt(replicas.size()));
+  }
+
+  public boolean acceptsCurrency(String currency) {
+    return currencies.isEmpty() || currencies.contains(currency);
+  }
+
+  private static List<String> list(String part) {
+    List<String> values = new ArrayList<>();
+    for (String value : part.split(",")) {
+      String trimmed = value.trim();
+      if (!trimmed.isEmpty() && !trimmed.equals("*")) {
+        values.add(trimmed);
+      }
+    }
+    return values;
+  }
+}
@@ -0,0 +1,94 @@
+package com.checkout.payment.gateway.routing;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live view of one acquirer: exponentially weighted latency and error rate, requests in flight,
+ * and a cool-down after a run of consecutive failures.
+ */
+public class AcquirerHealth {
+
+  private static final int LATENCY_WINDOW = 256;
+  private static final int P95_REFRESH_INTERVAL = 32;
+
+  private final double decay;
+  private final int failuresBeforeCoolDown;
+  private final long coolDownNanos;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final long[] recentLatencies = new long[LATENCY_WINDOW];
+  private long recorded;
+  private long latencyP95Nanos = -1;
+  private double latencyNanos;
+  private double errorRate;
+  private int consecutiveFailures;
+  private long unavailableUntil;
+  private boolean coolingDown;
+
+  AcquirerHealth(double decay, int failuresBeforeCoolDown, long coolDownNanos) {
+    this.decay = decay;
+    this.failuresBeforeCoolDown = failuresBeforeCoolDown;
+    this.coolDownNanos = coolDownNanos;
+  }
+
+  public void start() {
+    inFlight.incrementAndGet();
+  }
+
+  public synchronized void succeeded(long elapsedNanos) {
+    inFlight.decrementAndGet();
+    latencyNanos += decay * (elapsedNanos - latencyNanos);
+    errorRate -= decay * errorRate;
+    recentLatencies[(int) (recorded++ % LATENCY_WINDOW)] = elapsedNanos;
+    if (recorded % P95_REFRESH_INTERVAL == 0) {
+      long[] window = Arrays.copyOf(recentLatencies,
+          (int) Math.min(recorded, LATENCY_WINDOW));
+      Arrays.sort(window);
+      latencyP95Nanos = window[(int) (window.length * 0.95)];
+    }
+    consecutiveFailures = 0;
+    coolingDown = false;
+  }
+
+  public synchronized void failed(long elapsedNanos) {
+    inFlight.decrementAndGet();
+    latencyNanos += decay * (elapsedNanos - latencyNanos);
+    errorRate += decay * (1 - errorRate);
+    if (++consecutiveFailures >= failuresBeforeCoolDown) {
+      coolingDown = true;
+      unavailableUntil = System.nanoTime() + coolDownNanos;
+      consecutiveFailures = 0;
+    }
+  }
+
+  /**
+   * Lower is better: expected latency scaled by the queue already waiting on the acquirer and
+   * inflated by its recent error rate.
+   */
+  synchronized double score() {
+    return (latencyNanos + 1) * (1 + inFlight.get()) / Math.max(0.01, 1 - errorRate);
+  }
+
+  synchronized boolean isAvailable() {
+    return !coolingDown || System.nanoTime() - unavailableUntil >= 0;
+  }
+
+  public synchronized double getLatencyMillis() {
+    return latencyNanos / 1e6;
+  }
+
+  /**
+   * 95th percentile of the last successful calls, or -1 until enough have been seen.
+   */
+  public synchronized long getLatencyP95Nanos() {
+    return latencyP95Nanos;
+  }
+
+  public synchronized double getErrorRate() {
+    return errorRate;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+}
@@ -0,0 +1,105 @@
+package com.checkout.payment.gateway.routing;
+
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks the acquirers to try for a payment. Eligibility comes from the card's BIN, the currency
+ * and health; among the eligible acquirers of the most specific matching BIN prefix two are
+ * sampled at random and the better scoring one goes first (power of two choices), which tracks
+ * the fastest acquirer without stampeding it. The rest of that prefix's acquirers follow, best
+ * first, then those of each enclosing prefix in turn, so a catch-all acquirer backs up the
+ * specialists.
+ */
+public class AcquirerRouter {
+
+  private final List<Acquirer> acquirers;
+  private final List<AcquirerHealth> health = new ArrayList<>();
+  private final BinPrefixTrie bins = new BinPrefixTrie();
+
+  public AcquirerRouter(List<Acquirer> acquirers, double decay, int failuresBeforeCoolDown,
+      Duration coolDown) {
+    if (acquirers.isEmpty() || acquirers.size() > BinPrefixTrie.MAX_ACQUIRERS) {
+      throw new EventProcessingException(String.format(
+          "Between 1 and %d acquirers are supported, but got %d", BinPrefixTrie.MAX_ACQUIRERS,
+          acquirers.size()));
+    }
+    this.acquirers = List.copyOf(acquirers);
+    for (int i = 0; i < acquirers.size(); i++) {
+      Acquirer acquirer = acquirers.get(i);
+      if (acquirer.binPrefixes().isEmpty()) {
+        bins.add("", i);
+      }
+      for (String prefix : acquirer.binPrefixes()) {
+        bins.add(prefix, i);
+      }
+      health.add(new AcquirerHealth(decay, failuresBeforeCoolDown, coolDown.toNanos()));
+    }
+  }
+
+  public static AcquirerRouter single(String url) {
+    return new AcquirerRouter(List.of(Acquirer.any("default", url)), 0.2, 5, Duration.ofSeconds(5));
+  }
+
+  /**
+   * Indexes of the acquirers to try, in order. Cooling-down acquirers are only used when no
+   * healthy one can take the payment.
+   */
+  public List<Integer> route(String cardNumber, String currency) {
+    long[] matches = new long[bins.depth() + 1];
+    int tiers = bins.lookupAll(cardNumber, matches);
+    List<Integer> eligible = new ArrayList<>();
+    List<Integer> coolingDown = new ArrayList<>(0);
+    double[] scores = new double[acquirers.size()];
+    long seen = 0;
+    for (int tier = 0; tier < tiers; tier++) {
+      // An acquirer registered under several of the prefixes ranks with the most specific
+      long tierMatch = matches[tier] & ~seen;
+      seen |= matches[tier];
+      int tierStart = eligible.size();
+      for (long remaining = tierMatch; remaining != 0; remaining &= remaining - 1) {
+        int index = Long.numberOfTrailingZeros(remaining);
+        if (acquirers.get(index).acceptsCurrency(currency)) {
+          (health.get(index).isAvailable() ? eligible : coolingDown).add(index);
+          scores[index] = health.get(index).score();
+        }
+      }
+      List<Integer> ranked = eligible.subList(tierStart, eligible.size());
+      ranked.sort(Comparator.comparingDouble(index -> scores[index]));
+      if (tierStart == 0 && ranked.size() > 1) {
+        int first = powerOfTwoChoices(ranked, scores);
+        ranked.remove(Integer.valueOf(first));
+        ranked.add(0, first);
+      }
+    }
+    return eligible.isEmpty() ? coolingDown : eligible;
+  }
+
+  public Acquirer getAcquirer(int index) {
+    return acquirers.get(index);
+  }
+
+  public AcquirerHealth getHealth(int index) {
+    return health.get(index);
+  }
+
+  public int size() {
+    return acquirers.size();
+  }
+
+  private static int powerOfTwoChoices(List<Integer> eligible, double[] scores) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int a = random.nextInt(eligible.size());
+    int b = random.nextInt(eligible.size() - 1);
+    if (b >= a) {
+      b++;
+    }
+    int first = eligible.get(a);
+    int second = eligible.get(b);
+    return scores[first] <= scores[second] ? first : second;
+  }
+}
@@ -0,0 +1,81 @@
+package com.checkout.payment.gateway.routing;
+
+import java.util.Arrays;
+
+/**
+ * Decimal trie from BIN prefix to the set of acquirers registered for it, kept as a bitmask per
+ * node. Nodes live in one int array of ten child slots each, so a lookup is a handful of array
+ * reads and no allocation. Lookups list the registered prefixes of a card most specific first, so
+ * the acquirers of enclosing prefixes can take over from those of the most specific one.
+ */
+class BinPrefixTrie {
+
+  static final int MAX_ACQUIRERS = Long.SIZE;
+
+  private int[] children = new int[10 * 16];
+  private long[] masks = new long[16];
+  private int nodes = 1;
+  private int depth;
+
+  void add(String prefix, int acquirer) {
+    int node = 0;
+    for (int i = 0; i < prefix.length(); i++) {
+      int slot = node * 10 + (prefix.charAt(i) - '0');
+      if (children[slot] == 0) {
+        // Assigned through a local: newNode() may replace the children array
+        int child = newNode();
+        children[slot] = child;
+      }
+      node = children[slot];
+    }
+    masks[node] |= 1L << acquirer;
+    depth = Math.max(depth, prefix.length());
+  }
+
+  /**
+   * Length of the longest prefix added; a card matches at most one more prefix than this.
+   */
+  int depth() {
+    return depth;
+  }
+
+  /**
+   * Fills {@code matches} with the acquirers of every prefix of {@code cardNumber} that has
+   * any, most specific first, and returns how many there were. {@code matches} must hold
+   * {@link #depth()} + 1.
+   */
+  int lookupAll(String cardNumber, long[] matches) {
+    int count = 0;
+    if (masks[0] != 0) {
+      matches[count++] = masks[0];
+    }
+    int node = 0;
+    for (int i = 0; i < cardNumber.length(); i++) {
+      int digit = cardNumber.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        break;
+      }
+      node = children[node * 10 + digit];
+      if (node == 0) {
+        break;
+      }
+      if (masks[node] != 0) {
+        matches[count++] = masks[node];
+      }
+    }
+    for (int i = 0, j = count - 1; i < j; i++, j--) {
+      long swap = matches[i];
+      matches[i] = matches[j];
+      matches[j] = swap;
+    }
+    return count;
+  }
+
+  private int newNode() {
+    if (nodes == masks.length) {
+      masks = Arrays.copyOf(masks, nodes * 2);
+      children = Arrays.copyOf(children, nodes * 2 * 10);
+    }
+    return nodes++;
+  }
+}
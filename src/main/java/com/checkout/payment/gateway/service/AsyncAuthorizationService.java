@@ -0,0 +1,318 @@
+package com.checkout.payment.gateway.service;
+
+import static com.checkout.payment.gateway.validator.MerchantIdValidator.validateMerchantId;
+import static com.checkout.payment.gateway.validator.PaymentValidator.validatePayment;
+
+import com.checkout.payment.gateway.authorization.AuthorizationJournal;
+import com.checkout.payment.gateway.authorization.PendingAuthorization;
+import com.checkout.payment.gateway.bulkhead.Bulkheads;
+import com.checkout.payment.gateway.client.BankClient;
+import com.checkout.payment.gateway.deadline.Deadline;
+import com.checkout.payment.gateway.duplicate.DuplicateDetector;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.events.PaymentEventRing;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import com.checkout.payment.gateway.exception.BulkheadFullException;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.ReadOnlyReplicaException;
+import com.checkout.payment.gateway.model.BankResponse;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.pipeline.PaymentContext;
+import com.checkout.payment.gateway.pipeline.RiskStage;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.stats.PaymentStatistics;
+import com.checkout.payment.gateway.velocity.VelocityChecker;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Accepts payments for later authorization. A payment that passes validation and the
+ * {@link RiskStage} is journaled and stored as PENDING before the caller gets its ID; a pool of
+ * workers then sends the backlog to the bank no faster than {@code payments.async.max-rate} and
+ * replaces each PENDING payment with the outcome.
+ * Entries still pending at startup are picked up again. Every call for a payment carries its ID
+ * as the Idempotency-Key, so an acquirer that already answered it, before a restart or a lost
+ * response, need not authorize it twice.
+ *
+ * <p>Only failures that never reached an acquirer are retried, and only they end in REJECTED
+ * after {@code payments.async.max-attempts}. When the acquirer may have authorized the payment,
+ * on a timeout or a 5xx other than 503, the payment is left PENDING for the next start to
+ * reconcile.
+ */
+@Service
+public class AsyncAuthorizationService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncAuthorizationService.class);
+
+  private final PaymentsRepository paymentsRepository;
+  private final BankClient bankClient;
+  private final AuthorizationJournal journal;
+  private final Bulkheads bulkheads;
+  private final PaymentEventRing events;
+  private final PaymentStatistics statistics;
+  private final RiskStage riskStage;
+  private final VelocityChecker velocityChecker;
+  private final int maxPending;
+  private final long permitIntervalNanos;
+  private final int maxAttempts;
+  private final long retryDelayNanos;
+  private final BlockingQueue<PendingAuthorization> queue = new LinkedBlockingQueue<>();
+  private final List<Thread> workers = new ArrayList<>();
+  private final LongAdder unresolved = new LongAdder();
+  private long nextPermit = System.nanoTime();
+  private volatile boolean running = true;
+
+  public AsyncAuthorizationService(PaymentsRepository paymentsRepository, BankClient bankClient,
+      AuthorizationJournal journal, Bulkheads bulkheads, PaymentEventRing events,
+      int workerCount, int maxPending, double maxRatePerSecond, int maxAttempts,
+      Duration retryDelay) {
+    this(paymentsRepository, bankClient, journal, bulkheads, events,
+        PaymentStatistics.disabled(),
+        new RiskStage(DuplicateDetector.disabled(), VelocityChecker.disabled()),
+        VelocityChecker.disabled(), workerCount, maxPending, maxRatePerSecond, maxAttempts,
+        retryDelay);
+  }
+
+  @Autowired
+  public AsyncAuthorizationService(PaymentsRepository paymentsRepository, BankClient bankClient,
+      AuthorizationJournal journal, Bulkheads bulkheads, PaymentEventRing events,
+      PaymentStatistics statistics, RiskStage riskStage, VelocityChecker velocityChecker,
+      @Value("${payments.async.workers:16}") int workerCount,
+      @Value("${payments.async.max-pending:100000}") int maxPending,
+      @Value("${payments.async.max-rate:200}") double maxRatePerSecond,
+      @Value("${payments.async.max-attempts:3}") int maxAttempts,
+      @Value("${payments.async.retry-delay:PT1S}") Duration retryDelay) {
+    this.paymentsRepository = paymentsRepository;
+    this.bankClient = bankClient;
+    this.journal = journal;
+    this.bulkheads = bulkheads;
+    this.events = events;
+    this.statistics = statistics;
+    this.riskStage = riskStage;
+    this.velocityChecker = velocityChecker;
+    this.maxPending = maxPending;
+    this.permitIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / maxRatePerSecond);
+    this.maxAttempts = maxAttempts;
+    this.retryDelayNanos = retryDelay.toNanos();
+    recover();
+    for (int i = 0; i < workerCount; i++) {
+      Thread worker = new Thread(this::work, "payments-async-" + i);
+      worker.setDaemon(true);
+      worker.start();
+      workers.add(worker);
+    }
+  }
+
+  /**
+   * Completes with a PENDING payment once it is durably queued, or with a REJECTED one when the
+   * request fails validation or the duplicate and velocity checks.
+   */
+  public CompletableFuture<PostPaymentResponse> accept(PostPaymentRequest paymentRequest) {
+    return accept(paymentRequest, null, null);
+  }
+
+  public CompletableFuture<PostPaymentResponse> accept(PostPaymentRequest paymentRequest,
+      String merchantId) {
+    return accept(paymentRequest, null, merchantId);
+  }
+
+  /**
+   * @param sourceAddress client address for the velocity check, or null if unknown
+   * @param merchantId merchant to store the payment for, or null if the request named none
+   */
+  public CompletableFuture<PostPaymentResponse> accept(PostPaymentRequest paymentRequest,
+      String sourceAddress, String merchantId) {
+    if (paymentsRepository.isReadOnly()) {
+      throw new ReadOnlyReplicaException();
+    }
+    validateMerchantId(merchantId);
+    return Bulkheads.supply(bulkheads.writes(), () -> {
+      // Before the journal, so a payment that could not be stored is never queued for the bank
+      paymentsRepository.openForMerchant(merchantId);
+      return enqueue(paymentRequest, sourceAddress, merchantId);
+    });
+  }
+
+  public int getQueueDepth() {
+    return queue.size();
+  }
+
+  /**
+   * Payments left PENDING because the bank may have authorized them without answering, since
+   * startup. They are sent again, under the same idempotency key, on the next start.
+   */
+  public long getUnresolvedCount() {
+    return unresolved.sum();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    running = false;
+    for (Thread worker : workers) {
+      worker.interrupt();
+    }
+    for (Thread worker : workers) {
+      try {
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private PostPaymentResponse enqueue(PostPaymentRequest paymentRequest, String sourceAddress,
+      String merchantId) {
+    UUID id = UUID.randomUUID();
+    try {
+      validatePayment(paymentRequest);
+      // Before the journal, so a payment the sync path would refuse never reaches the bank
+      PaymentContext context = new PaymentContext(paymentRequest, sourceAddress, merchantId);
+      context.setPaymentId(id);
+      riskStage.process(context);
+    } catch (EventProcessingException e) {
+      PostPaymentResponse rejected = PaymentResponses.withStatus(id, paymentRequest,
+          PaymentStatus.REJECTED, "NA");
+      statistics.record(rejected);
+      return rejected;
+    }
+    if (journal.getPendingCount() >= maxPending) {
+      throw new BulkheadFullException("async-authorizations");
+    }
+
+    PendingAuthorization authorization = journal.append(id, paymentRequest, merchantId);
+    PostPaymentResponse pending = pendingResponse(authorization);
+    try {
+      partitionOf(authorization).add(pending);
+    } catch (RuntimeException e) {
+      journal.complete(authorization);
+      throw e;
+    }
+    events.publish(merchantId, pending);
+    queue.add(authorization);
+    return pending;
+  }
+
+  private void recover() {
+    List<PendingAuthorization> recovered = journal.getRecovered();
+    if (recovered.isEmpty()) {
+      return;
+    }
+    LOG.info("Resuming {} pending authorizations from the journal", recovered.size());
+    for (PendingAuthorization authorization : recovered) {
+      PaymentsRepository partition = partitionOf(authorization);
+      if (partition.get(authorization.id()).isEmpty()) {
+        partition.add(pendingResponse(authorization));
+      }
+      queue.add(authorization);
+    }
+  }
+
+  private void work() {
+    while (running) {
+      PendingAuthorization authorization;
+      try {
+        authorization = queue.poll(100, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        continue;
+      }
+      if (authorization == null) {
+        continue;
+      }
+      try {
+        authorize(authorization);
+      } catch (RuntimeException e) {
+        // The entry stays pending in the journal and is retried on the next start
+        LOG.error("Authorization {} failed unexpectedly", authorization.id(), e);
+      }
+    }
+  }
+
+  private void authorize(PendingAuthorization authorization) {
+    PostPaymentRequest request = authorization.request();
+    // The same key on every attempt and after a restart, so an acquirer that has seen the
+    // payment answers with its first outcome instead of authorizing it again
+    String idempotencyKey = authorization.id().toString();
+    BankResponse bankResponse = null;
+    for (int attempt = 1; bankResponse == null; attempt++) {
+      awaitPermit();
+      try {
+        bankResponse = bankClient.authorize(request, Deadline.none(), idempotencyKey);
+      } catch (BankUnavailableException e) {
+        if (attempt >= maxAttempts) {
+          // No acquirer saw the payment, so it cannot have been charged
+          LOG.warn("Authorization {} failed after {} attempts: {}", authorization.id(), attempt,
+              e.getMessage());
+          record(authorization, PaymentResponses.withStatus(authorization.id(), request,
+              PaymentStatus.REJECTED, "NA"));
+          return;
+        }
+        if (!running) {
+          // Left pending in the journal, so the next start retries it
+          LOG.info("Authorization {} left pending at shutdown after {} attempts",
+              authorization.id(), attempt);
+          return;
+        }
+        LockSupport.parkNanos(retryDelayNanos);
+      } catch (EventProcessingException e) {
+        // An acquirer may have authorized the payment without answering. Neither retried nor
+        // rejected: it stays PENDING and in the journal, and the next start asks again under the
+        // same key
+        unresolved.increment();
+        LOG.warn("Authorization {} left pending, the bank may have authorized it: {}",
+            authorization.id(), e.getMessage());
+        return;
+      }
+    }
+    if (!bankResponse.isAuthorized()) {
+      velocityChecker.recordDecline(request);
+    }
+    record(authorization, PaymentResponses.completed(authorization.id(), request, bankResponse));
+  }
+
+  private void record(PendingAuthorization authorization, PostPaymentResponse outcome) {
+    try {
+      partitionOf(authorization).add(outcome);
+      statistics.record(outcome);
+      events.publish(authorization.merchantId(), outcome);
+      journal.complete(authorization);
+    } catch (RuntimeException e) {
+      // The entry stays pending in the journal and is retried on the next start
+      LOG.error("Failed to record outcome of authorization {}: {}", authorization.id(),
+          e.getMessage());
+    }
+  }
+
+  private void awaitPermit() {
+    long permit;
+    synchronized (this) {
+      long now = System.nanoTime();
+      permit = nextPermit - now > 0 ? nextPermit : now;
+      nextPermit = permit + permitIntervalNanos;
+    }
+    LockSupport.parkNanos(permit - System.nanoTime());
+  }
+
+  private PaymentsRepository partitionOf(PendingAuthorization authorization) {
+    return paymentsRepository.forMerchant(authorization.merchantId());
+  }
+
+  private static PostPaymentResponse pendingResponse(PendingAuthorization authorization) {
+    return PaymentResponses.withStatus(authorization.id(), authorization.request(),
+        PaymentStatus.PENDING, null);
+  }
+}
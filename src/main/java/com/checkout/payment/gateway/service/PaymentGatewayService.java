@@ -1,68 +1,180 @@
 package com.checkout.payment.gateway.service;
 
-import com.checkout.payment.gateway.client.BankClient;
+import static com.checkout.payment.gateway.validator.MerchantIdValidator.validateMerchantId;
+
+import com.checkout.payment.gateway.bulkhead.Bulkheads;
+import com.checkout.payment.gateway.deadline.Deadline;
 import com.checkout.payment.gateway.enums.PaymentStatus;
 import com.checkout.payment.gateway.exception.EventProcessingException;
-import com.checkout.payment.gateway.model.BankResponse;
+import com.checkout.payment.gateway.exception.ReadOnlyReplicaException;
+import com.checkout.payment.gateway.exception.StorageUnavailableException;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.pipeline.PaymentContext;
+import com.checkout.payment.gateway.pipeline.PaymentPipeline;
 import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.stats.PaymentStatistics;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import static com.checkout.payment.gateway.validator.PaymentValidator.validatePayment;
-
 @Service
 public class PaymentGatewayService {
 
   private static final Logger LOG = LoggerFactory.getLogger(PaymentGatewayService.class);
 
   private final PaymentsRepository paymentsRepository;
-  private final BankClient bankClient;
+  private final Bulkheads bulkheads;
+  private final PaymentPipeline pipeline;
+  private final PaymentStatistics statistics;
 
-  public PaymentGatewayService(PaymentsRepository paymentsRepository, BankClient bankClient) {
+  @Autowired
+  public PaymentGatewayService(PaymentsRepository paymentsRepository, Bulkheads bulkheads,
+      PaymentPipeline pipeline, PaymentStatistics statistics) {
     this.paymentsRepository = paymentsRepository;
-    this.bankClient = bankClient;
+    this.bulkheads = bulkheads;
+    this.pipeline = pipeline;
+    this.statistics = statistics;
   }
 
   public PostPaymentResponse getPaymentById(UUID id) {
-    LOG.debug("Requesting access to to payment with ID {}", id);
-    return paymentsRepository.get(id).orElseThrow(() -> new EventProcessingException("Invalid ID"));
+    return getPaymentById(null, id);
+  }
+
+  /**
+   * Looks the payment up in the merchant's partition only, so a merchant never reads another's
+   * payments.
+   *
+   * @param merchantId merchant the request was made for, or null if it named none
+   */
+  public PostPaymentResponse getPaymentById(String merchantId, UUID id) {
+    return find(validateMerchantId(merchantId), id);
+  }
+
+  public CompletableFuture<PostPaymentResponse> getPaymentByIdAsync(UUID id) {
+    return getPaymentByIdAsync(null, id);
+  }
+
+  public CompletableFuture<PostPaymentResponse> getPaymentByIdAsync(String merchantId, UUID id) {
+    validateMerchantId(merchantId);
+    return Bulkheads.supply(bulkheads.reads(), () -> find(merchantId, id));
   }
 
   public PostPaymentResponse processPayment(PostPaymentRequest paymentRequest) {
+    return processPayment(paymentRequest, null);
+  }
+
+  /**
+   * Runs every pipeline stage on the calling thread.
+   *
+   * @param sourceAddress client address for per-source velocity limits, or null if unknown
+   */
+  public PostPaymentResponse processPayment(PostPaymentRequest paymentRequest,
+      String sourceAddress) {
+    return processPayment(paymentRequest, sourceAddress, null);
+  }
+
+  /**
+   * @param merchantId merchant to store the payment for, or null if the request named none
+   */
+  public PostPaymentResponse processPayment(PostPaymentRequest paymentRequest,
+      String sourceAddress, String merchantId) {
+    checkWritable();
+    paymentsRepository.openForMerchant(validateMerchantId(merchantId));
+    PaymentContext context = new PaymentContext(paymentRequest, sourceAddress, merchantId);
     try {
-      validatePayment(paymentRequest);
-      BankResponse bankResponse = bankClient.authorize(paymentRequest);
-
-      PostPaymentResponse paymentResponse = PostPaymentResponse.builder()
-          .setId(UUID.randomUUID())
-          .setAuthorizationCode(bankResponse.getAuthorizationCode())
-          .setStatus(
-              bankResponse.isAuthorized() ? PaymentStatus.AUTHORIZED : PaymentStatus.DECLINED)
-          .setCardNumberLastFour(Integer.parseInt(paymentRequest.getCardNumberLastFour()))
-          .setExpiryMonth(paymentRequest.getExpiryMonth())
-          .setExpiryYear(paymentRequest.getExpiryYear())
-          .setCurrency(paymentRequest.getCurrency())
-          .setAmount(paymentRequest.getAmount())
-          .build();
-
-      paymentsRepository.add(paymentResponse);
-      return paymentResponse;
-    } catch (EventProcessingException e) {
-      return PostPaymentResponse.builder()
-          .setId(UUID.randomUUID())
-          .setAuthorizationCode("NA")
-          .setStatus(PaymentStatus.REJECTED)
-          .setCardNumberLastFour(Integer.parseInt(paymentRequest.getCardNumberLastFour()))
-          .setExpiryMonth(paymentRequest.getExpiryMonth())
-          .setExpiryYear(paymentRequest.getExpiryYear())
-          .setCurrency(paymentRequest.getCurrency())
-          .setAmount(paymentRequest.getAmount())
-          .build();
+      return pipeline.run(context).getResponse();
+    } catch (EventProcessingException | StorageUnavailableException e) {
+      return failed(context, e);
     }
   }
-}
 
+  /**
+   * Same outcome as {@link #processPayment}, but each pipeline stage runs on its own executor,
+   * so no servlet thread waits on the bank.
+   */
+  public CompletableFuture<PostPaymentResponse> processPaymentAsync(
+      PostPaymentRequest paymentRequest) {
+    return processPaymentAsync(paymentRequest, null);
+  }
+
+  public CompletableFuture<PostPaymentResponse> processPaymentAsync(
+      PostPaymentRequest paymentRequest, String sourceAddress) {
+    return processPaymentAsync(paymentRequest, sourceAddress, null);
+  }
+
+  public CompletableFuture<PostPaymentResponse> processPaymentAsync(
+      PostPaymentRequest paymentRequest, String sourceAddress, String merchantId) {
+    return processPaymentAsync(paymentRequest, sourceAddress, merchantId, Deadline.none());
+  }
+
+  /**
+   * Fails with {@link com.checkout.payment.gateway.exception.DeadlineExceededException} if the
+   * deadline passes before the payment reaches the bank.
+   */
+  public CompletableFuture<PostPaymentResponse> processPaymentAsync(
+      PostPaymentRequest paymentRequest, String sourceAddress, String merchantId,
+      Deadline deadline) {
+    checkWritable();
+    paymentsRepository.openForMerchant(validateMerchantId(merchantId));
+    PaymentContext context = new PaymentContext(paymentRequest, sourceAddress, merchantId,
+        deadline);
+    return pipeline.execute(context)
+        .thenApply(PaymentContext::getResponse)
+        .exceptionally(e -> {
+          Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+          if (cause instanceof EventProcessingException
+              || cause instanceof StorageUnavailableException) {
+            return failed(context, (RuntimeException) cause);
+          }
+          throw e instanceof CompletionException ce ? ce : new CompletionException(cause);
+        });
+  }
+
+  private PostPaymentResponse find(String merchantId, UUID id) {
+    // Checked first: with a turbo filter installed (actuator's LogbackMetrics is one), debug()
+    // allocates its argument array even when the level is off
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Requesting access to to payment with ID {}", id);
+    }
+    return paymentsRepository.forMerchant(merchantId).get(id)
+        .orElseThrow(() -> new EventProcessingException("Invalid ID"));
+  }
+
+  // Checked before the bank call so a replica never authorizes a payment it cannot store
+  private void checkWritable() {
+    if (paymentsRepository.isReadOnly()) {
+      throw new ReadOnlyReplicaException();
+    }
+  }
+
+  // Once the bank has answered, the payment is reported with the bank's outcome, never as
+  // REJECTED under a new ID: it stands if it was stored, and is failed as unstored if not
+  private PostPaymentResponse failed(PaymentContext context, RuntimeException e) {
+    if (context.getResponse() != null) {
+      return context.getResponse();
+    }
+    if (context.getBankResponse() != null) {
+      PostPaymentResponse unstored = PaymentResponses.completed(context.getPaymentId(),
+          context.getRequest(), context.getBankResponse());
+      throw new StorageUnavailableException("Payment " + unstored.getId() + " was "
+          + unstored.getStatus().getName() + " by the bank but not stored: " + e.getMessage(),
+          unstored);
+    }
+    if (e instanceof StorageUnavailableException storageUnavailable) {
+      throw storageUnavailable;
+    }
+    return rejected(context.getRequest());
+  }
+
+  private PostPaymentResponse rejected(PostPaymentRequest paymentRequest) {
+    PostPaymentResponse rejected = PaymentResponses.withStatus(UUID.randomUUID(), paymentRequest,
+        PaymentStatus.REJECTED, "NA");
+    statistics.record(rejected);
+    return rejected;
+  }
+}
@@ -0,0 +1,327 @@
+package com.checkout.payment.gateway.service;
+
+import static com.checkout.payment.gateway.service.PaymentStateWord.balance;
+import static com.checkout.payment.gateway.service.PaymentStateWord.next;
+import static com.checkout.payment.gateway.service.PaymentStateWord.status;
+import static com.checkout.payment.gateway.validator.MerchantIdValidator.validateMerchantId;
+
+import com.checkout.payment.gateway.bulkhead.Bulkheads;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.events.PaymentEventRing;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.InvalidTransitionException;
+import com.checkout.payment.gateway.exception.ReadOnlyReplicaException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.LongUnaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Captures, voids and refunds authorized payments. Each payment's lifecycle state lives in one
+ * {@link PaymentStateWord} that transitions replace with a compare-and-set, so racing requests
+ * on the same payment can never refund more than was captured. The word is only held while a
+ * transition on the payment is in flight, and is loaded from the repository by the first of
+ * them under the payment's monitor, so the store stays the one record of a payment and
+ * retention applies to it as usual. Words are kept per merchant and ID, as each merchant's
+ * partition is a store of its own, so a request naming the wrong merchant finds nothing and
+ * never gets in the owner's way.
+ */
+@Service
+public class PaymentLifecycleService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentLifecycleService.class);
+
+  private final PaymentsRepository paymentsRepository;
+  private final Bulkheads bulkheads;
+  private final PaymentEventRing events;
+  private final Map<TrackedKey, TrackedPayment> tracked = new ConcurrentHashMap<>();
+  private final LongAdder transitionCount = new LongAdder();
+  private final LongAdder rejectedCount = new LongAdder();
+  private final LongAdder casRetryCount = new LongAdder();
+
+  public PaymentLifecycleService(PaymentsRepository paymentsRepository) {
+    this(paymentsRepository, Bulkheads.inline(), new PaymentEventRing(2));
+  }
+
+  @Autowired
+  public PaymentLifecycleService(PaymentsRepository paymentsRepository, Bulkheads bulkheads,
+      PaymentEventRing events) {
+    this.paymentsRepository = paymentsRepository;
+    this.bulkheads = bulkheads;
+    this.events = events;
+  }
+
+  public PostPaymentResponse capture(UUID id) {
+    return capture(null, id);
+  }
+
+  /**
+   * @param merchantId merchant the request was made for, or null if it named none; payments of
+   *     other merchants are not found
+   */
+  public PostPaymentResponse capture(String merchantId, UUID id) {
+    return transition(merchantId, id, word -> {
+      require(word, "capture", PaymentStatus.AUTHORIZED);
+      return next(word, PaymentStatus.CAPTURED, balance(word));
+    });
+  }
+
+  public PostPaymentResponse voidPayment(UUID id) {
+    return voidPayment(null, id);
+  }
+
+  public PostPaymentResponse voidPayment(String merchantId, UUID id) {
+    return transition(merchantId, id, word -> {
+      require(word, "void", PaymentStatus.AUTHORIZED);
+      return next(word, PaymentStatus.VOIDED, 0);
+    });
+  }
+
+  public PostPaymentResponse refund(UUID id, Integer amount) {
+    return refund(null, id, amount);
+  }
+
+  /**
+   * @param amount amount to refund, or null to refund the whole remaining balance
+   */
+  public PostPaymentResponse refund(String merchantId, UUID id, Integer amount) {
+    return transition(merchantId, id, word -> {
+      require(word, "refund", PaymentStatus.CAPTURED, PaymentStatus.PARTIALLY_REFUNDED);
+      int balance = balance(word);
+      int refund = amount == null ? balance : amount;
+      if (refund <= 0 || refund > balance) {
+        throw new InvalidTransitionException("Cannot refund " + refund
+            + ", refundable balance is " + balance);
+      }
+      int remaining = balance - refund;
+      return next(word, remaining == 0 ? PaymentStatus.REFUNDED
+          : PaymentStatus.PARTIALLY_REFUNDED, remaining);
+    });
+  }
+
+  public CompletableFuture<PostPaymentResponse> captureAsync(UUID id) {
+    return captureAsync(null, id);
+  }
+
+  public CompletableFuture<PostPaymentResponse> captureAsync(String merchantId, UUID id) {
+    validateMerchantId(merchantId);
+    return Bulkheads.supply(bulkheads.writes(), () -> capture(merchantId, id));
+  }
+
+  public CompletableFuture<PostPaymentResponse> voidAsync(UUID id) {
+    return voidAsync(null, id);
+  }
+
+  public CompletableFuture<PostPaymentResponse> voidAsync(String merchantId, UUID id) {
+    validateMerchantId(merchantId);
+    return Bulkheads.supply(bulkheads.writes(), () -> voidPayment(merchantId, id));
+  }
+
+  public CompletableFuture<PostPaymentResponse> refundAsync(UUID id, Integer amount) {
+    return refundAsync(null, id, amount);
+  }
+
+  public CompletableFuture<PostPaymentResponse> refundAsync(String merchantId, UUID id,
+      Integer amount) {
+    validateMerchantId(merchantId);
+    return Bulkheads.supply(bulkheads.writes(), () -> refund(merchantId, id, amount));
+  }
+
+  public long getTransitionCount() {
+    return transitionCount.sum();
+  }
+
+  public long getRejectedCount() {
+    return rejectedCount.sum();
+  }
+
+  /**
+   * Compare-and-set attempts lost to a concurrent transition on the same payment.
+   */
+  public long getCasRetryCount() {
+    return casRetryCount.sum();
+  }
+
+  // Payments with a transition in flight
+  int getTrackedCount() {
+    return tracked.size();
+  }
+
+  private PostPaymentResponse transition(String merchantId, UUID id,
+      LongUnaryOperator transition) {
+    if (paymentsRepository.isReadOnly()) {
+      throw new ReadOnlyReplicaException();
+    }
+    validateMerchantId(merchantId);
+    TrackedKey key = new TrackedKey(merchantId, id);
+    TrackedPayment payment = track(key);
+    try {
+      long current = payment.load(() -> load(merchantId, id));
+      long next;
+      try {
+        while (true) {
+          next = transition.applyAsLong(current);
+          long witness = payment.state.compareAndExchange(current, next);
+          if (witness == current) {
+            break;
+          }
+          casRetryCount.increment();
+          current = witness;
+        }
+      } catch (InvalidTransitionException e) {
+        rejectedCount.increment();
+        throw e;
+      }
+      transitionCount.increment();
+      LOG.debug("Payment {} moved from {} to {}", id, status(current), status(next));
+
+      PostPaymentResponse response = persist(merchantId, id, payment, next);
+      events.publish(merchantId, response);
+      return response;
+    } finally {
+      if (payment.release()) {
+        tracked.remove(key, payment);
+      }
+    }
+  }
+
+  // Returns the payment's word with a hold on it, shared with the transitions already in flight.
+  // A new word is registered before it is loaded, so the load always follows the last write of
+  // the transitions before it.
+  private TrackedPayment track(TrackedKey key) {
+    while (true) {
+      TrackedPayment payment = tracked.get(key);
+      if (payment == null) {
+        TrackedPayment registered = new TrackedPayment();
+        payment = tracked.putIfAbsent(key, registered);
+        if (payment == null) {
+          return registered;
+        }
+      }
+      if (payment.acquire()) {
+        return payment;
+      }
+      // Released by its last transition after this one found it; the repository has its word
+    }
+  }
+
+  private long load(String merchantId, UUID id) {
+    PostPaymentResponse stored = find(merchantId, id);
+    // Pending payments are still owned by the authorization path, so their state must not be
+    // cached until the bank has answered
+    if (stored.getStatus() == null || stored.getStatus() == PaymentStatus.PENDING) {
+      rejectedCount.increment();
+      throw new InvalidTransitionException("Payment " + id + " is not settled yet");
+    }
+    return PaymentStateWord.of(stored.getStatus(), 0, refundableBalance(stored));
+  }
+
+  private PostPaymentResponse find(String merchantId, UUID id) {
+    return paymentsRepository.forMerchant(merchantId).get(id)
+        .orElseThrow(() -> new EventProcessingException("Invalid ID"));
+  }
+
+  // Writes from racing transitions can reach the repository out of order. Rewriting until the
+  // latest word is the one stored guarantees the repository never ends on a superseded state.
+  // Each write starts from the stored payment, so one retention dropped is not brought back and
+  // one it summarized stays a summary.
+  private PostPaymentResponse persist(String merchantId, UUID id, TrackedPayment payment,
+      long word) {
+    PaymentsRepository partition = paymentsRepository.forMerchant(merchantId);
+    PostPaymentResponse response = toResponse(find(merchantId, id), word);
+    PostPaymentResponse written = response;
+    long persisted = word;
+    while (true) {
+      partition.add(written);
+      long latest = payment.state.get();
+      if (latest == persisted) {
+        return response;
+      }
+      persisted = latest;
+      written = toResponse(find(merchantId, id), latest);
+    }
+  }
+
+  private static PostPaymentResponse toResponse(PostPaymentResponse stored, long word) {
+    PaymentStatus status = status(word);
+    boolean refunded = status == PaymentStatus.PARTIALLY_REFUNDED
+        || status == PaymentStatus.REFUNDED;
+    return stored.toBuilder()
+        .setStatus(status)
+        .setRefundedAmount(refunded ? stored.getAmount() - balance(word) : 0)
+        .build();
+  }
+
+  private static void require(long word, String action, PaymentStatus... allowed) {
+    PaymentStatus status = status(word);
+    for (PaymentStatus candidate : allowed) {
+      if (status == candidate) {
+        return;
+      }
+    }
+    throw new InvalidTransitionException("Cannot " + action + " a payment that is "
+        + status.getName());
+  }
+
+  private static int refundableBalance(PostPaymentResponse payment) {
+    return switch (payment.getStatus()) {
+      case AUTHORIZED, CAPTURED -> payment.getAmount();
+      case PARTIALLY_REFUNDED -> payment.getAmount() - payment.getRefundedAmount();
+      default -> 0;
+    };
+  }
+
+  // Null for requests that named no merchant
+  private record TrackedKey(String merchantId, UUID id) {
+  }
+
+  // The state word of a payment with transitions in flight, counted so the last one out can
+  // drop it. Once the count reaches zero the word is retired and never handed out again.
+  private static final class TrackedPayment {
+
+    private final AtomicLong state = new AtomicLong();
+    private final AtomicInteger holds = new AtomicInteger(1);
+    private volatile boolean loaded;
+
+    // The current word, loaded by the first holder; a failed load is left to the next one
+    long load(LongSupplier loader) {
+      if (!loaded) {
+        synchronized (this) {
+          if (!loaded) {
+            state.set(loader.getAsLong());
+            loaded = true;
+          }
+        }
+      }
+      return state.get();
+    }
+
+    boolean acquire() {
+      int current = holds.get();
+      while (current > 0) {
+        int witness = holds.compareAndExchange(current, current + 1);
+        if (witness == current) {
+          return true;
+        }
+        current = witness;
+      }
+      return false;
+    }
+
+    // True if this was the last hold
+    boolean release() {
+      return holds.decrementAndGet() == 0;
+    }
+  }
+}
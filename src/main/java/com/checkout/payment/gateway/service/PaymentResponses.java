@@ -0,0 +1,34 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.BankResponse;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.UUID;
+
+public final class PaymentResponses {
+
+  private PaymentResponses() {
+  }
+
+  public static PostPaymentResponse completed(UUID id, PostPaymentRequest paymentRequest,
+      BankResponse bankResponse) {
+    return withStatus(id, paymentRequest,
+        bankResponse.isAuthorized() ? PaymentStatus.AUTHORIZED : PaymentStatus.DECLINED,
+        bankResponse.getAuthorizationCode());
+  }
+
+  public static PostPaymentResponse withStatus(UUID id, PostPaymentRequest paymentRequest,
+      PaymentStatus status, String authorizationCode) {
+    return PostPaymentResponse.builder()
+        .setId(id)
+        .setAuthorizationCode(authorizationCode)
+        .setStatus(status)
+        .setCardNumberLastFour(Integer.parseInt(paymentRequest.getCardNumberLastFour()))
+        .setExpiryMonth(paymentRequest.getExpiryMonth())
+        .setExpiryYear(paymentRequest.getExpiryYear())
+        .setCurrency(paymentRequest.getCurrency())
+        .setAmount(paymentRequest.getAmount())
+        .build();
+  }
+}
@@ -0,0 +1,39 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+
+/**
+ * Packs a payment's lifecycle state into one long so that a transition is a single CAS: the
+ * status ordinal in the top 4 bits, a 28-bit version and the refundable balance in the low 32
+ * bits. Every transition bumps the version, so a word is never reused for the same payment.
+ */
+final class PaymentStateWord {
+
+  private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+  private static final long VERSION_MASK = (1L << 28) - 1;
+
+  private PaymentStateWord() {
+  }
+
+  static long of(PaymentStatus status, long version, int balance) {
+    return (long) status.ordinal() << 60
+        | (version & VERSION_MASK) << 32
+        | balance & 0xFFFFFFFFL;
+  }
+
+  static long next(long word, PaymentStatus status, int balance) {
+    return of(status, version(word) + 1, balance);
+  }
+
+  static PaymentStatus status(long word) {
+    return STATUSES[(int) (word >>> 60)];
+  }
+
+  static long version(long word) {
+    return word >>> 32 & VERSION_MASK;
+  }
+
+  static int balance(long word) {
+    return (int) word;
+  }
+}
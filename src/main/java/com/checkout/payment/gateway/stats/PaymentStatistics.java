@@ -0,0 +1,211 @@
+package com.checkout.payment.gateway.stats;
+
+import com.checkout.payment.gateway.model.PaymentStatsResponse;
+import com.checkout.payment.gateway.model.PaymentStatsResponse.CurrencyStats;
+import com.checkout.payment.gateway.model.PaymentStatsResponse.MinuteStats;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-currency payment outcomes for the last few minutes, counted as payments are recorded so a
+ * snapshot costs the same however many payments are stored.
+ *
+ * <p>Each minute gets its own bucket in a ring. A bucket is never cleared in place: the first
+ * writer of a new minute swaps a fresh bucket into the slot with a CAS, and the old one can only
+ * be replaced once the ring has wrapped, so no increment is ever lost to a reset.
+ */
+public class PaymentStatistics {
+
+  static final String OTHER_CURRENCY = "OTHER";
+
+  private static final int AUTHORIZED = 0;
+  private static final int DECLINED = 1;
+  private static final int REJECTED = 2;
+  private static final int OUTCOMES = 3;
+
+  private final boolean enabled;
+  private final int currencySlotCount;
+  private final Clock clock;
+  private final AtomicReferenceArray<MinuteBucket> ring;
+  private final Map<String, Integer> currencySlots = new ConcurrentHashMap<>();
+  private final AtomicReferenceArray<String> currencyNames;
+  private final AtomicInteger nextCurrencySlot = new AtomicInteger(1);
+
+  /**
+   * @param maxCurrencies distinct currencies tracked separately; later ones count as OTHER
+   */
+  public PaymentStatistics(int windowMinutes, int maxCurrencies, Clock clock) {
+    this(true, windowMinutes, maxCurrencies, clock);
+  }
+
+  private PaymentStatistics(boolean enabled, int windowMinutes, int maxCurrencies, Clock clock) {
+    this.enabled = enabled;
+    // Slot 0 collects currencies beyond the limit and rejected payments in unknown currencies
+    this.currencySlotCount = maxCurrencies + 1;
+    this.clock = clock;
+    this.ring = new AtomicReferenceArray<>(windowMinutes);
+    this.currencyNames = new AtomicReferenceArray<>(currencySlotCount);
+    this.currencyNames.set(0, OTHER_CURRENCY);
+  }
+
+  public static PaymentStatistics disabled() {
+    return new PaymentStatistics(false, 1, 0, Clock.systemUTC());
+  }
+
+  public int getWindowMinutes() {
+    return ring.length();
+  }
+
+  /**
+   * Counts an authorized, declined or rejected payment; other statuses are ignored.
+   */
+  public void record(PostPaymentResponse payment) {
+    if (!enabled || payment.getStatus() == null) {
+      return;
+    }
+    int outcome;
+    switch (payment.getStatus()) {
+      case AUTHORIZED -> outcome = AUTHORIZED;
+      case DECLINED -> outcome = DECLINED;
+      case REJECTED -> outcome = REJECTED;
+      default -> {
+        return;
+      }
+    }
+    MinuteBucket bucket = bucket(currentMinute());
+    if (bucket == null) {
+      return;
+    }
+    int currency = currencySlot(payment.getCurrency(), outcome != REJECTED);
+    bucket.counts[currency * OUTCOMES + outcome].increment();
+    if (outcome == AUTHORIZED) {
+      bucket.volumes[currency].add(payment.getAmount());
+    }
+  }
+
+  /**
+   * Aggregates the most recent minutes, including the one in progress.
+   */
+  public PaymentStatsResponse snapshot(int minutes) {
+    int window = Math.max(1, Math.min(minutes, ring.length()));
+    long now = currentMinute();
+    Map<String, CurrencyStats> totals = new LinkedHashMap<>();
+    List<MinuteStats> perMinute = new ArrayList<>(window);
+    long[] outcomeTotals = new long[OUTCOMES];
+
+    for (long minute = now - window + 1; minute <= now; minute++) {
+      MinuteBucket bucket = ring.get(index(minute));
+      if (bucket == null || bucket.minute != minute) {
+        continue;
+      }
+      Map<String, CurrencyStats> currencies = new LinkedHashMap<>();
+      for (int slot = 0; slot < currencySlotCount; slot++) {
+        long authorized = bucket.counts[slot * OUTCOMES + AUTHORIZED].sum();
+        long declined = bucket.counts[slot * OUTCOMES + DECLINED].sum();
+        long rejected = bucket.counts[slot * OUTCOMES + REJECTED].sum();
+        if (authorized + declined + rejected == 0) {
+          continue;
+        }
+        CurrencyStats stats = new CurrencyStats(authorized, bucket.volumes[slot].sum(), declined,
+            rejected);
+        String currency = currencyNames.get(slot);
+        currencies.put(currency, stats);
+        totals.merge(currency, stats, CurrencyStats::plus);
+        outcomeTotals[AUTHORIZED] += authorized;
+        outcomeTotals[DECLINED] += declined;
+        outcomeTotals[REJECTED] += rejected;
+      }
+      perMinute.add(new MinuteStats(toInstant(minute), currencies));
+    }
+
+    long decided = outcomeTotals[AUTHORIZED] + outcomeTotals[DECLINED];
+    long all = decided + outcomeTotals[REJECTED];
+    return PaymentStatsResponse.builder()
+        .setFrom(toInstant(now - window + 1))
+        .setTo(toInstant(now + 1))
+        .setAuthorizedCount(outcomeTotals[AUTHORIZED])
+        .setDeclinedCount(outcomeTotals[DECLINED])
+        .setRejectedCount(outcomeTotals[REJECTED])
+        .setDeclineRate(decided == 0 ? 0 : (double) outcomeTotals[DECLINED] / decided)
+        .setRejectRate(all == 0 ? 0 : (double) outcomeTotals[REJECTED] / all)
+        .setCurrencies(totals)
+        .setMinutes(perMinute)
+        .build();
+  }
+
+  private MinuteBucket bucket(long minute) {
+    int index = index(minute);
+    MinuteBucket bucket = ring.get(index);
+    while (bucket == null || bucket.minute < minute) {
+      MinuteBucket fresh = new MinuteBucket(minute, currencySlotCount);
+      MinuteBucket witness = ring.compareAndExchange(index, bucket, fresh);
+      bucket = witness == bucket ? fresh : witness;
+    }
+    // A writer stalled for a whole window finds its minute already reused
+    return bucket.minute == minute ? bucket : null;
+  }
+
+  private int currencySlot(String currency, boolean register) {
+    if (currency == null) {
+      return 0;
+    }
+    Integer slot = currencySlots.get(currency);
+    if (slot != null) {
+      return slot;
+    }
+    // Rejected requests may carry any string, so only validated currencies take a slot
+    if (!register || nextCurrencySlot.get() >= currencySlotCount) {
+      return 0;
+    }
+    slot = currencySlots.computeIfAbsent(currency, key -> {
+      int next = nextCurrencySlot.getAndIncrement();
+      if (next >= currencySlotCount) {
+        return null;
+      }
+      currencyNames.set(next, key);
+      return next;
+    });
+    return slot == null ? 0 : slot;
+  }
+
+  private long currentMinute() {
+    return TimeUnit.MILLISECONDS.toMinutes(clock.millis());
+  }
+
+  private int index(long minute) {
+    return (int) (minute % ring.length());
+  }
+
+  private static Instant toInstant(long minute) {
+    return Instant.ofEpochMilli(TimeUnit.MINUTES.toMillis(minute));
+  }
+
+  private static final class MinuteBucket {
+
+    final long minute;
+    final LongAdder[] counts;
+    final LongAdder[] volumes;
+
+    MinuteBucket(long minute, int currencies) {
+      this.minute = minute;
+      this.counts = new LongAdder[currencies * OUTCOMES];
+      this.volumes = new LongAdder[currencies];
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] = new LongAdder();
+      }
+      for (int i = 0; i < volumes.length; i++) {
+        volumes[i] = new LongAdder();
+      }
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package com.checkout.payment.gateway.validator;
+
+import com.checkout.payment.gateway.exception.InvalidMerchantException;
+import java.util.regex.Pattern;
+
+public class MerchantIdValidator {
+
+  private static final Pattern MERCHANT_ID = Pattern.compile("[A-Za-z0-9_-]{1,32}");
+
+  /**
+   * Returns the ID if it is 1 to 32 letters, digits, '-' or '_', or null, which stands for no
+   * merchant.
+   */
+  public static String validateMerchantId(String merchantId) {
+    if (merchantId != null && !MERCHANT_ID.matcher(merchantId).matches()) {
+      throw new InvalidMerchantException(merchantId);
+    }
+    return merchantId;
+  }
+}
@@ -0,0 +1,178 @@
+package com.checkout.payment.gateway.velocity;
+
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch over a sliding window, split into buckets that are reused round-robin. Each
+ * cell holds several counters per key (attempts and declines, say) and every bucket of each, side
+ * by side, so one row of one lookup touches a single cache line. All counters live in one
+ * preallocated array and are updated with atomic adds, so memory is fixed whatever the number of
+ * keys. Updates are conservative: within the current bucket only the rows at the minimum are
+ * incremented, which keeps the overcount from collisions low without ever undercounting.
+ *
+ * <p>There is one bucket more than the window spans. The spare one has already left the window,
+ * so {@link #prepare} can clear it for the next period off the request path. A bucket is only
+ * published for a period once it has been cleared, so neither a count nor an estimate ever sees
+ * what it held a window ago. A period nobody prepared is cleared by the first thread into it.
+ */
+class SlidingCountMinSketch {
+
+  private static final VarHandle COUNTS = MethodHandles.arrayElementVarHandle(short[].class);
+  // Counters stop here; a key seen this often in one bucket is over any sensible limit
+  private static final int MAX_COUNT = Short.MAX_VALUE - 1024;
+
+  private final int depth;
+  private final int width;
+  private final int counters;
+  private final int buckets;
+  private final int slots;
+  private final long bucketNanos;
+  private final short[] counts;
+  // The period each bucket counts for, the last period a thread set out to clear it for, and the
+  // last period that clear finished for
+  private final AtomicLongArray bucketEpochs;
+  private final AtomicLongArray claimedEpochs;
+  private final AtomicLongArray clearedEpochs;
+
+  SlidingCountMinSketch(int depth, int width, int counters, int buckets, long windowNanos) {
+    if (Integer.bitCount(width) != 1) {
+      throw new EventProcessingException("Sketch width must be a power of two, but got " + width);
+    }
+    if (buckets > 31) {
+      throw new EventProcessingException("At most 31 buckets, but got " + buckets);
+    }
+    this.depth = depth;
+    this.width = width;
+    this.counters = counters;
+    this.buckets = buckets;
+    this.slots = buckets + 1;
+    this.bucketNanos = Math.max(1, windowNanos / buckets);
+    this.counts = new short[depth * width * counters * slots];
+    this.bucketEpochs = new AtomicLongArray(slots);
+    this.claimedEpochs = new AtomicLongArray(slots);
+    this.clearedEpochs = new AtomicLongArray(slots);
+    for (int b = 0; b < slots; b++) {
+      bucketEpochs.set(b, Long.MIN_VALUE);
+      claimedEpochs.set(b, Long.MIN_VALUE);
+      clearedEpochs.set(b, Long.MIN_VALUE);
+    }
+  }
+
+  long getBucketNanos() {
+    return bucketNanos;
+  }
+
+  /**
+   * Counts one occurrence of the key on the given counter and returns an estimate of its count
+   * over the window, this one included.
+   */
+  int add(long key, int counter, long nowNanos) {
+    long epoch = Math.floorDiv(nowNanos, bucketNanos);
+    int current = slot(epoch);
+    advance(current, epoch);
+    int live = liveBuckets(epoch);
+
+    int minSum = Integer.MAX_VALUE;
+    int minCurrent = Integer.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      int cell = cell(key, row, counter);
+      minSum = Math.min(minSum, sum(cell, live));
+      minCurrent = Math.min(minCurrent, (short) COUNTS.getOpaque(counts, cell + current));
+    }
+    if (minCurrent < MAX_COUNT) {
+      for (int row = 0; row < depth; row++) {
+        int cell = cell(key, row, counter);
+        if ((short) COUNTS.getOpaque(counts, cell + current) == minCurrent) {
+          COUNTS.getAndAdd(counts, cell + current, (short) 1);
+        }
+      }
+    }
+    return minSum + 1;
+  }
+
+  int estimate(long key, int counter, long nowNanos) {
+    int live = liveBuckets(Math.floorDiv(nowNanos, bucketNanos));
+    int estimate = Integer.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      estimate = Math.min(estimate, sum(cell(key, row, counter), live));
+    }
+    return estimate;
+  }
+
+  /**
+   * Clears the bucket the period after the one containing {@code nowNanos} will count in, so the
+   * first thread into that period finds it ready.
+   */
+  void prepare(long nowNanos) {
+    long next = Math.floorDiv(nowNanos, bucketNanos) + 1;
+    clear(slot(next), next);
+  }
+
+  private int cell(long key, int row, int counter) {
+    long h2 = (key >>> 32) | 1;
+    int column = (int) ((key + row * h2) & (width - 1));
+    return ((row * width + column) * counters + counter) * slots;
+  }
+
+  private int slot(long epoch) {
+    return (int) Math.floorMod(epoch, (long) slots);
+  }
+
+  private int sum(int cell, int live) {
+    int sum = 0;
+    for (int b = 0; b < slots; b++) {
+      if ((live & (1 << b)) != 0) {
+        sum += (short) COUNTS.getOpaque(counts, cell + b);
+      }
+    }
+    return sum;
+  }
+
+  private int liveBuckets(long epoch) {
+    int live = 0;
+    for (int b = 0; b < slots; b++) {
+      long age = epoch - bucketEpochs.get(b);
+      if (age >= 0 && age < buckets) {
+        live |= 1 << b;
+      }
+    }
+    return live;
+  }
+
+  // Publishes the bucket for a new period once it is clear, clearing it here if prepare() has not
+  private void advance(int bucket, long epoch) {
+    long seen = bucketEpochs.get(bucket);
+    if (seen >= epoch) {
+      return;
+    }
+    clear(bucket, epoch);
+    while (clearedEpochs.get(bucket) < epoch) {
+      // Another thread is part way through clearing it
+      Thread.onSpinWait();
+    }
+    while (seen < epoch && !bucketEpochs.compareAndSet(bucket, seen, epoch)) {
+      seen = bucketEpochs.get(bucket);
+    }
+  }
+
+  // Only ever called for a period whose bucket has left the window, by one thread per period
+  private void clear(int bucket, long epoch) {
+    long claimed = claimedEpochs.get(bucket);
+    if (claimed >= epoch) {
+      return;
+    }
+    while (!claimedEpochs.compareAndSet(bucket, claimed, epoch)) {
+      claimed = claimedEpochs.get(bucket);
+      if (claimed >= epoch) {
+        return;
+      }
+    }
+    for (int i = bucket; i < counts.length; i += slots) {
+      COUNTS.setOpaque(counts, i, (short) 0);
+    }
+    clearedEpochs.accumulateAndGet(bucket, epoch, Math::max);
+  }
+}
@@ -0,0 +1,145 @@
+package com.checkout.payment.gateway.velocity;
+
+import com.checkout.payment.gateway.hash.SipHash;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Card-testing defence ahead of the bank call: attempts and declines per card, and attempts per
+ * source address, over a sliding window. Cards share one {@link SlidingCountMinSketch} with an
+ * attempts and a declines counter per cell; sources, far fewer, get a narrower one. Keys are a
+ * keyed hash, so the sketches hold no card numbers. A background thread clears each sketch's next
+ * bucket ahead of time, so no check pays for wiping one.
+ */
+public class VelocityChecker {
+
+  public enum Limit {
+    CARD_ATTEMPTS, CARD_DECLINES, SOURCE_ATTEMPTS
+  }
+
+  private final boolean enabled;
+  private final int maxCardAttempts;
+  private final int maxCardDeclines;
+  private final int maxSourceAttempts;
+  private final long k0;
+  private final long k1;
+  private static final ThreadLocal<byte[]> HASH_BUFFER =
+      ThreadLocal.withInitial(() -> new byte[64]);
+  private static final int ATTEMPTS = 0;
+  private static final int DECLINES = 1;
+
+  private final SlidingCountMinSketch cards;
+  private final SlidingCountMinSketch sources;
+  private final LongAdder[] blocked = new LongAdder[Limit.values().length];
+  private final ScheduledExecutorService sweeper;
+
+  public VelocityChecker(Duration window, int buckets, int depth, int cardWidth,
+      int sourceWidth, int maxCardAttempts, int maxCardDeclines, int maxSourceAttempts) {
+    this(true, window, buckets, depth, cardWidth, sourceWidth, maxCardAttempts, maxCardDeclines,
+        maxSourceAttempts);
+  }
+
+  private VelocityChecker(boolean enabled, Duration window, int buckets, int depth,
+      int cardWidth, int sourceWidth, int maxCardAttempts, int maxCardDeclines,
+      int maxSourceAttempts) {
+    this.enabled = enabled;
+    this.maxCardAttempts = maxCardAttempts;
+    this.maxCardDeclines = maxCardDeclines;
+    this.maxSourceAttempts = maxSourceAttempts;
+    SecureRandom random = new SecureRandom();
+    this.k0 = random.nextLong();
+    this.k1 = random.nextLong();
+    long windowNanos = window.toNanos();
+    this.cards = new SlidingCountMinSketch(depth, cardWidth, 2, buckets, windowNanos);
+    this.sources = new SlidingCountMinSketch(depth, sourceWidth, 1, buckets, windowNanos);
+    for (int i = 0; i < blocked.length; i++) {
+      blocked[i] = new LongAdder();
+    }
+    if (enabled) {
+      sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "velocity-sweeper");
+        thread.setDaemon(true);
+        return thread;
+      });
+      // Several times a bucket, so the next one is ready well before its period starts
+      long interval = Math.max(1, cards.getBucketNanos() / 4);
+      sweeper.scheduleWithFixedDelay(() -> {
+        long now = System.nanoTime();
+        cards.prepare(now);
+        sources.prepare(now);
+      }, 0, interval, TimeUnit.NANOSECONDS);
+    } else {
+      sweeper = null;
+    }
+  }
+
+  public static VelocityChecker disabled() {
+    return new VelocityChecker(false, Duration.ofSeconds(1), 1, 1, 1, 1, 0, 0, 0);
+  }
+
+  /**
+   * Counts the attempt and returns the limit it breaches, or null if it may go to the bank.
+   * Blocked attempts still count, so a card or source that keeps trying stays blocked.
+   */
+  public Limit check(PostPaymentRequest request, String sourceAddress) {
+    if (!enabled) {
+      return null;
+    }
+    long now = System.nanoTime();
+    long card = hash(request.getCardNumber());
+    Limit breached = null;
+    if (cards.add(card, ATTEMPTS, now) > maxCardAttempts) {
+      breached = Limit.CARD_ATTEMPTS;
+    } else if (cards.estimate(card, DECLINES, now) >= maxCardDeclines) {
+      breached = Limit.CARD_DECLINES;
+    }
+    if (sourceAddress != null && sources.add(hash(sourceAddress), ATTEMPTS, now)
+        > maxSourceAttempts && breached == null) {
+      breached = Limit.SOURCE_ATTEMPTS;
+    }
+    if (breached != null) {
+      blocked[breached.ordinal()].increment();
+    }
+    return breached;
+  }
+
+  public void recordDecline(PostPaymentRequest request) {
+    if (enabled) {
+      cards.add(hash(request.getCardNumber()), DECLINES, System.nanoTime());
+    }
+  }
+
+  public long getBlockedCount(Limit limit) {
+    return blocked[limit.ordinal()].sum();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (sweeper != null) {
+      sweeper.shutdownNow();
+    }
+  }
+
+  private long hash(String value) {
+    if (value == null) {
+      return SipHash.hash(k0, k1, new byte[0], 0);
+    }
+    // Card numbers and addresses are short ASCII; copying them saves an allocation per check
+    byte[] buffer = HASH_BUFFER.get();
+    if (value.length() > buffer.length) {
+      byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+      return SipHash.hash(k0, k1, bytes, bytes.length);
+    }
+    for (int i = 0; i < value.length(); i++) {
+      buffer[i] = (byte) value.charAt(i);
+    }
+    return SipHash.hash(k0, k1, buffer, value.length());
+  }
+}
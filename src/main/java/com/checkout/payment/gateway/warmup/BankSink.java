@@ -0,0 +1,114 @@
+package com.checkout.payment.gateway.warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Answers bank calls in-process, alternating authorizations and declines, so warm-up traffic
+ * exercises the full {@code RestTemplate} encode and decode path without leaving the JVM.
+ */
+public class BankSink implements ClientHttpRequestFactory {
+
+  private static final byte[] AUTHORIZED = "{\"authorized\":true,\"authorization_code\":\"warmup\"}"
+      .getBytes(StandardCharsets.UTF_8);
+  private static final byte[] DECLINED = "{\"authorized\":false,\"authorization_code\":\"\"}"
+      .getBytes(StandardCharsets.UTF_8);
+
+  private final AtomicLong calls = new AtomicLong();
+
+  @Override
+  public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+    return new SinkRequest(uri, httpMethod);
+  }
+
+  public long getCallCount() {
+    return calls.get();
+  }
+
+  private class SinkRequest extends AbstractClientHttpRequest {
+
+    private final URI uri;
+    private final HttpMethod method;
+
+    SinkRequest(URI uri, HttpMethod method) {
+      this.uri = uri;
+      this.method = method;
+    }
+
+    @Override
+    public HttpMethod getMethod() {
+      return method;
+    }
+
+    @Override
+    public URI getURI() {
+      return uri;
+    }
+
+    @Override
+    protected OutputStream getBodyInternal(HttpHeaders headers) {
+      return OutputStream.nullOutputStream();
+    }
+
+    @Override
+    protected ClientHttpResponse executeInternal(HttpHeaders headers) {
+      return new SinkResponse(calls.incrementAndGet() % 2 == 0 ? DECLINED : AUTHORIZED);
+    }
+  }
+
+  private static class SinkResponse implements ClientHttpResponse {
+
+    private final byte[] body;
+    private final HttpHeaders headers = new HttpHeaders();
+
+    SinkResponse(byte[] body) {
+      this.body = body;
+      headers.setContentType(MediaType.APPLICATION_JSON);
+      headers.setContentLength(body.length);
+    }
+
+    @Override
+    public HttpStatusCode getStatusCode() {
+      return HttpStatus.OK;
+    }
+
+    // Still abstract in this Spring version; declared deprecated like the method it implements
+    @Override
+    @Deprecated
+    public int getRawStatusCode() {
+      return HttpStatus.OK.value();
+    }
+
+    @Override
+    public String getStatusText() {
+      return HttpStatus.OK.getReasonPhrase();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return headers;
+    }
+
+    @Override
+    public InputStream getBody() {
+      return new ByteArrayInputStream(body);
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
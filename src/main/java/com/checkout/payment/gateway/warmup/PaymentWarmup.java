@@ -0,0 +1,262 @@
+package com.checkout.payment.gateway.warmup;
+
+import com.checkout.payment.gateway.authorization.AuthorizationJournal;
+import com.checkout.payment.gateway.bulkhead.Bulkheads;
+import com.checkout.payment.gateway.client.BankClient;
+import com.checkout.payment.gateway.deadline.Deadline;
+import com.checkout.payment.gateway.duplicate.DuplicateDetector;
+import com.checkout.payment.gateway.events.PaymentEventRing;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.pipeline.AuthorizeStage;
+import com.checkout.payment.gateway.pipeline.PaymentPipeline;
+import com.checkout.payment.gateway.pipeline.PersistStage;
+import com.checkout.payment.gateway.pipeline.PublishStage;
+import com.checkout.payment.gateway.pipeline.RiskStage;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.service.AsyncAuthorizationService;
+import com.checkout.payment.gateway.service.PaymentGatewayService;
+import com.checkout.payment.gateway.stats.PaymentStatistics;
+import com.checkout.payment.gateway.velocity.VelocityChecker;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Drives synthetic payments through the payment path until the JIT stops compiling, so the
+ * first real payments after a deploy do not run interpreted. Synchronous warm-up payments run
+ * through the configured pipeline on its own executors, and every fourth one is accepted in async
+ * mode and authorized by a worker, as real traffic is. The stages that touch state are swapped
+ * for ones over a {@link BankSink}, a repository that discards writes, and risk checks and a
+ * journal of their own: the real repository, bank and risk state never see warm-up payments.
+ */
+public class PaymentWarmup {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentWarmup.class);
+
+  private static final int MIN_ROUNDS = 3;
+  // A single quiet round is often just the gap between C1 and C2 compiling the same methods
+  private static final int QUIET_ROUNDS = 2;
+  // Enough to keep every stage busy, far from filling a bulkhead
+  private static final int IN_FLIGHT = 16;
+  private static final int ASYNC_WORKERS = 2;
+  private static final Duration DEADLINE = Duration.ofSeconds(10);
+  private static final String[] CURRENCIES = {"USD", "EUR", "GBP"};
+
+  private static final PaymentsRepository DISCARD = new PaymentsRepository() {
+    @Override
+    public void add(PostPaymentResponse payment) {
+    }
+
+    @Override
+    public Optional<PostPaymentResponse> get(UUID id) {
+      return Optional.empty();
+    }
+  };
+
+  private final ObjectMapper objectMapper;
+  private final BankClient bankClient;
+  private final PaymentPipeline pipeline;
+  private final Bulkheads bulkheads;
+  private final int batchSize;
+  private final long maxDurationNanos;
+  private final long settledCompileMillis;
+  private final AtomicLong payments = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private volatile boolean complete;
+  private volatile long elapsedNanos;
+
+  /**
+   * @param converters the application's message converters, so bank calls are encoded and
+   *     decoded by the same code real traffic uses
+   * @param pipeline the configured payment pipeline, whose stage order and executors warm-up
+   *     payments follow
+   * @param bulkheads the application's bulkheads, which run the async mode's acceptance
+   * @param settledCompileTime JIT time a round may add once compilation counts as settled
+   */
+  public PaymentWarmup(ObjectMapper objectMapper, List<HttpMessageConverter<?>> converters,
+      PaymentPipeline pipeline, Bulkheads bulkheads, int batchSize, Duration maxDuration,
+      Duration settledCompileTime) {
+    RestTemplate sinkTemplate = new RestTemplate(converters);
+    sinkTemplate.setRequestFactory(new BankSink());
+    this.objectMapper = objectMapper;
+    // Silent, or every warm-up payment would log its bank call
+    this.bankClient = BankClient.silent(sinkTemplate, "http://warmup.invalid");
+    this.pipeline = pipeline;
+    this.bulkheads = bulkheads;
+    this.batchSize = batchSize;
+    this.maxDurationNanos = maxDuration.toNanos();
+    this.settledCompileMillis = settledCompileTime.toMillis();
+  }
+
+  /**
+   * Runs rounds of {@code batchSize} payments until two rounds in a row add no more than the
+   * settled compile time each, or the maximum duration is reached.
+   */
+  public void run() {
+    CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+    boolean measurable = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+    long start = System.nanoTime();
+    long compiled = measurable ? compiler.getTotalCompilationTime() : 0;
+    int quiet = 0;
+    try (Session session = new Session()) {
+      for (int round = 1; ; round++) {
+        runBatch(session);
+        long roundCompileMillis = 0;
+        if (measurable) {
+          long total = compiler.getTotalCompilationTime();
+          roundCompileMillis = total - compiled;
+          compiled = total;
+        }
+        quiet = roundCompileMillis <= settledCompileMillis ? quiet + 1 : 0;
+        if (round >= MIN_ROUNDS && quiet >= QUIET_ROUNDS) {
+          LOG.info("Warm-up settled after {} payments ({} failed) in {} ms", payments.get(),
+              failed.get(), (System.nanoTime() - start) / 1_000_000);
+          break;
+        }
+        if (System.nanoTime() - start > maxDurationNanos) {
+          LOG.warn("Warm-up stopped after {} payments with the JIT still compiling "
+              + "({} ms in the last round)", payments.get(), roundCompileMillis);
+          break;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      // A node that cannot warm up still serves traffic, just slowly at first
+      LOG.error("Warm-up failed after {} payments", payments.get(), e);
+    } finally {
+      elapsedNanos = System.nanoTime() - start;
+      complete = true;
+    }
+  }
+
+  public boolean isComplete() {
+    return complete;
+  }
+
+  public long getPaymentCount() {
+    return payments.get();
+  }
+
+  public Duration getElapsed() {
+    return Duration.ofNanos(elapsedNanos);
+  }
+
+  public long getFailedCount() {
+    return failed.get();
+  }
+
+  private void runBatch(Session session) {
+    Semaphore inFlight = new Semaphore(IN_FLIGHT);
+    List<CompletableFuture<?>> responses = new ArrayList<>(batchSize);
+    for (int i = 0; i < batchSize; i++) {
+      long n = payments.incrementAndGet();
+      PostPaymentRequest request = bind(requestJson(n));
+      String sourceAddress = "10.0." + (n >> 8 & 0xFF) + "." + (n & 0xFF);
+      inFlight.acquireUninterruptibly();
+      CompletableFuture<PostPaymentResponse> response;
+      try {
+        response = n % 4 == 0
+            ? session.async.accept(request, sourceAddress, null)
+            : session.service.processPaymentAsync(request, sourceAddress, null,
+                Deadline.after(DEADLINE));
+      } catch (RuntimeException e) {
+        response = CompletableFuture.failedFuture(e);
+      }
+      responses.add(response.handle((payment, failure) -> {
+        inFlight.release();
+        if (failure == null) {
+          write(payment);
+        } else {
+          failed.incrementAndGet();
+        }
+        return null;
+      }));
+    }
+    CompletableFuture.allOf(responses.toArray(new CompletableFuture<?>[0])).join();
+  }
+
+  private PostPaymentRequest bind(String json) {
+    try {
+      return objectMapper.readValue(json, PostPaymentRequest.class);
+    } catch (JsonProcessingException e) {
+      throw new EventProcessingException("Synthetic payment failed to bind: " + e.getMessage());
+    }
+  }
+
+  private void write(PostPaymentResponse payment) {
+    try {
+      objectMapper.writeValueAsString(payment);
+    } catch (JsonProcessingException e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  // Every tenth payment has an expired card so the rejection path is compiled too
+  private static String requestJson(long n) {
+    return "{\"card_number\":\"" + (4_000_000_000_000_000L + n % 1_000_000) + "\","
+        + "\"expiry_month\":" + (n % 12 + 1) + ","
+        + "\"expiry_year\":" + (n % 10 == 0 ? 2001 : 2030 + n % 5) + ","
+        + "\"currency\":\"" + CURRENCIES[(int) (n % CURRENCIES.length)] + "\","
+        + "\"amount\":" + (100 + n % 9_000) + ","
+        + "\"cvv\":" + (100 + n % 900) + "}";
+  }
+
+  // Everything warm-up payments write to, discarded once warm-up is over
+  private final class Session implements AutoCloseable {
+
+    private final DuplicateDetector duplicateDetector =
+        new DuplicateDetector(DuplicateDetector.Mode.FLAG, Duration.ofSeconds(10), 10_000);
+    private final VelocityChecker velocityChecker = new VelocityChecker(Duration.ofMinutes(1), 6,
+        2, 4096, 1024, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    private final Path directory;
+    private final AuthorizationJournal journal;
+    private final PaymentGatewayService service;
+    private final AsyncAuthorizationService async;
+
+    Session() throws IOException {
+      PaymentEventRing events = new PaymentEventRing(1024);
+      RiskStage riskStage = new RiskStage(duplicateDetector, velocityChecker);
+      this.directory = Files.createTempDirectory("payments-warmup");
+      this.journal = new AuthorizationJournal(directory, AuthorizationJournal.generateKey());
+      this.service = new PaymentGatewayService(DISCARD, bulkheads, pipeline.replacing(List.of(
+          riskStage, new AuthorizeStage(bankClient, velocityChecker), new PersistStage(DISCARD),
+          new PublishStage(events))), PaymentStatistics.disabled());
+      this.async = new AsyncAuthorizationService(DISCARD, bankClient, journal, bulkheads, events,
+          PaymentStatistics.disabled(), riskStage, velocityChecker, ASYNC_WORKERS,
+          Integer.MAX_VALUE, Double.MAX_VALUE, 1, Duration.ZERO);
+    }
+
+    @Override
+    public void close() throws IOException {
+      async.shutdown();
+      journal.close();
+      duplicateDetector.shutdown();
+      velocityChecker.shutdown();
+      try (Stream<Path> files = Files.list(directory)) {
+        for (Path file : (Iterable<Path>) files::iterator) {
+          Files.delete(file);
+        }
+      }
+      Files.delete(directory);
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package com.checkout.payment.gateway;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Time from process start to the first successful {@code POST /payment}, and resident memory at
+ * that point, for the boot jar, the plain class path with and without AOT processing, the AOT
+ * build with its AppCDS archive and, where it was built, the native executable. Run through
+ * {@code ./gradlew -PfastStartup startupBenchmark}, which builds the artifacts and passes their
+ * paths in.
+ */
+@Tag("benchmark")
+@DisplayName("Startup time and memory per build mode")
+class StartupBenchmark {
+
+  private static final int RUNS = 3;
+  private static final String PAYMENT = """
+      {"card_number": "4532015112830366", "expiry_month": 12, "expiry_year": 2030,
+       "currency": "USD", "amount": 1050, "cvv": 123}""";
+
+  private final HttpClient client = HttpClient.newBuilder()
+      .connectTimeout(Duration.ofSeconds(1))
+      .build();
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void measureStartup() throws Exception {
+    String jar = System.getProperty("startup.jar");
+    assumeTrue(jar != null, "Run through the startupBenchmark task");
+    String java = System.getProperty("startup.java");
+    // The AppCDS archive records the class path as it was given, so run from the jar's directory
+    Path fastJar = Path.of(System.getProperty("startup.fast-jar"));
+    Path fastStartupDir = fastJar.getParent();
+    String fastJarName = fastJar.getFileName().toString();
+    String cdsArchive = System.getProperty("startup.cds-archive");
+
+    Map<String, List<String>> modes = new LinkedHashMap<>();
+    modes.put("jar", List.of(java, "-jar", jar));
+    modes.put("classpath", List.of(java, "-jar", fastJarName));
+    modes.put("aot", List.of(java, "-Dspring.aot.enabled=true", "-jar", fastJarName));
+    modes.put("aot+cds", List.of(java, "-XX:SharedArchiveFile=" + cdsArchive,
+        "-Dspring.aot.enabled=true", "-jar", fastJarName));
+    if (System.getProperty("startup.native") != null) {
+      modes.put("native", List.of(System.getProperty("startup.native")));
+    }
+
+    HttpServer bank = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    bank.createContext("/payments", exchange -> {
+      byte[] body = "{\"authorized\":true,\"authorization_code\":\"startup\"}"
+          .getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    bank.start();
+    try {
+      for (Map.Entry<String, List<String>> mode : modes.entrySet()) {
+        long[] millis = new long[RUNS];
+        long[] rssKb = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+          long[] result = startOnce(mode.getValue(), fastStartupDir, bank.getAddress().getPort(),
+              directory.resolve(mode.getKey() + "-" + run));
+          millis[run] = result[0];
+          rssKb[run] = result[1];
+        }
+        Arrays.sort(millis);
+        Arrays.sort(rssKb);
+        System.out.printf("%-9s first payment after %5d ms, RSS %4d MB (median of %d)%n",
+            mode.getKey(), millis[RUNS / 2], rssKb[RUNS / 2] / 1024, RUNS);
+      }
+    } finally {
+      bank.stop(0);
+    }
+  }
+
+  // Returns {milliseconds to the first successful payment, resident set size in KB}
+  private long[] startOnce(List<String> command, Path workingDir, int bankPort, Path data)
+      throws Exception {
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    List<String> arguments = new ArrayList<>(command);
+    arguments.addAll(List.of("--server.port=" + port,
+        "--bank.simulator.url=http://localhost:" + bankPort,
+        "--payments.warmup.enabled=false",
+        "--payments.grpc.port=0",
+        "--payments.async.directory=" + data.resolve("async"),
+        "--payments.cold.directory=" + data.resolve("cold")));
+    HttpRequest payment = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/payment"))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(PAYMENT))
+        .build();
+
+    long start = System.nanoTime();
+    Process process = new ProcessBuilder(arguments)
+        .directory(workingDir.toFile())
+        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+        .redirectError(ProcessBuilder.Redirect.DISCARD)
+        .start();
+    try {
+      long deadline = start + TimeUnit.MINUTES.toNanos(2);
+      while (true) {
+        if (!process.isAlive() || System.nanoTime() > deadline) {
+          throw new IllegalStateException("No successful payment from " + command);
+        }
+        try {
+          if (client.send(payment, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+            break;
+          }
+        } catch (IOException e) {
+          // Not listening yet
+        }
+        Thread.sleep(5);
+      }
+      long elapsed = System.nanoTime() - start;
+      return new long[] {TimeUnit.NANOSECONDS.toMillis(elapsed), residentKb(process.pid())};
+    } finally {
+      process.destroy();
+      if (!process.waitFor(10, TimeUnit.SECONDS)) {
+        process.destroyForcibly();
+      }
+    }
+  }
+
+  private static long residentKb(long pid) throws IOException {
+    Path status = Path.of("/proc", String.valueOf(pid), "status");
+    if (!Files.exists(status)) {
+      return 0;
+    }
+    for (String line : Files.readAllLines(status)) {
+      if (line.startsWith("VmRSS:")) {
+        return Long.parseLong(line.replaceAll("\\D", ""));
+      }
+    }
+    return 0;
+  }
+}
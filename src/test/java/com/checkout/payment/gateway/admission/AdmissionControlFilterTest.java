@@ -0,0 +1,105 @@
+package com.checkout.payment.gateway.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+@DisplayName("AdmissionControlFilter Tests")
+class AdmissionControlFilterTest {
+
+  private AdmissionController controller;
+  private AdmissionControlFilter filter;
+
+  @BeforeEach
+  void setUp() {
+    controller = new AdmissionController(1, 0, 0, Duration.ofMillis(10), Duration.ofMillis(5),
+        Duration.ofMillis(100));
+    filter = new AdmissionControlFilter(controller, new ObjectMapper(), Duration.ofSeconds(2));
+  }
+
+  @Test
+  @DisplayName("Should pass admitted requests through and release their slot")
+  void testAdmittedRequest() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(new MockHttpServletRequest("POST", "/payment"), response,
+        new MockFilterChain());
+
+    assertEquals(200, response.getStatus());
+    assertNull(response.getHeader("Retry-After"));
+    assertEquals(0, controller.getInFlight());
+  }
+
+  @Test
+  @DisplayName("Should hold the slot of an asynchronous request until it completes")
+  void testAsyncRequestReleasedOnComplete() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/payment");
+    request.setAsyncSupported(true);
+
+    filter.doFilter(request, new MockHttpServletResponse(),
+        (req, res) -> req.startAsync(req, res));
+
+    assertEquals(1, controller.getInFlight());
+    ((MockAsyncContext) request.getAsyncContext()).complete();
+    assertEquals(0, controller.getInFlight());
+  }
+
+  @Test
+  @DisplayName("Should answer 429 with Retry-After when the write queue is full")
+  void testQueueFull() throws Exception {
+    controller.admit(AdmissionController.RequestClass.WRITE);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(new MockHttpServletRequest("POST", "/payment"), response,
+        new MockFilterChain());
+
+    assertEquals(429, response.getStatus());
+    assertEquals("2", response.getHeader("Retry-After"));
+  }
+
+  @Test
+  @DisplayName("Should answer 503 with Retry-After when a read is shed")
+  void testReadShed() throws Exception {
+    controller.admit(AdmissionController.RequestClass.READ);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(new MockHttpServletRequest("GET", "/payment/123"), response,
+        new MockFilterChain());
+
+    assertEquals(503, response.getStatus());
+    assertEquals("2", response.getHeader("Retry-After"));
+  }
+
+  @Test
+  @DisplayName("Should not gate requests outside the payment API")
+  void testOtherPathsBypass() throws Exception {
+    controller.admit(AdmissionController.RequestClass.READ);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), response,
+        new MockFilterChain());
+
+    assertEquals(200, response.getStatus());
+  }
+
+  @Test
+  @DisplayName("Should not gate the payment event stream")
+  void testEventStreamBypass() throws Exception {
+    controller.admit(AdmissionController.RequestClass.READ);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(new MockHttpServletRequest("GET", "/payments/events"), response,
+        new MockFilterChain());
+
+    assertEquals(200, response.getStatus());
+  }
+}
@@ -0,0 +1,83 @@
+package com.checkout.payment.gateway.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.admission.AdmissionController.Decision;
+import com.checkout.payment.gateway.admission.AdmissionController.RequestClass;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("AdmissionController Tests")
+class AdmissionControllerTest {
+
+  @Test
+  @DisplayName("Should keep reserved slots for reads when writes fill up")
+  void testReadsKeepReservedCapacity() throws InterruptedException {
+    AdmissionController controller = new AdmissionController(3, 1, 0, Duration.ofMillis(10),
+        Duration.ofMillis(5), Duration.ofMillis(100));
+
+    assertEquals(Decision.ADMITTED, controller.admit(RequestClass.WRITE));
+    assertEquals(Decision.ADMITTED, controller.admit(RequestClass.WRITE));
+    assertEquals(Decision.QUEUE_FULL, controller.admit(RequestClass.WRITE));
+    assertEquals(Decision.ADMITTED, controller.admit(RequestClass.READ));
+    assertEquals(Decision.SHED, controller.admit(RequestClass.READ));
+    assertEquals(3, controller.getInFlight());
+  }
+
+  @Test
+  @DisplayName("Should admit a queued write when a slot is released")
+  void testQueuedWriteAdmittedOnRelease() throws Exception {
+    AdmissionController controller = new AdmissionController(1, 0, 1, Duration.ofSeconds(5),
+        Duration.ofMillis(5), Duration.ofSeconds(10));
+    controller.admit(RequestClass.WRITE);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Decision> queued = executor.submit(() -> controller.admit(RequestClass.WRITE));
+      while (controller.getQueued() == 0) {
+        Thread.sleep(1);
+      }
+
+      controller.release();
+
+      assertEquals(Decision.ADMITTED, queued.get(5, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  @DisplayName("Should shed a queued write once it waited past the queue timeout")
+  void testQueueTimeout() throws InterruptedException {
+    AdmissionController controller = new AdmissionController(1, 0, 1, Duration.ofMillis(20),
+        Duration.ofMillis(5), Duration.ofSeconds(10));
+    controller.admit(RequestClass.WRITE);
+
+    assertEquals(Decision.SHED, controller.admit(RequestClass.WRITE));
+    assertEquals(1, controller.getShedCount());
+  }
+
+  @Test
+  @DisplayName("Should detect a standing queue and recover once it drains")
+  void testCodelOverloadDetection() throws InterruptedException {
+    AdmissionController controller = new AdmissionController(1, 0, 1, Duration.ofMillis(20),
+        Duration.ofMillis(1), Duration.ofMillis(10));
+    controller.admit(RequestClass.WRITE);
+
+    // Every wait in this interval exceeds the target
+    controller.admit(RequestClass.WRITE);
+    controller.admit(RequestClass.WRITE);
+    assertTrue(controller.isOverloaded());
+
+    controller.release();
+    Thread.sleep(15);
+    assertEquals(Decision.ADMITTED, controller.admit(RequestClass.WRITE));
+    assertFalse(controller.isOverloaded());
+  }
+}
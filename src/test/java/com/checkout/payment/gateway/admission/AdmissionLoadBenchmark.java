@@ -0,0 +1,98 @@
+package com.checkout.payment.gateway.admission;
+
+import com.checkout.payment.gateway.admission.AdmissionController.Decision;
+import com.checkout.payment.gateway.admission.AdmissionController.RequestClass;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Open-loop load against a simulated node: 200 worker threads (Tomcat's default) in front of a
+ * bank that serves 20 authorizations at a time in 50 ms each, i.e. 400 payments/s. Goodput
+ * counts payments that completed within the merchant's 1 s timeout.
+ */
+@Tag("benchmark")
+@DisplayName("Goodput under overload with and without admission control")
+class AdmissionLoadBenchmark {
+
+  private static final int BANK_CONCURRENCY = 20;
+  private static final long BANK_LATENCY_MILLIS = 50;
+  private static final double CAPACITY_PER_SECOND =
+      BANK_CONCURRENCY * 1000.0 / BANK_LATENCY_MILLIS;
+  private static final long SLO_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final int SECONDS = 8;
+
+  @Test
+  void compareGoodput() throws InterruptedException {
+    for (double overload : new double[]{1.0, 3.0}) {
+      report("no admission control", overload, run(overload, null));
+      report("admission control", overload, run(overload, new AdmissionController(
+          BANK_CONCURRENCY + 10, 0, 10, Duration.ofMillis(100), Duration.ofMillis(5),
+          Duration.ofMillis(100))));
+    }
+  }
+
+  private static Result run(double overload, AdmissionController admission)
+      throws InterruptedException {
+    ExecutorService workers = Executors.newFixedThreadPool(200);
+    Semaphore bank = new Semaphore(BANK_CONCURRENCY);
+    AtomicLong good = new AtomicLong();
+    AtomicLong late = new AtomicLong();
+    AtomicLong rejected = new AtomicLong();
+    long intervalNanos = (long) (1e9 / (CAPACITY_PER_SECOND * overload));
+    long start = System.nanoTime();
+    long end = start + TimeUnit.SECONDS.toNanos(SECONDS);
+
+    for (long next = start; next < end; next += intervalNanos) {
+      long arrival = next;
+      LockSupport.parkNanos(arrival - System.nanoTime());
+      workers.execute(() -> {
+        try {
+          if (admission != null && admission.admit(RequestClass.WRITE) != Decision.ADMITTED) {
+            rejected.incrementAndGet();
+            return;
+          }
+          try {
+            bank.acquire();
+            try {
+              Thread.sleep(BANK_LATENCY_MILLIS);
+            } finally {
+              bank.release();
+            }
+          } finally {
+            if (admission != null) {
+              admission.release();
+            }
+          }
+          if (System.nanoTime() - arrival <= SLO_NANOS) {
+            good.incrementAndGet();
+          } else {
+            late.incrementAndGet();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+    }
+    // Anything still queued when the run ends has already blown the timeout
+    workers.shutdownNow();
+    workers.awaitTermination(10, TimeUnit.SECONDS);
+    return new Result(good.get(), late.get(), rejected.get());
+  }
+
+  private static void report(String mode, double overload, Result result) {
+    System.out.printf("%.0fx load, %-21s goodput %,5.0f/s (%.0f%% of capacity), "
+            + "late %,6d, rejected %,6d%n", overload, mode, result.good() / (double) SECONDS,
+        100 * result.good() / (CAPACITY_PER_SECOND * SECONDS), result.late(), result.rejected());
+  }
+
+  private record Result(long good, long late, long rejected) {
+  }
+}
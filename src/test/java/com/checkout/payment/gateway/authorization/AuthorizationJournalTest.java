@@ -0,0 +1,167 @@
+package com.checkout.payment.gateway.authorization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("AuthorizationJournal Tests")
+class AuthorizationJournalTest {
+
+  static final byte[] KEY = AuthorizationJournal.generateKey();
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  @DisplayName("Should recover entries that were still pending when the journal was closed")
+  void testRecoverPendingEntries() {
+    UUID completedId = UUID.randomUUID();
+    UUID pendingId = UUID.randomUUID();
+    PostPaymentRequest request = createPaymentRequest("4532015112830366");
+    try (AuthorizationJournal journal = new AuthorizationJournal(tempDir, KEY)) {
+      PendingAuthorization completed = journal.append(completedId, request);
+      journal.append(pendingId, request);
+      journal.complete(completed);
+      assertEquals(1, journal.getPendingCount());
+    }
+
+    try (AuthorizationJournal journal = new AuthorizationJournal(tempDir, KEY)) {
+      List<PendingAuthorization> recovered = journal.getRecovered();
+
+      assertEquals(1, recovered.size());
+      assertEquals(pendingId, recovered.get(0).id());
+      assertEquals(request, recovered.get(0).request());
+      assertEquals(1, journal.getPendingCount());
+    }
+  }
+
+  @Test
+  @DisplayName("Should round-trip card numbers of every allowed length")
+  void testCardNumberLengths() {
+    try (AuthorizationJournal journal = new AuthorizationJournal(tempDir, KEY)) {
+      journal.append(UUID.randomUUID(), createPaymentRequest("45320151128303"));
+      journal.append(UUID.randomUUID(), createPaymentRequest("4532015112830366123"));
+    }
+
+    try (AuthorizationJournal journal = new AuthorizationJournal(tempDir, KEY)) {
+      assertEquals("45320151128303",
+          journal.getRecovered().get(0).request().getCardNumber());
+      assertEquals("4532015112830366123",
+          journal.getRecovered().get(1).request().getCardNumber());
+    }
+  }
+
+  @Test
+  @DisplayName("Should empty the file once nothing is pending")
+  void testTruncatesWhenDrained() throws IOException {
+    Path file = tempDir.resolve(AuthorizationJournal.FILE_NAME);
+    try (AuthorizationJournal journal = new AuthorizationJournal(tempDir, KEY)) {
+      PendingAuthorization first = journal.append(UUID.randomUUID(),
+          createPaymentRequest("4532015112830366"));
+      PendingAuthorization second = journal.append(UUID.randomUUID(),
+          createPaymentRequest("4532015112830366"));
+      journal.complete(first);
+      assertEquals(2L * AuthorizationJournal.ENTRY_SIZE, Files.size(file));
+
+      journal.complete(second);
+      assertEquals(0, Files.size(file));
+
+      PendingAuthorization next = journal.append(UUID.randomUUID(),
+          createPaymentRequest("4532015112830366"));
+      assertEquals(0, next.seq());
+    }
+  }
+
+  @Test
+  @DisplayName("Should ignore a partially written entry left by a crash")
+  void testDropsPartialEntry() throws IOException {
+    try (AuthorizationJournal journal = new AuthorizationJournal(tempDir, KEY)) {
+      journal.append(UUID.randomUUID(), createPaymentRequest("4532015112830366"));
+    }
+    Files.write(tempDir.resolve(AuthorizationJournal.FILE_NAME), new byte[10],
+        StandardOpenOption.APPEND);
+
+    try (AuthorizationJournal journal = new AuthorizationJournal(tempDir, KEY)) {
+      assertEquals(1, journal.getRecovered().size());
+      assertEquals(1, journal.append(UUID.randomUUID(),
+          createPaymentRequest("4532015112830366")).seq());
+    }
+  }
+
+  @Test
+  @DisplayName("Should recover the merchant of each pending entry")
+  void testRecoverMerchant() {
+    String longest = "m".repeat(32);
+    try (AuthorizationJournal journal = new AuthorizationJournal(tempDir, KEY)) {
+      journal.append(UUID.randomUUID(), createPaymentRequest("4532015112830366"), "merchant-a");
+      journal.append(UUID.randomUUID(), createPaymentRequest("4532015112830366"), longest);
+      journal.append(UUID.randomUUID(), createPaymentRequest("4532015112830366"));
+    }
+
+    try (AuthorizationJournal journal = new AuthorizationJournal(tempDir, KEY)) {
+      List<PendingAuthorization> recovered = journal.getRecovered();
+
+      assertEquals("merchant-a", recovered.get(0).merchantId());
+      assertEquals(longest, recovered.get(1).merchantId());
+      assertNull(recovered.get(2).merchantId());
+    }
+  }
+
+  @Test
+  @DisplayName("Should keep the card number and CVV off the disk in the clear")
+  void testSealsEntries() throws IOException {
+    Path file = tempDir.resolve(AuthorizationJournal.FILE_NAME);
+    try (AuthorizationJournal journal = new AuthorizationJournal(tempDir, KEY)) {
+      PendingAuthorization done = journal.append(UUID.randomUUID(),
+          createPaymentRequest("4532015112830366"));
+      journal.append(UUID.randomUUID(), createPaymentRequest("4532015112830366"));
+
+      String contents = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+      assertFalse(contents.contains("4532015112830366"));
+      assertFalse(contents.contains("0366"));
+
+      journal.complete(done);
+      byte[] erased = new byte[AuthorizationJournal.ENTRY_SIZE - 1];
+      System.arraycopy(Files.readAllBytes(file), 1, erased, 0, erased.length);
+      assertArrayEquals(new byte[erased.length], erased);
+    }
+  }
+
+  @Test
+  @DisplayName("Should leave out entries written under another key")
+  void testSkipsEntriesUnderAnotherKey() {
+    try (AuthorizationJournal journal = new AuthorizationJournal(tempDir, KEY)) {
+      journal.append(UUID.randomUUID(), createPaymentRequest("4532015112830366"));
+    }
+
+    try (AuthorizationJournal journal = new AuthorizationJournal(tempDir,
+        AuthorizationJournal.generateKey())) {
+      assertTrue(journal.getRecovered().isEmpty());
+    }
+  }
+
+  static PostPaymentRequest createPaymentRequest(String cardNumber) {
+    PostPaymentRequest request = new PostPaymentRequest();
+    request.setCardNumber(cardNumber);
+    request.setExpiryMonth(12);
+    request.setExpiryYear(2030);
+    request.setCurrency("GBP");
+    request.setAmount(1050);
+    request.setCvv(1234);
+    return request;
+  }
+}
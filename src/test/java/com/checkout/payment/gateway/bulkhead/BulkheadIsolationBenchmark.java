@@ -0,0 +1,159 @@
+package com.checkout.payment.gateway.bulkhead;
+
+import com.checkout.payment.gateway.client.BankClient;
+import com.checkout.payment.gateway.deadline.Deadline;
+import com.checkout.payment.gateway.duplicate.DuplicateDetector;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.events.PaymentEventRing;
+import com.checkout.payment.gateway.model.BankResponse;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.pipeline.PaymentPipeline;
+import com.checkout.payment.gateway.repository.InMemoryPaymentsRepository;
+import com.checkout.payment.gateway.service.PaymentGatewayService;
+import com.checkout.payment.gateway.stats.PaymentStatistics;
+import com.checkout.payment.gateway.velocity.VelocityChecker;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A bank that takes 2 s per authorization is flooded with 300 POSTs/s while 50 GETs/s measure
+ * lookup latency. 200 worker threads stand in for Tomcat's pool: without bulkheads they block on
+ * the bank, with bulkheads they only hand the request over, as Spring MVC does for a
+ * {@link CompletableFuture} return value.
+ */
+@Tag("benchmark")
+@DisplayName("Read latency behind a slow bank with and without bulkheads")
+class BulkheadIsolationBenchmark {
+
+  private static final long BANK_LATENCY_MILLIS = 2000;
+  private static final int POSTS_PER_SECOND = 300;
+  private static final int GETS_PER_SECOND = 50;
+  private static final int SECONDS = 6;
+
+  @Test
+  void compareReadLatency() throws InterruptedException {
+    report("no bulkheads", run(false));
+    report("bulkheads", run(true));
+  }
+
+  private static Result run(boolean isolated) throws InterruptedException {
+    InMemoryPaymentsRepository repository = new InMemoryPaymentsRepository();
+    UUID existing = UUID.randomUUID();
+    repository.add(PostPaymentResponse.builder().setId(existing)
+        .setStatus(PaymentStatus.AUTHORIZED).build());
+    List<Bulkhead> pools = isolated
+        ? List.of(new Bulkhead("reads", 16, 1000), new Bulkhead("writes", 16, 1000),
+            new Bulkhead("bank", 100, 200))
+        : List.of();
+    Bulkheads bulkheads = isolated
+        ? new Bulkheads(pools.get(0), pools.get(1), pools.get(2))
+        : Bulkheads.inline();
+    PaymentGatewayService service = new PaymentGatewayService(repository, bulkheads,
+        PaymentPipeline.standard(repository, new SlowBankClient(), bulkheads,
+            new PaymentEventRing(2), DuplicateDetector.disabled(), VelocityChecker.disabled()),
+        PaymentStatistics.disabled());
+
+    ExecutorService servletThreads = Executors.newFixedThreadPool(200);
+    List<Long> readLatencies = new CopyOnWriteArrayList<>();
+    AtomicLong writeFailures = new AtomicLong();
+    long postInterval = TimeUnit.SECONDS.toNanos(1) / POSTS_PER_SECOND;
+    long getInterval = TimeUnit.SECONDS.toNanos(1) / GETS_PER_SECOND;
+    long start = System.nanoTime();
+    long end = start + TimeUnit.SECONDS.toNanos(SECONDS);
+    long nextPost = start;
+    long nextGet = start;
+
+    while (nextPost < end || nextGet < end) {
+      if (nextPost <= nextGet) {
+        LockSupport.parkNanos(nextPost - System.nanoTime());
+        servletThreads.execute(() -> {
+          try {
+            if (isolated) {
+              service.processPaymentAsync(createPaymentRequest())
+                  .exceptionally(e -> {
+                    writeFailures.incrementAndGet();
+                    return null;
+                  });
+            } else {
+              service.processPayment(createPaymentRequest());
+            }
+          } catch (RuntimeException e) {
+            writeFailures.incrementAndGet();
+          }
+        });
+        nextPost += postInterval;
+      } else {
+        LockSupport.parkNanos(nextGet - System.nanoTime());
+        long arrival = System.nanoTime();
+        servletThreads.execute(() -> {
+          CompletableFuture<PostPaymentResponse> read = isolated
+              ? service.getPaymentByIdAsync(existing)
+              : CompletableFuture.completedFuture(service.getPaymentById(existing));
+          read.thenRun(() -> readLatencies.add(System.nanoTime() - arrival));
+        });
+        nextGet += getInterval;
+      }
+    }
+    // Reads still queued behind bank calls after the drain deadline never complete; the completed
+    // count shows how many were lost that way
+    servletThreads.shutdown();
+    servletThreads.awaitTermination(BANK_LATENCY_MILLIS * 4, TimeUnit.MILLISECONDS);
+    servletThreads.shutdownNow();
+    pools.forEach(Bulkhead::close);
+    return new Result(readLatencies.stream().mapToLong(Long::longValue).toArray(),
+        writeFailures.get());
+  }
+
+  private static void report(String mode, Result result) {
+    long[] latencies = result.readLatencies();
+    Arrays.sort(latencies);
+    System.out.printf("%-13s reads completed %4d, p50 %,8.1f ms, p99 %,8.1f ms, "
+            + "writes refused %,5d%n", mode, latencies.length,
+        percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6,
+        result.writeFailures());
+  }
+
+  private static long percentile(long[] sorted, double percentile) {
+    return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1,
+        Math.ceil(percentile * sorted.length) - 1)];
+  }
+
+  private static PostPaymentRequest createPaymentRequest() {
+    PostPaymentRequest request = new PostPaymentRequest();
+    request.setCardNumber("4532015112830367");
+    request.setExpiryMonth(12);
+    request.setExpiryYear(2030);
+    request.setCurrency("USD");
+    request.setAmount(1050);
+    request.setCvv(123);
+    return request;
+  }
+
+  private static class SlowBankClient extends BankClient {
+
+    SlowBankClient() {
+      super(null, "http://bank.invalid");
+    }
+
+    @Override
+    public BankResponse authorize(PostPaymentRequest paymentRequest, Deadline deadline) {
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(BANK_LATENCY_MILLIS));
+      return new BankResponse(true, UUID.randomUUID().toString());
+    }
+  }
+
+  private record Result(long[] readLatencies, long writeFailures) {
+  }
+}
@@ -0,0 +1,60 @@
+package com.checkout.payment.gateway.bulkhead;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.exception.BulkheadFullException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Bulkhead Tests")
+class BulkheadTest {
+
+  @Test
+  @DisplayName("Should reject work once threads and queue are full")
+  void testRejectsWhenFull() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    try (Bulkhead bulkhead = new Bulkhead("bank", 1, 1)) {
+      bulkhead.execute(() -> {
+        started.countDown();
+        await(release);
+      });
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      bulkhead.execute(() -> { });
+
+      assertThrows(BulkheadFullException.class, () -> bulkhead.execute(() -> { }));
+      assertEquals(1, bulkhead.getRejectedCount());
+      assertEquals(1.0, bulkhead.getSaturation());
+      release.countDown();
+    }
+  }
+
+  @Test
+  @DisplayName("Should keep a saturated bulkhead from starving another")
+  void testIsolation() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    try (Bulkhead bank = new Bulkhead("bank", 2, 0);
+        Bulkhead reads = new Bulkhead("reads", 1, 1)) {
+      bank.execute(() -> await(release));
+      bank.execute(() -> await(release));
+      assertThrows(BulkheadFullException.class, () -> bank.execute(() -> { }));
+
+      String result = Bulkheads.supply(reads, () -> "found").get(5, TimeUnit.SECONDS);
+
+      assertEquals("found", result);
+      release.countDown();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
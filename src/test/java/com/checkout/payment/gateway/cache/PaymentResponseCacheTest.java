@@ -0,0 +1,173 @@
+package com.checkout.payment.gateway.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("PaymentResponseCache Tests")
+class PaymentResponseCacheTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  @DisplayName("Should change the version with every field the body shows")
+  void testVersionFollowsFields() {
+    PostPaymentResponse payment = createPayment(UUID.randomUUID());
+    long version = PaymentResponseCache.version(payment);
+
+    assertEquals(version, PaymentResponseCache.version(payment.toBuilder().build()));
+    assertNotEquals(version, PaymentResponseCache.version(
+        payment.toBuilder().setStatus(PaymentStatus.CAPTURED).build()));
+    assertNotEquals(version, PaymentResponseCache.version(
+        payment.toBuilder().setRefundedAmount(1).build()));
+    assertNotEquals(version, PaymentResponseCache.version(
+        payment.toBuilder().setAuthorizationCode(null).build()));
+    assertNotEquals(version, PaymentResponseCache.version(
+        payment.toBuilder().setId(UUID.randomUUID()).build()));
+    assertEquals(18, PaymentResponseCache.etag(version).length());
+  }
+
+  @Test
+  @DisplayName("Should tell apart strings whose hash codes collide")
+  void testVersionReadsWholeStrings() {
+    PostPaymentResponse payment = createPayment(UUID.randomUUID());
+    assertEquals("Aa".hashCode(), "BB".hashCode());
+
+    assertNotEquals(
+        PaymentResponseCache.version(payment.toBuilder().setAuthorizationCode("Aa").build()),
+        PaymentResponseCache.version(payment.toBuilder().setAuthorizationCode("BB").build()));
+    assertNotEquals(
+        PaymentResponseCache.version(payment.toBuilder().setAuthorizationCode("").build()),
+        PaymentResponseCache.version(payment.toBuilder().setAuthorizationCode(null).build()));
+  }
+
+  @Test
+  @DisplayName("Should serve the same body until the payment changes")
+  void testHitsUntilChanged() throws Exception {
+    PaymentResponseCache cache = new PaymentResponseCache(objectMapper, 10);
+    PostPaymentResponse payment = createPayment(UUID.randomUUID());
+    long version = PaymentResponseCache.version(payment);
+
+    byte[] first = cache.serialize(payment, version);
+    assertArrayEquals(objectMapper.writeValueAsBytes(payment), first);
+    assertSame(first, cache.serialize(payment, version));
+    PostPaymentResponse captured = payment.toBuilder().setStatus(PaymentStatus.CAPTURED).build();
+    byte[] afterCapture = cache.serialize(captured, PaymentResponseCache.version(captured));
+
+    assertArrayEquals(objectMapper.writeValueAsBytes(captured), afterCapture);
+    assertEquals(1, cache.size());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+  }
+
+  @Test
+  @DisplayName("Should serialize once for concurrent misses on the same payment")
+  void testCollapsesConcurrentMisses() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger writes = new AtomicInteger();
+    ObjectMapper slowMapper = new ObjectMapper() {
+      @Override
+      public byte[] writeValueAsBytes(Object value) throws JsonProcessingException {
+        writes.incrementAndGet();
+        try {
+          release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return super.writeValueAsBytes(value);
+      }
+    };
+    PaymentResponseCache cache = new PaymentResponseCache(slowMapper, 10);
+    PostPaymentResponse payment = createPayment(UUID.randomUUID());
+    long version = PaymentResponseCache.version(payment);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<byte[]>> reads = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        reads.add(executor.submit(() -> cache.serialize(payment, version)));
+      }
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (cache.getCollapsedCount() < 7 && System.nanoTime() < deadline) {
+        Thread.sleep(1);
+      }
+      release.countDown();
+
+      for (Future<byte[]> read : reads) {
+        assertArrayEquals(objectMapper.writeValueAsBytes(payment), read.get(10, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(1, writes.get());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(7, cache.getCollapsedCount());
+  }
+
+  @Test
+  @DisplayName("Should keep at most max-entries bodies, sparing recently read ones")
+  void testEvicts() {
+    PaymentResponseCache cache = new PaymentResponseCache(objectMapper, 4);
+    PostPaymentResponse hot = createPayment(UUID.randomUUID());
+    long hotVersion = PaymentResponseCache.version(hot);
+    cache.serialize(hot, hotVersion);
+
+    for (int i = 0; i < 100; i++) {
+      PostPaymentResponse payment = createPayment(UUID.randomUUID());
+      cache.serialize(payment, PaymentResponseCache.version(payment));
+      cache.serialize(hot, hotVersion);
+      assertTrue(cache.size() <= 4, "Cache holds " + cache.size() + " bodies");
+    }
+    long misses = cache.getMissCount();
+    cache.serialize(hot, hotVersion);
+    assertEquals(misses, cache.getMissCount());
+  }
+
+  @Test
+  @DisplayName("Should match If-None-Match lists, weak tags and wildcards")
+  void testNotModified() {
+    PaymentResponseCache cache = PaymentResponseCache.disabled(objectMapper);
+    String etag = PaymentResponseCache.etag(42);
+
+    assertTrue(cache.isNotModified(etag, etag));
+    assertTrue(cache.isNotModified("\"other\", W/" + etag, etag));
+    assertTrue(cache.isNotModified("*", etag));
+    assertFalse(cache.isNotModified("\"other\"", etag));
+    assertFalse(cache.isNotModified(null, etag));
+    assertEquals(3, cache.getNotModifiedCount());
+    PostPaymentResponse payment = createPayment(UUID.randomUUID());
+    cache.serialize(payment, PaymentResponseCache.version(payment));
+    assertEquals(0, cache.size());
+  }
+
+  private static PostPaymentResponse createPayment(UUID id) {
+    return PostPaymentResponse.builder()
+        .setId(id)
+        .setAmount(1050)
+        .setCurrency("USD")
+        .setStatus(PaymentStatus.AUTHORIZED)
+        .setExpiryMonth(12)
+        .setExpiryYear(2030)
+        .setCardNumberLastFour(4321)
+        .setAuthorizationCode("AUTH123")
+        .build();
+  }
+}
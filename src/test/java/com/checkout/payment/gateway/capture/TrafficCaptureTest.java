@@ -0,0 +1,156 @@
+package com.checkout.payment.gateway.capture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("TrafficCapture Tests")
+class TrafficCaptureTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  @DisplayName("Should read back every request as written, and stop at a truncated record")
+  void testRoundTrip() throws Exception {
+    List<CapturedRequest> written = List.of(
+        new CapturedRequest(0, false, null, null, null, request("4532015112830366", 123)),
+        new CapturedRequest(1_500_000, true, "merchant-a", "0123456789abcdef", 250L,
+            request("4532015112830367", 1234)),
+        new CapturedRequest(1_500_000, false, "", "", -1L, request(null, -5)),
+        new CapturedRequest(9_000_000_000L, false, "merchant-b", null, null,
+            request("1234", 0)));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (TrafficCaptureWriter writer = new TrafficCaptureWriter(bytes, 1_700_000_000_000L)) {
+      for (CapturedRequest captured : written) {
+        writer.write(captured);
+      }
+    }
+
+    assertEquals(written, readAll(new ByteArrayInputStream(bytes.toByteArray())));
+    byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 3);
+    assertEquals(written.subList(0, 3), readAll(new ByteArrayInputStream(truncated)));
+    try (TrafficCaptureReader reader = new TrafficCaptureReader(
+        new ByteArrayInputStream(bytes.toByteArray()))) {
+      assertEquals(1_700_000_000_000L, reader.getStartEpochMillis());
+    }
+  }
+
+  @Test
+  @DisplayName("Should keep the BIN, last four digits and length of card numbers")
+  void testTokenizesCardNumbers() {
+    CaptureSanitizer sanitizer = new CaptureSanitizer(1, 2);
+
+    String token = sanitizer.tokenizeCardNumber("4532015112830366");
+    assertEquals(16, token.length());
+    assertTrue(token.startsWith("453201"));
+    assertTrue(token.endsWith("0366"));
+    assertNotEquals("4532015112830366", token);
+    assertEquals(token, sanitizer.tokenizeCardNumber("4532015112830366"));
+    assertNotEquals(token, new CaptureSanitizer(3, 4).tokenizeCardNumber("4532015112830366"));
+    // Too short to keep a BIN, and non-digits stay where they were
+    String shortToken = sanitizer.tokenizeCardNumber("12345678");
+    assertTrue(shortToken.endsWith("5678"));
+    assertEquals("12-ab-34", sanitizer.tokenizeCardNumber("12-ab-34"));
+    assertNull(sanitizer.tokenizeCardNumber(null));
+  }
+
+  @Test
+  @DisplayName("Should keep only the length and sign of CVVs, and tokenize idempotency keys")
+  void testMasksCvvAndKeys() {
+    CaptureSanitizer sanitizer = new CaptureSanitizer(1, 2);
+
+    assertEquals(100, CaptureSanitizer.maskCvv(123));
+    assertEquals(1000, CaptureSanitizer.maskCvv(9876));
+    assertEquals(10, CaptureSanitizer.maskCvv(42));
+    assertEquals(0, CaptureSanitizer.maskCvv(0));
+    assertEquals(-100, CaptureSanitizer.maskCvv(-123));
+    assertEquals(-1_000_000_000, CaptureSanitizer.maskCvv(Integer.MIN_VALUE));
+    String key = sanitizer.tokenizeIdempotencyKey("order-42");
+    assertEquals(16, key.length());
+    assertFalse(key.contains("order"));
+    assertEquals(key, sanitizer.tokenizeIdempotencyKey("order-42"));
+  }
+
+  @Test
+  @DisplayName("Should write sanitized requests with their arrival order to the capture file")
+  void testCapturesToFile() throws Exception {
+    Path file = directory.resolve("nested/traffic.capture");
+    try (TrafficCapture capture = new TrafficCapture(file, 100, 1 << 20)) {
+      capture.record(request("4532015112830366", 123), "sync", "merchant-a", "key-1", 500L);
+      capture.record(request("4532015112830367", 456), "async", null, null, null);
+      capture.record(null, "sync", null, null, null);
+    }
+
+    List<CapturedRequest> captured;
+    try (InputStream in = Files.newInputStream(file)) {
+      captured = readAll(in);
+    }
+    assertEquals(2, captured.size());
+    CapturedRequest first = captured.get(0);
+    assertFalse(first.async());
+    assertEquals("merchant-a", first.merchantId());
+    assertEquals(500L, first.timeoutMillis());
+    assertNotEquals("key-1", first.idempotencyKey());
+    assertTrue(first.request().getCardNumber().endsWith("0366"));
+    assertNotEquals("4532015112830366", first.request().getCardNumber());
+    assertEquals(100, first.request().getCvv());
+    assertEquals(1050, first.request().getAmount());
+    CapturedRequest second = captured.get(1);
+    assertTrue(second.async());
+    assertNull(second.timeoutMillis());
+    assertTrue(second.arrivalNanos() >= first.arrivalNanos());
+  }
+
+  @Test
+  @DisplayName("Should stop capturing at the size limit")
+  void testStopsAtMaxBytes() throws Exception {
+    Path file = directory.resolve("traffic.capture");
+    try (TrafficCapture capture = new TrafficCapture(file, 1000, 200)) {
+      for (int i = 0; i < 100; i++) {
+        capture.record(request("4532015112830366", 123), "sync", null, null, null);
+      }
+    }
+
+    long size = Files.size(file);
+    assertTrue(size >= 200 && size < 300, "Capture file is " + size + " bytes");
+    assertFalse(TrafficCapture.disabled().isEnabled());
+  }
+
+  private static List<CapturedRequest> readAll(InputStream in) throws Exception {
+    List<CapturedRequest> captured = new ArrayList<>();
+    try (TrafficCaptureReader reader = new TrafficCaptureReader(in)) {
+      CapturedRequest next;
+      while ((next = reader.read()) != null) {
+        captured.add(next);
+      }
+    }
+    return captured;
+  }
+
+  private static PostPaymentRequest request(String cardNumber, int cvv) {
+    PostPaymentRequest request = new PostPaymentRequest();
+    request.setCardNumber(cardNumber);
+    request.setExpiryMonth(12);
+    request.setExpiryYear(2030);
+    request.setCurrency("USD");
+    request.setAmount(1050);
+    request.setCvv(cvv);
+    return request;
+  }
+}
@@ -0,0 +1,88 @@
+package com.checkout.payment.gateway.capture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("TrafficReplay Tests")
+class TrafficReplayTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  @DisplayName("Should replay a capture offline against an in-process gateway and bank")
+  void testReplaysOffline() throws Exception {
+    Path capture = directory.resolve("traffic.capture");
+    try (OutputStream out = Files.newOutputStream(capture);
+        TrafficCaptureWriter writer = new TrafficCaptureWriter(out, System.currentTimeMillis())) {
+      for (int i = 0; i < 20; i++) {
+        // Authorized, declined, and rejected by the validator for its CVV; a card each, so
+        // velocity limits stay out of it
+        PostPaymentRequest request = request(String.format("453201511283%03d%d", i,
+            i % 2 == 0 ? 7 : 6), i % 5 == 4 ? 12 : 123);
+        writer.write(new CapturedRequest(i * 10_000_000L, false, "merchant-" + (i % 3),
+            "key-" + i, null, request));
+      }
+    }
+    Path report = directory.resolve("reports/replay.properties");
+
+    ReplayReport replayed = TrafficReplay.replay(capture.toString(), "--speed=2",
+        "--bank-latency=PT0.001S", "--report=" + report, "--payments.warmup.enabled=false");
+
+    assertEquals(20, replayed.getRequests());
+    assertEquals(0, replayed.getErrors());
+    assertEquals(Map.of(200, 16L, 400, 4L), replayed.getStatuses());
+    assertTrue(replayed.getThroughput() > 0);
+    assertTrue(replayed.getLatencyMicros("p50") <= replayed.getLatencyMicros("max"));
+
+    ReplayReport loaded = ReplayReport.load(report);
+    assertEquals(replayed.getStatuses(), loaded.getStatuses());
+    assertEquals(replayed.getLatencyMicros("p99"), loaded.getLatencyMicros("p99"));
+    String diff = replayed.diff(loaded);
+    assertTrue(diff.contains("+0.0%"), diff);
+    assertTrue(diff.contains("HTTP 400"), diff);
+  }
+
+  @Test
+  @DisplayName("Should move expiry dates on by the months since the capture")
+  void testShiftsExpiry() {
+    PostPaymentRequest request = request("4532015112830367", 123);
+    request.setExpiryMonth(11);
+
+    PostPaymentRequest shifted = TrafficReplay.shiftExpiry(request, 3);
+    assertEquals(2, shifted.getExpiryMonth());
+    assertEquals(2031, shifted.getExpiryYear());
+    assertEquals(request.getCardNumber(), shifted.getCardNumber());
+    request.setExpiryMonth(13);
+    assertEquals(13, TrafficReplay.shiftExpiry(request, 3).getExpiryMonth());
+  }
+
+  @Test
+  @DisplayName("Should refuse to replay without a capture file or at a speed of zero")
+  void testRejectsBadArguments() {
+    assertThrows(IllegalArgumentException.class, () -> TrafficReplay.replay("--speed=2"));
+    assertThrows(IllegalArgumentException.class,
+        () -> TrafficReplay.replay("traffic.capture", "--speed=0"));
+  }
+
+  private static PostPaymentRequest request(String cardNumber, int cvv) {
+    PostPaymentRequest request = new PostPaymentRequest();
+    request.setCardNumber(cardNumber);
+    request.setExpiryMonth(12);
+    request.setExpiryYear(2030);
+    request.setCurrency("USD");
+    request.setAmount(1050);
+    request.setCvv(cvv);
+    return request;
+  }
+}
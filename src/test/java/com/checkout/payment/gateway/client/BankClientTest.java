@@ -9,12 +9,20 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import com.checkout.payment.gateway.deadline.Deadline;
+import com.checkout.payment.gateway.exception.DeadlineExceededException;
 import com.checkout.payment.gateway.exception.EventProcessingException;
 import com.checkout.payment.gateway.model.BankRequest;
 import com.checkout.payment.gateway.model.BankResponse;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -138,6 +146,40 @@ class BankClientTest {
     );
   }
 
+  @Test
+  @DisplayName("Should not call the bank once the deadline has passed")
+  void testExpiredDeadline() {
+    assertThrows(DeadlineExceededException.class,
+        () -> bankClient.authorize(createPaymentRequest(), Deadline.afterNanos(0)));
+
+    verifyNoInteractions(restTemplate);
+  }
+
+  @Test
+  @DisplayName("Should wait for the bank no longer than the deadline leaves")
+  void testDeadlineCapsReadTimeout() throws Exception {
+    HttpServer slowBank = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    slowBank.createContext("/payments", exchange -> {
+      LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(3));
+      exchange.close();
+    });
+    slowBank.start();
+    try {
+      DeadlineRequestFactory requestFactory = new DeadlineRequestFactory();
+      requestFactory.setReadTimeout(10_000);
+      BankClient client = new BankClient(new RestTemplate(requestFactory),
+          "http://localhost:" + slowBank.getAddress().getPort());
+      long start = System.nanoTime();
+
+      assertThrows(EventProcessingException.class, () -> client.authorize(
+          createPaymentRequest(), Deadline.after(Duration.ofMillis(200))));
+
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+    } finally {
+      slowBank.stop(0);
+    }
+  }
+
   private PostPaymentRequest createPaymentRequest() {
     PostPaymentRequest request = new PostPaymentRequest();
     request.setCardNumber("4532015112830366");
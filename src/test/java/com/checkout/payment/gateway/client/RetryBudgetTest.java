@@ -0,0 +1,60 @@
+package com.checkout.payment.gateway.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("RetryBudget")
+class RetryBudgetTest {
+
+  @Test
+  @DisplayName("Should start full and refuse withdrawals once empty")
+  void testStartsFull() {
+    RetryBudget budget = new RetryBudget(0.2, 2);
+
+    assertTrue(budget.tryWithdraw());
+    assertTrue(budget.tryWithdraw());
+    assertFalse(budget.tryWithdraw());
+    assertEquals(2, budget.getWithdrawnCount());
+    assertEquals(1, budget.getExhaustedCount());
+  }
+
+  @Test
+  @DisplayName("Should allow one extra request per 1/ratio deposits")
+  void testRatio() {
+    RetryBudget budget = new RetryBudget(0.2, 1);
+    budget.tryWithdraw();
+
+    int withdrawn = 0;
+    for (int i = 0; i < 100; i++) {
+      budget.deposit();
+      if (budget.tryWithdraw()) {
+        withdrawn++;
+      }
+    }
+
+    assertEquals(20, withdrawn, 1);
+  }
+
+  @Test
+  @DisplayName("Should never hold more than the maximum number of tokens")
+  void testCapped() {
+    RetryBudget budget = new RetryBudget(1, 3);
+    for (int i = 0; i < 10; i++) {
+      budget.deposit();
+    }
+
+    assertEquals(3, budget.getTokens());
+  }
+
+  @Test
+  @DisplayName("Should reject a ratio outside 0 to 1")
+  void testInvalidRatio() {
+    assertThrows(EventProcessingException.class, () -> new RetryBudget(1.5, 10));
+  }
+}
@@ -0,0 +1,69 @@
+package com.checkout.payment.gateway.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.exception.StorageUnavailableException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("ClusterClient Tests")
+class ClusterClientTest {
+
+  @Test
+  @DisplayName("Should open no more than its maximum connections to a peer")
+  void testConnectionLimit() throws Exception {
+    List<Socket> accepted = new CopyOnWriteArrayList<>();
+    ExecutorService callers = Executors.newFixedThreadPool(6);
+    // A peer that accepts connections but never answers, so every call holds its connection
+    try (ServerSocket silentPeer = new ServerSocket(0);
+        ClusterClient client = new ClusterClient(
+            new ClusterNode("peer", "localhost", silentPeer.getLocalPort()),
+            Duration.ofSeconds(2), 2)) {
+      Thread acceptor = new Thread(() -> {
+        try {
+          while (true) {
+            accepted.add(silentPeer.accept());
+          }
+        } catch (IOException e) {
+          // Closed at the end of the test
+        }
+      });
+      acceptor.setDaemon(true);
+      acceptor.start();
+
+      List<Future<?>> calls = IntStream.range(0, 6)
+          .<Future<?>>mapToObj(i -> callers.submit(() -> client.get(UUID.randomUUID())))
+          .toList();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+      while (accepted.size() < 2 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      Thread.sleep(200);
+      assertEquals(2, accepted.size());
+
+      for (Future<?> call : calls) {
+        Exception failure = assertThrows(Exception.class, () -> call.get(10, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof StorageUnavailableException);
+      }
+    } finally {
+      callers.shutdownNow();
+      for (Socket socket : accepted) {
+        socket.close();
+      }
+    }
+  }
+}
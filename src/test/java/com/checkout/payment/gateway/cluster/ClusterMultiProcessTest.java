@@ -0,0 +1,48 @@
+package com.checkout.payment.gateway.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.InMemoryPaymentsRepository;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Cluster across JVMs Tests")
+class ClusterMultiProcessTest {
+
+  @Test
+  @DisplayName("Should route payments to node JVMs and survive one of them dying")
+  void testPaymentsAcrossProcesses() throws Exception {
+    List<ClusterNode> nodes = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      nodes.add(new ClusterNode("node-" + i, "localhost",
+          ClusteredPaymentsRepositoryTest.freePort()));
+    }
+    String spec = nodes.stream().map(ClusterNode::toString).collect(Collectors.joining(","));
+
+    // This JVM is node-0; node-1 and node-2 run in their own processes
+    try (ClusterNodeProcess.Handle node1 = ClusterNodeProcess.start(nodes.get(1), spec, 2, 0);
+        ClusterNodeProcess.Handle node2 = ClusterNodeProcess.start(nodes.get(2), spec, 2, 0);
+        ClusteredPaymentsRepository node0 = new ClusteredPaymentsRepository(nodes.get(0), nodes,
+            2, 1, 128, Duration.ofSeconds(2), 32, new InMemoryPaymentsRepository())) {
+      List<PostPaymentResponse> stored = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        PostPaymentResponse payment = ClusteredPaymentsRepositoryTest.createPayment(100 + i);
+        node0.add(payment);
+        stored.add(payment);
+      }
+
+      node2.kill();
+
+      for (PostPaymentResponse payment : stored) {
+        assertEquals(payment, node0.get(payment.getId()).orElseThrow());
+      }
+      assertTrue(node1.isAlive());
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package com.checkout.payment.gateway.cluster;
+
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.InMemoryPaymentsRepository;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cluster node in its own JVM, driven over stdin/stdout by multi-process tests. Prints READY
+ * once listening, and on START runs a load of add + lookup for the given number of seconds and
+ * prints {@code OPS <count>}. Exits when stdin closes.
+ */
+class ClusterNodeProcess {
+
+  public static void main(String[] args) throws IOException {
+    ClusterNode self = ClusterNode.parse(args[0]);
+    List<ClusterNode> nodes = ClusterNode.parseAll(args[1]);
+    int replication = Integer.parseInt(args[2]);
+    int loadSeconds = Integer.parseInt(args[3]);
+
+    ClusteredPaymentsRepository repository = new ClusteredPaymentsRepository(self, nodes,
+        replication, 1, 128, Duration.ofSeconds(2), 32, new InMemoryPaymentsRepository());
+    BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+    System.out.println("READY");
+    System.out.flush();
+
+    String line;
+    while ((line = in.readLine()) != null) {
+      if (line.equals("START")) {
+        System.out.println("OPS " + runLoad(repository, loadSeconds));
+        System.out.flush();
+      }
+    }
+    repository.close();
+  }
+
+  private static long runLoad(ClusteredPaymentsRepository repository, int seconds) {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    List<UUID> stored = new ArrayList<>();
+    long ops = 0;
+    while (System.nanoTime() < deadline) {
+      PostPaymentResponse payment = ClusteredPaymentsRepositoryTest.createPayment(100);
+      repository.add(payment);
+      stored.add(payment.getId());
+      for (int i = 0; i < 4; i++) {
+        repository.get(stored.get(ThreadLocalRandom.current().nextInt(stored.size())));
+      }
+      ops += 5;
+    }
+    return ops;
+  }
+
+  static Handle start(ClusterNode self, String nodes, int replication, int loadSeconds)
+      throws IOException {
+    Process process = new ProcessBuilder(
+        Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+        "-cp", System.getProperty("java.class.path"),
+        ClusterNodeProcess.class.getName(),
+        self.toString(), nodes, String.valueOf(replication), String.valueOf(loadSeconds))
+        .redirectError(ProcessBuilder.Redirect.DISCARD)
+        .start();
+    Handle handle = new Handle(process);
+    handle.expect("READY");
+    return handle;
+  }
+
+  static final class Handle implements AutoCloseable {
+
+    private final Process process;
+    private final BufferedReader out;
+    private final PrintWriter in;
+
+    private Handle(Process process) {
+      this.process = process;
+      this.out = new BufferedReader(new InputStreamReader(process.getInputStream()));
+      this.in = new PrintWriter(process.getOutputStream(), true);
+    }
+
+    void send(String command) {
+      in.println(command);
+    }
+
+    String expect(String prefix) throws IOException {
+      String line;
+      while ((line = out.readLine()) != null) {
+        if (line.startsWith(prefix)) {
+          return line;
+        }
+      }
+      throw new IOException("Node process exited before printing " + prefix);
+    }
+
+    void kill() {
+      process.destroyForcibly();
+    }
+
+    boolean isAlive() {
+      return process.isAlive();
+    }
+
+    @Override
+    public void close() {
+      in.close();
+      try {
+        if (!process.waitFor(5, TimeUnit.SECONDS)) {
+          process.destroyForcibly();
+        }
+      } catch (InterruptedException e) {
+        process.destroyForcibly();
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
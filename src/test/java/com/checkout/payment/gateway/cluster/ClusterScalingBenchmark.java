@@ -0,0 +1,53 @@
+package com.checkout.payment.gateway.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("benchmark")
+@DisplayName("Cluster throughput as node JVMs are added")
+class ClusterScalingBenchmark {
+
+  private static final int LOAD_SECONDS = 10;
+
+  @Test
+  void measureScaling() throws Exception {
+    double single = 0;
+    for (int count : new int[]{1, 2, 4}) {
+      double throughput = run(count);
+      if (count == 1) {
+        single = throughput;
+      }
+      System.out.printf("%d node(s): %,.0f ops/s (%.2fx of one node)%n", count, throughput,
+          throughput / single);
+    }
+  }
+
+  private static double run(int count) throws Exception {
+    List<ClusterNode> nodes = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      nodes.add(new ClusterNode("node-" + i, "localhost",
+          ClusteredPaymentsRepositoryTest.freePort()));
+    }
+    String spec = nodes.stream().map(ClusterNode::toString).collect(Collectors.joining(","));
+    List<ClusterNodeProcess.Handle> processes = new ArrayList<>();
+    try {
+      for (ClusterNode node : nodes) {
+        processes.add(ClusterNodeProcess.start(node, spec, Math.min(2, count), LOAD_SECONDS));
+      }
+      processes.forEach(process -> process.send("START"));
+      long ops = 0;
+      for (ClusterNodeProcess.Handle process : processes) {
+        ops += Long.parseLong(process.expect("OPS ").substring(4));
+      }
+      return (double) ops / LOAD_SECONDS;
+    } finally {
+      for (ClusterNodeProcess.Handle process : processes) {
+        process.close();
+      }
+    }
+  }
+}
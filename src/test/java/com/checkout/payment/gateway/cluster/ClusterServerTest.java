@@ -0,0 +1,37 @@
+package com.checkout.payment.gateway.cluster;
+
+import static com.checkout.payment.gateway.cluster.ClusterProtocol.NOT_FOUND;
+import static com.checkout.payment.gateway.cluster.ClusterProtocol.OP_GET;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.checkout.payment.gateway.repository.InMemoryPaymentsRepository;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.Socket;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("ClusterServer Tests")
+class ClusterServerTest {
+
+  @Test
+  @DisplayName("Should close connections past its maximum and keep serving the open ones")
+  void testConnectionLimit() throws Exception {
+    try (ClusterServer server = new ClusterServer(new InMemoryPaymentsRepository(), "localhost",
+        0, 1);
+        Socket first = new Socket("localhost", server.getPort());
+        Socket second = new Socket("localhost", server.getPort())) {
+      first.setSoTimeout(5000);
+      second.setSoTimeout(5000);
+
+      assertEquals(-1, second.getInputStream().read());
+
+      DataOutputStream out = new DataOutputStream(first.getOutputStream());
+      out.writeByte(OP_GET);
+      out.writeLong(1);
+      out.writeLong(2);
+      out.flush();
+      assertEquals(NOT_FOUND, new DataInputStream(first.getInputStream()).readByte());
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package com.checkout.payment.gateway.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.StorageUnavailableException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.InMemoryPaymentsRepository;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("ClusteredPaymentsRepository Tests")
+class ClusteredPaymentsRepositoryTest {
+
+  private final List<ClusterNode> nodes = new ArrayList<>();
+  private final List<InMemoryPaymentsRepository> locals = new ArrayList<>();
+  private final List<ClusteredPaymentsRepository> cluster = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() throws IOException {
+    for (int i = 0; i < 3; i++) {
+      nodes.add(new ClusterNode("node-" + i, "localhost", freePort()));
+    }
+    for (ClusterNode node : nodes) {
+      InMemoryPaymentsRepository local = new InMemoryPaymentsRepository();
+      locals.add(local);
+      cluster.add(node(node, nodes, 1, local));
+    }
+  }
+
+  private static ClusteredPaymentsRepository node(ClusterNode node, List<ClusterNode> nodes,
+      int writeQuorum, InMemoryPaymentsRepository local) {
+    return new ClusteredPaymentsRepository(node, nodes, 2, writeQuorum, 64,
+        Duration.ofSeconds(1), 4, local);
+  }
+
+  @AfterEach
+  void tearDown() {
+    cluster.forEach(ClusteredPaymentsRepository::close);
+  }
+
+  @Test
+  @DisplayName("Should find a payment from every node, whichever node stored it")
+  void testLookupFromAnyNode() {
+    for (int i = 0; i < 50; i++) {
+      PostPaymentResponse payment = createPayment(100 + i);
+      cluster.get(i % 3).add(payment);
+
+      for (ClusteredPaymentsRepository node : cluster) {
+        assertEquals(payment, node.get(payment.getId()).orElseThrow());
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Should store each payment only on its owners")
+  void testReplicationFactor() {
+    PostPaymentResponse payment = createPayment(1050);
+    cluster.get(0).add(payment);
+
+    List<ClusterNode> owners = cluster.get(0).ownersOf(payment.getId());
+    assertEquals(2, owners.size());
+    for (int i = 0; i < nodes.size(); i++) {
+      assertEquals(owners.contains(nodes.get(i)),
+          locals.get(i).get(payment.getId()).isPresent());
+    }
+  }
+
+  @Test
+  @DisplayName("Should keep serving a payment when one of its owners is down")
+  void testFailover() {
+    PostPaymentResponse payment = createPayment(1050);
+    cluster.get(0).add(payment);
+    List<ClusterNode> owners = cluster.get(0).ownersOf(payment.getId());
+
+    int down = nodes.indexOf(owners.get(0));
+    cluster.get(down).close();
+
+    for (int i = 0; i < nodes.size(); i++) {
+      if (i != down) {
+        assertEquals(payment, cluster.get(i).get(payment.getId()).orElseThrow());
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Should count a write that missed an owner and refuse one below the quorum")
+  void testWriteQuorum() throws IOException {
+    cluster.get(2).close();
+    PostPaymentResponse payment = createPayment(1050);
+    while (!cluster.get(0).ownersOf(payment.getId()).contains(nodes.get(2))) {
+      payment = createPayment(1050);
+    }
+
+    cluster.get(0).add(payment);
+    assertEquals(1, cluster.get(0).getUnderReplicatedCount());
+    assertEquals(payment, cluster.get(0).get(payment.getId()).orElseThrow());
+
+    // A fresh pair, as a closed node's port may not be free to listen on again yet
+    List<ClusterNode> pair = List.of(new ClusterNode("a", "localhost", freePort()),
+        new ClusterNode("b", "localhost", freePort()));
+    try (ClusteredPaymentsRepository quorumOfTwo = node(pair.get(0), pair, 2,
+        new InMemoryPaymentsRepository())) {
+      PostPaymentResponse refused = createPayment(1050);
+      assertThrows(StorageUnavailableException.class, () -> quorumOfTwo.add(refused));
+      assertEquals(1, quorumOfTwo.getUnderReplicatedCount());
+    }
+  }
+
+  @Test
+  @DisplayName("Should return empty Optional when no owner has the payment")
+  void testGetNonExistentPayment() {
+    assertTrue(cluster.get(1).get(UUID.randomUUID()).isEmpty());
+  }
+
+  static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  static PostPaymentResponse createPayment(int amount) {
+    return PostPaymentResponse.builder()
+        .setId(UUID.randomUUID())
+        .setAmount(amount)
+        .setCurrency("USD")
+        .setStatus(PaymentStatus.AUTHORIZED)
+        .setExpiryMonth(12)
+        .setExpiryYear(2027)
+        .setCardNumberLastFour(1234)
+        .setAuthorizationCode(UUID.randomUUID().toString())
+        .build();
+  }
+}
@@ -0,0 +1,82 @@
+package com.checkout.payment.gateway.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("ConsistentHashRing Tests")
+class ConsistentHashRingTest {
+
+  private static final int IDS = 20_000;
+
+  @Test
+  @DisplayName("Should return the requested number of distinct owners")
+  void testDistinctOwners() {
+    ConsistentHashRing ring = new ConsistentHashRing(nodes(4), 64);
+
+    for (int i = 0; i < 1000; i++) {
+      List<ClusterNode> owners = ring.ownersOf(UUID.randomUUID(), 3);
+      assertEquals(3, owners.size());
+      assertEquals(3, new HashSet<>(owners).size());
+    }
+  }
+
+  @Test
+  @DisplayName("Should cap owners at the number of nodes")
+  void testReplicationAboveNodeCount() {
+    ConsistentHashRing ring = new ConsistentHashRing(nodes(2), 64);
+
+    assertEquals(2, ring.ownersOf(UUID.randomUUID(), 5).size());
+  }
+
+  @Test
+  @DisplayName("Should spread IDs evenly across nodes")
+  void testEvenDistribution() {
+    ConsistentHashRing ring = new ConsistentHashRing(nodes(4), 128);
+    Map<ClusterNode, Integer> counts = new HashMap<>();
+
+    for (int i = 0; i < IDS; i++) {
+      counts.merge(ring.ownersOf(UUID.randomUUID(), 1).get(0), 1, Integer::sum);
+    }
+
+    for (int count : counts.values()) {
+      assertTrue(Math.abs(count - IDS / 4) < IDS / 4 * 0.25,
+          "Node share " + count + " is too far from " + IDS / 4);
+    }
+  }
+
+  @Test
+  @DisplayName("Should move only the new node's share of IDs when a node joins")
+  void testMinimalMovementOnJoin() {
+    ConsistentHashRing before = new ConsistentHashRing(nodes(4), 128);
+    ConsistentHashRing after = new ConsistentHashRing(nodes(5), 128);
+    int moved = 0;
+
+    for (int i = 0; i < IDS; i++) {
+      UUID id = UUID.randomUUID();
+      ClusterNode newOwner = after.ownersOf(id, 1).get(0);
+      if (!before.ownersOf(id, 1).get(0).equals(newOwner)) {
+        moved++;
+        assertEquals("node-4", newOwner.id());
+      }
+    }
+
+    assertTrue(moved < IDS * 0.3, "Moved " + moved + " of " + IDS);
+  }
+
+  private static List<ClusterNode> nodes(int count) {
+    List<ClusterNode> nodes = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      nodes.add(new ClusterNode("node-" + i, "localhost", 7000 + i));
+    }
+    return nodes;
+  }
+}
@@ -2,15 +2,21 @@ package com.checkout.payment.gateway.controller;
 
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.checkout.payment.gateway.enums.PaymentStatus;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
-import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.repository.InMemoryPaymentsRepository;
+import com.checkout.payment.gateway.repository.MerchantPartitionedPaymentsRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -19,9 +25,12 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
-@SpringBootTest
+@SpringBootTest(properties = {"payments.warmup.enabled=false", "payments.grpc.port=0"})
 @AutoConfigureMockMvc
 @DisplayName("PaymentGatewayController Tests")
 class PaymentGatewayControllerTest {
@@ -30,13 +39,16 @@ class PaymentGatewayControllerTest {
   private MockMvc mvc;
 
   @Autowired
-  private PaymentsRepository paymentsRepository;
+  private MerchantPartitionedPaymentsRepository partitionedRepository;
 
   @Autowired
   private ObjectMapper objectMapper;
 
+  private InMemoryPaymentsRepository paymentsRepository;
+
   @BeforeEach
   void setUp() {
+    paymentsRepository = partitionedRepository.getDefaultPartition();
     paymentsRepository.getPayments().clear();
   }
 
@@ -59,7 +71,7 @@ class PaymentGatewayControllerTest {
 
     paymentsRepository.add(payment);
 
-    mvc.perform(MockMvcRequestBuilders.get("/payment/" + paymentId))
+    performAsync(MockMvcRequestBuilders.get("/payment/" + paymentId))
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.id").value(paymentId.toString()))
         .andExpect(jsonPath("$.status").value(payment.getStatus().getName()))
@@ -74,7 +86,7 @@ class PaymentGatewayControllerTest {
   @Test
   @DisplayName("Should return 404 when payment not found")
   void whenPaymentWithIdDoesNotExistThen404IsReturned() throws Exception {
-    mvc.perform(MockMvcRequestBuilders.get("/payment/" + UUID.randomUUID()))
+    performAsync(MockMvcRequestBuilders.get("/payment/" + UUID.randomUUID()))
         .andExpect(status().isNotFound())
         .andExpect(jsonPath("$.message").value("Page not found"));
   }
@@ -94,7 +106,7 @@ class PaymentGatewayControllerTest {
         """;
 
     // Step 1: Create payment via POST
-    var createResult = mvc.perform(MockMvcRequestBuilders.post("/payment")
+    var createResult = performAsync(MockMvcRequestBuilders.post("/payment")
             .contentType(MediaType.APPLICATION_JSON)
             .content(paymentJson))
         .andExpect(status().isOk())
@@ -118,7 +130,7 @@ class PaymentGatewayControllerTest {
     assertTrue(paymentsRepository.get(paymentId).isPresent());
 
     // Step 4: Retrieve payment via GET
-    mvc.perform(MockMvcRequestBuilders.get("/payment/" + paymentId))
+    performAsync(MockMvcRequestBuilders.get("/payment/" + paymentId))
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.id").value(paymentId.toString()))
         .andExpect(jsonPath("$.status").exists())
@@ -133,4 +145,202 @@ class PaymentGatewayControllerTest {
     assertTrue(paymentsRepository.get(paymentId).isPresent());
 
   }
+
+  @Test
+  @DisplayName("Should accept an async payment with 202 and expose its outcome through GET")
+  void whenPaymentIsPostedInAsyncModeThenItIsAcceptedAndLaterAuthorized() throws Exception {
+    String paymentJson = """
+        {
+          "card_number": "2222405343248877",
+          "expiry_month": 4,
+          "expiry_year": 2030,
+          "currency": "GBP",
+          "amount": 100,
+          "cvv": 123
+        }
+        """;
+
+    var acceptResult = performAsync(MockMvcRequestBuilders.post("/payment?mode=async")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(paymentJson))
+        .andExpect(status().isAccepted())
+        .andExpect(jsonPath("$.status").value(PaymentStatus.PENDING.getName()))
+        .andReturn();
+    UUID paymentId = objectMapper.readValue(acceptResult.getResponse().getContentAsString(),
+        PostPaymentResponse.class).getId();
+    assertEquals("/payment/" + paymentId, acceptResult.getResponse().getHeader("Location"));
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (paymentsRepository.get(paymentId).orElseThrow().getStatus() == PaymentStatus.PENDING) {
+      assertTrue(System.nanoTime() < deadline, "Payment was never authorized");
+      Thread.sleep(10);
+    }
+
+    performAsync(MockMvcRequestBuilders.get("/payment/" + paymentId))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.status").value(PaymentStatus.AUTHORIZED.getName()));
+  }
+
+  @Test
+  @DisplayName("Should capture, partially refund and reject over-refunding a payment")
+  void testCaptureThenRefund() throws Exception {
+    UUID paymentId = UUID.randomUUID();
+    paymentsRepository.add(PostPaymentResponse.builder()
+        .setId(paymentId)
+        .setAmount(1050)
+        .setCurrency("USD")
+        .setStatus(PaymentStatus.AUTHORIZED)
+        .setExpiryMonth(12)
+        .setExpiryYear(2027)
+        .setCardNumberLastFour(4321)
+        .setAuthorizationCode("AUTH123")
+        .build());
+
+    performAsync(MockMvcRequestBuilders.post("/payment/" + paymentId + "/capture"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.status").value(PaymentStatus.CAPTURED.getName()));
+    performAsync(MockMvcRequestBuilders.post("/payment/" + paymentId + "/refund")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"amount\": 50}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.status").value(PaymentStatus.PARTIALLY_REFUNDED.getName()))
+        .andExpect(jsonPath("$.refundedAmount").value(50));
+    performAsync(MockMvcRequestBuilders.post("/payment/" + paymentId + "/refund")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"amount\": 1001}"))
+        .andExpect(status().isConflict());
+    performAsync(MockMvcRequestBuilders.post("/payment/" + paymentId + "/void"))
+        .andExpect(status().isConflict());
+
+    performAsync(MockMvcRequestBuilders.get("/payment/" + paymentId))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.status").value(PaymentStatus.PARTIALLY_REFUNDED.getName()))
+        .andExpect(jsonPath("$.refundedAmount").value(50));
+  }
+
+  @Test
+  @DisplayName("Should answer 304 to a matching If-None-Match until the payment changes")
+  void testConditionalGet() throws Exception {
+    UUID paymentId = UUID.randomUUID();
+    paymentsRepository.add(PostPaymentResponse.builder()
+        .setId(paymentId)
+        .setAmount(1050)
+        .setCurrency("USD")
+        .setStatus(PaymentStatus.AUTHORIZED)
+        .setExpiryMonth(12)
+        .setExpiryYear(2027)
+        .setCardNumberLastFour(4321)
+        .setAuthorizationCode("AUTH123")
+        .build());
+
+    String etag = performAsync(MockMvcRequestBuilders.get("/payment/" + paymentId))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Cache-Control", "no-cache"))
+        .andReturn().getResponse().getHeader("ETag");
+    assertTrue(etag != null && etag.startsWith("\""), "ETag " + etag);
+    MvcResult notModified = performAsync(MockMvcRequestBuilders.get("/payment/" + paymentId)
+            .header("If-None-Match", etag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string("ETag", etag))
+        .andReturn();
+    assertEquals(0, notModified.getResponse().getContentLength());
+
+    performAsync(MockMvcRequestBuilders.post("/payment/" + paymentId + "/capture"))
+        .andExpect(status().isOk());
+    String capturedEtag = performAsync(MockMvcRequestBuilders.get("/payment/" + paymentId)
+            .header("If-None-Match", etag))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.status").value(PaymentStatus.CAPTURED.getName()))
+        .andReturn().getResponse().getHeader("ETag");
+    assertNotEquals(etag, capturedEtag);
+  }
+
+  @Test
+  @DisplayName("Should only let the merchant that made a payment read and capture it")
+  void testMerchantIsolation() throws Exception {
+    String paymentJson = """
+        {
+          "card_number": "4532015112830366",
+          "expiry_month": 12,
+          "expiry_year": 2027,
+          "currency": "USD",
+          "amount": 1050,
+          "cvv": 123
+        }
+        """;
+    MvcResult created = performAsync(MockMvcRequestBuilders.post("/payment")
+            .header("Merchant-Id", "merchant-a")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(paymentJson))
+        .andExpect(status().isOk())
+        .andReturn();
+    UUID paymentId = objectMapper.readValue(created.getResponse().getContentAsString(),
+        PostPaymentResponse.class).getId();
+
+    assertTrue(partitionedRepository.forMerchant("merchant-a").get(paymentId).isPresent());
+    assertTrue(paymentsRepository.get(paymentId).isEmpty());
+    performAsync(MockMvcRequestBuilders.get("/payment/" + paymentId)
+            .header("Merchant-Id", "merchant-a"))
+        .andExpect(status().isOk());
+    performAsync(MockMvcRequestBuilders.get("/payment/" + paymentId)
+            .header("Merchant-Id", "merchant-b"))
+        .andExpect(status().isNotFound());
+    performAsync(MockMvcRequestBuilders.get("/payment/" + paymentId))
+        .andExpect(status().isNotFound());
+
+    UUID authorizedId = UUID.randomUUID();
+    partitionedRepository.forMerchant("merchant-a").add(PostPaymentResponse.builder()
+        .setId(authorizedId)
+        .setAmount(1050)
+        .setCurrency("USD")
+        .setStatus(PaymentStatus.AUTHORIZED)
+        .setExpiryMonth(12)
+        .setExpiryYear(2027)
+        .setCardNumberLastFour(4321)
+        .setAuthorizationCode("AUTH123")
+        .build());
+    performAsync(MockMvcRequestBuilders.post("/payment/" + authorizedId + "/capture")
+            .header("Merchant-Id", "merchant-b"))
+        .andExpect(status().isNotFound());
+    performAsync(MockMvcRequestBuilders.post("/payment/" + authorizedId + "/capture")
+            .header("Merchant-Id", "merchant-a"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.status").value(PaymentStatus.CAPTURED.getName()));
+
+    mvc.perform(MockMvcRequestBuilders.get("/payment/" + paymentId)
+            .header("Merchant-Id", "merchant/a"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("Invalid merchant ID merchant/a"));
+  }
+
+  @Test
+  @DisplayName("Should answer 504 and store nothing when the Request-Timeout has run out")
+  void testRequestTimeout() throws Exception {
+    String paymentJson = """
+        {
+          "card_number": "4532015112830366",
+          "expiry_month": 12,
+          "expiry_year": 2027,
+          "currency": "USD",
+          "amount": 1050,
+          "cvv": 123
+        }
+        """;
+
+    performAsync(MockMvcRequestBuilders.post("/payment")
+            .header("Request-Timeout", "0")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(paymentJson))
+        .andExpect(status().isGatewayTimeout())
+        .andExpect(jsonPath("$.message").value("Deadline exceeded, payment not sent to bank"));
+
+    assertTrue(paymentsRepository.getPayments().isEmpty());
+  }
+
+  private ResultActions performAsync(RequestBuilder requestBuilder) throws Exception {
+    MvcResult started = mvc.perform(requestBuilder)
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    return mvc.perform(asyncDispatch(started));
+  }
 }
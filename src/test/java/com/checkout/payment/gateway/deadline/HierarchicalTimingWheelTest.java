@@ -0,0 +1,105 @@
+package com.checkout.payment.gateway.deadline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.deadline.HierarchicalTimingWheel.Timeout;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("HierarchicalTimingWheel Tests")
+class HierarchicalTimingWheelTest {
+
+  @Test
+  @DisplayName("Should fire on the first tick at or after the deadline")
+  void testFiresOnItsTick() {
+    HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1000, 0);
+    List<String> fired = new ArrayList<>();
+    wheel.schedule(Deadline.atNanoTime(5500), () -> fired.add("late"));
+    wheel.schedule(Deadline.atNanoTime(-10), () -> fired.add("passed"));
+
+    wheel.advance(0);
+    assertEquals(List.of("passed"), fired);
+    wheel.advance(5999);
+    assertEquals(List.of("passed"), fired);
+    wheel.advance(6000);
+    assertEquals(List.of("passed", "late"), fired);
+    assertEquals(0, wheel.getPendingCount());
+    assertEquals(2, wheel.getExpiredCount());
+  }
+
+  @Test
+  @DisplayName("Should fire every timeout in the advance that first reaches it, at any level")
+  void testAllLevels() {
+    HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 0);
+    Random random = new Random(42);
+    // Spread over all four levels and past the top one, which spans 2^24 ticks
+    long[] deadlines = new long[10_000];
+    long[] firedAt = new long[deadlines.length];
+    long[] now = {0};
+    for (int i = 0; i < deadlines.length; i++) {
+      deadlines[i] = (long) Math.pow(2, random.nextDouble() * 26);
+      int index = i;
+      wheel.schedule(Deadline.atNanoTime(deadlines[i]), () -> firedAt[index] = now[0]);
+    }
+
+    long previous = 0;
+    while (wheel.getPendingCount() > 0) {
+      now[0] = previous + 1 + random.nextInt(10_000);
+      wheel.advance(now[0]);
+      for (int i = 0; i < deadlines.length; i++) {
+        if (firedAt[i] == now[0]) {
+          assertTrue(deadlines[i] > previous && deadlines[i] <= now[0],
+              "Deadline " + deadlines[i] + " fired between " + previous + " and " + now[0]);
+        }
+      }
+      previous = now[0];
+    }
+    for (long fired : firedAt) {
+      assertTrue(fired > 0);
+    }
+  }
+
+  @Test
+  @DisplayName("Should not fire a cancelled timeout")
+  void testCancel() {
+    HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1000, 0);
+    List<String> fired = new ArrayList<>();
+    Timeout placed = wheel.schedule(Deadline.atNanoTime(100_000), () -> fired.add("placed"));
+    wheel.advance(1000);
+    Timeout queued = wheel.schedule(Deadline.atNanoTime(100_000), () -> fired.add("queued"));
+    Timeout kept = wheel.schedule(Deadline.atNanoTime(100_000), () -> fired.add("kept"));
+
+    assertTrue(placed.cancel());
+    assertTrue(queued.cancel());
+    assertFalse(placed.cancel());
+    assertEquals(1, wheel.getPendingCount());
+    wheel.advance(200_000);
+
+    assertEquals(List.of("kept"), fired);
+    assertTrue(placed.isCancelled());
+    assertTrue(kept.isExpired());
+    assertFalse(kept.cancel());
+  }
+
+  @Test
+  @DisplayName("Should fire from its own thread no sooner than the deadline")
+  void testTicker() throws InterruptedException {
+    try (HierarchicalTimingWheel wheel = new HierarchicalTimingWheel("test-wheel",
+        Duration.ofMillis(1))) {
+      CountDownLatch fired = new CountDownLatch(1);
+      long start = System.nanoTime();
+      wheel.schedule(Deadline.after(Duration.ofMillis(20)), fired::countDown);
+
+      assertTrue(fired.await(5, TimeUnit.SECONDS));
+      assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package com.checkout.payment.gateway.duplicate;
+
+import static com.checkout.payment.gateway.duplicate.DuplicateDetectorTest.createPaymentRequest;
+
+import com.checkout.payment.gateway.duplicate.DuplicateDetector.Mode;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import java.time.Duration;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Cost of one check on the common path, where the payment is new, against a detector sized for
+ * 1,000,000 payments per window.
+ */
+@Tag("benchmark")
+@DisplayName("Duplicate detector cost per payment")
+class DuplicateDetectorBenchmark {
+
+  private static final int PAYMENTS = 1_000_000;
+
+  @Test
+  void measureCheck() {
+    DuplicateDetector detector = new DuplicateDetector(Mode.FLAG, Duration.ofHours(1), PAYMENTS);
+    PostPaymentRequest[] requests = new PostPaymentRequest[PAYMENTS];
+    for (int i = 0; i < PAYMENTS; i++) {
+      requests[i] = createPaymentRequest(String.valueOf(4532015112830000L + i), 1050, "USD");
+    }
+
+    // Warm-up on a separate detector so the measured one starts empty
+    DuplicateDetector warmUp = new DuplicateDetector(Mode.FLAG, Duration.ofHours(1), PAYMENTS);
+    for (int i = 0; i < PAYMENTS / 4; i++) {
+      warmUp.check(requests[i]);
+    }
+
+    long start = System.nanoTime();
+    for (PostPaymentRequest request : requests) {
+      detector.check(request);
+    }
+    long elapsed = System.nanoTime() - start;
+
+    System.out.printf("%d checks: %.0f ns per check, %d duplicates%n", PAYMENTS,
+        (double) elapsed / PAYMENTS, detector.getDuplicateCount());
+  }
+}
@@ -0,0 +1,115 @@
+package com.checkout.payment.gateway.duplicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.duplicate.DuplicateDetector.Mode;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("DuplicateDetector")
+class DuplicateDetectorTest {
+
+  @Test
+  @DisplayName("Should report the same card, amount and currency as a duplicate")
+  void testDuplicate() {
+    DuplicateDetector detector = new DuplicateDetector(Mode.FLAG, Duration.ofMinutes(1), 1000);
+
+    assertFalse(detector.check(createPaymentRequest("4532015112830366", 1050, "USD")));
+    assertTrue(detector.check(createPaymentRequest("4532015112830366", 1050, "USD")));
+    assertEquals(1, detector.getDuplicateCount());
+  }
+
+  @Test
+  @DisplayName("Should not report payments differing in card, amount or currency")
+  void testDistinct() {
+    DuplicateDetector detector = new DuplicateDetector(Mode.FLAG, Duration.ofMinutes(1), 1000);
+
+    assertFalse(detector.check(createPaymentRequest("4532015112830366", 1050, "USD")));
+    assertFalse(detector.check(createPaymentRequest("4532015112830367", 1050, "USD")));
+    assertFalse(detector.check(createPaymentRequest("4532015112830366", 1051, "USD")));
+    assertFalse(detector.check(createPaymentRequest("4532015112830366", 1050, "GBP")));
+  }
+
+  @Test
+  @DisplayName("Should forget a payment two windows later")
+  void testExpiry() throws Exception {
+    DuplicateDetector detector = new DuplicateDetector(Mode.FLAG, Duration.ofMillis(50), 1000);
+
+    detector.check(createPaymentRequest("4532015112830366", 1050, "USD"));
+    Thread.sleep(120);
+
+    assertFalse(detector.check(createPaymentRequest("4532015112830366", 1050, "USD")));
+  }
+
+  @Test
+  @DisplayName("Should never report a duplicate for distinct payments beyond the window's capacity")
+  void testNoFalseDuplicates() {
+    DuplicateDetector detector = new DuplicateDetector(Mode.FLAG, Duration.ofMinutes(1), 10_000);
+
+    for (int i = 0; i < 20_000; i++) {
+      assertFalse(detector.check(createPaymentRequest("4532015112830366", i, "USD")));
+    }
+    assertTrue(detector.getUntrackedCount() > 0);
+  }
+
+  @Test
+  @DisplayName("Should let exactly one of many concurrent identical payments through")
+  void testConcurrentRepeats() throws Exception {
+    DuplicateDetector detector = new DuplicateDetector(Mode.FLAG, Duration.ofMinutes(1), 1000);
+    ExecutorService threads = Executors.newFixedThreadPool(8);
+    try {
+      for (int amount = 0; amount < 200; amount++) {
+        PostPaymentRequest request = createPaymentRequest("4532015112830366", amount, "USD");
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<Boolean>> checks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+          checks.add(threads.submit(() -> {
+            go.await();
+            return detector.check(request);
+          }));
+        }
+        go.countDown();
+        int firsts = 0;
+        for (Future<Boolean> check : checks) {
+          firsts += check.get() ? 0 : 1;
+        }
+        assertEquals(1, firsts, "payment " + amount);
+      }
+    } finally {
+      threads.shutdown();
+      detector.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Should do nothing when off")
+  void testOff() {
+    DuplicateDetector detector = DuplicateDetector.disabled();
+
+    detector.check(createPaymentRequest("4532015112830366", 1050, "USD"));
+    assertFalse(detector.check(createPaymentRequest("4532015112830366", 1050, "USD")));
+    assertEquals(0, detector.getCheckCount());
+  }
+
+  static PostPaymentRequest createPaymentRequest(String cardNumber, int amount,
+      String currency) {
+    PostPaymentRequest request = new PostPaymentRequest();
+    request.setCardNumber(cardNumber);
+    request.setExpiryMonth(12);
+    request.setExpiryYear(2030);
+    request.setCurrency(currency);
+    request.setAmount(amount);
+    request.setCvv(123);
+    return request;
+  }
+}
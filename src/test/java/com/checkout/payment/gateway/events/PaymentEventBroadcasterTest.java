@@ -0,0 +1,140 @@
+package com.checkout.payment.gateway.events;
+
+import static com.checkout.payment.gateway.events.PaymentEventRingTest.createPayment;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import com.checkout.payment.gateway.cache.PaymentResponseCache;
+import com.checkout.payment.gateway.capture.TrafficCapture;
+import com.checkout.payment.gateway.controller.PaymentGatewayController;
+import com.checkout.payment.gateway.exception.BulkheadFullException;
+import com.checkout.payment.gateway.idempotency.IdempotencyKeys;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.service.AsyncAuthorizationService;
+import com.checkout.payment.gateway.service.PaymentGatewayService;
+import com.checkout.payment.gateway.service.PaymentLifecycleService;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+@DisplayName("PaymentEventBroadcaster Tests")
+class PaymentEventBroadcasterTest {
+
+  private PaymentEventRing ring;
+  private PaymentEventBroadcaster broadcaster;
+  private MockMvc mvc;
+
+  @BeforeEach
+  void setUp() {
+    ring = new PaymentEventRing(4);
+    broadcaster = new PaymentEventBroadcaster(ring, 2, 2, Duration.ofMinutes(1),
+        Duration.ofMinutes(1));
+    mvc = MockMvcBuilders.standaloneSetup(new PaymentGatewayController(
+        mock(PaymentGatewayService.class), mock(AsyncAuthorizationService.class), broadcaster,
+        mock(PaymentLifecycleService.class), IdempotencyKeys.disabled(), Duration.ZERO,
+        TrafficCapture.disabled(),
+        PaymentResponseCache.disabled(Jackson2ObjectMapperBuilder.json().build())))
+        .build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    broadcaster.close();
+  }
+
+  @Test
+  @DisplayName("Should only stream events for the requested payment")
+  void testFilterByPaymentId() throws Exception {
+    PostPaymentResponse tracked = createPayment();
+    PostPaymentResponse other = createPayment();
+    MockHttpServletResponse stream = open(get("/payments/events")
+        .param("paymentId", tracked.getId().toString()));
+
+    ring.publish(null, other);
+    ring.publish(null, tracked);
+
+    // Events go out in sequence order, so the other payment would already be there
+    awaitContent(stream, tracked.getId().toString());
+    assertFalse(stream.getContentAsString().contains(other.getId().toString()));
+  }
+
+  @Test
+  @DisplayName("Should only stream the payments of the merchant named in Merchant-Id")
+  void testFilterByMerchant() throws Exception {
+    PostPaymentResponse own = createPayment();
+    PostPaymentResponse foreign = createPayment();
+    PostPaymentResponse unscoped = createPayment();
+    MockHttpServletResponse stream = open(get("/payments/events")
+        .header("Merchant-Id", "merchant-a"));
+
+    ring.publish("merchant-b", foreign);
+    ring.publish(null, unscoped);
+    ring.publish("merchant-a", own);
+
+    awaitContent(stream, own.getId().toString());
+    assertFalse(stream.getContentAsString().contains(foreign.getId().toString()));
+    assertFalse(stream.getContentAsString().contains(unscoped.getId().toString()));
+  }
+
+  @Test
+  @DisplayName("Should resume after Last-Event-ID")
+  void testResumeFromLastEventId() throws Exception {
+    ring.publish(null, createPayment());
+    PostPaymentResponse missed = createPayment();
+    ring.publish(null, missed);
+
+    MockHttpServletResponse stream = open(get("/payments/events")
+        .header("Last-Event-ID", "0"));
+
+    awaitContent(stream, missed.getId().toString());
+    assertFalse(stream.getContentAsString().contains("id:0\n"));
+  }
+
+  @Test
+  @DisplayName("Should tell a subscriber that fell a whole ring behind to resync")
+  void testResyncAfterOverrun() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      ring.publish(null, createPayment());
+    }
+
+    MockHttpServletResponse stream = open(get("/payments/events")
+        .header("Last-Event-ID", "0"));
+
+    awaitContent(stream, "id:9");
+    assertTrue(stream.getContentAsString().contains("event:resync\ndata:{\"cursor\":6}"));
+  }
+
+  @Test
+  @DisplayName("Should refuse subscribers beyond the limit")
+  void testMaxSubscribers() {
+    broadcaster.subscribe(null, null, null);
+    broadcaster.subscribe(null, null, null);
+
+    assertThrows(BulkheadFullException.class, () -> broadcaster.subscribe(null, null, null));
+  }
+
+  private MockHttpServletResponse open(MockHttpServletRequestBuilder builder) throws Exception {
+    return mvc.perform(builder).andExpect(request().asyncStarted()).andReturn().getResponse();
+  }
+
+  private static void awaitContent(MockHttpServletResponse stream, String expected)
+      throws Exception {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!stream.getContentAsString().contains(expected)) {
+      assertTrue(System.nanoTime() < deadline, "Stream never contained " + expected);
+      Thread.sleep(5);
+    }
+  }
+}
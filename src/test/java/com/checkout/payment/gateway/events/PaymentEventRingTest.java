@@ -0,0 +1,60 @@
+package com.checkout.payment.gateway.events;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("PaymentEventRing Tests")
+class PaymentEventRingTest {
+
+  @Test
+  @DisplayName("Should hand out consecutive sequences and read events back")
+  void testPublishAndRead() {
+    PaymentEventRing ring = new PaymentEventRing(8);
+    PostPaymentResponse payment = createPayment();
+
+    assertNull(ring.read(0));
+    assertEquals(0, ring.publish(null, payment));
+    assertEquals(1, ring.publish(null, createPayment()));
+
+    assertEquals(0, ring.read(0).seq());
+    assertSame(payment, ring.read(0).payment());
+    assertEquals(2, ring.getNextSequence());
+    assertEquals(0, ring.getOldestSequence());
+  }
+
+  @Test
+  @DisplayName("Should show a newer sequence in a slot once the ring has wrapped")
+  void testOverwrite() {
+    PaymentEventRing ring = new PaymentEventRing(4);
+    for (int i = 0; i < 6; i++) {
+      ring.publish(null, createPayment());
+    }
+
+    assertEquals(4, ring.read(0).seq());
+    assertEquals(2, ring.getOldestSequence());
+    assertEquals(2, ring.read(2).seq());
+  }
+
+  @Test
+  @DisplayName("Should round the capacity up to a power of two")
+  void testCapacity() {
+    assertEquals(8, new PaymentEventRing(5).capacity());
+    assertEquals(8, new PaymentEventRing(8).capacity());
+  }
+
+  static PostPaymentResponse createPayment() {
+    return PostPaymentResponse.builder()
+        .setId(UUID.randomUUID())
+        .setStatus(PaymentStatus.AUTHORIZED)
+        .setAmount(100)
+        .setCurrency("GBP")
+        .build();
+  }
+}
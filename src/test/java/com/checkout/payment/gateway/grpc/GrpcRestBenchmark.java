@@ -0,0 +1,231 @@
+package com.checkout.payment.gateway.grpc;
+
+import com.checkout.payment.gateway.grpc.proto.AuthorizeRequest;
+import com.checkout.payment.gateway.grpc.proto.AuthorizeResponse;
+import com.checkout.payment.gateway.grpc.proto.Payment;
+import com.checkout.payment.gateway.grpc.proto.PaymentGatewayGrpc;
+import com.sun.net.httpserver.HttpServer;
+import io.grpc.ManagedChannel;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Authorizes payments for 5 s each over REST (HTTP/1.1, one connection per request in flight),
+ * unary gRPC calls and a single {@code AuthorizeStream} call, both gRPC modes over one HTTP/2
+ * connection, keeping 64 payments in flight against a bank that answers straight away. Every mode
+ * runs once unmeasured first.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {"payments.warmup.enabled=false", "payments.grpc.port=0",
+        "payments.velocity.enabled=false", "payments.duplicates.mode=off"})
+@DisplayName("Authorization throughput and latency of REST and gRPC")
+class GrpcRestBenchmark {
+
+  private static final int IN_FLIGHT = 64;
+  private static final int SECONDS = 5;
+  private static final AtomicLong CARDS = new AtomicLong(4_532_015_114_000_000L);
+  private static final HttpServer BANK = startBank();
+
+  @Autowired
+  PaymentGatewayGrpcServer grpcServer;
+
+  @LocalServerPort
+  int restPort;
+
+  @DynamicPropertySource
+  static void gatewayProperties(DynamicPropertyRegistry registry) throws IOException {
+    Path data = Files.createTempDirectory("payment-gateway-grpc-benchmark");
+    registry.add("bank.simulator.url",
+        () -> "http://localhost:" + BANK.getAddress().getPort());
+    registry.add("payments.async.directory", () -> data.resolve("async").toString());
+    registry.add("payments.cold.directory", () -> data.resolve("cold").toString());
+  }
+
+  @AfterAll
+  static void stopBank() {
+    BANK.stop(0);
+  }
+
+  @Test
+  void compareRestAndGrpc() throws Exception {
+    HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    URI payment = URI.create("http://localhost:" + restPort + "/payment");
+    Map<String, LongFunction<CompletableFuture<?>>> modes = new LinkedHashMap<>();
+    modes.put("rest", i -> http.sendAsync(
+        HttpRequest.newBuilder(payment)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString("{\"card_number\":\"" + nextCard() + "\","
+                + "\"expiry_month\":12,\"expiry_year\":2030,\"currency\":\"USD\","
+                + "\"amount\":1050,\"cvv\":123}"))
+            .build(),
+        HttpResponse.BodyHandlers.ofByteArray()));
+
+    ManagedChannel channel = NettyChannelBuilder.forAddress("localhost", grpcServer.getPort())
+        .usePlaintext()
+        .build();
+    try {
+      PaymentGatewayGrpc.PaymentGatewayStub stub = PaymentGatewayGrpc.newStub(channel);
+      modes.put("grpc", i -> {
+        CompletableFuture<Payment> done = new CompletableFuture<>();
+        stub.authorize(request(i), new StreamObserver<>() {
+          @Override
+          public void onNext(Payment payment) {
+            done.complete(payment);
+          }
+
+          @Override
+          public void onError(Throwable t) {
+            done.completeExceptionally(t);
+          }
+
+          @Override
+          public void onCompleted() {
+          }
+        });
+        return done;
+      });
+
+      Map<Long, CompletableFuture<AuthorizeResponse>> pending = new ConcurrentHashMap<>();
+      StreamObserver<AuthorizeRequest> stream = stub.authorizeStream(new StreamObserver<>() {
+        @Override
+        public void onNext(AuthorizeResponse response) {
+          pending.remove(response.getCorrelationId()).complete(response);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+          pending.values().forEach(future -> future.completeExceptionally(t));
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+      });
+      modes.put("stream", i -> {
+        CompletableFuture<AuthorizeResponse> response = new CompletableFuture<>();
+        pending.put(i, response);
+        stream.onNext(request(i));
+        return response;
+      });
+
+      // A first pass over every mode warms the JIT up for all of them before any is measured
+      for (LongFunction<CompletableFuture<?>> mode : modes.values()) {
+        run(mode);
+      }
+      for (Map.Entry<String, LongFunction<CompletableFuture<?>>> mode : modes.entrySet()) {
+        report(mode.getKey(), run(mode.getValue()));
+      }
+      stream.onCompleted();
+    } finally {
+      channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+  }
+
+  // Issues calls from one thread, keeping IN_FLIGHT outstanding; returns sorted latencies
+  private static long[] run(LongFunction<CompletableFuture<?>> call) throws InterruptedException {
+    Semaphore slots = new Semaphore(IN_FLIGHT);
+    long[] latencies = new long[1 << 22];
+    AtomicInteger recorded = new AtomicInteger();
+    AtomicInteger failures = new AtomicInteger();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SECONDS);
+    for (long i = 0; System.nanoTime() < deadline; i++) {
+      slots.acquire();
+      long sent = System.nanoTime();
+      call.apply(i).whenComplete((response, failure) -> {
+        long now = System.nanoTime();
+        if (failure != null) {
+          failures.incrementAndGet();
+        } else {
+          int slot = recorded.getAndIncrement();
+          if (slot < latencies.length) {
+            latencies[slot] = now - sent;
+          }
+        }
+        slots.release();
+      });
+    }
+    slots.acquire(IN_FLIGHT);
+    if (failures.get() > 0) {
+      System.out.printf("%,d calls failed%n", failures.get());
+    }
+    long[] measured = Arrays.copyOf(latencies, Math.min(recorded.get(), latencies.length));
+    Arrays.sort(measured);
+    return measured;
+  }
+
+  private static void report(String mode, long[] latencies) {
+    System.out.printf("%-6s %,7.0f payments/s, p50 %,6.2f ms, p99 %,6.2f ms%n",
+        mode, latencies.length / (double) SECONDS,
+        latencies[latencies.length / 2] / 1e6,
+        latencies[(int) (latencies.length * 0.99)] / 1e6);
+  }
+
+  private static AuthorizeRequest request(long correlationId) {
+    return AuthorizeRequest.newBuilder()
+        .setCardNumber(nextCard())
+        .setExpiryMonth(12)
+        .setExpiryYear(2030)
+        .setCurrency("USD")
+        .setAmount(1050)
+        .setCvv(123)
+        .setCorrelationId(correlationId)
+        .build();
+  }
+
+  private static String nextCard() {
+    return String.valueOf(CARDS.incrementAndGet());
+  }
+
+  private static HttpServer startBank() {
+    try {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+      HttpServer bank = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      bank.setExecutor(Executors.newCachedThreadPool());
+      byte[] body = "{\"authorized\":true,\"authorization_code\":\"bench\"}"
+          .getBytes(StandardCharsets.UTF_8);
+      bank.createContext("/payments", exchange -> {
+        exchange.getRequestBody().readAllBytes();
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(body);
+        }
+      });
+      bank.start();
+      return bank;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
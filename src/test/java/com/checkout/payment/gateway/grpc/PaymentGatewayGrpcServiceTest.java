@@ -0,0 +1,275 @@
+package com.checkout.payment.gateway.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.grpc.proto.AuthorizeRequest;
+import com.checkout.payment.gateway.grpc.proto.AuthorizeResponse;
+import com.checkout.payment.gateway.grpc.proto.GetPaymentRequest;
+import com.checkout.payment.gateway.grpc.proto.Payment;
+import com.checkout.payment.gateway.grpc.proto.PaymentGatewayGrpc;
+import com.checkout.payment.gateway.grpc.proto.PaymentStatus;
+import com.sun.net.httpserver.HttpServer;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {"payments.warmup.enabled=false", "payments.grpc.port=0",
+        "payments.grpc.stream-window=4"})
+// Closed after the class, so its gRPC server threads do not outlive it
+@DirtiesContext
+@DisplayName("PaymentGatewayGrpcService Tests")
+class PaymentGatewayGrpcServiceTest {
+
+  private static final Pattern CARD_NUMBER = Pattern.compile("\"card_number\":\"(\\d+)\"");
+  private static final AtomicInteger CARDS = new AtomicInteger();
+  private static final Map<String, AtomicInteger> BANK_CALLS = new ConcurrentHashMap<>();
+  private static final AtomicInteger BANK_IN_FLIGHT = new AtomicInteger();
+  private static final AtomicInteger BANK_MAX_IN_FLIGHT = new AtomicInteger();
+  private static final HttpServer BANK = startBank();
+
+  @Autowired
+  PaymentGatewayGrpcServer grpcServer;
+
+  @LocalServerPort
+  int restPort;
+
+  private ManagedChannel channel;
+
+  @DynamicPropertySource
+  static void gatewayProperties(DynamicPropertyRegistry registry) throws IOException {
+    Path data = Files.createTempDirectory("payment-gateway-grpc-test");
+    registry.add("bank.simulator.url",
+        () -> "http://localhost:" + BANK.getAddress().getPort());
+    registry.add("payments.async.directory", () -> data.resolve("async").toString());
+    registry.add("payments.cold.directory", () -> data.resolve("cold").toString());
+  }
+
+  @AfterAll
+  static void stopBank() {
+    BANK.stop(0);
+  }
+
+  @BeforeEach
+  void setUp() {
+    channel = NettyChannelBuilder.forAddress("localhost", grpcServer.getPort())
+        .usePlaintext()
+        .build();
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  @DisplayName("Should authorize a payment and read it back")
+  void testAuthorizeAndGet() {
+    PaymentGatewayGrpc.PaymentGatewayBlockingStub stub = PaymentGatewayGrpc.newBlockingStub(
+        channel);
+
+    Payment authorized = stub.authorize(request(nextCard()).build());
+
+    assertEquals(PaymentStatus.PAYMENT_STATUS_AUTHORIZED, authorized.getStatus());
+    assertEquals(1050, authorized.getAmount());
+    assertEquals("USD", authorized.getCurrency());
+    Payment read = stub.getPayment(GetPaymentRequest.newBuilder()
+        .setId(authorized.getId())
+        .build());
+    assertEquals(authorized, read);
+  }
+
+  @Test
+  @DisplayName("Should return a rejected payment and map lookup failures to gRPC statuses")
+  void testRejectionAndErrors() {
+    PaymentGatewayGrpc.PaymentGatewayBlockingStub stub = PaymentGatewayGrpc.newBlockingStub(
+        channel);
+
+    Payment rejected = stub.authorize(request(nextCard()).setExpiryYear(2001).build());
+
+    assertEquals(PaymentStatus.PAYMENT_STATUS_REJECTED, rejected.getStatus());
+    StatusRuntimeException missing = assertThrows(StatusRuntimeException.class,
+        () -> stub.getPayment(GetPaymentRequest.newBuilder()
+            .setId(UUID.randomUUID().toString())
+            .build()));
+    assertEquals(Status.Code.NOT_FOUND, missing.getStatus().getCode());
+    StatusRuntimeException malformed = assertThrows(StatusRuntimeException.class,
+        () -> stub.getPayment(GetPaymentRequest.newBuilder().setId("not-a-uuid").build()));
+    assertEquals(Status.Code.INVALID_ARGUMENT, malformed.getStatus().getCode());
+  }
+
+  @Test
+  @DisplayName("Should answer every streamed request and keep no more than the window in flight")
+  void testAuthorizeStream() throws Exception {
+    int payments = 200;
+    Map<Long, AuthorizeResponse> responses = new ConcurrentHashMap<>();
+    CompletableFuture<Void> completed = new CompletableFuture<>();
+    BANK_MAX_IN_FLIGHT.set(0);
+
+    StreamObserver<AuthorizeRequest> requests = PaymentGatewayGrpc.newStub(channel)
+        .authorizeStream(new StreamObserver<>() {
+          @Override
+          public void onNext(AuthorizeResponse response) {
+            responses.put(response.getCorrelationId(), response);
+          }
+
+          @Override
+          public void onError(Throwable t) {
+            completed.completeExceptionally(t);
+          }
+
+          @Override
+          public void onCompleted() {
+            completed.complete(null);
+          }
+        });
+    for (long i = 0; i < payments; i++) {
+      requests.onNext(request(nextCard()).setCorrelationId(i).build());
+    }
+    requests.onNext(request(nextCard()).setCorrelationId(payments).setExpiryMonth(13).build());
+    requests.onCompleted();
+    completed.get(30, TimeUnit.SECONDS);
+
+    assertEquals(payments + 1, responses.size());
+    for (long i = 0; i < payments; i++) {
+      assertEquals(PaymentStatus.PAYMENT_STATUS_AUTHORIZED,
+          responses.get(i).getPayment().getStatus());
+    }
+    assertEquals(PaymentStatus.PAYMENT_STATUS_REJECTED,
+        responses.get((long) payments).getPayment().getStatus());
+    assertTrue(BANK_MAX_IN_FLIGHT.get() <= 4, "Bank calls in flight: " + BANK_MAX_IN_FLIGHT);
+  }
+
+  @Test
+  @DisplayName("Should share idempotency keys with the REST API")
+  void testIdempotencyKeySharedWithRest() throws Exception {
+    String card = nextCard();
+    String key = UUID.randomUUID().toString();
+    PaymentGatewayGrpc.PaymentGatewayBlockingStub stub = PaymentGatewayGrpc.newBlockingStub(
+        channel);
+
+    Payment first = stub.authorize(request(card).setIdempotencyKey(key).build());
+    Payment replayed = stub.authorize(request(card).setIdempotencyKey(key).build());
+    HttpResponse<String> rest = HttpClient.newHttpClient().send(
+        HttpRequest.newBuilder(URI.create("http://localhost:" + restPort + "/payment"))
+            .header("Content-Type", "application/json")
+            .header("Idempotency-Key", key)
+            .POST(HttpRequest.BodyPublishers.ofString("{\"card_number\":\"" + card + "\","
+                + "\"expiry_month\":12,\"expiry_year\":2030,\"currency\":\"USD\","
+                + "\"amount\":1050,\"cvv\":123}"))
+            .build(),
+        HttpResponse.BodyHandlers.ofString());
+
+    assertEquals(first, replayed);
+    assertEquals(200, rest.statusCode());
+    assertTrue(rest.body().contains(first.getId()), rest.body());
+    assertEquals(1, BANK_CALLS.get(card).get());
+    StatusRuntimeException reused = assertThrows(StatusRuntimeException.class,
+        () -> stub.authorize(request(card).setIdempotencyKey(key).setAmount(99).build()));
+    assertEquals(Status.Code.FAILED_PRECONDITION, reused.getStatus().getCode());
+  }
+
+  @Test
+  @DisplayName("Should take the source from x-forwarded-for only as far as trusted proxies vouch")
+  void testSourceAddressBehindProxies() {
+    Pattern proxies = Pattern.compile("10\\.\\d+\\.\\d+\\.\\d+");
+
+    assertEquals("203.0.113.7",
+        PaymentGatewayGrpcServer.sourceAddress("10.0.0.1", "203.0.113.7", proxies));
+    assertEquals("203.0.113.7", PaymentGatewayGrpcServer.sourceAddress("10.0.0.1",
+        "198.51.100.1, 203.0.113.7, 10.0.0.2", proxies));
+    assertEquals("10.0.0.3",
+        PaymentGatewayGrpcServer.sourceAddress("10.0.0.1", "10.0.0.3, 10.0.0.2", proxies));
+    assertEquals("10.0.0.1", PaymentGatewayGrpcServer.sourceAddress("10.0.0.1", null, proxies));
+    assertEquals("198.51.100.9",
+        PaymentGatewayGrpcServer.sourceAddress("198.51.100.9", "203.0.113.7", proxies));
+    assertEquals("10.0.0.1",
+        PaymentGatewayGrpcServer.sourceAddress("10.0.0.1", "203.0.113.7", null));
+  }
+
+  private static String nextCard() {
+    return String.valueOf(4_532_015_113_000_000L + CARDS.incrementAndGet());
+  }
+
+  private static AuthorizeRequest.Builder request(String cardNumber) {
+    return AuthorizeRequest.newBuilder()
+        .setCardNumber(cardNumber)
+        .setExpiryMonth(12)
+        .setExpiryYear(2030)
+        .setCurrency("USD")
+        .setAmount(1050)
+        .setCvv(123);
+  }
+
+  // Authorizes everything after 5 ms, tracking how many calls it has in flight
+  private static HttpServer startBank() {
+    try {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+      HttpServer bank = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      bank.setExecutor(Executors.newCachedThreadPool());
+      bank.createContext("/payments", exchange -> {
+        int inFlight = BANK_IN_FLIGHT.incrementAndGet();
+        BANK_MAX_IN_FLIGHT.accumulateAndGet(inFlight, Math::max);
+        try {
+          String request = new String(exchange.getRequestBody().readAllBytes(),
+              StandardCharsets.UTF_8);
+          Matcher card = CARD_NUMBER.matcher(request);
+          if (card.find()) {
+            BANK_CALLS.computeIfAbsent(card.group(1), key -> new AtomicInteger())
+                .incrementAndGet();
+          }
+          TimeUnit.MILLISECONDS.sleep(5);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          BANK_IN_FLIGHT.decrementAndGet();
+        }
+        byte[] body = "{\"authorized\":true,\"authorization_code\":\"grpc\"}"
+            .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(body);
+        }
+      });
+      bank.start();
+      return bank;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
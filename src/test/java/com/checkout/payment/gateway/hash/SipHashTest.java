@@ -0,0 +1,24 @@
+package com.checkout.payment.gateway.hash;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("SipHash")
+class SipHashTest {
+
+  @Test
+  @DisplayName("Should match the SipHash-2-4 reference vectors")
+  void testSipHashVectors() {
+    long k0 = 0x0706050403020100L;
+    long k1 = 0x0f0e0d0c0b0a0908L;
+    byte[] message = new byte[15];
+    for (int i = 0; i < message.length; i++) {
+      message[i] = (byte) i;
+    }
+
+    assertEquals(0x726fdb47dd0e0e31L, SipHash.hash(k0, k1, message, 0));
+    assertEquals(0xa129ca6149be45e5L, SipHash.hash(k0, k1, message, 15));
+  }
+}
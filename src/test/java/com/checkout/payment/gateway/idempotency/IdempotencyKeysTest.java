@@ -0,0 +1,99 @@
+package com.checkout.payment.gateway.idempotency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.exception.IdempotencyKeyReusedException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("IdempotencyKeys Tests")
+class IdempotencyKeysTest {
+
+  private final AtomicInteger calls = new AtomicInteger();
+
+  @Test
+  @DisplayName("Should answer a repeated key with the first result, even while it is pending")
+  void testRepeatWaitsForFirstResult() {
+    IdempotencyKeys<String> keys = new IdempotencyKeys<>(10, Duration.ofMinutes(1));
+    CompletableFuture<String> bank = new CompletableFuture<>();
+
+    CompletableFuture<String> first = keys.execute("k1", "payment", () -> {
+      calls.incrementAndGet();
+      return bank;
+    });
+    CompletableFuture<String> retry = keys.execute("k1", "payment", this::call);
+    bank.complete("authorized");
+
+    assertEquals("authorized", first.join());
+    assertEquals("authorized", retry.join());
+    assertEquals(1, calls.get());
+    assertEquals(1, keys.getReplayCount());
+  }
+
+  @Test
+  @DisplayName("Should refuse a key reused for a different request")
+  void testKeyReusedForDifferentRequest() {
+    IdempotencyKeys<String> keys = new IdempotencyKeys<>(10, Duration.ofMinutes(1));
+    keys.execute("k1", "payment", this::call);
+
+    assertThrows(IdempotencyKeyReusedException.class,
+        () -> keys.execute("k1", "other payment", this::call));
+  }
+
+  @Test
+  @DisplayName("Should forget a key whose call failed so it can be retried")
+  void testFailedCallIsForgotten() {
+    IdempotencyKeys<String> keys = new IdempotencyKeys<>(10, Duration.ofMinutes(1));
+
+    CompletableFuture<String> failed = keys.execute("k1", "payment",
+        () -> CompletableFuture.failedFuture(new IllegalStateException("overloaded")));
+    assertTrue(failed.isCompletedExceptionally());
+    assertThrows(IllegalStateException.class,
+        () -> keys.execute("k2", "payment", () -> {
+          throw new IllegalStateException("read-only");
+        }));
+
+    assertEquals("result 1", keys.execute("k1", "payment", this::call).join());
+    assertEquals("result 2", keys.execute("k2", "payment", this::call).join());
+  }
+
+  @Test
+  @DisplayName("Should drop the oldest keys beyond the limit and keys past their ttl")
+  void testEviction() throws InterruptedException {
+    IdempotencyKeys<String> bounded = new IdempotencyKeys<>(2, Duration.ofMinutes(1));
+    CompletableFuture<String> oldest = bounded.execute("k1", "payment", this::call);
+    bounded.execute("k2", "payment", this::call);
+    bounded.execute("k3", "payment", this::call);
+
+    assertEquals(2, bounded.size());
+    assertEquals("result 4", bounded.execute("k1", "payment", this::call).join());
+    assertEquals("result 1", oldest.join());
+
+    IdempotencyKeys<String> shortLived = new IdempotencyKeys<>(10, Duration.ofMillis(20));
+    shortLived.execute("k1", "payment", this::call);
+    Thread.sleep(40);
+    assertEquals("result 6", shortLived.execute("k1", "payment", this::call).join());
+  }
+
+  @Test
+  @DisplayName("Should run every call when disabled or without a key")
+  void testDisabled() {
+    IdempotencyKeys<String> disabled = IdempotencyKeys.disabled();
+    disabled.execute("k1", "payment", this::call);
+    disabled.execute("k1", "payment", this::call);
+    IdempotencyKeys<String> keys = new IdempotencyKeys<>(10, Duration.ofMinutes(1));
+    CompletableFuture<String> first = keys.execute(null, "payment", this::call);
+
+    assertEquals("result 3", first.join());
+    assertEquals("result 4", keys.execute(null, "payment", this::call).join());
+  }
+
+  private CompletableFuture<String> call() {
+    return CompletableFuture.completedFuture("result " + calls.incrementAndGet());
+  }
+}
@@ -0,0 +1,241 @@
+package com.checkout.payment.gateway.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.deadline.Deadline;
+import com.checkout.payment.gateway.deadline.HierarchicalTimingWheel;
+import com.checkout.payment.gateway.duplicate.DuplicateDetector;
+import com.checkout.payment.gateway.exception.DeadlineExceededException;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.pipeline.PaymentPipeline.Stage;
+import com.checkout.payment.gateway.velocity.VelocityChecker;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("PaymentPipeline")
+class PaymentPipelineTest {
+
+  private final List<String> trace = new CopyOnWriteArrayList<>();
+  private final ExecutorService io = Executors.newSingleThreadExecutor(r -> new Thread(r, "io"));
+  private final HierarchicalTimingWheel deadlines = new HierarchicalTimingWheel("test-deadlines",
+      Duration.ofMillis(1));
+
+  @AfterEach
+  void tearDown() {
+    io.shutdownNow();
+    deadlines.close();
+  }
+
+  @Test
+  @DisplayName("Should run stages in the configured order")
+  void testOrder() {
+    PaymentPipeline pipeline = new PaymentPipeline(
+        List.of(recording("b"), recording("a"), recording("c")), Map.of());
+
+    pipeline.run(createContext());
+
+    String caller = Thread.currentThread().getName();
+    assertEquals(List.of("b@" + caller, "a@" + caller, "c@" + caller), trace);
+  }
+
+  @Test
+  @DisplayName("Should hand a stage to its executor and run inline stages on the thread before")
+  void testExecutors() throws Exception {
+    PaymentPipeline pipeline = new PaymentPipeline(
+        List.of(recording("cpu"), recording("bank"), recording("after")), Map.of("bank", io));
+
+    pipeline.execute(createContext()).get(5, TimeUnit.SECONDS);
+
+    String caller = Thread.currentThread().getName();
+    assertEquals(List.of("cpu@" + caller, "bank@io", "after@io"), trace);
+  }
+
+  @Test
+  @DisplayName("Should stop at a failing stage and count the failure")
+  void testFailure() {
+    PaymentStage failing = new TestStage("risk", Set.of()) {
+      @Override
+      public void process(PaymentContext context) {
+        throw new EventProcessingException("Velocity limit exceeded");
+      }
+    };
+    PaymentPipeline pipeline = new PaymentPipeline(
+        List.of(recording("validate"), failing, recording("authorize")), Map.of("risk", io));
+
+    CompletionException e = assertThrows(CompletionException.class,
+        () -> pipeline.execute(createContext()).join());
+
+    assertInstanceOf(EventProcessingException.class, e.getCause());
+    assertEquals(1, trace.size());
+    Stage risk = pipeline.getStages().get(1);
+    assertEquals(1, risk.getFailedCount());
+    assertEquals(0, pipeline.getStages().get(2).getProcessedCount());
+  }
+
+  @Test
+  @DisplayName("Should track time spent in and waiting for each stage")
+  void testMetrics() {
+    PaymentPipeline pipeline = new PaymentPipeline(List.of(recording("a")), Map.of());
+
+    for (int i = 0; i < 3; i++) {
+      pipeline.run(createContext());
+    }
+
+    Stage stage = pipeline.getStages().get(0);
+    assertEquals(3, stage.getProcessedCount());
+    assertTrue(stage.getBusyNanos() > 0);
+    assertTrue(stage.isInline());
+  }
+
+  @Test
+  @DisplayName("Should refuse a stage placed before one it depends on")
+  void testRequires() {
+    PaymentStage publish = new TestStage("publish", Set.of("persist"));
+
+    assertThrows(EventProcessingException.class,
+        () -> new PaymentPipeline(List.of(publish, recording("persist")), Map.of()));
+    assertThrows(EventProcessingException.class,
+        () -> new PaymentPipeline(List.of(recording("a"), recording("a")), Map.of()));
+  }
+
+  @Test
+  @DisplayName("Should refuse risk checks or bank calls on payments nothing validated")
+  void testValidateRequired() {
+    PaymentStage risk = new RiskStage(DuplicateDetector.disabled(), VelocityChecker.disabled());
+    PaymentStage authorize = new AuthorizeStage(null, VelocityChecker.disabled());
+
+    assertThrows(EventProcessingException.class,
+        () -> new PaymentPipeline(List.of(risk, authorize), Map.of()));
+    assertThrows(EventProcessingException.class,
+        () -> new PaymentPipeline(List.of(risk, new ValidateStage(), authorize), Map.of()));
+    assertEquals(3, new PaymentPipeline(List.of(new ValidateStage(), risk, authorize), Map.of())
+        .getStages().size());
+  }
+
+  @Test
+  @DisplayName("Should drop a payment whose deadline has passed before it reaches the bank")
+  void testExpiredDeadline() {
+    PaymentPipeline pipeline = new PaymentPipeline(
+        List.of(recording("validate"), recording(AuthorizeStage.NAME)), Map.of());
+
+    assertThrows(DeadlineExceededException.class,
+        () -> pipeline.run(createContext(Deadline.afterNanos(0))));
+
+    assertTrue(trace.isEmpty());
+    assertEquals(1, pipeline.getExpiredCount());
+  }
+
+  @Test
+  @DisplayName("Should fail a payment queued past its deadline at once and never run its bank call")
+  void testDeadlineWhileQueued() throws Exception {
+    PaymentPipeline pipeline = new PaymentPipeline(
+        List.of(recording("validate"), recording(AuthorizeStage.NAME), recording("persist")),
+        Map.of(AuthorizeStage.NAME, io), deadlines);
+    CountDownLatch release = new CountDownLatch(1);
+    io.execute(() -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+
+    CompletableFuture<PaymentContext> result = pipeline.execute(
+        createContext(Deadline.after(Duration.ofMillis(50))));
+
+    ExecutionException e = assertThrows(ExecutionException.class,
+        () -> result.get(5, TimeUnit.SECONDS));
+    assertInstanceOf(DeadlineExceededException.class, e.getCause());
+    release.countDown();
+    io.submit(() -> { }).get(5, TimeUnit.SECONDS);
+    assertEquals(List.of("validate@" + Thread.currentThread().getName()), trace);
+    assertEquals(1, pipeline.getExpiredCount());
+    assertEquals(0, deadlines.getPendingCount());
+  }
+
+  @Test
+  @DisplayName("Should finish a payment whose deadline passes during the bank call")
+  void testDeadlineDuringBankCall() throws Exception {
+    PaymentStage slowBank = new TestStage(AuthorizeStage.NAME, Set.of()) {
+      @Override
+      public void process(PaymentContext context) {
+        while (!context.getDeadline().isExpired()) {
+          LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        trace.add(AuthorizeStage.NAME);
+      }
+    };
+    PaymentPipeline pipeline = new PaymentPipeline(List.of(slowBank, recording("persist")),
+        Map.of(AuthorizeStage.NAME, io), deadlines);
+
+    pipeline.execute(createContext(Deadline.after(Duration.ofMillis(200))))
+        .get(5, TimeUnit.SECONDS);
+
+    assertEquals(List.of(AuthorizeStage.NAME, "persist@io"), trace);
+    assertEquals(0, pipeline.getExpiredCount());
+  }
+
+  private PaymentStage recording(String name) {
+    return new TestStage(name, Set.of()) {
+      @Override
+      public void process(PaymentContext context) {
+        trace.add(name + "@" + Thread.currentThread().getName());
+      }
+    };
+  }
+
+  private static PaymentContext createContext() {
+    return createContext(Deadline.none());
+  }
+
+  private static PaymentContext createContext(Deadline deadline) {
+    PostPaymentRequest request = new PostPaymentRequest();
+    request.setCardNumber("4532015112830366");
+    request.setCurrency("USD");
+    request.setAmount(1050);
+    return new PaymentContext(request, null, null, deadline);
+  }
+
+  private static class TestStage implements PaymentStage {
+
+    private final String name;
+    private final Set<String> requires;
+
+    TestStage(String name, Set<String> requires) {
+      this.name = name;
+      this.requires = requires;
+    }
+
+    @Override
+    public String name() {
+      return name;
+    }
+
+    @Override
+    public Set<String> requires() {
+      return requires;
+    }
+
+    @Override
+    public void process(PaymentContext context) {
+    }
+  }
+}
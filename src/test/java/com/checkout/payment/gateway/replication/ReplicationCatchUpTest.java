@@ -0,0 +1,51 @@
+package com.checkout.payment.gateway.replication;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.checkout.payment.gateway.repository.InMemoryPaymentsRepository;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("Standby catch-up across JVMs Tests")
+class ReplicationCatchUpTest {
+
+  private static final int BEFORE_RESTART = 5_000;
+  private static final int WHILE_DOWN = 50_000;
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  @DisplayName("Should catch a restarted standby JVM up with the primary's log")
+  void testCatchUpAfterStandbyRestart() throws Exception {
+    try (ReplicationLog log = new ReplicationLog(tempDir);
+        ReplicationServer server = new ReplicationServer(log, 0)) {
+      ReplicatingPaymentsRepository primary = new ReplicatingPaymentsRepository(
+          new InMemoryPaymentsRepository(), log, server, false, Duration.ZERO);
+      for (int i = 0; i < BEFORE_RESTART; i++) {
+        primary.add(ReplicationLogTest.createPayment(100 + i));
+      }
+      Process standby = StandbyProcess.start(server.getPort(), BEFORE_RESTART - 1);
+      StandbyProcess.awaitCaughtUp(standby);
+      StandbyProcess.stop(standby);
+
+      for (int i = 0; i < WHILE_DOWN; i++) {
+        primary.add(ReplicationLogTest.createPayment(100 + i));
+      }
+      long head = log.getHead();
+      assertEquals(BEFORE_RESTART + WHILE_DOWN - 1, head);
+
+      Process restarted = StandbyProcess.start(server.getPort(), head);
+      try {
+        long nanos = StandbyProcess.awaitCaughtUp(restarted);
+        System.out.printf("Standby caught up on %,d entries in %.2fs = %,.0f entries/s%n",
+            head + 1, nanos / 1e9, (head + 1) / (nanos / 1e9));
+      } finally {
+        StandbyProcess.stop(restarted);
+      }
+    }
+  }
+}
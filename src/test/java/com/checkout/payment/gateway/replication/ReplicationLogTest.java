@@ -0,0 +1,95 @@
+package com.checkout.payment.gateway.replication;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("ReplicationLog Tests")
+class ReplicationLogTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  @DisplayName("Should assign consecutive sequence numbers and read entries back")
+  void testAppendAndRead() throws IOException {
+    try (ReplicationLog log = new ReplicationLog(tempDir)) {
+      PostPaymentResponse first = createPayment(100);
+      PostPaymentResponse second = createPayment(200);
+
+      assertEquals(-1, log.getHead());
+      assertEquals(0, log.append(first));
+      assertEquals(1, log.append(second));
+
+      ByteBuffer entry = ByteBuffer.allocate(ReplicationLog.ENTRY_SIZE);
+      log.read(1, entry);
+      assertEquals(1, ReplicationLog.sequenceOf(entry, 0));
+      assertEquals(second, ReplicationLog.paymentOf(entry, 0));
+    }
+  }
+
+  @Test
+  @DisplayName("Should resume after the last complete entry when reopened")
+  void testReopenDropsPartialEntry() throws IOException {
+    try (ReplicationLog log = new ReplicationLog(tempDir)) {
+      log.append(createPayment(100));
+      log.append(createPayment(200));
+    }
+    Files.write(tempDir.resolve("replication.log"), new byte[10], StandardOpenOption.APPEND);
+
+    try (ReplicationLog log = new ReplicationLog(tempDir)) {
+      assertEquals(1, log.getHead());
+      assertEquals(2, log.append(createPayment(300)));
+    }
+  }
+
+  @Test
+  @DisplayName("Should wake a waiting reader when an entry is appended")
+  void testAwaitAfter() throws Exception {
+    try (ReplicationLog log = new ReplicationLog(tempDir)) {
+      Thread appender = new Thread(() -> log.append(createPayment(100)));
+      appender.start();
+
+      assertEquals(0, log.awaitAfter(-1, 5, TimeUnit.SECONDS));
+      appender.join();
+      assertEquals(0, log.awaitAfter(0, 10, TimeUnit.MILLISECONDS));
+    }
+  }
+
+  @Test
+  @DisplayName("Should refuse payments that do not fit in a record")
+  void testRejectsOversizedPayment() {
+    try (ReplicationLog log = new ReplicationLog(tempDir)) {
+      PostPaymentResponse payment = createPayment(100);
+      payment.setAuthorizationCode("A".repeat(200));
+
+      assertThrows(EventProcessingException.class, () -> log.append(payment));
+    }
+  }
+
+  static PostPaymentResponse createPayment(int amount) {
+    return PostPaymentResponse.builder()
+        .setId(UUID.randomUUID())
+        .setAmount(amount)
+        .setCurrency("EUR")
+        .setStatus(PaymentStatus.AUTHORIZED)
+        .setExpiryMonth(12)
+        .setExpiryYear(2027)
+        .setCardNumberLastFour(1234)
+        .setAuthorizationCode(UUID.randomUUID().toString())
+        .build();
+  }
+}
@@ -0,0 +1,149 @@
+package com.checkout.payment.gateway.replication;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.exception.ReadOnlyReplicaException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.InMemoryPaymentsRepository;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("Primary to standby replication Tests")
+class ReplicationTest {
+
+  @TempDir
+  Path tempDir;
+
+  private ReplicationLog log;
+  private ReplicationServer server;
+  private final List<AutoCloseable> standbys = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    log = new ReplicationLog(tempDir);
+    server = new ReplicationServer(log, 0);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    for (AutoCloseable standby : standbys) {
+      standby.close();
+    }
+    server.close();
+    log.close();
+  }
+
+  @Test
+  @DisplayName("Should apply every primary write on the standby asynchronously")
+  void testAsyncReplication() {
+    ReplicatingPaymentsRepository primary = new ReplicatingPaymentsRepository(
+        new InMemoryPaymentsRepository(), log, server, false, Duration.ZERO);
+    InMemoryPaymentsRepository standbyStore = new InMemoryPaymentsRepository();
+    StandbyReplicator replicator = startStandby(standbyStore);
+
+    List<PostPaymentResponse> stored = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      PostPaymentResponse payment = ReplicationLogTest.createPayment(100 + i);
+      primary.add(payment);
+      stored.add(payment);
+    }
+
+    awaitTrue(() -> replicator.getAppliedSequence() == 499);
+    assertEquals(0, replicator.getLagEntries());
+    StandbyPaymentsRepository standby = new StandbyPaymentsRepository(standbyStore);
+    for (PostPaymentResponse payment : stored) {
+      assertEquals(payment, standby.get(payment.getId()).orElseThrow());
+    }
+    awaitTrue(() -> server.getLagEntries() == 0);
+  }
+
+  @Test
+  @DisplayName("Should only return from add once a standby has the payment in semi-sync mode")
+  void testSemiSyncReplication() {
+    ReplicatingPaymentsRepository primary = new ReplicatingPaymentsRepository(
+        new InMemoryPaymentsRepository(), log, server, true, Duration.ofSeconds(5));
+    InMemoryPaymentsRepository standbyStore = new InMemoryPaymentsRepository();
+    startStandby(standbyStore);
+    awaitTrue(() -> server.getStandbyCount() == 1);
+
+    for (int i = 0; i < 50; i++) {
+      PostPaymentResponse payment = ReplicationLogTest.createPayment(100 + i);
+      primary.add(payment);
+      assertTrue(standbyStore.get(payment.getId()).isPresent());
+    }
+  }
+
+  @Test
+  @DisplayName("Should catch up on missed entries after the standby reconnects")
+  void testStandbyRestart() throws Exception {
+    ReplicatingPaymentsRepository primary = new ReplicatingPaymentsRepository(
+        new InMemoryPaymentsRepository(), log, server, false, Duration.ZERO);
+    StandbyReplicator first = startStandby(new InMemoryPaymentsRepository());
+    primary.add(ReplicationLogTest.createPayment(100));
+    awaitTrue(() -> first.getAppliedSequence() == 0);
+    first.close();
+
+    PostPaymentResponse missed = ReplicationLogTest.createPayment(200);
+    primary.add(missed);
+    InMemoryPaymentsRepository restartedStore = new InMemoryPaymentsRepository();
+    StandbyReplicator restarted = startStandby(restartedStore);
+
+    awaitTrue(() -> restarted.getAppliedSequence() == 1);
+    assertEquals(missed, restartedStore.get(missed.getId()).orElseThrow());
+  }
+
+  @Test
+  @DisplayName("Should rebuild a restarted primary from its replication log")
+  void testPrimaryRecovery() {
+    PostPaymentResponse payment = ReplicationLogTest.createPayment(100);
+    new ReplicatingPaymentsRepository(new InMemoryPaymentsRepository(), log, server, false,
+        Duration.ZERO).add(payment);
+
+    ReplicatingPaymentsRepository restarted = new ReplicatingPaymentsRepository(
+        new InMemoryPaymentsRepository(), log, server, false, Duration.ZERO);
+
+    assertEquals(payment, restarted.get(payment.getId()).orElseThrow());
+  }
+
+  @Test
+  @DisplayName("Should refuse writes on a standby")
+  void testStandbyIsReadOnly() {
+    StandbyPaymentsRepository standby = new StandbyPaymentsRepository(
+        new InMemoryPaymentsRepository());
+
+    assertTrue(standby.isReadOnly());
+    assertThrows(ReadOnlyReplicaException.class,
+        () -> standby.add(ReplicationLogTest.createPayment(100)));
+  }
+
+  private StandbyReplicator startStandby(InMemoryPaymentsRepository store) {
+    StandbyReplicator replicator = new StandbyReplicator(store, "localhost", server.getPort(),
+        Duration.ofMillis(50));
+    standbys.add(replicator);
+    return replicator;
+  }
+
+  static void awaitTrue(BooleanSupplier condition) {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "Condition not met within 10 seconds");
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+}
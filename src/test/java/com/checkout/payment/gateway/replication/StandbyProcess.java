@@ -0,0 +1,62 @@
+package com.checkout.payment.gateway.replication;
+
+import com.checkout.payment.gateway.repository.InMemoryPaymentsRepository;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A standby in its own JVM for multi-process tests. Follows the primary on the given port,
+ * prints {@code CAUGHT_UP <nanos>} once it has applied the target sequence, then stays up until
+ * stdin closes.
+ */
+class StandbyProcess {
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int primaryPort = Integer.parseInt(args[0]);
+    long targetSequence = Long.parseLong(args[1]);
+
+    long start = System.nanoTime();
+    StandbyReplicator replicator = new StandbyReplicator(new InMemoryPaymentsRepository(),
+        "localhost", primaryPort, Duration.ofMillis(50));
+    while (replicator.getAppliedSequence() < targetSequence) {
+      Thread.sleep(1);
+    }
+    System.out.println("CAUGHT_UP " + (System.nanoTime() - start));
+    System.out.flush();
+
+    new BufferedReader(new InputStreamReader(System.in)).readLine();
+    replicator.close();
+  }
+
+  static Process start(int primaryPort, long targetSequence) throws IOException {
+    return new ProcessBuilder(
+        Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+        "-cp", System.getProperty("java.class.path"),
+        StandbyProcess.class.getName(),
+        String.valueOf(primaryPort), String.valueOf(targetSequence))
+        .redirectError(ProcessBuilder.Redirect.DISCARD)
+        .start();
+  }
+
+  static long awaitCaughtUp(Process process) throws IOException {
+    BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()));
+    String line;
+    while ((line = out.readLine()) != null) {
+      if (line.startsWith("CAUGHT_UP ")) {
+        return Long.parseLong(line.substring(10));
+      }
+    }
+    throw new IOException("Standby process exited before catching up");
+  }
+
+  static void stop(Process process) throws InterruptedException {
+    process.destroy();
+    if (!process.waitFor(5, TimeUnit.SECONDS)) {
+      process.destroyForcibly();
+    }
+  }
+}
@@ -0,0 +1,244 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("ColdPaymentStore Tests")
+class ColdPaymentStoreTest {
+
+  @TempDir
+  Path tempDir;
+
+  private ColdPaymentStore store;
+
+  @BeforeEach
+  void setUp() {
+    store = new ColdPaymentStore(tempDir, 64);
+  }
+
+  @AfterEach
+  void tearDown() {
+    store.close();
+  }
+
+  @Test
+  @DisplayName("Should round-trip every field of a packed payment record")
+  void testPutAndGet() {
+    PostPaymentResponse payment = createPayment(1050, "USD", PaymentStatus.AUTHORIZED);
+
+    assertTrue(store.put(payment));
+    PostPaymentResponse retrieved = store.get(payment.getId()).orElseThrow();
+
+    assertEquals(payment, retrieved);
+  }
+
+  @Test
+  @DisplayName("Should round-trip the refunded amount of a longest-code record")
+  void testRefundedAmountDoesNotOverlapAuthorizationCode() {
+    PostPaymentResponse payment = createPayment(1050, "USD", PaymentStatus.PARTIALLY_REFUNDED);
+    payment.setAuthorizationCode("A".repeat(PaymentRecordCodec.MAX_AUTHORIZATION_CODE_BYTES));
+    payment.setRefundedAmount(400);
+
+    assertTrue(store.put(payment));
+
+    assertEquals(payment, store.get(payment.getId()).orElseThrow());
+  }
+
+  @Test
+  @DisplayName("Should keep null fields null")
+  void testNullFields() {
+    PostPaymentResponse payment = PostPaymentResponse.builder()
+        .setId(UUID.randomUUID())
+        .setAmount(10)
+        .build();
+
+    assertTrue(store.put(payment));
+    PostPaymentResponse retrieved = store.get(payment.getId()).orElseThrow();
+
+    assertNull(retrieved.getStatus());
+    assertNull(retrieved.getCurrency());
+    assertNull(retrieved.getAuthorizationCode());
+  }
+
+  @Test
+  @DisplayName("Should grow the index and map new segments as payments are added")
+  void testGrowsAcrossSegments() {
+    List<PostPaymentResponse> stored = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      PostPaymentResponse payment = createPayment(i + 1, "EUR", PaymentStatus.DECLINED);
+      store.put(payment);
+      stored.add(payment);
+    }
+
+    assertEquals(1000, store.size());
+    for (PostPaymentResponse payment : stored) {
+      assertEquals(payment.getAmount(), store.get(payment.getId()).orElseThrow().getAmount());
+    }
+  }
+
+  @Test
+  @DisplayName("Should spread a growing index over several buffers")
+  void testIndexAcrossBuffers(@TempDir Path otherDir) {
+    try (ColdPaymentStore chunked = new ColdPaymentStore(otherDir, 64,
+        new OffHeapPaymentIndex(16, 8, OffHeapPaymentIndex.MAX_CAPACITY))) {
+      List<PostPaymentResponse> stored = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        PostPaymentResponse payment = createPayment(i + 1, "EUR", PaymentStatus.DECLINED);
+        chunked.put(payment);
+        stored.add(payment);
+      }
+      for (int i = 0; i < stored.size(); i += 2) {
+        chunked.remove(stored.get(i).getId());
+      }
+
+      assertEquals(500, chunked.size());
+      for (int i = 0; i < stored.size(); i++) {
+        assertEquals(i % 2 != 0, chunked.get(stored.get(i).getId()).isPresent());
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Should refuse a payment once the index is full, and leave the store intact")
+  void testIndexFull(@TempDir Path otherDir) {
+    try (ColdPaymentStore capped = new ColdPaymentStore(otherDir, 4,
+        new OffHeapPaymentIndex(16, 8, 16))) {
+      List<PostPaymentResponse> stored = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        PostPaymentResponse payment = createPayment(i + 1, "EUR", PaymentStatus.DECLINED);
+        assertTrue(capped.put(payment));
+        stored.add(payment);
+      }
+
+      assertThrows(EventProcessingException.class,
+          () -> capped.put(createPayment(9, "EUR", PaymentStatus.DECLINED)));
+      stored.get(0).setStatus(PaymentStatus.AUTHORIZED);
+      assertTrue(capped.put(stored.get(0)));
+
+      assertEquals(8, capped.size());
+      stored.forEach(payment -> capped.remove(payment.getId()));
+      List<PostPaymentResponse> refilled = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        PostPaymentResponse payment = createPayment(i + 10, "EUR", PaymentStatus.DECLINED);
+        assertTrue(capped.put(payment));
+        refilled.add(payment);
+      }
+      refilled.forEach(payment -> capped.remove(payment.getId()));
+
+      // The refused payment took no record and no place in a segment's count, so the segment
+      // the refill filled is released like the others
+      assertEquals(0, capped.getSegmentCount());
+    }
+  }
+
+  @Test
+  @DisplayName("Should overwrite a payment stored twice instead of appending")
+  void testOverwrite() {
+    PostPaymentResponse payment = createPayment(1050, "USD", PaymentStatus.AUTHORIZED);
+    store.put(payment);
+    payment.setStatus(PaymentStatus.DECLINED);
+    store.put(payment);
+
+    assertEquals(1, store.size());
+    assertEquals(PaymentStatus.DECLINED, store.get(payment.getId()).orElseThrow().getStatus());
+  }
+
+  @Test
+  @DisplayName("Should remove payments without losing others that share their probe runs")
+  void testRemove() {
+    List<PostPaymentResponse> stored = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      PostPaymentResponse payment = createPayment(i + 1, "EUR", PaymentStatus.DECLINED);
+      store.put(payment);
+      stored.add(payment);
+    }
+
+    for (int i = 0; i < stored.size(); i += 3) {
+      assertTrue(store.remove(stored.get(i).getId()));
+    }
+
+    assertFalse(store.remove(stored.get(0).getId()));
+    assertEquals(666, store.size());
+    for (int i = 0; i < stored.size(); i++) {
+      assertEquals(i % 3 != 0, store.get(stored.get(i).getId()).isPresent());
+    }
+  }
+
+  @Test
+  @DisplayName("Should delete a full segment once all its payments are removed")
+  void testReleasesEmptySegments() {
+    List<PostPaymentResponse> stored = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      PostPaymentResponse payment = createPayment(i + 1, "EUR", PaymentStatus.DECLINED);
+      store.put(payment);
+      stored.add(payment);
+    }
+    assertEquals(4, store.getSegmentCount());
+
+    // The second segment first, then the first, then part of the third and all of the last
+    for (int i = 64; i < 128; i++) {
+      store.remove(stored.get(i).getId());
+    }
+    assertEquals(3, store.getSegmentCount());
+    for (int i = 0; i < 64; i++) {
+      store.remove(stored.get(i).getId());
+    }
+    for (int i = 128; i < 200; i++) {
+      if (i != 150) {
+        store.remove(stored.get(i).getId());
+      }
+    }
+
+    // The last segment is still being written to, so it stays
+    assertEquals(2, store.getSegmentCount());
+    assertEquals(stored.get(150), store.get(stored.get(150).getId()).orElseThrow());
+    PostPaymentResponse added = createPayment(1050, "USD", PaymentStatus.AUTHORIZED);
+    store.put(added);
+    assertEquals(added, store.get(added.getId()).orElseThrow());
+  }
+
+  @Test
+  @DisplayName("Should refuse payments that do not fit in a record")
+  void testRejectsOversizedRecord() {
+    PostPaymentResponse payment = createPayment(1050, "USD", PaymentStatus.AUTHORIZED);
+    payment.setAuthorizationCode("A".repeat(PaymentRecordCodec.MAX_AUTHORIZATION_CODE_BYTES + 1));
+
+    assertFalse(store.put(payment));
+    assertTrue(store.get(payment.getId()).isEmpty());
+  }
+
+  @Test
+  @DisplayName("Should return empty Optional when payment not found")
+  void testGetNonExistentPayment() {
+    assertTrue(store.get(UUID.randomUUID()).isEmpty());
+  }
+
+  private PostPaymentResponse createPayment(int amount, String currency, PaymentStatus status) {
+    return PostPaymentResponse.builder()
+        .setId(UUID.randomUUID())
+        .setAmount(amount)
+        .setCurrency(currency)
+        .setStatus(status)
+        .setExpiryMonth(12)
+        .setExpiryYear(2025)
+        .setCardNumberLastFour(1234)
+        .setAuthorizationCode(UUID.randomUUID().toString())
+        .build();
+  }
+}
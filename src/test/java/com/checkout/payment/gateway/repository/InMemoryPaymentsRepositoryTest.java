@@ -0,0 +1,246 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.InvalidMerchantException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("InMemoryPaymentsRepository Tests")
+class InMemoryPaymentsRepositoryTest {
+
+  private InMemoryPaymentsRepository repository;
+
+  @BeforeEach
+  void setUp() {
+    repository = new InMemoryPaymentsRepository();
+  }
+
+
+  @Test
+  @DisplayName("Should store multiple payments independently")
+  void testAddMultiplePayments() {
+    PostPaymentResponse payment1 = createPayment(1050, "USD", PaymentStatus.AUTHORIZED);
+    PostPaymentResponse payment2 = createPayment(5000, "EUR", PaymentStatus.DECLINED);
+    PostPaymentResponse payment3 = createPayment(2500, "GBP", PaymentStatus.REJECTED);
+
+    repository.add(payment1);
+    repository.add(payment2);
+    repository.add(payment3);
+
+    assertEquals(payment1.getAmount(), repository.get(payment1.getId()).get().getAmount());
+    assertEquals(payment2.getAmount(), repository.get(payment2.getId()).get().getAmount());
+    assertEquals(payment3.getAmount(), repository.get(payment3.getId()).get().getAmount());
+  }
+
+  @Test
+  @DisplayName("Should refuse a Merchant-Id as it cannot keep merchants apart")
+  void testRefuseMerchant() {
+    assertSame(repository, repository.forMerchant(null));
+    assertThrows(InvalidMerchantException.class, () -> repository.forMerchant("merchant-a"));
+    assertThrows(InvalidMerchantException.class, () -> repository.openForMerchant("merchant-a"));
+  }
+
+  @Test
+  @DisplayName("Should return empty Optional when payment not found")
+  void testGetNonExistentPayment() {
+    Optional<PostPaymentResponse> retrieved = repository.get(UUID.randomUUID());
+    assertTrue(retrieved.isEmpty());
+  }
+
+  @Test
+  @DisplayName("Should demote payments beyond the hot tier size and still find them")
+  void testDemotionBySize(@TempDir Path tempDir) {
+    try (ColdPaymentStore coldStore = new ColdPaymentStore(tempDir, 16)) {
+      InMemoryPaymentsRepository tiered = new InMemoryPaymentsRepository(coldStore, 2,
+          Duration.ofHours(1), 1.0, Duration.ZERO);
+      List<PostPaymentResponse> stored = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        PostPaymentResponse payment = createPayment(100 + i, "USD", PaymentStatus.AUTHORIZED);
+        tiered.add(payment);
+        stored.add(payment);
+      }
+
+      assertEquals(3, tiered.demote());
+      assertEquals(2, tiered.getPayments().size());
+      assertEquals(3, tiered.getColdPaymentCount());
+      for (PostPaymentResponse payment : stored) {
+        assertEquals(payment, tiered.get(payment.getId()).orElseThrow());
+      }
+      assertTrue(tiered.getPayments().containsKey(stored.get(4).getId()));
+    }
+  }
+
+  @Test
+  @DisplayName("Should keep demoting in the background after a cold write fails")
+  void testDemoterSurvivesFailure(@TempDir Path tempDir) throws Exception {
+    AtomicInteger failures = new AtomicInteger(1);
+    try (ColdPaymentStore coldStore = new ColdPaymentStore(tempDir, 16) {
+      @Override
+      public boolean put(PostPaymentResponse payment) {
+        if (failures.getAndDecrement() > 0) {
+          throw new EventProcessingException("No space left on device");
+        }
+        return super.put(payment);
+      }
+    }) {
+      InMemoryPaymentsRepository tiered = new InMemoryPaymentsRepository(coldStore, 0,
+          Duration.ofHours(1), 1.0, Duration.ofMillis(10));
+      try {
+        PostPaymentResponse payment = createPayment(1050, "GBP", PaymentStatus.DECLINED);
+        tiered.add(payment);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (tiered.getColdPaymentCount() == 0 && System.nanoTime() < deadline) {
+          Thread.sleep(5);
+        }
+
+        assertEquals(1, tiered.getColdPaymentCount());
+        assertTrue(tiered.getPayments().isEmpty());
+      } finally {
+        tiered.shutdown();
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Should demote payments older than the hot tier age")
+  void testDemotionByAge(@TempDir Path tempDir) {
+    try (ColdPaymentStore coldStore = new ColdPaymentStore(tempDir, 16)) {
+      InMemoryPaymentsRepository tiered = new InMemoryPaymentsRepository(coldStore, 100,
+          Duration.ZERO, 1.0, Duration.ZERO);
+      PostPaymentResponse payment = createPayment(1050, "GBP", PaymentStatus.DECLINED);
+      tiered.add(payment);
+
+      assertEquals(1, tiered.demote());
+      assertTrue(tiered.getPayments().isEmpty());
+      assertEquals(payment, tiered.get(payment.getId()).orElseThrow());
+    }
+  }
+
+  @Test
+  @DisplayName("Should drop payments from both tiers once their retention period has passed")
+  void testRetentionDrop(@TempDir Path tempDir) {
+    MutableClock clock = new MutableClock(0);
+    try (ColdPaymentStore coldStore = new ColdPaymentStore(tempDir, 16)) {
+      InMemoryPaymentsRepository tiered = new InMemoryPaymentsRepository(coldStore, 100,
+          Duration.ZERO, 1.0, Duration.ZERO, new PaymentRetention(Duration.ofDays(7),
+          PaymentRetention.Mode.DROP, Duration.ZERO, Duration.ofHours(1), clock));
+      PostPaymentResponse demoted = createPayment(100, "USD", PaymentStatus.AUTHORIZED);
+      PostPaymentResponse hot = createPayment(200, "USD", PaymentStatus.AUTHORIZED);
+      tiered.add(demoted);
+      tiered.demote();
+      tiered.add(hot);
+      clock.millis.set(Duration.ofHours(1).toMillis());
+      PostPaymentResponse later = createPayment(300, "USD", PaymentStatus.AUTHORIZED);
+      tiered.add(later);
+
+      // Everything stored in the first hour has expired, the payment stored after it has not
+      clock.millis.set(Duration.ofDays(7).plusHours(1).toMillis());
+      assertEquals(2, tiered.expire());
+      assertTrue(tiered.get(demoted.getId()).isEmpty());
+      assertTrue(tiered.get(hot.getId()).isEmpty());
+      assertEquals(0, tiered.getColdPaymentCount());
+      assertEquals(later, tiered.get(later.getId()).orElseThrow());
+      assertEquals(0, tiered.expire());
+    }
+  }
+
+  @Test
+  @DisplayName("Should summarize expired payments and drop the summaries after their own period")
+  void testRetentionSummarize(@TempDir Path tempDir) {
+    MutableClock clock = new MutableClock(0);
+    try (ColdPaymentStore coldStore = new ColdPaymentStore(tempDir, 16)) {
+      InMemoryPaymentsRepository tiered = new InMemoryPaymentsRepository(coldStore, 0,
+          Duration.ofHours(1), 1.0, Duration.ZERO, new PaymentRetention(Duration.ofDays(7),
+          PaymentRetention.Mode.SUMMARIZE, Duration.ofDays(30), Duration.ofHours(1), clock));
+      PostPaymentResponse demoted = createPayment(100, "USD", PaymentStatus.CAPTURED);
+      demoted.setRefundedAmount(40);
+      PostPaymentResponse hot = createPayment(200, "EUR", PaymentStatus.AUTHORIZED);
+      tiered.add(demoted);
+      tiered.demote();
+      assertEquals(0, tiered.demote());
+      tiered.add(hot);
+
+      clock.millis.set(Duration.ofDays(7).plusHours(1).toMillis());
+      assertEquals(2, tiered.expire());
+      PostPaymentResponse summary = tiered.get(demoted.getId()).orElseThrow();
+      assertEquals(PaymentStatus.CAPTURED, summary.getStatus());
+      assertEquals(100, summary.getAmount());
+      assertEquals(40, summary.getRefundedAmount());
+      assertEquals("USD", summary.getCurrency());
+      assertEquals(0, summary.getCardNumberLastFour());
+      assertNull(summary.getAuthorizationCode());
+      assertNull(tiered.get(hot.getId()).orElseThrow().getAuthorizationCode());
+
+      clock.millis.set(Duration.ofDays(37).plusHours(2).toMillis());
+      assertEquals(2, tiered.expire());
+      assertTrue(tiered.get(demoted.getId()).isEmpty());
+      assertTrue(tiered.get(hot.getId()).isEmpty());
+    }
+  }
+
+  private PostPaymentResponse createPayment(int amount, String currency, PaymentStatus status) {
+    return PostPaymentResponse.builder()
+        .setId(UUID.randomUUID())
+        .setAmount(amount)
+        .setCurrency(currency)
+        .setStatus(status)
+        .setExpiryMonth(12)
+        .setExpiryYear(2025)
+        .setCardNumberLastFour(1234)
+        .setAuthorizationCode("AUTH123")
+        .build();
+  }
+
+  private static class MutableClock extends Clock {
+
+    final AtomicLong millis;
+
+    MutableClock(long millis) {
+      this.millis = new AtomicLong(millis);
+    }
+
+    @Override
+    public long millis() {
+      return millis.get();
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis());
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+  }
+}
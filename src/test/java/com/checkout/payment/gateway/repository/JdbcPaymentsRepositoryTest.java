@@ -0,0 +1,264 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.StorageUnavailableException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("JdbcPaymentsRepository Tests")
+class JdbcPaymentsRepositoryTest {
+
+  private JdbcConnectionPool dataSource;
+  private JdbcPaymentsRepository repository;
+
+  @BeforeEach
+  void setUp() {
+    dataSource = JdbcConnectionPool.create(
+        "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+    repository = new JdbcPaymentsRepository(dataSource, 50, 1000, Duration.ofMillis(100),
+        Duration.ofMillis(5), 3, 100);
+  }
+
+  @AfterEach
+  void tearDown() {
+    repository.close();
+    dataSource.dispose();
+  }
+
+  @Test
+  @DisplayName("Should serve a payment immediately after add, before it is flushed")
+  void testReadYourWrites() {
+    PostPaymentResponse payment = createPayment(1050, "USD", PaymentStatus.AUTHORIZED);
+
+    repository.add(payment);
+
+    assertEquals(payment, repository.get(payment.getId()).orElseThrow());
+  }
+
+  @Test
+  @DisplayName("Should persist queued payments to the database in batches")
+  void testFlushPersistsPayments() throws SQLException {
+    List<PostPaymentResponse> stored = new ArrayList<>();
+    for (int i = 0; i < 120; i++) {
+      PostPaymentResponse payment = createPayment(100 + i, "EUR", PaymentStatus.DECLINED);
+      repository.add(payment);
+      stored.add(payment);
+    }
+
+    repository.flush();
+
+    assertEquals(120, countRows());
+    for (PostPaymentResponse payment : stored) {
+      assertEquals(payment, repository.get(payment.getId()).orElseThrow());
+    }
+  }
+
+  @Test
+  @DisplayName("Should keep the latest state of a payment written twice")
+  void testOverwrite() {
+    PostPaymentResponse payment = createPayment(1050, "GBP", PaymentStatus.AUTHORIZED);
+    repository.add(payment);
+    PostPaymentResponse updated = createPayment(1050, "GBP", PaymentStatus.DECLINED);
+    updated.setId(payment.getId());
+    repository.add(updated);
+
+    repository.flush();
+
+    assertEquals(PaymentStatus.DECLINED,
+        repository.get(payment.getId()).orElseThrow().getStatus());
+  }
+
+  @Test
+  @DisplayName("Should refuse writes when the queue stays full past the enqueue timeout")
+  void testBackpressure() {
+    CountDownLatch databaseAvailable = new CountDownLatch(1);
+    AtomicBoolean databaseStalled = new AtomicBoolean();
+    DataSource stallingDataSource = (DataSource) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+          if (databaseStalled.get()) {
+            databaseAvailable.await();
+          }
+          return method.invoke(dataSource, args);
+        });
+    repository.close();
+    repository = new JdbcPaymentsRepository(stallingDataSource, 1, 1, Duration.ofMillis(10),
+        Duration.ofMillis(5), 3, 100);
+
+    databaseStalled.set(true);
+    try {
+      assertThrows(StorageUnavailableException.class, () -> {
+        for (int i = 0; i < 10; i++) {
+          repository.add(createPayment(1, "USD", PaymentStatus.AUTHORIZED));
+        }
+      });
+    } finally {
+      databaseAvailable.countDown();
+    }
+  }
+
+  @Test
+  @DisplayName("Should dead-letter a batch once its write attempts run out and keep serving it")
+  void testDeadLettersAfterAttempts() {
+    AtomicInteger attempts = new AtomicInteger();
+    repository.close();
+    repository = new JdbcPaymentsRepository(failingAfterSchema(attempts), 50, 1000,
+        Duration.ofMillis(100), Duration.ofMillis(5), 3, 100);
+    PostPaymentResponse payment = createPayment(1050, "USD", PaymentStatus.AUTHORIZED);
+
+    repository.add(payment);
+    repository.flush();
+
+    assertEquals(3, attempts.get());
+    assertEquals(List.of(payment), repository.getDeadLetters());
+    assertEquals(payment, repository.get(payment.getId()).orElseThrow());
+  }
+
+  @Test
+  @DisplayName("Should dead-letter only the payment the database rejects, without retrying it")
+  void testDeadLettersBadRowOnly() throws SQLException {
+    PostPaymentResponse good = createPayment(1050, "USD", PaymentStatus.AUTHORIZED);
+    PostPaymentResponse bad = createPayment(1050, "DOLLARS", PaymentStatus.AUTHORIZED);
+    repository.close();
+    repository = new JdbcPaymentsRepository(dataSource, 50, 1000, Duration.ofMillis(100),
+        Duration.ofMillis(5), 1000, 100);
+
+    repository.add(good);
+    repository.add(bad);
+    assertTimeoutPreemptively(Duration.ofSeconds(5), repository::flush);
+
+    assertEquals(1, countRows());
+    assertEquals(List.of(bad), repository.getDeadLetters());
+  }
+
+  @Test
+  @DisplayName("Should stop retrying and close promptly when the database stays down")
+  void testCloseWhileDatabaseDown() {
+    repository.close();
+    repository = new JdbcPaymentsRepository(failingAfterSchema(new AtomicInteger()), 50, 1000,
+        Duration.ofMillis(100), Duration.ofMillis(5), Integer.MAX_VALUE, 100);
+    PostPaymentResponse payment = createPayment(1050, "USD", PaymentStatus.AUTHORIZED);
+    repository.add(payment);
+
+    assertTimeoutPreemptively(Duration.ofSeconds(2), repository::close);
+
+    assertEquals(List.of(payment), repository.getDeadLetters());
+  }
+
+  @Test
+  @DisplayName("Should keep no more dead letters than its limit and count the rest")
+  void testDeadLetterLimit() {
+    repository.close();
+    repository = new JdbcPaymentsRepository(failingAfterSchema(new AtomicInteger()), 50, 1000,
+        Duration.ofMillis(100), Duration.ofMillis(5), 1, 2);
+
+    for (int i = 0; i < 5; i++) {
+      repository.add(createPayment(100 + i, "USD", PaymentStatus.AUTHORIZED));
+    }
+    repository.flush();
+
+    assertEquals(2, repository.getDeadLetters().size());
+    assertEquals(3, repository.getDroppedDeadLetterCount());
+  }
+
+  @Test
+  @DisplayName("Should store the status by name")
+  void testStatusStoredByName() throws SQLException {
+    PostPaymentResponse payment = createPayment(1050, "USD", PaymentStatus.CAPTURED);
+    repository.add(payment);
+    repository.flush();
+
+    try (Connection connection = dataSource.getConnection();
+        ResultSet row = connection.createStatement()
+            .executeQuery("SELECT status FROM payments")) {
+      row.next();
+      assertEquals("CAPTURED", row.getString(1));
+    }
+  }
+
+  @Test
+  @DisplayName("Should convert statuses stored by ordinal to their names")
+  void testMigratesStatusOrdinals() throws SQLException {
+    repository.close();
+    UUID id = UUID.randomUUID();
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute("DROP TABLE payments");
+      statement.execute("CREATE TABLE payments (id UUID PRIMARY KEY, "
+          + "authorization_code VARCHAR(64), status TINYINT, card_number_last_four INT NOT NULL, "
+          + "expiry_month INT NOT NULL, expiry_year INT NOT NULL, currency VARCHAR(3), "
+          + "amount INT NOT NULL, refunded_amount INT NOT NULL DEFAULT 0)");
+      statement.execute("INSERT INTO payments VALUES ('" + id + "', 'AUTH123', "
+          + PaymentStatus.DECLINED.ordinal() + ", 1234, 12, 2025, 'USD', 1050, 0)");
+    }
+
+    repository = new JdbcPaymentsRepository(dataSource, 50, 1000, Duration.ofMillis(100),
+        Duration.ofMillis(5), 3, 100);
+
+    assertEquals(PaymentStatus.DECLINED, repository.get(id).orElseThrow().getStatus());
+  }
+
+  @Test
+  @DisplayName("Should return empty Optional when payment not found")
+  void testGetNonExistentPayment() {
+    assertTrue(repository.get(UUID.randomUUID()).isEmpty());
+  }
+
+  // Lets the schema be created, then refuses every connection as if the database went away
+  private DataSource failingAfterSchema(AtomicInteger attempts) {
+    AtomicBoolean schemaCreated = new AtomicBoolean();
+    return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+          if (method.getName().equals("getConnection")
+              && !schemaCreated.compareAndSet(false, true)) {
+            attempts.incrementAndGet();
+            throw new SQLTransientConnectionException("Database is down");
+          }
+          return method.invoke(dataSource, args);
+        });
+  }
+
+  private int countRows() throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        ResultSet count = connection.createStatement()
+            .executeQuery("SELECT COUNT(*) FROM payments")) {
+      count.next();
+      return count.getInt(1);
+    }
+  }
+
+  private PostPaymentResponse createPayment(int amount, String currency, PaymentStatus status) {
+    return PostPaymentResponse.builder()
+        .setId(UUID.randomUUID())
+        .setAmount(amount)
+        .setCurrency(currency)
+        .setStatus(status)
+        .setExpiryMonth(12)
+        .setExpiryYear(2025)
+        .setCardNumberLastFour(1234)
+        .setAuthorizationCode("AUTH123")
+        .build();
+  }
+}
@@ -0,0 +1,72 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Tag("benchmark")
+@DisplayName("JDBC write throughput: per-row vs write-behind batching")
+class JdbcWriteThroughputBenchmark {
+
+  private static final int PAYMENTS = 50_000;
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void comparePerRowAndBatchedWrites() {
+    List<PostPaymentResponse> payments = createPayments();
+
+    double perRow = measure("per-row", repository -> repository.insertPerRow(payments));
+    double batched = measure("batched", repository -> {
+      payments.forEach(repository::add);
+      repository.flush();
+    });
+
+    System.out.printf("Batched write-behind is %.1fx the per-row throughput%n", batched / perRow);
+  }
+
+  private double measure(String name, Consumer<JdbcPaymentsRepository> writes) {
+    JdbcConnectionPool dataSource = JdbcConnectionPool.create(
+        "jdbc:h2:file:" + tempDir.resolve(name), "sa", "");
+    try (JdbcPaymentsRepository repository = new JdbcPaymentsRepository(dataSource, 500,
+        PAYMENTS, Duration.ofSeconds(1), Duration.ofMillis(10), 5, 1000)) {
+      long start = System.nanoTime();
+      writes.accept(repository);
+      double seconds = (System.nanoTime() - start) / 1e9;
+      double throughput = PAYMENTS / seconds;
+      System.out.printf("%-8s %,d payments in %.2fs = %,.0f writes/s%n", name, PAYMENTS, seconds,
+          throughput);
+      return throughput;
+    } finally {
+      dataSource.dispose();
+    }
+  }
+
+  private static List<PostPaymentResponse> createPayments() {
+    List<PostPaymentResponse> payments = new ArrayList<>(PAYMENTS);
+    for (int i = 0; i < PAYMENTS; i++) {
+      payments.add(PostPaymentResponse.builder()
+          .setId(UUID.randomUUID())
+          .setAuthorizationCode(UUID.randomUUID().toString())
+          .setStatus(PaymentStatus.AUTHORIZED)
+          .setCardNumberLastFour(1234)
+          .setExpiryMonth(12)
+          .setExpiryYear(2027)
+          .setCurrency("USD")
+          .setAmount(100 + i)
+          .build());
+    }
+    return payments;
+  }
+}
@@ -0,0 +1,178 @@
+package com.checkout.payment.gateway.repository;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Stores and reads payments for 1 to 256 merchants through one shared store and through one
+ * partition per merchant, with the same hot-tier memory in total and demotion running, then
+ * floods one merchant and checks how much of a small merchant's working set stays hot.
+ */
+@Tag("benchmark")
+@DisplayName("Merchant-partitioned payment storage under many tenants")
+class MerchantPartitionBenchmark {
+
+  private static final int THREADS = 4;
+  private static final int OPS_PER_THREAD = 200_000;
+  private static final int HOT_PER_MERCHANT = 2_000;
+
+  @Test
+  void measureTenantScaling() throws Exception {
+    Path directory = Files.createTempDirectory("merchant-partition-benchmark");
+    run("shared", 16, directory);
+    run("partitioned", 16, directory);
+    for (int merchants : new int[] {1, 16, 256}) {
+      run("shared", merchants, directory);
+      run("partitioned", merchants, directory);
+    }
+  }
+
+  @Test
+  void measureNoisyNeighbour() throws IOException {
+    Path directory = Files.createTempDirectory("merchant-partition-benchmark");
+    // Both layouts hold 20,000 payments hot in total
+    try (ColdPaymentStore coldStore = new ColdPaymentStore(directory, 4096)) {
+      InMemoryPaymentsRepository shared = new InMemoryPaymentsRepository(coldStore, 20_000,
+          Duration.ofHours(1), 1.0, Duration.ZERO);
+      flood("shared", merchant -> shared, shared::demote);
+    }
+    try (ColdPaymentStore coldStore = new ColdPaymentStore(directory, 4096)) {
+      MerchantPartitionedPaymentsRepository partitioned =
+          new MerchantPartitionedPaymentsRepository(coldStore, 0, Duration.ofHours(1), 1.0,
+              Duration.ZERO, directory, 4096, 16, 10_000, Duration.ofHours(1), "");
+      flood("partitioned", partitioned::forMerchant, partitioned::demote);
+      partitioned.shutdown();
+    }
+  }
+
+  private static void run(String layout, int merchants, Path directory)
+      throws InterruptedException {
+    String[] ids = new String[merchants];
+    for (int i = 0; i < merchants; i++) {
+      ids[i] = "merchant-" + i;
+    }
+    ColdPaymentStore coldStore = new ColdPaymentStore(directory, 65_536);
+    PaymentsRepository repository;
+    Runnable demote;
+    Runnable close;
+    if (layout.equals("shared")) {
+      InMemoryPaymentsRepository shared = new InMemoryPaymentsRepository(coldStore,
+          merchants * HOT_PER_MERCHANT, Duration.ofHours(1), 1.0, Duration.ofMillis(10));
+      repository = shared;
+      demote = shared::demote;
+      close = shared::shutdown;
+    } else {
+      MerchantPartitionedPaymentsRepository partitioned =
+          new MerchantPartitionedPaymentsRepository(coldStore, 0, Duration.ofHours(1), 1.0,
+              Duration.ofMillis(10), directory, 1024, merchants, HOT_PER_MERCHANT,
+              Duration.ofHours(1), "");
+      repository = partitioned;
+      demote = partitioned::demote;
+      close = partitioned::shutdown;
+    }
+
+    long[][] latencies = new long[THREADS][OPS_PER_THREAD];
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    long start = System.nanoTime();
+    for (int t = 0; t < THREADS; t++) {
+      long[] recorded = latencies[t];
+      pool.execute(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UUID[] recent = new UUID[merchants];
+        for (int i = 0; i < OPS_PER_THREAD; i++) {
+          int merchant = random.nextInt(merchants);
+          long opStart = System.nanoTime();
+          PaymentsRepository partition = repository.forMerchant(ids[merchant]);
+          // Every other operation reads back this thread's latest payment for the merchant
+          if ((i & 1) == 0 || recent[merchant] == null) {
+            PostPaymentResponse payment = createPayment();
+            partition.add(payment);
+            recent[merchant] = payment.getId();
+          } else {
+            partition.get(recent[merchant]).orElseThrow();
+          }
+          recorded[i] = System.nanoTime() - opStart;
+        }
+      });
+    }
+    pool.shutdown();
+    pool.awaitTermination(5, TimeUnit.MINUTES);
+    long elapsed = System.nanoTime() - start;
+    demote.run();
+    close.run();
+    coldStore.close();
+
+    long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+    System.out.printf("%-11s %3d merchant(s): %,9.0f ops/s, p50 %,6d ns, p99 %,7d ns%n",
+        layout, merchants, all.length / (elapsed / 1e9), all[all.length / 2],
+        all[(int) (all.length * 0.99)]);
+  }
+
+  // A small merchant stores 1,000 payments, then a big one stores 100,000 with demotion running
+  private static void flood(String layout, Function<String, PaymentsRepository> forMerchant,
+      Runnable demote) {
+    UUID[] small = new UUID[1_000];
+    for (int i = 0; i < small.length; i++) {
+      PostPaymentResponse payment = createPayment();
+      forMerchant.apply("small").add(payment);
+      small[i] = payment.getId();
+    }
+    PaymentsRepository big = forMerchant.apply("big");
+    for (int i = 0; i < 100_000; i++) {
+      big.add(createPayment());
+      if (i % 1_000 == 0) {
+        demote.run();
+      }
+    }
+    demote.run();
+
+    // The shared store itself, or the small merchant's partition
+    InMemoryPaymentsRepository smallPartition =
+        (InMemoryPaymentsRepository) forMerchant.apply("small");
+    int hot = 0;
+    long[] lookups = new long[small.length * 20];
+    for (int round = 0; round < 20; round++) {
+      for (int i = 0; i < small.length; i++) {
+        long start = System.nanoTime();
+        smallPartition.get(small[i]).orElseThrow();
+        lookups[round * small.length + i] = System.nanoTime() - start;
+      }
+    }
+    for (UUID id : small) {
+      if (smallPartition.getPayments().containsKey(id)) {
+        hot++;
+      }
+    }
+    Arrays.sort(lookups);
+    System.out.printf("%-11s small merchant after a 100,000-payment flood: %5.1f%% hot, "
+            + "lookup p50 %,6d ns, p99 %,7d ns%n", layout, 100.0 * hot / small.length,
+        lookups[lookups.length / 2], lookups[(int) (lookups.length * 0.99)]);
+  }
+
+  private static PostPaymentResponse createPayment() {
+    return PostPaymentResponse.builder()
+        .setId(UUID.randomUUID())
+        .setAmount(1050)
+        .setCurrency("USD")
+        .setStatus(PaymentStatus.AUTHORIZED)
+        .setExpiryMonth(12)
+        .setExpiryYear(2030)
+        .setCardNumberLastFour(4321)
+        .setAuthorizationCode("AUTH123")
+        .build();
+  }
+}
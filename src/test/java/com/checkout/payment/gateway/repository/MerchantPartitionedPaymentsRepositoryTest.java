@@ -0,0 +1,157 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.InvalidMerchantException;
+import com.checkout.payment.gateway.exception.MerchantLimitException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("MerchantPartitionedPaymentsRepository Tests")
+class MerchantPartitionedPaymentsRepositoryTest {
+
+  @Test
+  @DisplayName("Should only find a payment in the partition it was stored in")
+  void testPartitionIsolation() {
+    MerchantPartitionedPaymentsRepository repository =
+        new MerchantPartitionedPaymentsRepository(16);
+    PostPaymentResponse ofA = createPayment();
+    PostPaymentResponse unscoped = createPayment();
+
+    repository.forMerchant("merchant-a").add(ofA);
+    repository.add(unscoped);
+
+    assertEquals(ofA, repository.forMerchant("merchant-a").get(ofA.getId()).orElseThrow());
+    assertTrue(repository.forMerchant("merchant-b").get(ofA.getId()).isEmpty());
+    assertTrue(repository.get(ofA.getId()).isEmpty());
+    assertTrue(repository.forMerchant("merchant-a").get(unscoped.getId()).isEmpty());
+    assertEquals(unscoped, repository.forMerchant(null).get(unscoped.getId()).orElseThrow());
+    assertSame(repository.getDefaultPartition(), repository.forMerchant(null));
+  }
+
+  @Test
+  @DisplayName("Should create a partition on a merchant's first write, not on reads")
+  void testPartitionsOpenOnWrite() {
+    MerchantPartitionedPaymentsRepository repository =
+        new MerchantPartitionedPaymentsRepository(16);
+
+    repository.forMerchant("merchant-a").get(UUID.randomUUID());
+    assertEquals(0, repository.getPartitionCount());
+
+    repository.forMerchant("merchant-a").add(createPayment());
+    repository.forMerchant("merchant-a").add(createPayment());
+    assertEquals(1, repository.getPartitionCount());
+  }
+
+  @Test
+  @DisplayName("Should refuse new merchants beyond the partition limit and malformed IDs")
+  void testLimitsAndValidation() {
+    MerchantPartitionedPaymentsRepository repository =
+        new MerchantPartitionedPaymentsRepository(2);
+    repository.forMerchant("merchant-a").add(createPayment());
+    repository.forMerchant("merchant-b").add(createPayment());
+
+    assertThrows(MerchantLimitException.class,
+        () -> repository.forMerchant("merchant-c").add(createPayment()));
+    assertThrows(MerchantLimitException.class, () -> repository.openForMerchant("merchant-c"));
+    repository.forMerchant("merchant-a").add(createPayment());
+    assertThrows(InvalidMerchantException.class, () -> repository.forMerchant("merchant/a"));
+    assertThrows(InvalidMerchantException.class, () -> repository.forMerchant(""));
+    assertThrows(InvalidMerchantException.class, () -> repository.forMerchant("m".repeat(33)));
+  }
+
+  @Test
+  @DisplayName("Should open partitions ahead of the first write, and always for quota merchants")
+  void testOpenForMerchant() {
+    MerchantPartitionedPaymentsRepository repository =
+        new MerchantPartitionedPaymentsRepository(null, 100, Duration.ofHours(1), 1.0,
+            Duration.ZERO, null, 16, 1, 100, Duration.ofHours(1), "listed:10");
+    repository.openForMerchant("merchant-a");
+    assertEquals(1, repository.getPartitionCount());
+
+    assertThrows(MerchantLimitException.class, () -> repository.openForMerchant("merchant-b"));
+    repository.openForMerchant("listed").add(createPayment());
+    repository.openForMerchant("merchant-a").add(createPayment());
+    assertEquals(2, repository.getPartitionCount());
+    assertSame(repository.getDefaultPartition(), repository.openForMerchant(null));
+  }
+
+  @Test
+  @DisplayName("Should demote each partition against its own quota")
+  void testQuotaPerPartition(@TempDir Path tempDir) {
+    try (ColdPaymentStore coldStore = new ColdPaymentStore(tempDir, 16)) {
+      MerchantPartitionedPaymentsRepository repository =
+          new MerchantPartitionedPaymentsRepository(coldStore, 100, Duration.ofHours(1), 1.0,
+              Duration.ZERO, tempDir, 16, 16, 100, Duration.ofHours(1), "flood:10");
+      List<PostPaymentResponse> small = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        PostPaymentResponse payment = createPayment();
+        repository.forMerchant("small").add(payment);
+        small.add(payment);
+      }
+      List<PostPaymentResponse> flood = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        PostPaymentResponse payment = createPayment();
+        repository.forMerchant("flood").add(payment);
+        flood.add(payment);
+      }
+
+      assertEquals(190, repository.demote());
+      InMemoryPaymentsRepository smallPartition =
+          (InMemoryPaymentsRepository) repository.forMerchant("small");
+      InMemoryPaymentsRepository floodPartition =
+          (InMemoryPaymentsRepository) repository.forMerchant("flood");
+      assertEquals(5, smallPartition.getPayments().size());
+      assertEquals(0, smallPartition.getColdPaymentCount());
+      assertEquals(10, floodPartition.getPayments().size());
+      assertEquals(190, floodPartition.getColdPaymentCount());
+      for (PostPaymentResponse payment : flood) {
+        assertEquals(payment, floodPartition.get(payment.getId()).orElseThrow());
+        assertTrue(smallPartition.get(payment.getId()).isEmpty());
+      }
+      repository.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Should parse per-merchant quotas, defaulting the age")
+  void testParseQuotas() {
+    MerchantPartitionedPaymentsRepository.Quota defaults =
+        new MerchantPartitionedPaymentsRepository.Quota(100, Duration.ofMinutes(5));
+
+    Map<String, MerchantPartitionedPaymentsRepository.Quota> quotas =
+        MerchantPartitionedPaymentsRepository.parseQuotas(" big:50000:PT1M; small:10;", defaults);
+
+    assertEquals(new MerchantPartitionedPaymentsRepository.Quota(50000, Duration.ofMinutes(1)),
+        quotas.get("big"));
+    assertEquals(new MerchantPartitionedPaymentsRepository.Quota(10, Duration.ofMinutes(5)),
+        quotas.get("small"));
+    assertThrows(IllegalArgumentException.class,
+        () -> MerchantPartitionedPaymentsRepository.parseQuotas("big", defaults));
+  }
+
+  private static PostPaymentResponse createPayment() {
+    return PostPaymentResponse.builder()
+        .setId(UUID.randomUUID())
+        .setAmount(1050)
+        .setCurrency("USD")
+        .setStatus(PaymentStatus.AUTHORIZED)
+        .setExpiryMonth(12)
+        .setExpiryYear(2030)
+        .setCardNumberLastFour(4321)
+        .setAuthorizationCode("AUTH123")
+        .build();
+  }
+}
@@ -0,0 +1,108 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("RetentionBuckets Tests")
+class RetentionBucketsTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  @DisplayName("Should expire only the buckets that ended by the cutoff, oldest first")
+  void testExpireInOrder() {
+    RetentionBuckets buckets = new RetentionBuckets(tempDir, "test", 1000);
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    UUID third = UUID.randomUUID();
+    buckets.add(first, 100);
+    buckets.add(second, 1999);
+    buckets.add(third, 2000);
+    assertEquals(3, buckets.getBucketCount());
+
+    List<UUID> expired = new ArrayList<>();
+    assertEquals(0, buckets.expire(999, expired::add));
+    assertEquals(2, buckets.expire(2000, expired::add));
+
+    assertEquals(List.of(first, second), expired);
+    assertEquals(1, buckets.getBucketCount());
+  }
+
+  @Test
+  @DisplayName("Should hand back every ID added concurrently to one bucket")
+  void testConcurrentAdds() throws InterruptedException {
+    RetentionBuckets buckets = new RetentionBuckets(tempDir, "test", 1000);
+    Set<UUID> added = ConcurrentHashMap.newKeySet();
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    for (int t = 0; t < 4; t++) {
+      pool.execute(() -> {
+        for (int i = 0; i < 10_000; i++) {
+          UUID id = UUID.randomUUID();
+          added.add(id);
+          buckets.add(id, 500);
+        }
+      });
+    }
+    pool.shutdown();
+    assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+    Set<UUID> expired = new HashSet<>();
+    assertEquals(40_000, buckets.expire(1000, expired::add));
+    assertEquals(added, expired);
+    assertEquals(0, buckets.getBucketCount());
+  }
+
+  @Test
+  @DisplayName("Should keep IDs in a file per bucket and delete it once the bucket expires")
+  void testIdsOnDisk() throws IOException {
+    RetentionBuckets buckets = new RetentionBuckets(tempDir, "test", 1000);
+    List<UUID> added = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      UUID id = UUID.randomUUID();
+      added.add(id);
+      buckets.add(id, 500);
+    }
+    // Opens the next bucket, so the first writes out its buffer
+    buckets.add(UUID.randomUUID(), 1500);
+    UUID late = UUID.randomUUID();
+    buckets.add(late, 1400);
+
+    assertEquals(2, listFiles().size());
+    assertTrue(Files.size(tempDir.resolve("test-0.ids")) >= 10_000 * 16);
+
+    List<UUID> expired = new ArrayList<>();
+    assertEquals(10_000, buckets.expire(1000, expired::add));
+    assertEquals(added, expired);
+    assertEquals(List.of(tempDir.resolve("test-1000.ids")), listFiles());
+    expired.clear();
+    assertEquals(2, buckets.expire(2000, expired::add));
+    assertEquals(late, expired.get(1));
+
+    buckets.close();
+    assertTrue(listFiles().isEmpty());
+  }
+
+  private List<Path> listFiles() throws IOException {
+    try (Stream<Path> files = Files.list(tempDir)) {
+      return files.toList();
+    }
+  }
+}
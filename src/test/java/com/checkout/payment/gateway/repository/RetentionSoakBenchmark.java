@@ -0,0 +1,119 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Stores 5,000 payments per simulated second for 24 simulated hours into a tiered store with the
+ * shipped hot tier, segment size and retention (7 days in full, 90 more as summaries, hourly
+ * buckets), demoting and expiring once per simulated second, and prints the live heap, the
+ * payments held and the longest expiry pass at every simulated hour. Nothing expires within the
+ * run, so every payment stays tracked for retention; the heap held after the first hour should
+ * not grow for the remaining 23. Needs about 55 GB of disk for the cold segments, and a direct
+ * memory limit of about 40 GB for their index, which holds 432 million payments by the end and
+ * briefly holds two copies while it grows ({@code -XX:MaxDirectMemorySize}; the default is the
+ * heap size).
+ */
+@Tag("benchmark")
+@DisplayName("Heap use of the memory store with retention over 24 simulated hours")
+class RetentionSoakBenchmark {
+
+  private static final int PAYMENTS_PER_SECOND = 5_000;
+  private static final int HOURS = 24;
+
+  @Test
+  void soak() throws Exception {
+    long[] now = {0};
+    Clock clock = new Clock() {
+      @Override
+      public long millis() {
+        return now[0];
+      }
+
+      @Override
+      public Instant instant() {
+        return Instant.ofEpochMilli(now[0]);
+      }
+
+      @Override
+      public ZoneId getZone() {
+        return ZoneOffset.UTC;
+      }
+
+      @Override
+      public Clock withZone(ZoneId zone) {
+        return this;
+      }
+    };
+    Path directory = Files.createTempDirectory("retention-soak-benchmark");
+    long[] heapByHour = new long[HOURS + 1];
+    try (ColdPaymentStore coldStore = new ColdPaymentStore(directory, 524_288)) {
+      InMemoryPaymentsRepository repository = new InMemoryPaymentsRepository(coldStore, 100_000,
+          Duration.ofMinutes(5), 1.0, Duration.ZERO, new PaymentRetention(Duration.ofDays(7),
+          PaymentRetention.Mode.SUMMARIZE, Duration.ofDays(90), Duration.ofHours(1), clock));
+      long msb = ThreadLocalRandom.current().nextLong();
+      long sequence = 0;
+      long longestPass = 0;
+      long start = System.nanoTime();
+      for (int second = 1; second <= HOURS * 3600; second++) {
+        now[0] = second * 1000L;
+        for (int i = 0; i < PAYMENTS_PER_SECOND; i++) {
+          repository.add(createPayment(new UUID(msb, sequence++)));
+        }
+        repository.demote(false);
+        long passStart = System.nanoTime();
+        repository.expire();
+        longestPass = Math.max(longestPass, System.nanoTime() - passStart);
+        if (second % 3600 == 0) {
+          int hour = second / 3600;
+          heapByHour[hour] = liveHeap();
+          System.out.printf("hour %2d: live heap %,5d MB, hot %,7d, cold %,9d in %,3d segments, "
+                  + "longest expiry pass %,6.1f ms, %,.0f payments/s so far%n", hour,
+              heapByHour[hour] >> 20, repository.getPayments().size(),
+              repository.getColdPaymentCount(), coldStore.getSegmentCount(), longestPass / 1e6,
+              sequence / ((System.nanoTime() - start) / 1e9));
+          longestPass = 0;
+        }
+      }
+      repository.shutdown();
+    }
+
+    for (int hour = 2; hour <= HOURS; hour++) {
+      assertTrue(heapByHour[hour] < heapByHour[1] + (32 << 20),
+          "Live heap grew from " + heapByHour[1] + " to " + heapByHour[hour] + " by hour " + hour);
+    }
+  }
+
+  private static long liveHeap() {
+    System.gc();
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  private static PostPaymentResponse createPayment(UUID id) {
+    return PostPaymentResponse.builder()
+        .setId(id)
+        .setAmount(1050)
+        .setCurrency("USD")
+        .setStatus(PaymentStatus.AUTHORIZED)
+        .setExpiryMonth(12)
+        .setExpiryYear(2030)
+        .setCardNumberLastFour(4321)
+        .setAuthorizationCode("AUTH123")
+        .build();
+  }
+}
@@ -0,0 +1,105 @@
+package com.checkout.payment.gateway.routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("AcquirerRouter Tests")
+class AcquirerRouterTest {
+
+  @Test
+  @DisplayName("Should parse acquirer specs with optional BIN prefixes and currencies")
+  void testParse() {
+    List<Acquirer> acquirers = Acquirer.parseAll(
+        "visa@http://localhost:8081|4,51|USD,GBP; any@http://localhost:8080");
+
+    assertEquals(List.of("4", "51"), acquirers.get(0).binPrefixes());
+    assertEquals(Set.of("USD", "GBP"), acquirers.get(0).currencies());
+    assertEquals("http://localhost:8080", acquirers.get(1).url());
+    assertTrue(acquirers.get(1).binPrefixes().isEmpty());
+    assertThrows(EventProcessingException.class,
+        () -> Acquirer.parse("bad@http://localhost|4x|*"));
+  }
+
+  @Test
+  @DisplayName("Should route by the most specific BIN prefix, then enclosing ones, and by currency")
+  void testEligibility() {
+    AcquirerRouter router = new AcquirerRouter(List.of(
+        Acquirer.parse("visa@http://visa|4|*"),
+        Acquirer.parse("visa-gb@http://visa-gb|4929|GBP"),
+        Acquirer.parse("fallback@http://fallback|*|USD")), 0.2, 5, Duration.ofSeconds(5));
+
+    assertEquals(List.of(0), router.route("4532015112830366", "GBP"));
+    assertEquals(List.of(1, 0), router.route("4929015112830366", "GBP"));
+    assertEquals(List.of(0, 2), router.route("4929015112830366", "USD"));
+    assertEquals(List.of(2), router.route("5500000000000004", "USD"));
+    assertEquals(List.of(), router.route("5500000000000004", "GBP"));
+  }
+
+  @Test
+  @DisplayName("Should fail over to the catch-all acquirer after every specialist")
+  void testEnclosingPrefixesFollow() {
+    AcquirerRouter router = new AcquirerRouter(List.of(
+        Acquirer.parse("fallback@http://fallback|*|*"),
+        Acquirer.parse("visa@http://visa|4|*"),
+        Acquirer.parse("visa-a@http://visa-a|4532|*"),
+        Acquirer.parse("visa-b@http://visa-b|4532|*")), 0.2, 5, Duration.ofSeconds(5));
+
+    for (int i = 0; i < 20; i++) {
+      List<Integer> route = router.route("4532015112830366", "USD");
+      assertEquals(Set.of(2, 3), Set.copyOf(route.subList(0, 2)));
+      assertEquals(List.of(1, 0), route.subList(2, 4));
+    }
+  }
+
+  @Test
+  @DisplayName("Should put the acquirer with the better latency first")
+  void testPrefersLowerLatency() {
+    AcquirerRouter router = twoAcquirers(5);
+    router.getHealth(0).start();
+    router.getHealth(0).succeeded(TimeUnit.MILLISECONDS.toNanos(200));
+    router.getHealth(1).start();
+    router.getHealth(1).succeeded(TimeUnit.MILLISECONDS.toNanos(5));
+
+    for (int i = 0; i < 20; i++) {
+      assertEquals(List.of(1, 0), router.route("4532015112830366", "USD"));
+    }
+  }
+
+  @Test
+  @DisplayName("Should skip an acquirer cooling down after consecutive failures")
+  void testCoolDown() {
+    AcquirerRouter router = twoAcquirers(2);
+    for (int i = 0; i < 2; i++) {
+      router.getHealth(1).start();
+      router.getHealth(1).failed(1_000);
+    }
+
+    assertEquals(List.of(0), router.route("4532015112830366", "USD"));
+    assertTrue(router.getHealth(1).getErrorRate() > 0);
+  }
+
+  @Test
+  @DisplayName("Should still try cooling-down acquirers when nothing else is eligible")
+  void testCoolingDownAsLastResort() {
+    AcquirerRouter router = new AcquirerRouter(List.of(Acquirer.any("only", "http://only")),
+        0.2, 1, Duration.ofMinutes(1));
+    router.getHealth(0).start();
+    router.getHealth(0).failed(1_000);
+
+    assertEquals(List.of(0), router.route("4532015112830366", "USD"));
+  }
+
+  private static AcquirerRouter twoAcquirers(int failuresBeforeCoolDown) {
+    return new AcquirerRouter(List.of(Acquirer.any("slow", "http://slow"),
+        Acquirer.any("fast", "http://fast")), 0.5, failuresBeforeCoolDown, Duration.ofMinutes(1));
+  }
+}
@@ -0,0 +1,68 @@
+package com.checkout.payment.gateway.routing;
+
+import static com.checkout.payment.gateway.routing.BankClientRoutingTest.createPaymentRequest;
+
+import com.checkout.payment.gateway.client.BankClient;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Three stub acquirers at 5, 25 and 60 ms, and 8 threads authorizing 100 payments each. With the
+ * EWMA decay at zero every acquirer keeps the same score and the choice is uniformly random,
+ * which is the baseline the latency-aware routing is compared against.
+ */
+@Tag("benchmark")
+@DisplayName("Authorization latency with random and latency-aware acquirer choice")
+class AcquirerRoutingBenchmark {
+
+  private static final int THREADS = 8;
+  private static final int PAYMENTS_PER_THREAD = 100;
+
+  @Test
+  void compareRouting() throws Exception {
+    try (AcquirerStub fast = new AcquirerStub("fast", 5);
+        AcquirerStub medium = new AcquirerStub("medium", 25);
+        AcquirerStub slow = new AcquirerStub("slow", 60)) {
+      List<Acquirer> acquirers = List.of(fast.acquirer("*", "*"), medium.acquirer("*", "*"),
+          slow.acquirer("*", "*"));
+      // Warm-up, so neither measured run pays for class loading and JIT compilation
+      run(new AcquirerRouter(acquirers, 0, 5, Duration.ofSeconds(5)));
+      report("random", run(new AcquirerRouter(acquirers, 0, 5, Duration.ofSeconds(5))));
+      report("latency-aware", run(new AcquirerRouter(acquirers, 0.2, 5, Duration.ofSeconds(5))));
+    }
+  }
+
+  private static long[] run(AcquirerRouter router) throws InterruptedException {
+    BankClient client = new BankClient(new RestTemplate(), router);
+    long[][] perThread = new long[THREADS][PAYMENTS_PER_THREAD];
+    ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+    for (int t = 0; t < THREADS; t++) {
+      long[] latencies = perThread[t];
+      threads.execute(() -> {
+        for (int i = 0; i < PAYMENTS_PER_THREAD; i++) {
+          long start = System.nanoTime();
+          client.authorize(createPaymentRequest());
+          latencies[i] = System.nanoTime() - start;
+        }
+      });
+    }
+    threads.shutdown();
+    threads.awaitTermination(5, TimeUnit.MINUTES);
+    return Arrays.stream(perThread).flatMapToLong(Arrays::stream).sorted().toArray();
+  }
+
+  private static void report(String mode, long[] latencies) {
+    System.out.printf("%-13s mean %6.1f ms, p50 %6.1f ms, p99 %6.1f ms%n", mode,
+        Arrays.stream(latencies).average().orElse(0) / 1e6,
+        latencies[latencies.length / 2] / 1e6,
+        latencies[(int) (latencies.length * 0.99)] / 1e6);
+  }
+}
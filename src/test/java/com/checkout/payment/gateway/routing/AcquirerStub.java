@@ -0,0 +1,97 @@
+package com.checkout.payment.gateway.routing;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process acquirer answering {@code POST /payments} after a fixed latency, with its name as
+ * the authorization code, or with 503 while marked unavailable. A tail fraction of requests can
+ * be made to take longer.
+ */
+class AcquirerStub implements AutoCloseable {
+
+  static {
+    // Headers and body go out as separate writes; without this they meet the client's delayed ACK
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+  }
+
+  private final String name;
+  private final HttpServer server;
+  private final AtomicInteger requests = new AtomicInteger();
+  private final List<String> idempotencyKeys = new CopyOnWriteArrayList<>();
+  private volatile long latencyNanos;
+  private volatile double tailFraction;
+  private volatile long tailLatencyNanos;
+  private volatile boolean unavailable;
+
+  AcquirerStub(String name, long latencyMillis) throws IOException {
+    this.name = name;
+    this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+    this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    this.server.setExecutor(Executors.newCachedThreadPool());
+    this.server.createContext("/payments", exchange -> {
+      requests.incrementAndGet();
+      String idempotencyKey = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+      if (idempotencyKey != null) {
+        idempotencyKeys.add(idempotencyKey);
+      }
+      exchange.getRequestBody().readAllBytes();
+      LockSupport.parkNanos(ThreadLocalRandom.current().nextDouble() < tailFraction
+          ? tailLatencyNanos : latencyNanos);
+      byte[] body = unavailable
+          ? new byte[0]
+          : ("{\"authorized\":true,\"authorization_code\":\"" + name + "\"}")
+              .getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(unavailable ? 503 : 200, body.length == 0 ? -1 : body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    this.server.start();
+  }
+
+  Acquirer acquirer(String binPrefixes, String currencies) {
+    return Acquirer.parse(name + "@" + url() + "|" + binPrefixes + "|" + currencies);
+  }
+
+  String url() {
+    return "http://localhost:" + server.getAddress().getPort();
+  }
+
+  void setUnavailable(boolean unavailable) {
+    this.unavailable = unavailable;
+  }
+
+  void setLatencyMillis(long latencyMillis) {
+    this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+  }
+
+  void setTail(double fraction, long latencyMillis) {
+    this.tailLatencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+    this.tailFraction = fraction;
+  }
+
+  List<String> getIdempotencyKeys() {
+    return idempotencyKeys;
+  }
+
+  int getRequestCount() {
+    return requests.get();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
@@ -0,0 +1,144 @@
+package com.checkout.payment.gateway.routing;
+
+import static com.checkout.payment.gateway.routing.BankClientRoutingTest.createPaymentRequest;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.bulkhead.Bulkhead;
+import com.checkout.payment.gateway.client.BankClient;
+import com.checkout.payment.gateway.client.Hedging;
+import com.checkout.payment.gateway.client.RetryBudget;
+import com.checkout.payment.gateway.deadline.Deadline;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+@DisplayName("BankClient hedging against stub acquirers")
+class BankClientHedgingTest {
+
+  private final Bulkhead pool = new Bulkhead("bank-hedging", 8, 0);
+
+  @AfterEach
+  void tearDown() {
+    pool.close();
+  }
+
+  @Test
+  @DisplayName("Should answer from the replica when the primary is slower than its p95")
+  void testHedgeWins() throws Exception {
+    try (AcquirerStub primary = new AcquirerStub("primary", 2);
+        AcquirerStub replica = new AcquirerStub("replica", 2)) {
+      BankClient client = createClient(withReplica(primary, replica), new RetryBudget(1, 10));
+      warmUp(client);
+      int replicaWarmUp = replica.getRequestCount();
+      long winsWarmUp = client.getHedgeWinCount();
+
+      primary.setLatencyMillis(1000);
+      long start = System.nanoTime();
+      String code = client.authorize(createPaymentRequest()).getAuthorizationCode();
+      long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+      assertEquals("replica", code);
+      assertTrue(elapsedMillis < 500, "hedged call took " + elapsedMillis + " ms");
+      assertEquals(winsWarmUp + 1, client.getHedgeWinCount());
+      assertEquals(replicaWarmUp + 1, replica.getRequestCount());
+      List<String> primaryKeys = primary.getIdempotencyKeys();
+      assertEquals(primaryKeys.get(primaryKeys.size() - 1),
+          replica.getIdempotencyKeys().get(replica.getIdempotencyKeys().size() - 1));
+    }
+  }
+
+  @Test
+  @DisplayName("Should wait for the primary when the retry budget is empty")
+  void testBudgetExhausted() throws Exception {
+    try (AcquirerStub primary = new AcquirerStub("primary", 2);
+        AcquirerStub replica = new AcquirerStub("replica", 2)) {
+      RetryBudget budget = new RetryBudget(0, 0);
+      BankClient client = createClient(withReplica(primary, replica), budget);
+      warmUp(client);
+
+      primary.setLatencyMillis(200);
+      assertEquals("primary", client.authorize(createPaymentRequest()).getAuthorizationCode());
+      assertEquals(0, client.getHedgeCount());
+      assertEquals(0, replica.getRequestCount());
+      assertTrue(budget.getExhaustedCount() > 0);
+    }
+  }
+
+  @Test
+  @DisplayName("Should not fail over on 503 when the retry budget is empty")
+  void testFailoverNeedsBudget() throws Exception {
+    try (AcquirerStub down = new AcquirerStub("down", 0);
+        AcquirerStub up = new AcquirerStub("up", 0)) {
+      down.setUnavailable(true);
+      AcquirerRouter router = new AcquirerRouter(List.of(down.acquirer("*", "*"),
+          up.acquirer("*", "*")), 0, 100, Duration.ofSeconds(5));
+      BankClient client = new BankClient(new RestTemplate(), router, new RetryBudget(0, 0),
+          Hedging.disabled());
+
+      int failures = 0;
+      for (int i = 0; i < 10; i++) {
+        try {
+          client.authorize(createPaymentRequest());
+        } catch (EventProcessingException e) {
+          failures++;
+        }
+      }
+
+      assertTrue(failures > 0);
+      assertEquals(10 - failures, up.getRequestCount());
+    }
+  }
+
+  @Test
+  @DisplayName("Should not send an Idempotency-Key when hedging is disabled")
+  void testNoKeyWithoutHedging() throws Exception {
+    try (AcquirerStub primary = new AcquirerStub("primary", 0)) {
+      BankClient client = new BankClient(new RestTemplate(), new AcquirerRouter(
+          List.of(primary.acquirer("*", "*")), 0.2, 5, Duration.ofSeconds(5)));
+
+      client.authorize(createPaymentRequest());
+
+      assertTrue(primary.getIdempotencyKeys().isEmpty());
+    }
+  }
+
+  @Test
+  @DisplayName("Should send the caller's Idempotency-Key, and say when no acquirer saw the call")
+  void testCallerKey() throws Exception {
+    try (AcquirerStub primary = new AcquirerStub("primary", 0)) {
+      BankClient client = new BankClient(new RestTemplate(), new AcquirerRouter(
+          List.of(primary.acquirer("*", "*")), 0.2, 5, Duration.ofSeconds(5)));
+
+      client.authorize(createPaymentRequest(), Deadline.none(), "payment-1");
+      primary.setUnavailable(true);
+
+      assertThrows(BankUnavailableException.class,
+          () -> client.authorize(createPaymentRequest(), Deadline.none(), "payment-1"));
+      assertEquals(List.of("payment-1", "payment-1"), primary.getIdempotencyKeys());
+    }
+  }
+
+  private BankClient createClient(Acquirer acquirer, RetryBudget budget) {
+    return new BankClient(new RestTemplate(),
+        new AcquirerRouter(List.of(acquirer), 0.2, 5, Duration.ofSeconds(5)), budget,
+        new Hedging(pool, Duration.ofMillis(20)));
+  }
+
+  // Enough calls for the acquirer to have a p95 to hedge against
+  private static void warmUp(BankClient client) {
+    for (int i = 0; i < 40; i++) {
+      client.authorize(createPaymentRequest());
+    }
+  }
+
+  static Acquirer withReplica(AcquirerStub primary, AcquirerStub replica) {
+    return Acquirer.parse("primary@" + primary.url() + "," + replica.url() + "|*|*");
+  }
+}
@@ -0,0 +1,103 @@
+package com.checkout.payment.gateway.routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.client.BankClient;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+@DisplayName("BankClient routing against stub acquirers")
+class BankClientRoutingTest {
+
+  @Test
+  @DisplayName("Should fail over to the next acquirer when one answers 503")
+  void testFailoverOn503() throws Exception {
+    try (AcquirerStub down = new AcquirerStub("down", 0);
+        AcquirerStub up = new AcquirerStub("up", 0)) {
+      down.setUnavailable(true);
+      AcquirerRouter router = new AcquirerRouter(List.of(down.acquirer("*", "*"),
+          up.acquirer("*", "*")), 0.2, 100, Duration.ofSeconds(5));
+      BankClient client = new BankClient(new RestTemplate(), router);
+
+      for (int i = 0; i < 10; i++) {
+        assertEquals("up", client.authorize(createPaymentRequest()).getAuthorizationCode());
+      }
+      assertTrue(down.getRequestCount() > 0);
+    }
+  }
+
+  @Test
+  @DisplayName("Should report the bank unavailable when every acquirer answers 503")
+  void testAllUnavailable() throws Exception {
+    try (AcquirerStub first = new AcquirerStub("first", 0);
+        AcquirerStub second = new AcquirerStub("second", 0)) {
+      first.setUnavailable(true);
+      second.setUnavailable(true);
+      BankClient client = new BankClient(new RestTemplate(), new AcquirerRouter(
+          List.of(first.acquirer("*", "*"), second.acquirer("*", "*")), 0.2, 5,
+          Duration.ofSeconds(5)));
+
+      assertThrows(EventProcessingException.class,
+          () -> client.authorize(createPaymentRequest()));
+      assertEquals(1, first.getRequestCount());
+      assertEquals(1, second.getRequestCount());
+    }
+  }
+
+  @Test
+  @DisplayName("Should send most traffic to the faster acquirer")
+  void testLatencyAware() throws Exception {
+    try (AcquirerStub slow = new AcquirerStub("slow", 40);
+        AcquirerStub fast = new AcquirerStub("fast", 1)) {
+      BankClient client = new BankClient(new RestTemplate(), new AcquirerRouter(
+          List.of(slow.acquirer("*", "*"), fast.acquirer("*", "*")), 0.2, 5,
+          Duration.ofSeconds(5)));
+
+      // Cold connections make the first calls to either stub slow
+      for (int i = 0; i < 20; i++) {
+        client.authorize(createPaymentRequest());
+      }
+      int warmUp = fast.getRequestCount();
+      for (int i = 0; i < 50; i++) {
+        client.authorize(createPaymentRequest());
+      }
+
+      int fastShare = fast.getRequestCount() - warmUp;
+      assertTrue(fastShare > 45, "fast acquirer only got " + fastShare + " of 50");
+    }
+  }
+
+  @Test
+  @DisplayName("Should route a card to the acquirer registered for its BIN")
+  void testBinRouting() throws Exception {
+    try (AcquirerStub visa = new AcquirerStub("visa", 0);
+        AcquirerStub mastercard = new AcquirerStub("mastercard", 0)) {
+      BankClient client = new BankClient(new RestTemplate(), new AcquirerRouter(
+          List.of(visa.acquirer("4", "*"), mastercard.acquirer("51,52,53,54,55", "*")), 0.2, 5,
+          Duration.ofSeconds(5)));
+      PostPaymentRequest mastercardPayment = createPaymentRequest();
+      mastercardPayment.setCardNumber("5500000000000004");
+
+      assertEquals("visa", client.authorize(createPaymentRequest()).getAuthorizationCode());
+      assertEquals("mastercard", client.authorize(mastercardPayment).getAuthorizationCode());
+    }
+  }
+
+  static PostPaymentRequest createPaymentRequest() {
+    PostPaymentRequest request = new PostPaymentRequest();
+    request.setCardNumber("4532015112830366");
+    request.setExpiryMonth(12);
+    request.setExpiryYear(2030);
+    request.setCurrency("USD");
+    request.setAmount(1050);
+    request.setCvv(123);
+    return request;
+  }
+}
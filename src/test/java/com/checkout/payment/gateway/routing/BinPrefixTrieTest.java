@@ -0,0 +1,56 @@
+package com.checkout.payment.gateway.routing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("BinPrefixTrie Tests")
+class BinPrefixTrieTest {
+
+  @Test
+  @DisplayName("Should list the acquirers of every matching prefix, longest first")
+  void testLongestPrefix() {
+    BinPrefixTrie trie = new BinPrefixTrie();
+    trie.add("", 0);
+    trie.add("4", 1);
+    trie.add("4", 2);
+    trie.add("45320", 3);
+
+    assertArrayEquals(new long[] {0b0001}, lookupAll(trie, "5500000000000004"));
+    assertArrayEquals(new long[] {0b0110, 0b0001}, lookupAll(trie, "4111111111111111"));
+    assertArrayEquals(new long[] {0b0110, 0b0001}, lookupAll(trie, "4532"));
+    assertArrayEquals(new long[] {0b1000, 0b0110, 0b0001},
+        lookupAll(trie, "4532015112830366"));
+  }
+
+  @Test
+  @DisplayName("Should match nothing without a catch-all when no prefix fits")
+  void testNoMatch() {
+    BinPrefixTrie trie = new BinPrefixTrie();
+    trie.add("4", 0);
+
+    assertArrayEquals(new long[0], lookupAll(trie, "5500000000000004"));
+    assertArrayEquals(new long[0], lookupAll(trie, "x4"));
+  }
+
+  @Test
+  @DisplayName("Should grow past its initial node capacity")
+  void testGrowth() {
+    BinPrefixTrie trie = new BinPrefixTrie();
+    for (int i = 0; i < 64; i++) {
+      trie.add(String.format("%06d", i * 1111), i);
+    }
+
+    for (int i = 0; i < 64; i++) {
+      assertArrayEquals(new long[] {1L << i},
+          lookupAll(trie, String.format("%06d", i * 1111) + "1234567890"));
+    }
+  }
+
+  private static long[] lookupAll(BinPrefixTrie trie, String cardNumber) {
+    long[] matches = new long[trie.depth() + 1];
+    return Arrays.copyOf(matches, trie.lookupAll(cardNumber, matches));
+  }
+}
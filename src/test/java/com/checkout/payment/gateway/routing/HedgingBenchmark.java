@@ -0,0 +1,83 @@
+package com.checkout.payment.gateway.routing;
+
+import static com.checkout.payment.gateway.routing.BankClientHedgingTest.withReplica;
+import static com.checkout.payment.gateway.routing.BankClientRoutingTest.createPaymentRequest;
+
+import com.checkout.payment.gateway.bulkhead.Bulkhead;
+import com.checkout.payment.gateway.client.BankClient;
+import com.checkout.payment.gateway.client.Hedging;
+import com.checkout.payment.gateway.client.RetryBudget;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * An acquirer and its replica both answer in 5 ms, except for 3% of requests that take 150 ms.
+ * 4 threads authorize 150 payments each, without hedging and with hedging under a 10% retry
+ * budget.
+ */
+@Tag("benchmark")
+@DisplayName("Tail latency with and without hedged bank requests")
+class HedgingBenchmark {
+
+  private static final int THREADS = 4;
+  private static final int PAYMENTS_PER_THREAD = 150;
+
+  @Test
+  void compareHedging() throws Exception {
+    try (AcquirerStub primary = new AcquirerStub("primary", 5);
+        AcquirerStub replica = new AcquirerStub("replica", 5);
+        Bulkhead pool = new Bulkhead("bank-hedging", 2 * THREADS, 0)) {
+      primary.setTail(0.03, 150);
+      replica.setTail(0.03, 150);
+      Acquirer acquirer = withReplica(primary, replica);
+
+      // Warm-up, so neither measured run pays for class loading and JIT compilation
+      run(createClient(acquirer, Hedging.disabled()));
+      BankClient unhedged = createClient(acquirer, Hedging.disabled());
+      report("unhedged", run(unhedged), unhedged);
+      BankClient hedged = createClient(acquirer, new Hedging(pool, Duration.ofMillis(10)));
+      report("hedged", run(hedged), hedged);
+    }
+  }
+
+  private static BankClient createClient(Acquirer acquirer, Hedging hedging) {
+    return new BankClient(new RestTemplate(),
+        new AcquirerRouter(List.of(acquirer), 0.2, 5, Duration.ofSeconds(5)),
+        new RetryBudget(0.1, 10), hedging);
+  }
+
+  private static long[] run(BankClient client) throws InterruptedException {
+    long[][] perThread = new long[THREADS][PAYMENTS_PER_THREAD];
+    ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+    for (int t = 0; t < THREADS; t++) {
+      long[] latencies = perThread[t];
+      threads.execute(() -> {
+        for (int i = 0; i < PAYMENTS_PER_THREAD; i++) {
+          long start = System.nanoTime();
+          client.authorize(createPaymentRequest());
+          latencies[i] = System.nanoTime() - start;
+        }
+      });
+    }
+    threads.shutdown();
+    threads.awaitTermination(5, TimeUnit.MINUTES);
+    return Arrays.stream(perThread).flatMapToLong(Arrays::stream).sorted().toArray();
+  }
+
+  private static void report(String mode, long[] latencies, BankClient client) {
+    System.out.printf("%-8s mean %6.1f ms, p50 %6.1f ms, p99 %6.1f ms%s%n", mode,
+        Arrays.stream(latencies).average().orElse(0) / 1e6,
+        latencies[latencies.length / 2] / 1e6,
+        latencies[(int) (latencies.length * 0.99)] / 1e6,
+        client.getHedgeCount() == 0 ? "" : String.format(", %d hedges, %d won", client.getHedgeCount(),
+            client.getHedgeWinCount()));
+  }
+}
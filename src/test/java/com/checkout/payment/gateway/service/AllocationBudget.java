@@ -0,0 +1,124 @@
+package com.checkout.payment.gateway.service;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bytes allocated per call on a code path, split into named sections, each with its own budget.
+ * Sections are measured with the current thread's allocation counter, so the path must run on the
+ * calling thread, and only while {@link #record} is running.
+ */
+final class AllocationBudget {
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private final String path;
+  private final long budget;
+  private final List<Section> sections = new ArrayList<>();
+  private boolean recording;
+  private long calls;
+  private long bytes;
+
+  /**
+   * @param budget bytes per call for the whole path
+   */
+  AllocationBudget(String path, long budget) {
+    this.path = path;
+    this.budget = budget;
+  }
+
+  static long allocatedBytes() {
+    return THREADS.getCurrentThreadAllocatedBytes();
+  }
+
+  Section section(String name, long budget) {
+    Section section = new Section(name, budget);
+    sections.add(section);
+    return section;
+  }
+
+  /**
+   * Runs the call {@code warmup} times unrecorded, so the JIT has compiled and escape-analysed
+   * the path, then {@code calls} times recorded.
+   */
+  void record(int warmup, int calls, Runnable call) {
+    for (int i = 0; i < warmup; i++) {
+      call.run();
+    }
+    recording = true;
+    long start = allocatedBytes();
+    for (int i = 0; i < calls; i++) {
+      call.run();
+    }
+    bytes += allocatedBytes() - start;
+    this.calls += calls;
+    recording = false;
+  }
+
+  boolean isWithinBudget() {
+    return perCall(bytes) <= budget
+        && sections.stream().allMatch(section -> perCall(section.bytes) <= section.budget);
+  }
+
+  /**
+   * One line per section, the whole path first and whatever no section covered last, with the
+   * sections over budget marked.
+   */
+  String report() {
+    StringBuilder report = new StringBuilder();
+    line(report, path, perCall(bytes), budget);
+    for (Section section : sections) {
+      line(report, "  " + section.name, perCall(section.bytes), section.budget);
+    }
+    if (!sections.isEmpty()) {
+      line(report, "  (outside sections)", unattributed(), -1);
+    }
+    return report.toString();
+  }
+
+  private long unattributed() {
+    return perCall(bytes) - sections.stream().mapToLong(section -> perCall(section.bytes)).sum();
+  }
+
+  private long perCall(long total) {
+    return calls == 0 ? 0 : total / calls;
+  }
+
+  private static void line(StringBuilder report, String name, long perCall, long budget) {
+    report.append(String.format("%-28s %7d B/call", name, perCall));
+    if (budget >= 0) {
+      report.append(String.format("  budget %7d", budget));
+      if (perCall > budget) {
+        report.append("  OVER BUDGET");
+      }
+    }
+    report.append('\n');
+  }
+
+  final class Section {
+
+    private final String name;
+    private final long budget;
+    private long bytes;
+
+    private Section(String name, long budget) {
+      this.name = name;
+      this.budget = budget;
+    }
+
+    /**
+     * @return the counter to pass to {@link #stop}
+     */
+    long start() {
+      return allocatedBytes();
+    }
+
+    void stop(long start) {
+      if (recording) {
+        bytes += allocatedBytes() - start;
+      }
+    }
+  }
+}
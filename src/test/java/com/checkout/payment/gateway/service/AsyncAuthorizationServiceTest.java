@@ -0,0 +1,280 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.checkout.payment.gateway.authorization.AuthorizationJournal;
+import com.checkout.payment.gateway.bulkhead.Bulkheads;
+import com.checkout.payment.gateway.client.BankClient;
+import com.checkout.payment.gateway.duplicate.DuplicateDetector;
+import com.checkout.payment.gateway.duplicate.DuplicateDetector.Mode;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.events.PaymentEventRing;
+import com.checkout.payment.gateway.exception.BankUnavailableException;
+import com.checkout.payment.gateway.exception.BulkheadFullException;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.ReadOnlyReplicaException;
+import com.checkout.payment.gateway.model.BankResponse;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.pipeline.RiskStage;
+import com.checkout.payment.gateway.repository.InMemoryPaymentsRepository;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.stats.PaymentStatistics;
+import com.checkout.payment.gateway.velocity.VelocityChecker;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("AsyncAuthorizationService Tests")
+class AsyncAuthorizationServiceTest {
+
+  private static final byte[] JOURNAL_KEY = AuthorizationJournal.generateKey();
+
+  @TempDir
+  Path tempDir;
+
+  private BankClient bankClient;
+  private InMemoryPaymentsRepository repository;
+  private AuthorizationJournal journal;
+  private PaymentEventRing events;
+  private AsyncAuthorizationService service;
+
+  @BeforeEach
+  void setUp() {
+    bankClient = mock(BankClient.class);
+    repository = new InMemoryPaymentsRepository();
+    journal = new AuthorizationJournal(tempDir, JOURNAL_KEY);
+    events = new PaymentEventRing(16);
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (service != null) {
+      service.shutdown();
+    }
+    journal.close();
+  }
+
+  @Test
+  @DisplayName("Should store a PENDING payment and replace it with the bank's outcome")
+  void testAcceptThenAuthorize() throws Exception {
+    when(bankClient.authorize(any(), any(), any())).thenReturn(new BankResponse(true, "AUTH12345"));
+    service = createService(2, 100, 1);
+
+    PostPaymentResponse accepted = service.accept(createValidPaymentRequest())
+        .get(5, TimeUnit.SECONDS);
+
+    assertEquals(PaymentStatus.PENDING, accepted.getStatus());
+    awaitStatus(accepted.getId(), PaymentStatus.AUTHORIZED);
+    awaitTrue(() -> journal.getPendingCount() == 0);
+    assertEquals("AUTH12345", repository.get(accepted.getId()).orElseThrow()
+        .getAuthorizationCode());
+    assertEquals(PaymentStatus.PENDING, events.read(0).payment().getStatus());
+    assertEquals(PaymentStatus.AUTHORIZED, events.read(1).payment().getStatus());
+  }
+
+  @Test
+  @DisplayName("Should reject an invalid request without queueing it")
+  void testInvalidRequestRejected() throws Exception {
+    service = createService(1, 100, 1);
+    PostPaymentRequest request = createValidPaymentRequest();
+    request.setAmount(0);
+
+    PostPaymentResponse response = service.accept(request).get(5, TimeUnit.SECONDS);
+
+    assertEquals(PaymentStatus.REJECTED, response.getStatus());
+    assertEquals(0, journal.getPendingCount());
+    verify(bankClient, never()).authorize(any(), any(), any());
+  }
+
+  @Test
+  @DisplayName("Should run the duplicate and velocity checks before queueing a payment")
+  void testRiskChecksBeforeJournal() throws Exception {
+    when(bankClient.authorize(any(), any(), any())).thenReturn(new BankResponse(true, "AUTH12345"));
+    service = new AsyncAuthorizationService(repository, bankClient, journal, Bulkheads.inline(),
+        events, PaymentStatistics.disabled(),
+        new RiskStage(new DuplicateDetector(Mode.REJECT, Duration.ofMinutes(1), 100),
+            VelocityChecker.disabled()),
+        VelocityChecker.disabled(), 0, 100, 1000, 1, Duration.ofMillis(1));
+
+    PostPaymentResponse first = service.accept(createValidPaymentRequest(), "10.0.0.1", null)
+        .get(5, TimeUnit.SECONDS);
+    PostPaymentResponse repeat = service.accept(createValidPaymentRequest(), "10.0.0.1", null)
+        .get(5, TimeUnit.SECONDS);
+
+    assertEquals(PaymentStatus.PENDING, first.getStatus());
+    assertEquals(PaymentStatus.REJECTED, repeat.getStatus());
+    assertEquals(1, journal.getPendingCount());
+  }
+
+  @Test
+  @DisplayName("Should retry a bank call no acquirer saw and reject after the last attempt")
+  void testRetriesThenRejects() throws Exception {
+    when(bankClient.authorize(any(), any(), any()))
+        .thenThrow(new BankUnavailableException("Bank unavailable"));
+    service = createService(1, 100, 3);
+
+    PostPaymentResponse accepted = service.accept(createValidPaymentRequest())
+        .get(5, TimeUnit.SECONDS);
+
+    awaitStatus(accepted.getId(), PaymentStatus.REJECTED);
+    verify(bankClient, times(3)).authorize(any(), any(), any());
+  }
+
+  @Test
+  @DisplayName("Should leave a payment the bank may have authorized pending, without retrying")
+  void testUncertainOutcomeLeftPending() throws Exception {
+    when(bankClient.authorize(any(), any(), any()))
+        .thenThrow(new EventProcessingException("Read timed out"));
+    service = createService(1, 100, 3);
+
+    PostPaymentResponse accepted = service.accept(createValidPaymentRequest())
+        .get(5, TimeUnit.SECONDS);
+
+    awaitTrue(() -> service.getUnresolvedCount() == 1);
+    verify(bankClient, times(1)).authorize(any(), any(), any());
+    assertEquals(PaymentStatus.PENDING, repository.get(accepted.getId()).orElseThrow().getStatus());
+    assertEquals(1, journal.getPendingCount());
+  }
+
+  @Test
+  @DisplayName("Should send the payment ID as the Idempotency-Key on every attempt")
+  void testStableIdempotencyKey() throws Exception {
+    when(bankClient.authorize(any(), any(), any()))
+        .thenThrow(new BankUnavailableException("Bank unavailable"))
+        .thenReturn(new BankResponse(true, "AUTH12345"));
+    service = createService(1, 100, 3);
+
+    PostPaymentResponse accepted = service.accept(createValidPaymentRequest())
+        .get(5, TimeUnit.SECONDS);
+
+    awaitStatus(accepted.getId(), PaymentStatus.AUTHORIZED);
+    verify(bankClient, times(2)).authorize(any(), any(), eq(accepted.getId().toString()));
+  }
+
+  @Test
+  @DisplayName("Should keep working after an unexpected failure")
+  void testWorkerSurvivesUnexpectedFailure() throws Exception {
+    when(bankClient.authorize(any(), any(), any()))
+        .thenThrow(new IllegalStateException("Unexpected"))
+        .thenReturn(new BankResponse(true, "AUTH12345"));
+    service = createService(1, 100, 1);
+
+    PostPaymentResponse first = service.accept(createValidPaymentRequest())
+        .get(5, TimeUnit.SECONDS);
+    PostPaymentResponse second = service.accept(createValidPaymentRequest())
+        .get(5, TimeUnit.SECONDS);
+
+    awaitStatus(second.getId(), PaymentStatus.AUTHORIZED);
+    assertEquals(PaymentStatus.PENDING, repository.get(first.getId()).orElseThrow().getStatus());
+  }
+
+  @Test
+  @DisplayName("Should leave a payment still being retried pending at shutdown")
+  void testShutdownLeavesRetriesPending() throws Exception {
+    CountDownLatch called = new CountDownLatch(1);
+    when(bankClient.authorize(any(), any(), any())).thenAnswer(invocation -> {
+      called.countDown();
+      throw new BankUnavailableException("Bank unavailable");
+    });
+    service = createService(1, 100, 1000);
+
+    PostPaymentResponse accepted = service.accept(createValidPaymentRequest())
+        .get(5, TimeUnit.SECONDS);
+    assertTrue(called.await(5, TimeUnit.SECONDS));
+    service.shutdown();
+    service = null;
+
+    assertEquals(1, journal.getPendingCount());
+    assertEquals(PaymentStatus.PENDING, repository.get(accepted.getId()).orElseThrow().getStatus());
+  }
+
+  @Test
+  @DisplayName("Should resume authorizations left pending by a previous run")
+  void testResumesJournaledPayments() {
+    UUID id = UUID.randomUUID();
+    journal.append(id, createValidPaymentRequest());
+    journal.close();
+    journal = new AuthorizationJournal(tempDir, JOURNAL_KEY);
+    when(bankClient.authorize(any(), any(), any())).thenReturn(new BankResponse(false, null));
+
+    service = createService(1, 100, 1);
+
+    awaitStatus(id, PaymentStatus.DECLINED);
+    awaitTrue(() -> journal.getPendingCount() == 0);
+  }
+
+  @Test
+  @DisplayName("Should refuse new payments once the backlog is full")
+  void testBacklogFull() throws Exception {
+    service = createService(0, 1, 1);
+    service.accept(createValidPaymentRequest()).get(5, TimeUnit.SECONDS);
+
+    ExecutionException e = assertThrows(ExecutionException.class,
+        () -> service.accept(createValidPaymentRequest()).get(5, TimeUnit.SECONDS));
+    assertTrue(e.getCause() instanceof BulkheadFullException);
+  }
+
+  @Test
+  @DisplayName("Should refuse payments on a read-only replica")
+  void testReadOnlyReplica() {
+    PaymentsRepository readOnly = mock(PaymentsRepository.class);
+    when(readOnly.isReadOnly()).thenReturn(true);
+    service = new AsyncAuthorizationService(readOnly, bankClient, journal, Bulkheads.inline(),
+        events, 0, 100, 1000, 1, Duration.ofMillis(1));
+
+    assertThrows(ReadOnlyReplicaException.class,
+        () -> service.accept(createValidPaymentRequest()));
+  }
+
+  private AsyncAuthorizationService createService(int workers, int maxPending, int maxAttempts) {
+    return new AsyncAuthorizationService(repository, bankClient, journal, Bulkheads.inline(),
+        events, workers, maxPending, 1000, maxAttempts, Duration.ofMillis(1));
+  }
+
+  private void awaitStatus(UUID id, PaymentStatus status) {
+    awaitTrue(() -> repository.get(id).map(PostPaymentResponse::getStatus).orElse(null) == status);
+  }
+
+  private static void awaitTrue(BooleanSupplier condition) {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "Condition not met within 10 seconds");
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private PostPaymentRequest createValidPaymentRequest() {
+    PostPaymentRequest request = new PostPaymentRequest();
+    request.setCardNumber("4532015112830366");
+    request.setExpiryMonth(12);
+    request.setExpiryYear(2027);
+    request.setCurrency("USD");
+    request.setAmount(1050);
+    request.setCvv(123);
+    return request;
+  }
+}
@@ -0,0 +1,117 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.authorization.AuthorizationJournal;
+import com.checkout.payment.gateway.bulkhead.Bulkheads;
+import com.checkout.payment.gateway.client.BankClient;
+import com.checkout.payment.gateway.duplicate.DuplicateDetector;
+import com.checkout.payment.gateway.events.PaymentEventRing;
+import com.checkout.payment.gateway.model.BankResponse;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.pipeline.PaymentPipeline;
+import com.checkout.payment.gateway.repository.InMemoryPaymentsRepository;
+import com.checkout.payment.gateway.stats.PaymentStatistics;
+import com.checkout.payment.gateway.velocity.VelocityChecker;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * 64 closed-loop clients post payments for 5 s against a bank that answers in 500 ms. In sync
+ * mode every request waits for the bank; in async mode the request only waits for the journal
+ * fsync, and the bank is fed at 200 authorizations per second behind it.
+ */
+@Tag("benchmark")
+@DisplayName("Ingress throughput of sync and async authorization")
+class AsyncIngressBenchmark {
+
+  private static final long BANK_LATENCY_MILLIS = 500;
+  private static final int CLIENTS = 64;
+  private static final int SECONDS = 5;
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void compareIngress() throws Exception {
+    AtomicInteger bankCalls = new AtomicInteger();
+    BankClient bank = new BankClient(null, "http://bank.invalid") {
+      @Override
+      public BankResponse authorize(PostPaymentRequest paymentRequest) {
+        bankCalls.incrementAndGet();
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(BANK_LATENCY_MILLIS));
+        return new BankResponse(true, UUID.randomUUID().toString());
+      }
+    };
+
+    InMemoryPaymentsRepository repository = new InMemoryPaymentsRepository();
+    PaymentGatewayService sync = new PaymentGatewayService(repository, Bulkheads.inline(),
+        PaymentPipeline.standard(repository, bank, Bulkheads.inline(), new PaymentEventRing(2),
+            DuplicateDetector.disabled(), VelocityChecker.disabled()),
+        PaymentStatistics.disabled());
+    report("sync", run(sync::processPayment), bankCalls.get() / (double) SECONDS);
+
+    bankCalls.set(0);
+    try (AuthorizationJournal journal = new AuthorizationJournal(tempDir,
+        AuthorizationJournal.generateKey())) {
+      AsyncAuthorizationService async = new AsyncAuthorizationService(
+          new InMemoryPaymentsRepository(), bank, journal, Bulkheads.inline(),
+          new PaymentEventRing(16), 200, 1_000_000, 200, 1, Duration.ofSeconds(1));
+      long[] latencies = run(request -> async.accept(request).join());
+      report("async", latencies, bankCalls.get() / (double) SECONDS);
+      System.out.printf("async backlog left for the bank: %,d%n", journal.getPendingCount());
+      async.shutdown();
+    }
+  }
+
+  private static long[] run(Consumer<PostPaymentRequest> post) throws InterruptedException {
+    ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+    long[][] perClient = new long[CLIENTS][];
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SECONDS);
+    for (int c = 0; c < CLIENTS; c++) {
+      int client = c;
+      clients.execute(() -> {
+        long[] latencies = new long[1 << 16];
+        int count = 0;
+        PostPaymentRequest request = createPaymentRequest();
+        while (System.nanoTime() < deadline && count < latencies.length) {
+          long start = System.nanoTime();
+          post.accept(request);
+          latencies[count++] = System.nanoTime() - start;
+        }
+        perClient[client] = Arrays.copyOf(latencies, count);
+      });
+    }
+    clients.shutdown();
+    clients.awaitTermination(SECONDS + 30, TimeUnit.SECONDS);
+    return Arrays.stream(perClient).flatMapToLong(Arrays::stream).sorted().toArray();
+  }
+
+  private static void report(String mode, long[] latencies, double bankRate) {
+    System.out.printf("%-5s accepted %,7.0f/s, p50 %,8.2f ms, p99 %,8.2f ms, bank %,5.0f/s%n",
+        mode, latencies.length / (double) SECONDS,
+        latencies[latencies.length / 2] / 1e6,
+        latencies[(int) (latencies.length * 0.99)] / 1e6, bankRate);
+  }
+
+  private static PostPaymentRequest createPaymentRequest() {
+    PostPaymentRequest request = new PostPaymentRequest();
+    request.setCardNumber("4532015112830367");
+    request.setExpiryMonth(12);
+    request.setExpiryYear(2030);
+    request.setCurrency("USD");
+    request.setAmount(1050);
+    request.setCvv(123);
+    return request;
+  }
+}
@@ -0,0 +1,69 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.InMemoryPaymentsRepository;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Refund throughput when every thread hammers the same few captured payments, so most
+ * transitions contend on a state word.
+ */
+@Tag("benchmark")
+@DisplayName("Lifecycle transition throughput on hot payments")
+class LifecycleTransitionBenchmark {
+
+  private static final int REFUNDS_PER_THREAD = 200_000;
+
+  @Test
+  void measureTransitions() throws Exception {
+    run(1, 8);
+    for (int hotPayments : new int[] {1, 8}) {
+      for (int threads : new int[] {1, 4}) {
+        run(threads, hotPayments);
+      }
+    }
+  }
+
+  private static void run(int threads, int hotPayments) throws InterruptedException {
+    InMemoryPaymentsRepository repository = new InMemoryPaymentsRepository();
+    PaymentLifecycleService lifecycle = new PaymentLifecycleService(repository);
+    UUID[] ids = new UUID[hotPayments];
+    for (int i = 0; i < hotPayments; i++) {
+      ids[i] = UUID.randomUUID();
+      repository.add(PostPaymentResponse.builder()
+          .setId(ids[i])
+          .setStatus(PaymentStatus.CAPTURED)
+          .setAmount(Integer.MAX_VALUE)
+          .setCurrency("USD")
+          .setAuthorizationCode("AUTH123")
+          .build());
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    long start = System.nanoTime();
+    for (int t = 0; t < threads; t++) {
+      int offset = t;
+      pool.execute(() -> {
+        for (int i = 0; i < REFUNDS_PER_THREAD; i++) {
+          lifecycle.refund(ids[(i + offset) % ids.length], 1);
+        }
+      });
+    }
+    pool.shutdown();
+    pool.awaitTermination(5, TimeUnit.MINUTES);
+    long elapsed = System.nanoTime() - start;
+
+    long transitions = lifecycle.getTransitionCount();
+    System.out.printf("%d thread(s), %d hot payment(s): %.0f transitions/s, %.0f ns each, "
+            + "%.3f CAS retries per transition%n", threads, hotPayments,
+        transitions / (elapsed / 1e9), (double) elapsed / transitions,
+        (double) lifecycle.getCasRetryCount() / transitions);
+  }
+}
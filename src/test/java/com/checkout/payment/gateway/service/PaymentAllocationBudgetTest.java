@@ -0,0 +1,200 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.bulkhead.Bulkheads;
+import com.checkout.payment.gateway.client.BankClient;
+import com.checkout.payment.gateway.deadline.Deadline;
+import com.checkout.payment.gateway.duplicate.DuplicateDetector;
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.events.PaymentEventRing;
+import com.checkout.payment.gateway.model.BankResponse;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.pipeline.AuthorizeStage;
+import com.checkout.payment.gateway.pipeline.EnrichStage;
+import com.checkout.payment.gateway.pipeline.PaymentContext;
+import com.checkout.payment.gateway.pipeline.PaymentPipeline;
+import com.checkout.payment.gateway.pipeline.PaymentStage;
+import com.checkout.payment.gateway.pipeline.PersistStage;
+import com.checkout.payment.gateway.pipeline.PublishStage;
+import com.checkout.payment.gateway.pipeline.RiskStage;
+import com.checkout.payment.gateway.pipeline.ValidateStage;
+import com.checkout.payment.gateway.repository.InMemoryPaymentsRepository;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.stats.PaymentStatistics;
+import com.checkout.payment.gateway.velocity.VelocityChecker;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Fails when a change makes a payment allocate more than its declared budget, which shows up in
+ * production as GC pressure long before it shows up in latency. Budgets are bytes per call on the
+ * JIT-compiled path with the bank stubbed out; the report names the stage that went over.
+ */
+@Tag("allocation")
+@DisplayName("Allocation budget Tests")
+class PaymentAllocationBudgetTest {
+
+  private static final int WARMUP_CALLS = 20_000;
+  private static final int MEASURED_CALLS = 20_000;
+  private static final int STORED_PAYMENTS = 4096;
+
+  @Test
+  @DisplayName("processPayment should stay within its allocation budget per stage")
+  void testProcessPaymentBudget() {
+    AllocationBudget budget = new AllocationBudget("processPayment", 3072);
+    List<PaymentStage> stages = List.of(
+        new ValidateStage(),
+        new EnrichStage(),
+        new RiskStage(
+            new DuplicateDetector(DuplicateDetector.Mode.FLAG, Duration.ofSeconds(10), 100_000),
+            new VelocityChecker(Duration.ofMinutes(1), 6, 2, 4096, 1024, Integer.MAX_VALUE,
+                Integer.MAX_VALUE, Integer.MAX_VALUE)),
+        new AuthorizeStage(new StubBankClient(), VelocityChecker.disabled()),
+        new PersistStage(new InMemoryPaymentsRepository(),
+            new PaymentStatistics(60, 16, Clock.systemUTC())),
+        new PublishStage(new PaymentEventRing(1024)));
+    // About a quarter above what each stage allocated when its budget was last set. Raise a
+    // budget only with the reason in the commit; validation is mostly String.matches compiling
+    // its pattern on every call.
+    Map<String, Long> stageBudgets = Map.of(
+        ValidateStage.NAME, 2400L,
+        EnrichStage.NAME, 192L,
+        RiskStage.NAME, 160L,
+        AuthorizeStage.NAME, 64L,
+        PersistStage.NAME, 256L,
+        PublishStage.NAME, 64L);
+    PaymentGatewayService service = new PaymentGatewayService(new InMemoryPaymentsRepository(),
+        Bulkheads.inline(), new PaymentPipeline(stages.stream()
+            .map(stage -> metered(stage, budget.section(stage.name(),
+                stageBudgets.get(stage.name()))))
+            .toList(), Map.of()), PaymentStatistics.disabled());
+    // Built up front and never repeated, so neither their construction nor duplicate warnings
+    // are counted against the pipeline
+    PostPaymentRequest[] requests = requests(WARMUP_CALLS + MEASURED_CALLS);
+    String[] addresses = new String[requests.length];
+    for (int i = 0; i < addresses.length; i++) {
+      addresses[i] = "10." + (i >> 16 & 0xFF) + "." + (i >> 8 & 0xFF) + "." + (i & 0xFF);
+    }
+
+    int[] next = {0};
+    budget.record(WARMUP_CALLS, MEASURED_CALLS, () -> {
+      int i = next[0]++;
+      PostPaymentResponse response = service.processPayment(requests[i], addresses[i]);
+      assertEquals(PaymentStatus.AUTHORIZED, response.getStatus());
+    });
+
+    System.out.print(budget.report());
+    assertTrue(budget.isWithinBudget(), budget::report);
+  }
+
+  @Test
+  @DisplayName("getPaymentById should stay within its allocation budget")
+  void testGetPaymentByIdBudget() {
+    AllocationBudget budget = new AllocationBudget("getPaymentById", 64);
+    AllocationBudget.Section lookup = budget.section("repository.get", 32);
+    InMemoryPaymentsRepository stored = new InMemoryPaymentsRepository();
+    PaymentsRepository repository = new PaymentsRepository() {
+      @Override
+      public void add(PostPaymentResponse payment) {
+        stored.add(payment);
+      }
+
+      @Override
+      public Optional<PostPaymentResponse> get(UUID id) {
+        long start = lookup.start();
+        try {
+          return stored.get(id);
+        } finally {
+          lookup.stop(start);
+        }
+      }
+    };
+    PaymentGatewayService service = new PaymentGatewayService(repository, Bulkheads.inline(),
+        PaymentPipeline.standard(repository, new BankClient(new RestTemplate(),
+                "http://unused.invalid"), Bulkheads.inline(), new PaymentEventRing(2),
+            DuplicateDetector.disabled(), VelocityChecker.disabled()),
+        PaymentStatistics.disabled());
+    PostPaymentRequest request = requests(1)[0];
+    UUID[] ids = new UUID[STORED_PAYMENTS];
+    for (int i = 0; i < STORED_PAYMENTS; i++) {
+      ids[i] = UUID.randomUUID();
+      stored.add(PaymentResponses.withStatus(ids[i], request, PaymentStatus.AUTHORIZED,
+          "AUTH" + i));
+    }
+
+    int[] next = {0};
+    budget.record(WARMUP_CALLS, MEASURED_CALLS, () -> {
+      UUID id = ids[next[0]++ % STORED_PAYMENTS];
+      assertEquals(id, service.getPaymentById(id).getId());
+    });
+
+    System.out.print(budget.report());
+    assertTrue(budget.isWithinBudget(), budget::report);
+  }
+
+  private static PaymentStage metered(PaymentStage stage, AllocationBudget.Section section) {
+    return new PaymentStage() {
+      @Override
+      public String name() {
+        return stage.name();
+      }
+
+      @Override
+      public Set<String> requires() {
+        return stage.requires();
+      }
+
+      @Override
+      public void process(PaymentContext context) {
+        long start = section.start();
+        try {
+          stage.process(context);
+        } finally {
+          section.stop(start);
+        }
+      }
+    };
+  }
+
+  private static PostPaymentRequest[] requests(int count) {
+    PostPaymentRequest[] requests = new PostPaymentRequest[count];
+    for (int i = 0; i < count; i++) {
+      PostPaymentRequest request = new PostPaymentRequest();
+      request.setCardNumber(String.valueOf(4_532_015_112_830_366L + i));
+      request.setExpiryMonth(i % 12 + 1);
+      request.setExpiryYear(2030 + i % 5);
+      request.setCurrency(i % 2 == 0 ? "USD" : "GBP");
+      request.setAmount(100 + i % 9_000);
+      request.setCvv(100 + i % 900);
+      requests[i] = request;
+    }
+    return requests;
+  }
+
+  // Answers without HTTP, so the budget covers the gateway's own code only
+  private static class StubBankClient extends BankClient {
+
+    private static final BankResponse AUTHORIZED = new BankResponse(true, "AUTH0001");
+
+    StubBankClient() {
+      super(new RestTemplate(), "http://unused.invalid");
+    }
+
+    @Override
+    public BankResponse authorize(PostPaymentRequest paymentRequest, Deadline deadline) {
+      return AUTHORIZED;
+    }
+  }
+}
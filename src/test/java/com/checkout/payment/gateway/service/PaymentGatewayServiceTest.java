@@ -1,23 +1,47 @@
 package com.checkout.payment.gateway.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.checkout.payment.gateway.bulkhead.Bulkheads;
 import com.checkout.payment.gateway.client.BankClient;
+import com.checkout.payment.gateway.duplicate.DuplicateDetector;
+import com.checkout.payment.gateway.duplicate.DuplicateDetector.Mode;
+import com.checkout.payment.gateway.events.PaymentEventRing;
 import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.BulkheadFullException;
 import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.MerchantLimitException;
+import com.checkout.payment.gateway.exception.ReadOnlyReplicaException;
+import com.checkout.payment.gateway.exception.StorageUnavailableException;
 import com.checkout.payment.gateway.model.BankResponse;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.pipeline.PaymentPipeline;
+import com.checkout.payment.gateway.repository.MerchantPartitionedPaymentsRepository;
 import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.stats.PaymentStatistics;
+import com.checkout.payment.gateway.velocity.VelocityChecker;
+import java.time.Duration;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -39,7 +63,10 @@ class PaymentGatewayServiceTest {
 
   @BeforeEach
   void setUp() {
-    service = new PaymentGatewayService(paymentsRepository, bankClient);
+    // An unpartitioned store, as the default forMerchant makes it
+    lenient().when(paymentsRepository.forMerchant(any())).thenReturn(paymentsRepository);
+    service = service(paymentsRepository, Bulkheads.inline(), DuplicateDetector.disabled(),
+        VelocityChecker.disabled());
   }
 
   @Test
@@ -48,7 +75,7 @@ class PaymentGatewayServiceTest {
     PostPaymentRequest request = createValidPaymentRequest();
     BankResponse bankResponse = new BankResponse(true, "AUTH12345");
 
-    when(bankClient.authorize(request)).thenReturn(bankResponse);
+    when(bankClient.authorize(eq(request), any())).thenReturn(bankResponse);
 
     PostPaymentResponse response = service.processPayment(request);
 
@@ -61,7 +88,7 @@ class PaymentGatewayServiceTest {
     assertEquals("USD", response.getCurrency());
     assertEquals(1050, response.getAmount());
     verify(paymentsRepository, times(1)).add(any(PostPaymentResponse.class));
-    verify(bankClient, times(1)).authorize(any(PostPaymentRequest.class));
+    verify(bankClient, times(1)).authorize(any(PostPaymentRequest.class), any());
   }
 
   @Test
@@ -70,7 +97,7 @@ class PaymentGatewayServiceTest {
     PostPaymentRequest request = createValidPaymentRequest();
     BankResponse bankResponse = new BankResponse(false, null);
 
-    when(bankClient.authorize(request)).thenReturn(bankResponse);
+    when(bankClient.authorize(eq(request), any())).thenReturn(bankResponse);
 
     PostPaymentResponse response = service.processPayment(request);
 
@@ -78,7 +105,7 @@ class PaymentGatewayServiceTest {
     assertEquals(PaymentStatus.DECLINED, response.getStatus());
     assertNull(response.getAuthorizationCode());
     verify(paymentsRepository, times(1)).add(any(PostPaymentResponse.class));
-    verify(bankClient, times(1)).authorize(any(PostPaymentRequest.class));
+    verify(bankClient, times(1)).authorize(any(PostPaymentRequest.class), any());
   }
 
 
@@ -122,7 +149,7 @@ class PaymentGatewayServiceTest {
     PostPaymentRequest request = createValidPaymentRequest();
     BankResponse bankResponse = new BankResponse(true, "AUTH12345");
 
-    when(bankClient.authorize(request)).thenReturn(bankResponse);
+    when(bankClient.authorize(eq(request), any())).thenReturn(bankResponse);
 
     PostPaymentResponse response1 = service.processPayment(request);
     PostPaymentResponse response2 = service.processPayment(request);
@@ -131,6 +158,168 @@ class PaymentGatewayServiceTest {
   }
 
 
+  @Test
+  @DisplayName("Should refuse payments on a read-only replica without calling the bank")
+  void testProcessPaymentOnReadOnlyReplica() {
+    when(paymentsRepository.isReadOnly()).thenReturn(true);
+
+    assertThrows(
+        ReadOnlyReplicaException.class,
+        () -> service.processPayment(createValidPaymentRequest())
+    );
+    verify(bankClient, never()).authorize(any(PostPaymentRequest.class), any());
+  }
+
+  @Test
+  @DisplayName("Should run the bank call on the bank bulkhead and persist on the writes bulkhead")
+  void testProcessPaymentAsyncUsesBulkheads() throws Exception {
+    List<String> executed = new CopyOnWriteArrayList<>();
+    service = service(paymentsRepository, new Bulkheads(tracking("reads", executed),
+            tracking("writes", executed), tracking("bank", executed)),
+        DuplicateDetector.disabled(), VelocityChecker.disabled());
+    PostPaymentRequest request = createValidPaymentRequest();
+    when(bankClient.authorize(eq(request), any())).thenReturn(new BankResponse(true, "AUTH12345"));
+
+    PostPaymentResponse response = service.processPaymentAsync(request).get(5, TimeUnit.SECONDS);
+
+    assertEquals(PaymentStatus.AUTHORIZED, response.getStatus());
+    assertEquals(List.of("writes", "bank", "writes"), executed);
+    verify(paymentsRepository, times(1)).add(response);
+  }
+
+  @Test
+  @DisplayName("Should complete with REJECTED when an async payment fails validation")
+  void testProcessPaymentAsyncRejected() throws Exception {
+    PostPaymentRequest request = createValidPaymentRequest();
+    request.setCurrency("XXX");
+
+    PostPaymentResponse response = service.processPaymentAsync(request).get(5, TimeUnit.SECONDS);
+
+    assertEquals(PaymentStatus.REJECTED, response.getStatus());
+    verify(bankClient, never()).authorize(any(PostPaymentRequest.class), any());
+  }
+
+  @Test
+  @DisplayName("Should fail an async payment with BulkheadFullException when the bank pool is full")
+  void testProcessPaymentAsyncBankBulkheadFull() {
+    Executor full = command -> {
+      throw new BulkheadFullException("bank");
+    };
+    service = service(paymentsRepository, new Bulkheads(Runnable::run, Runnable::run, full),
+        DuplicateDetector.disabled(), VelocityChecker.disabled());
+
+    CompletableFuture<PostPaymentResponse> response =
+        service.processPaymentAsync(createValidPaymentRequest());
+
+    ExecutionException e = assertThrows(ExecutionException.class, response::get);
+    assertInstanceOf(BulkheadFullException.class, e.getCause());
+    verify(paymentsRepository, never()).add(any(PostPaymentResponse.class));
+  }
+
+  @Test
+  @DisplayName("Should reject a repeated payment without calling the bank in REJECT mode")
+  void testDuplicateRejected() {
+    service = service(paymentsRepository, Bulkheads.inline(),
+        new DuplicateDetector(Mode.REJECT, Duration.ofMinutes(1), 100),
+        VelocityChecker.disabled());
+    when(bankClient.authorize(any(PostPaymentRequest.class), any()))
+        .thenReturn(new BankResponse(true, "AUTH12345"));
+
+    PostPaymentResponse first = service.processPayment(createValidPaymentRequest());
+    PostPaymentResponse repeat = service.processPayment(createValidPaymentRequest());
+
+    assertEquals(PaymentStatus.AUTHORIZED, first.getStatus());
+    assertEquals(PaymentStatus.REJECTED, repeat.getStatus());
+    verify(bankClient, times(1)).authorize(any(PostPaymentRequest.class), any());
+  }
+
+  @Test
+  @DisplayName("Should still authorize a repeated payment in FLAG mode")
+  void testDuplicateFlagged() {
+    DuplicateDetector detector = new DuplicateDetector(Mode.FLAG, Duration.ofMinutes(1), 100);
+    service = service(paymentsRepository, Bulkheads.inline(), detector,
+        VelocityChecker.disabled());
+    when(bankClient.authorize(any(PostPaymentRequest.class), any()))
+        .thenReturn(new BankResponse(true, "AUTH12345"));
+
+    service.processPayment(createValidPaymentRequest());
+    PostPaymentResponse repeat = service.processPayment(createValidPaymentRequest());
+
+    assertEquals(PaymentStatus.AUTHORIZED, repeat.getStatus());
+    assertEquals(1, detector.getDuplicateCount());
+    verify(bankClient, times(2)).authorize(any(PostPaymentRequest.class), any());
+  }
+
+  @Test
+  @DisplayName("Should stop calling the bank for a card that keeps getting declined")
+  void testVelocityDeclines() {
+    service = service(paymentsRepository, Bulkheads.inline(), DuplicateDetector.disabled(),
+        new VelocityChecker(Duration.ofMinutes(1), 6, 4, 1024, 256, 100, 2, 100));
+    when(bankClient.authorize(any(PostPaymentRequest.class), any()))
+        .thenReturn(new BankResponse(false, null));
+
+    for (int i = 0; i < 2; i++) {
+      assertEquals(PaymentStatus.DECLINED,
+          service.processPayment(createValidPaymentRequest(), "10.0.0.1").getStatus());
+    }
+    PostPaymentResponse blocked = service.processPayment(createValidPaymentRequest(), "10.0.0.1");
+
+    assertEquals(PaymentStatus.REJECTED, blocked.getStatus());
+    verify(bankClient, times(2)).authorize(any(PostPaymentRequest.class), any());
+  }
+
+  // The standard pipeline, with no-op events and statistics
+  private PaymentGatewayService service(PaymentsRepository repository, Bulkheads bulkheads,
+      DuplicateDetector duplicateDetector, VelocityChecker velocityChecker) {
+    return new PaymentGatewayService(repository, bulkheads, PaymentPipeline.standard(repository,
+        bankClient, bulkheads, new PaymentEventRing(2), duplicateDetector, velocityChecker),
+        PaymentStatistics.disabled());
+  }
+
+  private static Executor tracking(String name, List<String> executed) {
+    return command -> {
+      executed.add(name);
+      command.run();
+    };
+  }
+
+
+  @Test
+  @DisplayName("Should refuse a merchant with no partition left before calling the bank")
+  void testMerchantLimitCheckedBeforeBank() {
+    MerchantPartitionedPaymentsRepository partitioned =
+        new MerchantPartitionedPaymentsRepository(1);
+    PaymentGatewayService partitionedService = service(partitioned, Bulkheads.inline(),
+        DuplicateDetector.disabled(), VelocityChecker.disabled());
+    when(bankClient.authorize(any(PostPaymentRequest.class), any()))
+        .thenReturn(new BankResponse(true, "AUTH12345"));
+    partitionedService.processPayment(createValidPaymentRequest(), null, "merchant-a");
+
+    assertThrows(MerchantLimitException.class, () -> partitionedService.processPaymentAsync(
+        createValidPaymentRequest(), null, "merchant-b"));
+    verify(bankClient, times(1)).authorize(any(PostPaymentRequest.class), any());
+  }
+
+  @Test
+  @DisplayName("Should report a payment the bank authorized but the store refused as unstored")
+  void testUnstoredPaymentIsNotRejected() {
+    when(bankClient.authorize(any(PostPaymentRequest.class), any()))
+        .thenReturn(new BankResponse(true, "AUTH12345"));
+    doThrow(new StorageUnavailableException("Payment store write queue is full"))
+        .when(paymentsRepository).add(any());
+
+    StorageUnavailableException sync = assertThrows(StorageUnavailableException.class,
+        () -> service.processPayment(createValidPaymentRequest()));
+    ExecutionException async = assertThrows(ExecutionException.class,
+        () -> service.processPaymentAsync(createValidPaymentRequest()).get(5, TimeUnit.SECONDS));
+
+    assertEquals(PaymentStatus.AUTHORIZED, sync.getUnstored().getStatus());
+    assertEquals("AUTH12345", sync.getUnstored().getAuthorizationCode());
+    StorageUnavailableException cause =
+        assertInstanceOf(StorageUnavailableException.class, async.getCause());
+    assertEquals(PaymentStatus.AUTHORIZED, cause.getUnstored().getStatus());
+  }
+
   private PostPaymentRequest createValidPaymentRequest() {
     PostPaymentRequest request = new PostPaymentRequest();
     request.setCardNumber("4532015112830366");
@@ -0,0 +1,192 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.InvalidTransitionException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.InMemoryPaymentsRepository;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("PaymentLifecycleService Tests")
+class PaymentLifecycleServiceTest {
+
+  private InMemoryPaymentsRepository repository;
+  private PaymentLifecycleService lifecycle;
+
+  @BeforeEach
+  void setUp() {
+    repository = new InMemoryPaymentsRepository();
+    lifecycle = new PaymentLifecycleService(repository);
+  }
+
+  @Test
+  @DisplayName("Should capture an authorized payment and refund it in parts")
+  void testCaptureAndPartialRefunds() {
+    UUID id = store(PaymentStatus.AUTHORIZED, 1000, 0);
+
+    assertEquals(PaymentStatus.CAPTURED, lifecycle.capture(id).getStatus());
+    PostPaymentResponse partial = lifecycle.refund(id, 300);
+    PostPaymentResponse rest = lifecycle.refund(id, null);
+
+    assertEquals(PaymentStatus.PARTIALLY_REFUNDED, partial.getStatus());
+    assertEquals(300, partial.getRefundedAmount());
+    assertEquals(PaymentStatus.REFUNDED, rest.getStatus());
+    assertEquals(1000, rest.getRefundedAmount());
+    assertEquals(rest, repository.get(id).orElseThrow());
+    assertEquals(3, lifecycle.getTransitionCount());
+  }
+
+  @Test
+  @DisplayName("Should void an authorized payment and refuse to capture it afterwards")
+  void testVoidIsTerminal() {
+    UUID id = store(PaymentStatus.AUTHORIZED, 1000, 0);
+
+    assertEquals(PaymentStatus.VOIDED, lifecycle.voidPayment(id).getStatus());
+
+    assertThrows(InvalidTransitionException.class, () -> lifecycle.capture(id));
+    assertThrows(InvalidTransitionException.class, () -> lifecycle.refund(id, 1));
+    assertEquals(PaymentStatus.VOIDED, repository.get(id).orElseThrow().getStatus());
+    assertEquals(2, lifecycle.getRejectedCount());
+  }
+
+  @Test
+  @DisplayName("Should reject refunds that are not positive or exceed the refundable balance")
+  void testRejectsInvalidRefundAmounts() {
+    UUID id = store(PaymentStatus.CAPTURED, 1000, 0);
+
+    assertThrows(InvalidTransitionException.class, () -> lifecycle.refund(id, 0));
+    assertThrows(InvalidTransitionException.class, () -> lifecycle.refund(id, 1001));
+    lifecycle.refund(id, 1000);
+    assertThrows(InvalidTransitionException.class, () -> lifecycle.refund(id, null));
+  }
+
+  @Test
+  @DisplayName("Should continue from the refunded amount already stored")
+  void testResumesFromStoredRefunds() {
+    UUID id = store(PaymentStatus.PARTIALLY_REFUNDED, 1000, 700);
+
+    assertThrows(InvalidTransitionException.class, () -> lifecycle.refund(id, 301));
+    assertEquals(PaymentStatus.REFUNDED, lifecycle.refund(id, 300).getStatus());
+  }
+
+  @Test
+  @DisplayName("Should not cache the state of a payment still waiting for the bank")
+  void testPendingPaymentIsNotTracked() {
+    UUID id = store(PaymentStatus.PENDING, 1000, 0);
+
+    assertThrows(InvalidTransitionException.class, () -> lifecycle.capture(id));
+    store(id, PaymentStatus.AUTHORIZED, 1000, 0);
+
+    assertEquals(PaymentStatus.CAPTURED, lifecycle.capture(id).getStatus());
+  }
+
+  @Test
+  @DisplayName("Should hold no state once transitions finish or bring back dropped payments")
+  void testDoesNotOutliveTheStore() {
+    UUID id = store(PaymentStatus.AUTHORIZED, 1000, 0);
+
+    lifecycle.capture(id);
+    assertEquals(0, lifecycle.getTrackedCount());
+    repository.getPayments().clear();
+
+    assertThrows(EventProcessingException.class, () -> lifecycle.refund(id, 100));
+    assertTrue(repository.get(id).isEmpty());
+  }
+
+  @Test
+  @DisplayName("Should reject transitions on unknown payments")
+  void testUnknownPayment() {
+    assertThrows(EventProcessingException.class, () -> lifecycle.capture(UUID.randomUUID()));
+  }
+
+  @Test
+  @DisplayName("Should let the owner capture a payment another merchant is asking about")
+  void testOtherMerchantDoesNotBlockOwner() throws Exception {
+    UUID id = store(PaymentStatus.AUTHORIZED, 1000, 0);
+    CountDownLatch looking = new CountDownLatch(1);
+    CountDownLatch answer = new CountDownLatch(1);
+    // The other merchant's partition holds its lookup open, so its transition stays in flight
+    PaymentsRepository otherPartition = new PaymentsRepository() {
+      @Override
+      public void add(PostPaymentResponse payment) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Optional<PostPaymentResponse> get(UUID paymentId) {
+        looking.countDown();
+        try {
+          answer.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return Optional.empty();
+      }
+    };
+    PaymentsRepository partitioned = new PaymentsRepository() {
+      @Override
+      public void add(PostPaymentResponse payment) {
+        repository.add(payment);
+      }
+
+      @Override
+      public Optional<PostPaymentResponse> get(UUID paymentId) {
+        return repository.get(paymentId);
+      }
+
+      @Override
+      public PaymentsRepository forMerchant(String merchantId) {
+        return "other".equals(merchantId) ? otherPartition : this;
+      }
+    };
+    PaymentLifecycleService service = new PaymentLifecycleService(partitioned);
+
+    CompletableFuture<PostPaymentResponse> other = CompletableFuture.supplyAsync(
+        () -> service.capture("other", id));
+    assertTrue(looking.await(5, TimeUnit.SECONDS));
+    try {
+      assertEquals(PaymentStatus.CAPTURED, service.capture("owner", id).getStatus());
+    } finally {
+      answer.countDown();
+    }
+
+    ExecutionException notFound = assertThrows(ExecutionException.class,
+        () -> other.get(5, TimeUnit.SECONDS));
+    assertInstanceOf(EventProcessingException.class, notFound.getCause());
+    assertEquals(PaymentStatus.CAPTURED, repository.get(id).orElseThrow().getStatus());
+    assertEquals(0, service.getTrackedCount());
+  }
+
+  private UUID store(PaymentStatus status, int amount, int refunded) {
+    return store(UUID.randomUUID(), status, amount, refunded);
+  }
+
+  private UUID store(UUID id, PaymentStatus status, int amount, int refunded) {
+    repository.add(PostPaymentResponse.builder()
+        .setId(id)
+        .setStatus(status)
+        .setAmount(amount)
+        .setRefundedAmount(refunded)
+        .setCurrency("USD")
+        .setCardNumberLastFour(1234)
+        .setExpiryMonth(12)
+        .setExpiryYear(2027)
+        .setAuthorizationCode("AUTH123")
+        .build());
+    return id;
+  }
+}
@@ -0,0 +1,148 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.InvalidTransitionException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.repository.InMemoryPaymentsRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Races transitions on the same payment from several threads released together, many times
+ * over, and checks the outcomes every interleaving must agree on.
+ */
+@DisplayName("PaymentLifecycleService racing transitions")
+class PaymentLifecycleStressTest {
+
+  private static final int ROUNDS = 2_000;
+  private static final int THREADS = 4;
+
+  private InMemoryPaymentsRepository repository;
+  private PaymentLifecycleService lifecycle;
+  private ExecutorService pool;
+
+  @BeforeEach
+  void setUp() {
+    repository = new InMemoryPaymentsRepository();
+    lifecycle = new PaymentLifecycleService(repository);
+    pool = Executors.newFixedThreadPool(THREADS);
+  }
+
+  @AfterEach
+  void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  @DisplayName("Exactly one of a racing capture and void wins")
+  void testCaptureRacesVoid() throws Exception {
+    for (int round = 0; round < ROUNDS; round++) {
+      UUID id = store(PaymentStatus.AUTHORIZED, 1000);
+
+      List<PostPaymentResponse> winners = race(
+          () -> lifecycle.capture(id), () -> lifecycle.voidPayment(id),
+          () -> lifecycle.capture(id), () -> lifecycle.voidPayment(id));
+
+      assertEquals(1, winners.size());
+      assertEquals(winners.get(0).getStatus(), repository.get(id).orElseThrow().getStatus());
+    }
+  }
+
+  @Test
+  @DisplayName("Racing refunds never return more than was captured")
+  void testRacingRefundsNeverOverRefund() throws Exception {
+    for (int round = 0; round < ROUNDS; round++) {
+      UUID id = store(PaymentStatus.CAPTURED, 1000);
+
+      // Any two of these fit in the balance, no three do
+      List<PostPaymentResponse> winners = race(
+          () -> lifecycle.refund(id, 400), () -> lifecycle.refund(id, 400),
+          () -> lifecycle.refund(id, 400), () -> lifecycle.refund(id, 400));
+
+      assertEquals(2, winners.size());
+      PostPaymentResponse stored = repository.get(id).orElseThrow();
+      assertEquals(PaymentStatus.PARTIALLY_REFUNDED, stored.getStatus());
+      assertEquals(800, stored.getRefundedAmount());
+    }
+  }
+
+  @Test
+  @DisplayName("Full refunds racing partial refunds leave a consistent final state")
+  void testFullAndPartialRefundsRace() throws Exception {
+    for (int round = 0; round < ROUNDS; round++) {
+      UUID id = store(PaymentStatus.CAPTURED, 1000);
+
+      List<PostPaymentResponse> winners = race(
+          () -> lifecycle.refund(id, null), () -> lifecycle.refund(id, 300),
+          () -> lifecycle.refund(id, 300), () -> lifecycle.refund(id, null));
+
+      int refunded = 0;
+      int previous = 0;
+      for (PostPaymentResponse winner : winners) {
+        refunded = Math.max(refunded, winner.getRefundedAmount());
+        assertTrue(winner.getRefundedAmount() != previous, "Two winners saw the same state");
+        previous = winner.getRefundedAmount();
+      }
+      PostPaymentResponse stored = repository.get(id).orElseThrow();
+      assertEquals(PaymentStatus.REFUNDED, stored.getStatus());
+      assertEquals(1000, stored.getRefundedAmount());
+      assertEquals(1000, refunded);
+    }
+  }
+
+  @SafeVarargs
+  private List<PostPaymentResponse> race(Supplier<PostPaymentResponse>... actions)
+      throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<PostPaymentResponse>> futures = new ArrayList<>();
+    for (Supplier<PostPaymentResponse> action : actions) {
+      futures.add(pool.submit(() -> {
+        start.await();
+        try {
+          return action.get();
+        } catch (InvalidTransitionException e) {
+          return null;
+        }
+      }));
+    }
+    start.countDown();
+    List<PostPaymentResponse> winners = new ArrayList<>();
+    for (Future<PostPaymentResponse> future : futures) {
+      PostPaymentResponse response = future.get(10, TimeUnit.SECONDS);
+      if (response != null) {
+        winners.add(response);
+      }
+    }
+    winners.sort((a, b) -> Integer.compare(a.getRefundedAmount(), b.getRefundedAmount()));
+    return winners;
+  }
+
+  private UUID store(PaymentStatus status, int amount) {
+    UUID id = UUID.randomUUID();
+    repository.add(PostPaymentResponse.builder()
+        .setId(id)
+        .setStatus(status)
+        .setAmount(amount)
+        .setCurrency("USD")
+        .setCardNumberLastFour(1234)
+        .setExpiryMonth(12)
+        .setExpiryYear(2027)
+        .setAuthorizationCode("AUTH123")
+        .build());
+    return id;
+  }
+}
@@ -0,0 +1,176 @@
+package com.checkout.payment.gateway.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PaymentStatsResponse;
+import com.checkout.payment.gateway.model.PaymentStatsResponse.CurrencyStats;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("PaymentStatistics Tests")
+class PaymentStatisticsTest {
+
+  private static final long START = Instant.parse("2026-01-01T10:00:30Z").toEpochMilli();
+
+  private MutableClock clock;
+  private PaymentStatistics statistics;
+
+  @BeforeEach
+  void setUp() {
+    clock = new MutableClock(START);
+    statistics = new PaymentStatistics(5, 2, clock);
+  }
+
+  @Test
+  @DisplayName("Should aggregate volume and outcomes per currency with decline and reject rates")
+  void testAggregatesPerCurrency() {
+    statistics.record(payment(PaymentStatus.AUTHORIZED, "USD", 1000));
+    statistics.record(payment(PaymentStatus.AUTHORIZED, "USD", 250));
+    statistics.record(payment(PaymentStatus.DECLINED, "USD", 999));
+    statistics.record(payment(PaymentStatus.AUTHORIZED, "GBP", 500));
+    statistics.record(payment(PaymentStatus.REJECTED, "GBP", 1));
+    statistics.record(payment(PaymentStatus.PENDING, "GBP", 1));
+
+    PaymentStatsResponse stats = statistics.snapshot(60);
+
+    assertEquals(new CurrencyStats(2, 1250, 1, 0), stats.getCurrencies().get("USD"));
+    assertEquals(new CurrencyStats(1, 500, 0, 1), stats.getCurrencies().get("GBP"));
+    assertEquals(3, stats.getAuthorizedCount());
+    assertEquals(0.25, stats.getDeclineRate());
+    assertEquals(0.2, stats.getRejectRate());
+    assertEquals(Instant.parse("2026-01-01T09:56:00Z"), stats.getFrom());
+    assertEquals(Instant.parse("2026-01-01T10:01:00Z"), stats.getTo());
+  }
+
+  @Test
+  @DisplayName("Should report each minute separately and forget minutes outside the window")
+  void testMinutesRollOver() {
+    statistics.record(payment(PaymentStatus.AUTHORIZED, "USD", 100));
+    advanceMinutes(1);
+    statistics.record(payment(PaymentStatus.AUTHORIZED, "USD", 200));
+    statistics.record(payment(PaymentStatus.AUTHORIZED, "USD", 300));
+
+    PaymentStatsResponse stats = statistics.snapshot(5);
+    assertEquals(2, stats.getMinutes().size());
+    assertEquals(100, stats.getMinutes().get(0).currencies().get("USD").authorizedVolume());
+    assertEquals(500, stats.getMinutes().get(1).currencies().get("USD").authorizedVolume());
+    assertEquals(2, statistics.snapshot(1).getAuthorizedCount());
+
+    advanceMinutes(4);
+    assertEquals(2, statistics.snapshot(5).getAuthorizedCount());
+    // The ring slot of the first minute is reused once the window wraps
+    statistics.record(payment(PaymentStatus.DECLINED, "USD", 100));
+    stats = statistics.snapshot(5);
+    assertEquals(2, stats.getAuthorizedCount());
+    assertEquals(1, stats.getDeclinedCount());
+  }
+
+  @Test
+  @DisplayName("Should report extra currencies and rejected unknown currencies as OTHER")
+  void testCurrencyOverflow() {
+    statistics.record(payment(PaymentStatus.AUTHORIZED, "USD", 1));
+    statistics.record(payment(PaymentStatus.AUTHORIZED, "GBP", 1));
+    statistics.record(payment(PaymentStatus.AUTHORIZED, "EUR", 1));
+    statistics.record(payment(PaymentStatus.REJECTED, "XX!", 1));
+
+    PaymentStatsResponse stats = statistics.snapshot(60);
+
+    assertEquals(new CurrencyStats(1, 1, 0, 1),
+        stats.getCurrencies().get(PaymentStatistics.OTHER_CURRENCY));
+    assertFalse(stats.getCurrencies().containsKey("EUR"));
+    assertTrue(stats.getCurrencies().containsKey("GBP"));
+  }
+
+  @Test
+  @DisplayName("Should stay exact under concurrent writers crossing a minute boundary")
+  void testExactUnderConcurrentWrites() throws Exception {
+    int threads = 4;
+    int perThread = 50_000;
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> writers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      Thread writer = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int i = 0; i < perThread; i++) {
+          statistics.record(payment(i % 10 == 0 ? PaymentStatus.DECLINED
+              : PaymentStatus.AUTHORIZED, i % 2 == 0 ? "USD" : "GBP", 3));
+        }
+      });
+      writer.start();
+      writers.add(writer);
+    }
+    start.countDown();
+    advanceMinutes(1);
+    for (Thread writer : writers) {
+      writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    PaymentStatsResponse stats = statistics.snapshot(5);
+    long total = (long) threads * perThread;
+    assertEquals(total / 10, stats.getDeclinedCount());
+    assertEquals(total - total / 10, stats.getAuthorizedCount());
+    assertEquals(3 * stats.getAuthorizedCount(), stats.getCurrencies().values().stream()
+        .mapToLong(CurrencyStats::authorizedVolume).sum());
+  }
+
+  private void advanceMinutes(int minutes) {
+    clock.millis.addAndGet(TimeUnit.MINUTES.toMillis(minutes));
+  }
+
+  private static PostPaymentResponse payment(PaymentStatus status, String currency, int amount) {
+    return PostPaymentResponse.builder()
+        .setId(UUID.randomUUID())
+        .setStatus(status)
+        .setCurrency(currency)
+        .setAmount(amount)
+        .build();
+  }
+
+  private static class MutableClock extends Clock {
+
+    final AtomicLong millis;
+
+    MutableClock(long millis) {
+      this.millis = new AtomicLong(millis);
+    }
+
+    @Override
+    public long millis() {
+      return millis.get();
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis());
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package com.checkout.payment.gateway.velocity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("SlidingCountMinSketch")
+class SlidingCountMinSketchTest {
+
+  private static final long WINDOW = TimeUnit.SECONDS.toNanos(60);
+  private static final long BUCKET = WINDOW / 6;
+
+  @Test
+  @DisplayName("Should count occurrences of a key across buckets of the window")
+  void testCountsAcrossBuckets() {
+    SlidingCountMinSketch sketch = new SlidingCountMinSketch(4, 1024, 2, 6, WINDOW);
+
+    sketch.add(42, 0, 0);
+    sketch.add(42, 0, BUCKET);
+    assertEquals(3, sketch.add(42, 0, 5 * BUCKET));
+    assertEquals(0, sketch.estimate(43, 0, 5 * BUCKET));
+    assertEquals(0, sketch.estimate(42, 1, 5 * BUCKET));
+  }
+
+  @Test
+  @DisplayName("Should drop counts older than the window")
+  void testExpiry() {
+    SlidingCountMinSketch sketch = new SlidingCountMinSketch(4, 1024, 2, 6, WINDOW);
+
+    sketch.add(42, 0, 0);
+    sketch.add(42, 0, 3 * BUCKET);
+
+    assertEquals(1, sketch.estimate(42, 0, 6 * BUCKET));
+    assertEquals(1, sketch.add(42, 0, 9 * BUCKET));
+  }
+
+  @Test
+  @DisplayName("Should count in a bucket cleared ahead of its period without losing the window")
+  void testPreparedBucket() {
+    SlidingCountMinSketch sketch = new SlidingCountMinSketch(4, 1024, 2, 6, WINDOW);
+    for (int i = 0; i < 3; i++) {
+      sketch.add(42, 0, 0);
+    }
+    sketch.add(42, 0, 2 * BUCKET);
+
+    sketch.prepare(6 * BUCKET);
+
+    assertEquals(1, sketch.estimate(42, 0, 6 * BUCKET));
+    assertEquals(2, sketch.add(42, 0, 7 * BUCKET));
+    assertEquals(2, sketch.estimate(42, 0, 7 * BUCKET));
+  }
+
+  @Test
+  @DisplayName("Should never show counts from a window ago while threads cross into a new bucket")
+  void testNoStaleCountsAcrossBuckets() throws Exception {
+    SlidingCountMinSketch sketch = new SlidingCountMinSketch(1, 1024, 1, 6, WINDOW);
+    for (long period = 0; period < 50; period++) {
+      long start = period * BUCKET;
+      sketch.add(42, 0, start);
+      CountDownLatch go = new CountDownLatch(1);
+      ExecutorService threads = Executors.newFixedThreadPool(4);
+      List<Future<Integer>> estimates = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        estimates.add(threads.submit(() -> {
+          go.await();
+          sketch.add(7, 0, start + BUCKET);
+          return sketch.estimate(42, 0, start + BUCKET);
+        }));
+      }
+      go.countDown();
+      for (Future<Integer> estimate : estimates) {
+        // Key 42 was counted once in each of the last six periods at most
+        assertTrue(estimate.get() <= 6, "estimate " + estimate.get());
+      }
+      threads.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Should never undercount, whatever the number of keys")
+  void testNeverUndercounts() {
+    SlidingCountMinSketch sketch = new SlidingCountMinSketch(4, 1024, 2, 6, WINDOW);
+    SplittableRandom random = new SplittableRandom(7);
+    for (int i = 0; i < 50_000; i++) {
+      sketch.add(random.nextLong(), 0, BUCKET);
+    }
+
+    for (int i = 0; i < 20; i++) {
+      sketch.add(42, 0, BUCKET);
+    }
+
+    int estimate = sketch.estimate(42, 0, BUCKET);
+    assertTrue(estimate >= 20, "estimate " + estimate);
+  }
+
+  @Test
+  @DisplayName("Should overcount far less than the collision mass thanks to conservative updates")
+  void testConservativeUpdate() {
+    SlidingCountMinSketch sketch = new SlidingCountMinSketch(4, 1024, 1, 6, WINDOW);
+    SplittableRandom random = new SplittableRandom(11);
+    for (int i = 0; i < 20_000; i++) {
+      sketch.add(random.nextLong(), 0, BUCKET);
+    }
+
+    // Plain count-min would put about 20 colliding counts in every cell
+    int estimate = sketch.estimate(42, 0, BUCKET);
+    assertTrue(estimate < 20, "estimate " + estimate);
+  }
+
+  @Test
+  @DisplayName("Should reject a width that is not a power of two")
+  void testInvalidWidth() {
+    assertThrows(EventProcessingException.class,
+        () -> new SlidingCountMinSketch(4, 1000, 2, 6, WINDOW));
+  }
+}
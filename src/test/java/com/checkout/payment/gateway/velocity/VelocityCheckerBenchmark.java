@@ -0,0 +1,64 @@
+package com.checkout.payment.gateway.velocity;
+
+import static com.checkout.payment.gateway.velocity.VelocityCheckerTest.createPaymentRequest;
+
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Cost of one velocity check with the default sketch sizes, from 1 and 4 threads over 100,000
+ * distinct cards and 1,000 source addresses.
+ */
+@Tag("benchmark")
+@DisplayName("Velocity check cost per payment")
+class VelocityCheckerBenchmark {
+
+  private static final int CHECKS_PER_THREAD = 500_000;
+  private static final int CARDS = 100_000;
+
+  @Test
+  void measureCheck() throws Exception {
+    PostPaymentRequest[] requests = new PostPaymentRequest[CARDS];
+    String[] sources = new String[1000];
+    for (int i = 0; i < CARDS; i++) {
+      requests[i] = createPaymentRequest(String.valueOf(4532015112830000L + i));
+    }
+    for (int i = 0; i < sources.length; i++) {
+      sources[i] = "10.0." + (i / 256) + "." + (i % 256);
+    }
+
+    run(1, requests, sources);
+    for (int threads : new int[] {1, 4}) {
+      long elapsed = run(threads, requests, sources);
+      double nanosPerCheck = (double) elapsed / (threads * (long) CHECKS_PER_THREAD);
+      System.out.printf("%d thread(s): %.0f ns per check, %.0f checks/s%n", threads,
+          nanosPerCheck, threads * (double) CHECKS_PER_THREAD / (elapsed / 1e9));
+    }
+  }
+
+  private static long run(int threads, PostPaymentRequest[] requests, String[] sources)
+      throws InterruptedException {
+    VelocityChecker checker = new VelocityChecker(Duration.ofMinutes(1), 6, 2, 262144, 4096,
+        Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    long start = System.nanoTime();
+    for (int t = 0; t < threads; t++) {
+      int offset = t;
+      pool.execute(() -> {
+        for (int i = 0; i < CHECKS_PER_THREAD; i++) {
+          int n = i * 7 + offset;
+          checker.check(requests[n % requests.length], sources[n % sources.length]);
+        }
+      });
+    }
+    pool.shutdown();
+    pool.awaitTermination(5, TimeUnit.MINUTES);
+    return System.nanoTime() - start;
+  }
+}
@@ -0,0 +1,73 @@
+package com.checkout.payment.gateway.velocity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.velocity.VelocityChecker.Limit;
+import java.time.Duration;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("VelocityChecker")
+class VelocityCheckerTest {
+
+  private final VelocityChecker checker = new VelocityChecker(Duration.ofMinutes(1), 6, 4, 1024,
+      256, 3, 2, 5);
+
+  @Test
+  @DisplayName("Should block a card once it exceeds its attempts")
+  void testCardAttempts() {
+    for (int i = 0; i < 3; i++) {
+      assertNull(checker.check(createPaymentRequest("4532015112830366"), null));
+    }
+
+    assertEquals(Limit.CARD_ATTEMPTS,
+        checker.check(createPaymentRequest("4532015112830366"), null));
+    assertNull(checker.check(createPaymentRequest("4532015112830367"), null));
+    assertEquals(1, checker.getBlockedCount(Limit.CARD_ATTEMPTS));
+  }
+
+  @Test
+  @DisplayName("Should block a card after too many declines")
+  void testCardDeclines() {
+    PostPaymentRequest request = createPaymentRequest("4532015112830366");
+    checker.recordDecline(request);
+    assertNull(checker.check(request, null));
+    checker.recordDecline(request);
+
+    assertEquals(Limit.CARD_DECLINES, checker.check(request, null));
+  }
+
+  @Test
+  @DisplayName("Should block a source address trying many cards")
+  void testSourceAttempts() {
+    for (int i = 0; i < 5; i++) {
+      assertNull(checker.check(createPaymentRequest("453201511283030" + i), "10.0.0.1"));
+    }
+
+    assertEquals(Limit.SOURCE_ATTEMPTS,
+        checker.check(createPaymentRequest("4532015112830399"), "10.0.0.1"));
+    assertNull(checker.check(createPaymentRequest("4532015112830399"), "10.0.0.2"));
+  }
+
+  @Test
+  @DisplayName("Should never block when disabled")
+  void testDisabled() {
+    VelocityChecker disabled = VelocityChecker.disabled();
+    for (int i = 0; i < 100; i++) {
+      assertNull(disabled.check(createPaymentRequest("4532015112830366"), "10.0.0.1"));
+    }
+  }
+
+  static PostPaymentRequest createPaymentRequest(String cardNumber) {
+    PostPaymentRequest request = new PostPaymentRequest();
+    request.setCardNumber(cardNumber);
+    request.setExpiryMonth(12);
+    request.setExpiryYear(2030);
+    request.setCurrency("USD");
+    request.setAmount(1050);
+    request.setCvv(123);
+    return request;
+  }
+}
@@ -0,0 +1,92 @@
+package com.checkout.payment.gateway.warmup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import com.checkout.payment.gateway.bulkhead.Bulkheads;
+import com.checkout.payment.gateway.client.BankClient;
+import com.checkout.payment.gateway.duplicate.DuplicateDetector;
+import com.checkout.payment.gateway.events.PaymentEventRing;
+import com.checkout.payment.gateway.pipeline.PaymentPipeline;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.velocity.VelocityChecker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+@DisplayName("PaymentWarmup Tests")
+class PaymentWarmupTest {
+
+  @Test
+  @DisplayName("Should run at least three rounds and then report completion")
+  void testRunsMinimumRounds() {
+    PaymentWarmup warmup = new PaymentWarmup(new ObjectMapper(),
+        new RestTemplate().getMessageConverters(), pipeline(mock(PaymentsRepository.class),
+            mock(BankClient.class), Bulkheads.inline()), Bulkheads.inline(), 50,
+        Duration.ofSeconds(30), Duration.ofDays(1));
+
+    assertFalse(warmup.isComplete());
+    warmup.run();
+
+    assertTrue(warmup.isComplete());
+    assertTrue(warmup.getPaymentCount() >= 150);
+    assertEquals(0, warmup.getFailedCount());
+  }
+
+  @Test
+  @DisplayName("Should stop at the maximum duration when compilation never settles")
+  void testStopsAtMaximumDuration() {
+    PaymentWarmup warmup = new PaymentWarmup(new ObjectMapper(),
+        new RestTemplate().getMessageConverters(), pipeline(mock(PaymentsRepository.class),
+            mock(BankClient.class), Bulkheads.inline()), Bulkheads.inline(), 20, Duration.ZERO,
+        Duration.ofMillis(-1));
+
+    warmup.run();
+
+    assertTrue(warmup.isComplete());
+    assertEquals(20, warmup.getPaymentCount());
+  }
+
+  @Test
+  @DisplayName("Should run on the pipeline's bulkheads without touching its store or bank")
+  void testKeepsOffRealState() {
+    PaymentsRepository repository = mock(PaymentsRepository.class);
+    BankClient bankClient = mock(BankClient.class);
+    AtomicInteger writes = new AtomicInteger();
+    AtomicInteger bank = new AtomicInteger();
+    Bulkheads bulkheads = new Bulkheads(Runnable::run, counting(writes), counting(bank));
+    PaymentWarmup warmup = new PaymentWarmup(new ObjectMapper(),
+        new RestTemplate().getMessageConverters(), pipeline(repository, bankClient, bulkheads),
+        bulkheads, 100, Duration.ZERO, Duration.ofMillis(-1));
+
+    warmup.run();
+
+    assertEquals(100, warmup.getPaymentCount());
+    assertEquals(0, warmup.getFailedCount());
+    // Synchronous payments past validation on the bank bulkhead, async acceptance on the writes
+    // one
+    assertTrue(bank.get() >= 60, bank.get() + " bank calls");
+    assertTrue(writes.get() > 150, writes.get() + " writes");
+    verifyNoInteractions(repository, bankClient);
+  }
+
+  private static Executor counting(AtomicInteger tasks) {
+    return task -> {
+      tasks.incrementAndGet();
+      task.run();
+    };
+  }
+
+  private static PaymentPipeline pipeline(PaymentsRepository repository, BankClient bankClient,
+      Bulkheads bulkheads) {
+    return PaymentPipeline.standard(repository, bankClient, bulkheads, new PaymentEventRing(2),
+        DuplicateDetector.disabled(), VelocityChecker.disabled());
+  }
+}
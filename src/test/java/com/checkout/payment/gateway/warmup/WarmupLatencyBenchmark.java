@@ -0,0 +1,34 @@
+package com.checkout.payment.gateway.warmup;
+
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Latency of the first minute of payments in a freshly started JVM, with and without the
+ * warm-up phase. Each run gets its own process so the JIT starts cold.
+ */
+@Tag("benchmark")
+@DisplayName("First-minute latency with and without warm-up")
+class WarmupLatencyBenchmark {
+
+  private static final int SECONDS = 60;
+
+  @Test
+  void measureFirstMinute() throws Exception {
+    for (boolean warm : new boolean[] {false, true}) {
+      List<String> lines = WarmupLatencyProcess.run(warm, SECONDS);
+      System.out.println(warm ? "With warm-up:" : "Without warm-up:");
+      for (String line : lines) {
+        String[] fields = line.split(" ");
+        if (fields[0].equals("WARMUP")) {
+          System.out.printf("  warm-up: %s payments in %s ms%n", fields[1], fields[2]);
+        } else {
+          System.out.printf("  %-13s p50 %6s us  p99 %6s us  max %6s us%n", fields[1],
+              fields[2], fields[3], fields[4]);
+        }
+      }
+    }
+  }
+}
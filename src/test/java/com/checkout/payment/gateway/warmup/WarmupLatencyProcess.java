@@ -0,0 +1,114 @@
+package com.checkout.payment.gateway.warmup;
+
+import com.checkout.payment.gateway.bulkhead.Bulkheads;
+import com.checkout.payment.gateway.client.BankClient;
+import com.checkout.payment.gateway.duplicate.DuplicateDetector;
+import com.checkout.payment.gateway.events.PaymentEventRing;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.pipeline.PaymentPipeline;
+import com.checkout.payment.gateway.repository.InMemoryPaymentsRepository;
+import com.checkout.payment.gateway.service.PaymentGatewayService;
+import com.checkout.payment.gateway.stats.PaymentStatistics;
+import com.checkout.payment.gateway.velocity.VelocityChecker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * A fresh JVM that optionally warms up, then sends paced payments through a service wired like
+ * production (default risk settings, in-memory repository, bank calls answered by a
+ * {@link BankSink}) and prints {@code LATENCY <window> <p50> <p99> <max>} lines in microseconds.
+ */
+class WarmupLatencyProcess {
+
+  static final int RATE_PER_SECOND = 200;
+
+  public static void main(String[] args) throws Exception {
+    boolean warm = Boolean.parseBoolean(args[0]);
+    int seconds = Integer.parseInt(args[1]);
+
+    ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    RestTemplate restTemplate = new RestTemplate();
+    restTemplate.setRequestFactory(new BankSink());
+    InMemoryPaymentsRepository repository = new InMemoryPaymentsRepository();
+    PaymentPipeline pipeline = PaymentPipeline.standard(repository,
+        new BankClient(restTemplate, "http://bank.invalid"), Bulkheads.inline(),
+        new PaymentEventRing(65536),
+        new DuplicateDetector(DuplicateDetector.Mode.FLAG, Duration.ofSeconds(10), 100_000),
+        new VelocityChecker(Duration.ofMinutes(1), 6, 2, 262144, 4096, 20, 5, 30000));
+    PaymentGatewayService service = new PaymentGatewayService(repository, Bulkheads.inline(),
+        pipeline, PaymentStatistics.disabled());
+    if (warm) {
+      PaymentWarmup warmup = new PaymentWarmup(objectMapper, restTemplate.getMessageConverters(),
+          pipeline, Bulkheads.inline(), 500, Duration.ofSeconds(60), Duration.ofMillis(10));
+      warmup.run();
+      System.out.println("WARMUP " + warmup.getPaymentCount() + " "
+          + warmup.getElapsed().toMillis());
+    }
+
+    int total = seconds * RATE_PER_SECOND;
+    long[] latencies = new long[total];
+    long interval = TimeUnit.SECONDS.toNanos(1) / RATE_PER_SECOND;
+    long next = System.nanoTime();
+    for (int i = 0; i < total; i++) {
+      LockSupport.parkNanos(next - System.nanoTime());
+      next += interval;
+      long start = System.nanoTime();
+      String json = "{\"card_number\":\"" + (5_100_000_000_000_000L + i) + "\","
+          + "\"expiry_month\":12,\"expiry_year\":2030,\"currency\":\"USD\","
+          + "\"amount\":" + (100 + i) + ",\"cvv\":123}";
+      PostPaymentRequest request = objectMapper.readValue(json, PostPaymentRequest.class);
+      PostPaymentResponse response = service.processPaymentAsync(request,
+          "192.168.0." + (i % 200)).join();
+      objectMapper.writeValueAsString(response);
+      latencies[i] = System.nanoTime() - start;
+    }
+
+    report("first-100", Arrays.copyOf(latencies, Math.min(100, total)));
+    report("first-second", Arrays.copyOf(latencies, Math.min(RATE_PER_SECOND, total)));
+    report("first-10s", Arrays.copyOf(latencies, Math.min(10 * RATE_PER_SECOND, total)));
+    report("whole-run", latencies);
+  }
+
+  private static void report(String window, long[] latencies) {
+    long[] sorted = latencies.clone();
+    Arrays.sort(sorted);
+    System.out.printf("LATENCY %s %d %d %d%n", window,
+        sorted[sorted.length / 2] / 1000,
+        sorted[(int) (sorted.length * 0.99)] / 1000,
+        sorted[sorted.length - 1] / 1000);
+  }
+
+  static List<String> run(boolean warm, int seconds) throws IOException, InterruptedException {
+    Process process = new ProcessBuilder(
+        Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+        "-cp", System.getProperty("java.class.path"),
+        WarmupLatencyProcess.class.getName(),
+        String.valueOf(warm), String.valueOf(seconds))
+        .redirectError(ProcessBuilder.Redirect.DISCARD)
+        .start();
+    List<String> lines = new ArrayList<>();
+    try (BufferedReader out = new BufferedReader(
+        new InputStreamReader(process.getInputStream()))) {
+      String line;
+      while ((line = out.readLine()) != null) {
+        if (line.startsWith("LATENCY ") || line.startsWith("WARMUP ")) {
+          lines.add(line);
+        }
+      }
+    }
+    process.waitFor(5, TimeUnit.MINUTES);
+    return lines;
+  }
+}
@@ -0,0 +1,85 @@
+package com.checkout.payment.gateway.warmup;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.checkout.payment.gateway.bulkhead.Bulkheads;
+import com.checkout.payment.gateway.pipeline.PaymentPipeline;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.client.RestTemplate;
+
+@SpringBootTest(properties = "payments.grpc.port=0")
+@AutoConfigureMockMvc
+// Its own context, closed after the class rather than cached for the rest of the run
+@DirtiesContext
+@DisplayName("Readiness during warm-up")
+class WarmupReadinessTest {
+
+  // Warm-up waits for the test to open this, so it is surely still running at the first probe
+  private static final CountDownLatch START = new CountDownLatch(1);
+
+  @Autowired
+  private MockMvc mvc;
+
+  @Autowired
+  private PaymentWarmup warmup;
+
+  @Test
+  @DisplayName("Should report not ready until warm-up completes")
+  void testReadinessFollowsWarmup() throws Exception {
+    mvc.perform(get("/actuator/health/readiness"))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(jsonPath("$.status").value("OUT_OF_SERVICE"));
+    mvc.perform(get("/actuator/health/liveness"))
+        .andExpect(status().isOk());
+
+    START.countDown();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (!warmup.isComplete()) {
+      assertTrue(System.nanoTime() < deadline, "Warm-up never completed");
+      Thread.sleep(50);
+    }
+
+    mvc.perform(get("/actuator/health/readiness"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.status").value("UP"));
+  }
+
+  @TestConfiguration
+  static class HeldWarmup {
+
+    @Bean
+    @Primary
+    PaymentWarmup heldPaymentWarmup(ObjectMapper objectMapper, RestTemplate restTemplate,
+        PaymentPipeline paymentPipeline, Bulkheads bulkheads) {
+      return new PaymentWarmup(objectMapper, restTemplate.getMessageConverters(),
+          paymentPipeline, bulkheads, 20, Duration.ofSeconds(2), Duration.ofMillis(10)) {
+        @Override
+        public void run() {
+          try {
+            START.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+          super.run();
+        }
+      };
+    }
+  }
+}